@@ -0,0 +1,106 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The result of a {@link GHMatrixRequest}. The entries of the tables are indexed by the index of the from point and
+ * the index of the to point. Pairs that are not connected have an infinite weight and distance and a time of
+ * {@link Long#MAX_VALUE}.
+ */
+public class GHMatrixResponse {
+    private final List<Throwable> errors = new ArrayList<>(4);
+    private double[][] weights = new double[0][];
+    private long[][] times = new long[0][];
+    private double[][] distances = new double[0][];
+    private String debugInfo = "";
+
+    public GHMatrixResponse() {
+    }
+
+    public GHMatrixResponse(double[][] weights, long[][] times, double[][] distances) {
+        this.weights = weights;
+        this.times = times;
+        this.distances = distances;
+    }
+
+    public double getWeight(int from, int to) {
+        return weights[from][to];
+    }
+
+    /**
+     * @return the time in milliseconds
+     */
+    public long getTime(int from, int to) {
+        return times[from][to];
+    }
+
+    /**
+     * @return the distance in meters
+     */
+    public double getDistance(int from, int to) {
+        return distances[from][to];
+    }
+
+    public boolean isConnected(int from, int to) {
+        return !Double.isInfinite(weights[from][to]);
+    }
+
+    public double[][] getWeights() {
+        return weights;
+    }
+
+    public long[][] getTimes() {
+        return times;
+    }
+
+    public double[][] getDistances() {
+        return distances;
+    }
+
+    public void addDebugInfo(String debugInfo) {
+        if (!this.debugInfo.isEmpty())
+            this.debugInfo += "; ";
+        this.debugInfo += debugInfo;
+    }
+
+    public String getDebugInfo() {
+        return debugInfo;
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    public List<Throwable> getErrors() {
+        return errors;
+    }
+
+    public GHMatrixResponse addError(Throwable error) {
+        errors.add(error);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "weights: " + weights.length + "x" + (weights.length == 0 ? 0 : weights[0].length)
+                + (errors.isEmpty() ? "" : ", errors: " + errors);
+    }
+}
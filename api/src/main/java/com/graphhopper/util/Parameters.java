@@ -97,6 +97,11 @@ public class Parameters {
         public static final String U_TURN_COSTS = "u_turn_costs";
         public static final String MAX_VISITED_NODES = "max_visited_nodes";
         public static final String INIT_MAX_VISITED_NODES = ROUTING_INIT_PREFIX + "max_visited_nodes";
+        /**
+         * if true the unidirectional algorithms (dijkstra and astar) store the shortest path tree in reusable
+         * primitive arrays instead of one object per visited node
+         */
+        public static final String PRIMITIVE_SEARCH = "primitive_search";
         /**
          * if true the response will contain turn instructions
          */
@@ -126,6 +126,11 @@ public class PointList implements Iterable<GHPoint3D>, PointAccess {
             throw new UnsupportedOperationException("cannot change EMPTY PointList");
         }
 
+        @Override
+        public void reverse(int from, int end) {
+            throw new UnsupportedOperationException("cannot change EMPTY PointList");
+        }
+
         @Override
         public int getSize() {
             return 0;
@@ -336,12 +341,16 @@ public class PointList implements Iterable<GHPoint3D>, PointAccess {
     }
 
     public void reverse() {
+        reverse(0, size);
+    }
+
+    /**
+     * Reverses the order of the points from the index from (inclusive) to the index end (exclusive).
+     */
+    public void reverse(int from, int end) {
         ensureMutability();
         // in-place reverse
-        int max = size / 2;
-        for (int i = 0; i < max; i++) {
-            int swapIndex = size - i - 1;
-
+        for (int i = from, swapIndex = end - 1; i < swapIndex; i++, swapIndex--) {
             double tmp = latitudes[i];
             latitudes[i] = latitudes[swapIndex];
             latitudes[swapIndex] = tmp;
@@ -156,6 +156,11 @@ public final class ShallowImmutablePointList extends PointList {
         throw new UnsupportedOperationException(IMMUTABLE_ERR);
     }
 
+    @Override
+    public void reverse(int from, int end) {
+        throw new UnsupportedOperationException(IMMUTABLE_ERR);
+    }
+
     @Override
     public void clear() {
         throw new UnsupportedOperationException(IMMUTABLE_ERR);
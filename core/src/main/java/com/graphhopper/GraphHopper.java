@@ -24,6 +24,7 @@ import com.graphhopper.reader.DataReader;
 import com.graphhopper.reader.dem.*;
 import com.graphhopper.reader.osm.conditional.DateRangeParser;
 import com.graphhopper.routing.DefaultWeightingFactory;
+import com.graphhopper.routing.RouteCache;
 import com.graphhopper.routing.Router;
 import com.graphhopper.routing.RouterConfig;
 import com.graphhopper.routing.WeightingFactory;
@@ -43,10 +44,12 @@ import com.graphhopper.routing.util.parsers.TagParserFactory;
 import com.graphhopper.routing.weighting.DefaultTurnCostProvider;
 import com.graphhopper.routing.weighting.TurnCostProvider;
 import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.routing.weighting.custom.AreaEdgeIdCache;
 import com.graphhopper.routing.weighting.custom.CustomProfile;
 import com.graphhopper.routing.weighting.custom.CustomWeighting;
 import com.graphhopper.storage.*;
 import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.LocationIndexRTree;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.util.*;
 import com.graphhopper.util.Parameters.CH;
@@ -60,6 +63,10 @@ import java.io.File;
 import java.io.IOException;
 import java.text.DateFormat;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import static com.graphhopper.util.Helper.*;
 import static com.graphhopper.util.Parameters.Algorithms.RoundTrip;
@@ -83,7 +90,12 @@ public class GraphHopper implements GraphHopperAPI {
     private int defaultSegmentSize = -1;
     private String ghLocation = "";
     private DAType dataAccessType = DAType.RAM_STORE;
+    private final LinkedHashMap<String, String> dataAccessTypesByPattern = new LinkedHashMap<>();
+    private final List<String> warmupPatterns = new ArrayList<>();
+    private int warmupThreads = 2;
+    private DataAccessWarmup warmup;
     private boolean sortGraph = false;
+    private boolean compressGeometry = false;
     private boolean elevation = false;
     private LockFactory lockFactory = new NativeFSLockFactory();
     private boolean allowWrites = true;
@@ -92,10 +104,17 @@ public class GraphHopper implements GraphHopperAPI {
     private double longEdgeSamplingDistance = Double.MAX_VALUE;
     // for routing
     private final RouterConfig routerConfig = new RouterConfig();
+    private RouteCache routeCache;
+    private int routeBatchThreads = Runtime.getRuntime().availableProcessors();
+    private ExecutorService routeBatchExecutor;
+    private int routeLegThreads = 0;
+    private ExecutorService routeLegExecutor;
     // for index
     private LocationIndex locationIndex;
+    private AreaEdgeIdCache areaEdgeIdCache;
     private int preciseIndexResolution = 300;
     private int maxRegionSearch = 4;
+    private String locationIndexType = "tree";
     // for prepare
     private int minNetworkSize = 200;
 
@@ -223,6 +242,18 @@ public class GraphHopper implements GraphHopperAPI {
         return this;
     }
 
+    /**
+     * Sets the implementation of the location index: "tree" for the LocationIndexTree (default) or "rtree" for the
+     * LocationIndexRTree.
+     */
+    public GraphHopper setLocationIndexType(String locationIndexType) {
+        ensureNotLoaded();
+        if (!"tree".equals(locationIndexType) && !"rtree".equals(locationIndexType))
+            throw new IllegalArgumentException("index.type must be tree or rtree but was " + locationIndexType);
+        this.locationIndexType = locationIndexType;
+        return this;
+    }
+
     public GraphHopper setMinNetworkSize(int minNetworkSize) {
         ensureNotLoaded();
         this.minNetworkSize = minNetworkSize;
@@ -380,6 +411,14 @@ public class GraphHopper implements GraphHopperAPI {
         return this;
     }
 
+    /**
+     * @return the warmup of the memory mapped files that was started after loading the graph or null if no
+     * graph.dataaccess.warmup is configured
+     */
+    public DataAccessWarmup getDataAccessWarmup() {
+        return warmup;
+    }
+
     /**
      * The underlying graph used in algorithms.
      *
@@ -413,6 +452,16 @@ public class GraphHopper implements GraphHopperAPI {
         this.locationIndex = locationIndex;
     }
 
+    /**
+     * Stores the way geometry in a compact encoding while import, which roughly halves the size of the geometry file
+     * but makes reading it a bit slower. Graphs that are loaded keep the encoding they were imported with.
+     */
+    public GraphHopper setCompressGeometry(boolean compressGeometry) {
+        ensureNotLoaded();
+        this.compressGeometry = compressGeometry;
+        return this;
+    }
+
     /**
      * Sorts the graph which requires more RAM while import. See #12
      */
@@ -488,8 +537,20 @@ public class GraphHopper implements GraphHopperAPI {
 
         String graphDATypeStr = ghConfig.getString("graph.dataaccess", "RAM_STORE");
         dataAccessType = DAType.fromString(graphDATypeStr);
+        // e.g. graph.dataaccess.type.shortcuts_.*: OFF_HEAP_STORE
+        for (Map.Entry<String, Object> entry : ghConfig.asPMap().toMap().entrySet()) {
+            if (entry.getKey().startsWith("graph.dataaccess.type."))
+                dataAccessTypesByPattern.put(entry.getKey().substring("graph.dataaccess.type.".length()), entry.getValue().toString());
+        }
+        // e.g. graph.dataaccess.warmup: nodes,edges,shortcuts_.*
+        for (String pattern : ghConfig.getString("graph.dataaccess.warmup", "").split(",")) {
+            if (!pattern.trim().isEmpty())
+                warmupPatterns.add(pattern.trim());
+        }
+        warmupThreads = ghConfig.getInt("graph.dataaccess.warmup_threads", warmupThreads);
 
         sortGraph = ghConfig.getBool("graph.do_sort", sortGraph);
+        compressGeometry = ghConfig.getBool("graph.compress_geometry", compressGeometry);
         removeZipped = ghConfig.getBool("graph.remove_zipped", removeZipped);
         EncodingManager encodingManager = createEncodingManager(ghConfig);
         if (encodingManager != null) {
@@ -530,6 +591,7 @@ public class GraphHopper implements GraphHopperAPI {
         // index
         preciseIndexResolution = ghConfig.getInt("index.high_resolution", preciseIndexResolution);
         maxRegionSearch = ghConfig.getInt("index.max_region_search", maxRegionSearch);
+        setLocationIndexType(ghConfig.getString("index.type", locationIndexType));
 
         // routing
         routerConfig.setMaxVisitedNodes(ghConfig.getInt(Routing.INIT_MAX_VISITED_NODES, routerConfig.getMaxVisitedNodes()));
@@ -542,6 +604,18 @@ public class GraphHopper implements GraphHopperAPI {
             throw new IllegalArgumentException("Default value for active landmarks " + activeLandmarkCount
                     + " should be less or equal to landmark count of " + lmPreparationHandler.getLandmarks());
         routerConfig.setActiveLandmarkCount(activeLandmarkCount);
+        int routeCacheEntries = ghConfig.getInt("routing.cache.max_entries", 0);
+        if (routeCacheEntries > 0)
+            setRouteCache(new RouteCache(routeCacheEntries, ghConfig.getLong("routing.cache.ttl_seconds", 60),
+                    ghConfig.getInt("routing.cache.point_decimals", 5)));
+        routerConfig.setMaxBatchRequests(ghConfig.getInt("routing.batch.max_requests", routerConfig.getMaxBatchRequests()));
+        routerConfig.setMaxMatrixPoints(ghConfig.getInt("routing.matrix.max_points", routerConfig.getMaxMatrixPoints()));
+        routeBatchThreads = ghConfig.getInt("routing.batch.threads", routeBatchThreads);
+        if (routeBatchThreads < 1)
+            throw new IllegalArgumentException("routing.batch.threads must be positive but was: " + routeBatchThreads);
+        routeLegThreads = ghConfig.getInt("routing.parallel_legs.threads", routeLegThreads);
+        if (routeLegThreads < 0)
+            throw new IllegalArgumentException("routing.parallel_legs.threads must not be negative but was: " + routeLegThreads);
 
         return this;
     }
@@ -751,11 +825,20 @@ public class GraphHopper implements GraphHopperAPI {
         if (encodingManager == null)
             setEncodingManager(EncodingManager.create(encodedValueFactory, flagEncoderFactory, ghLocation));
 
-        if (!allowWrites && dataAccessType.isMMap())
-            dataAccessType = DAType.MMAP_RO;
+        LinkedHashMap<String, String> typesByPattern = new LinkedHashMap<>(dataAccessTypesByPattern);
+        if (!allowWrites) {
+            // read-only memory mapping needs no copy of the files and no write access
+            if (dataAccessType.isMMap())
+                dataAccessType = DAType.MMAP_RO;
+            for (Map.Entry<String, String> entry : typesByPattern.entrySet()) {
+                if (DAType.fromString(entry.getValue()).isMMap())
+                    entry.setValue("MMAP_RO");
+            }
+        }
 
-        GHDirectory dir = new GHDirectory(ghLocation, dataAccessType);
+        GHDirectory dir = new GHDirectory(ghLocation, dataAccessType).configure(typesByPattern);
         ghStorage = new GraphHopperStorage(dir, encodingManager, hasElevation(), encodingManager.needsTurnCostsSupport(), defaultSegmentSize);
+        ghStorage.setCompressedGeometry(compressGeometry);
 
         checkProfilesConsistency();
 
@@ -791,6 +874,8 @@ public class GraphHopper implements GraphHopperAPI {
 
             postProcessing(false);
             setFullyLoaded();
+            if (!warmupPatterns.isEmpty())
+                warmup = new DataAccessWarmup(ghStorage.getDirectory(), warmupPatterns, warmupThreads).start();
             return true;
         } finally {
             if (lock != null)
@@ -991,14 +1076,77 @@ public class GraphHopper implements GraphHopperAPI {
     }
 
     protected WeightingFactory createWeightingFactory() {
-        return new DefaultWeightingFactory(ghStorage, encodingManager);
+        return new DefaultWeightingFactory(ghStorage, encodingManager, getAreaEdgeIdCache());
+    }
+
+    /**
+     * @return the cache for the edges inside the areas of custom models that is shared by all requests or null if the
+     * location index is not yet initialized
+     */
+    private synchronized AreaEdgeIdCache getAreaEdgeIdCache() {
+        if (areaEdgeIdCache == null && locationIndex != null)
+            areaEdgeIdCache = new AreaEdgeIdCache(ghStorage, locationIndex);
+        return areaEdgeIdCache;
     }
 
     @Override
     public GHResponse route(GHRequest request) {
+        if (routeCache != null)
+            return routeCache.route(request, req -> createRouter().route(req));
         return createRouter().route(request);
     }
 
+    /**
+     * Calculates the routes of all specified requests, see {@link Router#routeBatch}.
+     *
+     * @return the responses in the order of the requests
+     */
+    public List<GHResponse> routeBatch(List<GHRequest> requests) {
+        List<GHResponse> responses = new ArrayList<>(requests.size());
+        routeBatch(requests, responses::add);
+        return responses;
+    }
+
+    /**
+     * Calculates the routes of all specified requests in parallel using at most routing.batch.threads threads. The
+     * responses are passed to the consumer in the order of the requests, each as soon as it is available.
+     */
+    public void routeBatch(List<GHRequest> requests, Consumer<GHResponse> consumer) {
+        createRouter().routeBatch(requests, getRouteBatchExecutor(), consumer);
+    }
+
+    private synchronized ExecutorService getRouteBatchExecutor() {
+        if (routeBatchExecutor == null) {
+            AtomicInteger count = new AtomicInteger();
+            routeBatchExecutor = Executors.newFixedThreadPool(routeBatchThreads, r -> {
+                Thread thread = new Thread(r, "route-batch-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return routeBatchExecutor;
+    }
+
+    private synchronized ExecutorService getRouteLegExecutor() {
+        if (routeLegExecutor == null && routeLegThreads > 0) {
+            AtomicInteger count = new AtomicInteger();
+            routeLegExecutor = Executors.newFixedThreadPool(routeLegThreads, r -> {
+                Thread thread = new Thread(r, "route-leg-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return routeLegExecutor;
+    }
+
+    /**
+     * Calculates the weights, times and distances between all from and to points of the specified request. This
+     * requires a CH preparation for the requested profile.
+     */
+    public GHMatrixResponse matrix(GHMatrixRequest request) {
+        return createRouter().matrix(request);
+    }
+
     private Router createRouter() {
         if (ghStorage == null || !fullyLoaded)
             throw new IllegalStateException("Do a successful call to load or importOrLoad before routing");
@@ -1022,13 +1170,17 @@ public class GraphHopper implements GraphHopperAPI {
         }
         return new Router(ghStorage, locationIndex, profilesByName, pathBuilderFactory,
                 trMap, routerConfig, createWeightingFactory(), chGraphs, landmarks
-        );
+        ).setLegExecutor(getRouteLegExecutor());
     }
 
     protected LocationIndex createLocationIndex(Directory dir) {
-        LocationIndexTree tmpIndex = new LocationIndexTree(ghStorage, dir);
+        LocationIndex tmpIndex;
+        if ("rtree".equals(locationIndexType)) {
+            tmpIndex = new LocationIndexRTree(ghStorage, dir).setMaxRegionSearch(maxRegionSearch);
+        } else {
+            tmpIndex = new LocationIndexTree(ghStorage, dir).setMaxRegionSearch(maxRegionSearch);
+        }
         tmpIndex.setResolution(preciseIndexResolution);
-        tmpIndex.setMaxRegionSearch(maxRegionSearch);
         if (!tmpIndex.loadExisting()) {
             ensureWriteAccess();
             tmpIndex.prepareIndex();
@@ -1150,6 +1302,23 @@ public class GraphHopper implements GraphHopperAPI {
      * remove the files created in graphhopperLocation you have to call clean().
      */
     public void close() {
+        if (routeCache != null)
+            routeCache.invalidate();
+
+        synchronized (this) {
+            if (routeBatchExecutor != null) {
+                routeBatchExecutor.shutdownNow();
+                routeBatchExecutor = null;
+            }
+            if (routeLegExecutor != null) {
+                routeLegExecutor.shutdownNow();
+                routeLegExecutor = null;
+            }
+        }
+
+        if (warmup != null)
+            warmup.stop();
+
         if (ghStorage != null)
             ghStorage.close();
 
@@ -1187,9 +1356,28 @@ public class GraphHopper implements GraphHopperAPI {
 
     private void setFullyLoaded() {
         fullyLoaded = true;
+        // responses for a previously loaded graph must not be returned
+        if (routeCache != null)
+            routeCache.invalidate();
     }
 
     public RouterConfig getRouterConfig() {
         return routerConfig;
     }
+
+    /**
+     * Puts the specified cache in front of {@link #route}, use null to disable caching. The cache is invalidated
+     * whenever a graph is loaded or this instance is closed.
+     */
+    public GraphHopper setRouteCache(RouteCache routeCache) {
+        this.routeCache = routeCache;
+        return this;
+    }
+
+    /**
+     * @return the cache of route responses or null if caching is disabled
+     */
+    public RouteCache getRouteCache() {
+        return routeCache;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,327 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.util.Helper;
+
+import java.util.Arrays;
+
+/**
+ * A memory efficient map from long to int for the OSM node ids of an import. The keys are kept sorted in blocks of
+ * {@link #BLOCK_SIZE} entries: per block only the first key is stored completely and the following keys are stored as
+ * variable length deltas to their predecessor. As the OSM ids of the nodes used in ways are dense this needs around 1-2
+ * bytes per key instead of 8. The values are stored uncompressed and can be updated in place. All data is stored in
+ * DataAccess objects of the specified Directory, so it is outside of the Java heap if the Directory uses e.g. MMAP.
+ * <p>
+ * New keys are first collected in a hash map of a fixed maximum size and then sorted and merged into the blocks in
+ * bulk, which happens when the hash map is full or when calling {@link #optimize}. The sorting uses all available
+ * processors. If all new keys are bigger than the existing keys, which is the usual case as the OSM ids are mostly
+ * increasing, they are appended to the blocks, otherwise the blocks are rewritten.
+ * <p>
+ * {@link #get} does not modify the map and can be called from many threads concurrently as long as no thread calls
+ * {@link #put} or {@link #optimize} at the same time.
+ */
+public class CompactLongIntMap implements LongIntMap {
+    static final int BLOCK_SIZE = 64;
+    // the first key and the byte position of the deltas of every block
+    private static final int INDEX_ENTRY_BYTES = 16;
+    private final Directory dir;
+    private final String name;
+    private final int noEntryValue;
+    private final int maxPendingSize;
+    private LongIntHashMap pending;
+    private DataAccess index;
+    private DataAccess deltas;
+    private DataAccess values;
+    private long sortedSize;
+    private long lastKey;
+    private long deltaBytes;
+    private long blocks;
+    private int generation;
+
+    public CompactLongIntMap(Directory dir, String name, int noEntryValue) {
+        this(dir, name, noEntryValue, 1 << 21);
+    }
+
+    CompactLongIntMap(Directory dir, String name, int noEntryValue, int maxPendingSize) {
+        this.dir = dir;
+        this.name = name;
+        this.noEntryValue = noEntryValue;
+        this.maxPendingSize = maxPendingSize;
+        this.pending = new LongIntHashMap(Math.min(maxPendingSize, 1 << 16));
+    }
+
+    @Override
+    public int put(long key, int value) {
+        long entry = findSorted(key);
+        if (entry >= 0) {
+            int oldValue = values.getInt(entry * 4);
+            values.setInt(entry * 4, value);
+            return oldValue;
+        }
+
+        int slot = pending.indexOf(key);
+        if (pending.indexExists(slot))
+            return pending.indexReplace(slot, value);
+
+        pending.indexInsert(slot, key, value);
+        if (pending.size() >= maxPendingSize)
+            merge();
+        return noEntryValue;
+    }
+
+    @Override
+    public int get(long key) {
+        long entry = findSorted(key);
+        if (entry >= 0)
+            return values.getInt(entry * 4);
+        return pending.getOrDefault(key, noEntryValue);
+    }
+
+    /**
+     * @return the index of the entry with the specified key in the sorted part or -1 if there is no such entry
+     */
+    private long findSorted(long key) {
+        if (blocks == 0)
+            return -1;
+
+        // find the last block with a first key that is smaller or equal to the specified key
+        long low = 0, high = blocks - 1;
+        if (getFirstKey(0) > key)
+            return -1;
+        while (low < high) {
+            long guess = (low + high + 1) >>> 1;
+            if (getFirstKey(guess) <= key)
+                low = guess;
+            else
+                high = guess - 1;
+        }
+
+        long curr = getFirstKey(low);
+        long entry = low * BLOCK_SIZE;
+        if (curr == key)
+            return entry;
+
+        long end = Math.min(sortedSize, entry + BLOCK_SIZE);
+        long pointer = getDeltaPointer(low);
+        for (entry++; entry < end; entry++) {
+            long delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = deltas.getByte(pointer++);
+                delta |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            curr += delta;
+            if (curr == key)
+                return entry;
+            if (curr > key)
+                return -1;
+        }
+        return -1;
+    }
+
+    private long getFirstKey(long block) {
+        long pointer = block * INDEX_ENTRY_BYTES;
+        return ((long) index.getInt(pointer + 4) << 32) | (index.getInt(pointer) & 0xFFFFFFFFL);
+    }
+
+    private long getDeltaPointer(long block) {
+        long pointer = block * INDEX_ENTRY_BYTES + 8;
+        return ((long) index.getInt(pointer + 4) << 32) | (index.getInt(pointer) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Sorts the keys of the hash map and appends them to the blocks or merges them with the existing blocks into new
+     * DataAccess objects.
+     */
+    private void merge() {
+        if (pending.isEmpty())
+            return;
+
+        long[] newKeys = pending.keys().toArray();
+        Arrays.parallelSort(newKeys);
+        if (sortedSize > 0 && newKeys[0] > lastKey)
+            append(newKeys);
+        else
+            mergeSorted(newKeys);
+        pending.clear();
+    }
+
+    private void append(long[] newKeys) {
+        long newSize = sortedSize + newKeys.length;
+        long newBlocks = (newSize + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        index.ensureCapacity(newBlocks * INDEX_ENTRY_BYTES);
+        values.ensureCapacity(newSize * 4);
+        // the deltas of the last block are at the end, so we can continue them
+        BlockWriter writer = new BlockWriter(index, values, deltas, sortedSize, deltaBytes, lastKey);
+        for (long key : newKeys) {
+            writer.add(key, pending.get(key));
+        }
+        finish(writer, newBlocks);
+    }
+
+    private void mergeSorted(long[] newKeys) {
+        long newSize = sortedSize + newKeys.length;
+        long newBlocks = (newSize + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        generation++;
+        DataAccess newIndex = dir.find(name + "_index_" + generation).create(Math.max(100, newBlocks * INDEX_ENTRY_BYTES));
+        DataAccess newValues = dir.find(name + "_values_" + generation).create(Math.max(100, newSize * 4));
+        // estimate the bytes of the deltas from the existing blocks, for OSM ids it is usually less than two per key
+        long deltaBytesEstimate = sortedSize > 1000 ? (deltaBytes * newSize / sortedSize) * 9 / 8 : newSize * 2;
+        DataAccess newDeltas = dir.find(name + "_deltas_" + generation).create(Math.max(100, deltaBytesEstimate));
+        BlockWriter writer = new BlockWriter(newIndex, newValues, newDeltas, 0, 0, 0);
+
+        long oldBlock = 0, oldEntry = 0, oldPointer = 0;
+        long oldKey = sortedSize > 0 ? getFirstKey(0) : 0;
+        int newKeyIndex = 0;
+        for (long entry = 0; entry < newSize; entry++) {
+            if (oldEntry < sortedSize && (newKeyIndex == newKeys.length || oldKey < newKeys[newKeyIndex])) {
+                writer.add(oldKey, values.getInt(oldEntry * 4));
+                oldEntry++;
+                // move to the next key of the old blocks
+                if (oldEntry < sortedSize) {
+                    if (oldEntry % BLOCK_SIZE == 0) {
+                        oldBlock++;
+                        oldKey = getFirstKey(oldBlock);
+                        oldPointer = getDeltaPointer(oldBlock);
+                    } else {
+                        if (oldEntry % BLOCK_SIZE == 1)
+                            oldPointer = getDeltaPointer(oldBlock);
+                        long delta = 0;
+                        int shift = 0;
+                        byte b;
+                        do {
+                            b = deltas.getByte(oldPointer++);
+                            delta |= (long) (b & 0x7F) << shift;
+                            shift += 7;
+                        } while (b < 0);
+                        oldKey += delta;
+                    }
+                }
+            } else {
+                long key = newKeys[newKeyIndex++];
+                writer.add(key, pending.get(key));
+            }
+        }
+
+        release();
+        index = newIndex;
+        values = newValues;
+        deltas = newDeltas;
+        finish(writer, newBlocks);
+    }
+
+    private void finish(BlockWriter writer, long newBlocks) {
+        sortedSize = writer.entry;
+        lastKey = writer.prevKey;
+        deltaBytes = writer.deltaPointer;
+        blocks = newBlocks;
+    }
+
+    /**
+     * Writes sorted entries to the blocks, starting at the specified entry.
+     */
+    private static class BlockWriter {
+        private final DataAccess index;
+        private final DataAccess values;
+        private final DataAccess deltas;
+        private long deltaCapacity;
+        long entry;
+        long deltaPointer;
+        long prevKey;
+
+        BlockWriter(DataAccess index, DataAccess values, DataAccess deltas, long entry, long deltaPointer, long prevKey) {
+            this.index = index;
+            this.values = values;
+            this.deltas = deltas;
+            this.deltaCapacity = deltas.getCapacity();
+            this.entry = entry;
+            this.deltaPointer = deltaPointer;
+            this.prevKey = prevKey;
+        }
+
+        void add(long key, int value) {
+            values.setInt(entry * 4, value);
+            if (entry % BLOCK_SIZE == 0) {
+                long pointer = entry / BLOCK_SIZE * INDEX_ENTRY_BYTES;
+                index.setInt(pointer, (int) key);
+                index.setInt(pointer + 4, (int) (key >>> 32));
+                index.setInt(pointer + 8, (int) deltaPointer);
+                index.setInt(pointer + 12, (int) (deltaPointer >>> 32));
+            } else {
+                if (deltaPointer + 10 > deltaCapacity) {
+                    deltas.ensureCapacity(deltaCapacity + Math.max(deltaCapacity / 2, 10));
+                    deltaCapacity = deltas.getCapacity();
+                }
+                long delta = key - prevKey;
+                while ((delta & ~0x7FL) != 0) {
+                    deltas.setByte(deltaPointer++, (byte) ((delta & 0x7F) | 0x80));
+                    delta >>>= 7;
+                }
+                deltas.setByte(deltaPointer++, (byte) delta);
+            }
+            prevKey = key;
+            entry++;
+        }
+    }
+
+    /**
+     * Removes the DataAccess objects of this map from the Directory. The map must not be used afterwards.
+     */
+    public void release() {
+        if (index != null) {
+            dir.remove(index);
+            dir.remove(values);
+            dir.remove(deltas);
+            index = values = deltas = null;
+        }
+    }
+
+    @Override
+    public long getSize() {
+        return sortedSize + pending.size();
+    }
+
+    /**
+     * Moves all keys into the compressed blocks and frees the memory of the hash map.
+     */
+    @Override
+    public void optimize() {
+        merge();
+        // the hash map is usually not needed anymore
+        pending = new LongIntHashMap();
+    }
+
+    @Override
+    public int getMemoryUsage() {
+        long bytes = (long) pending.keys.length * 8 + (long) pending.values.length * 4;
+        if (index != null)
+            bytes += index.getCapacity() + values.getCapacity() + deltas.getCapacity();
+        return Math.round(bytes / Helper.MB);
+    }
+
+    @Override
+    public String toString() {
+        return name + ", size:" + getSize() + ", sorted:" + sortedSize + ", pending:" + pending.size();
+    }
+}
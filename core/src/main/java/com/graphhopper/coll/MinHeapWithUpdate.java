@@ -26,26 +26,25 @@ import java.util.Arrays;
  * A minimum heap implemented using a binary tree (https://en.wikipedia.org/wiki/Binary_heap). Besides the tree and the
  * elements' values this heap also keeps track of the positions of the elements in the tree.
  * This requires additional book-keeping when doing pushes/polls, but allows for an efficient update operation.
- * For the same reason the heap has a fixed memory size that is determined in the constructor and the inserted element
- * may not exceed a certain range.
- * todo: strictly speaking the heap could automatically grow/shrink as long as the range of legal ids stays fixed, but
- * for simplicity the heap has a fixed size for now.
+ * For the same reason the heap has a memory size that is determined in the constructor and the inserted element
+ * may not exceed a certain range. The range can be increased via {@link #ensureCapacity} which allows reusing the heap
+ * for searches of different sizes.
  * <p>
  * This class is very similar to {@link IntFloatBinaryHeap}, but compared to this has an efficient update operation.
  * In turn it is (much) less memory-efficient when the heap is used for a small number of elements from a large range.
  */
 public class MinHeapWithUpdate {
     private static final int NOT_PRESENT = -1;
-    private final int[] tree;
-    private final int[] positions;
-    private final float[] vals;
-    private final int max;
+    private int[] tree;
+    private int[] positions;
+    private float[] vals;
+    private int max;
     private int size;
 
     /**
-     * @param elements the number of elements that can be stored in this heap. Currently the heap cannot be resized or
-     *                 shrunk/trimmed after initial creation. elements-1 is the maximum id that can be stored in this
-     *                 heap
+     * @param elements the number of elements that can be stored in this heap. The heap cannot be shrunk/trimmed after
+     *                 initial creation, but it can be grown using {@link #ensureCapacity}. elements-1 is the maximum
+     *                 id that can be stored in this heap
      */
     public MinHeapWithUpdate(int elements) {
         // we use an offset of one to make the arithmetic a bit simpler/more efficient, the 0th elements are not used!
@@ -57,6 +56,21 @@ public class MinHeapWithUpdate {
         this.max = elements;
     }
 
+    /**
+     * Increases the number of elements that can be stored in this heap, i.e. the range of legal ids becomes
+     * [0, elements[. The elements contained in the heap are kept. Does nothing if the heap is large enough already.
+     */
+    public void ensureCapacity(int elements) {
+        if (elements <= max)
+            return;
+        tree = Arrays.copyOf(tree, elements + 1);
+        int oldLength = positions.length;
+        positions = Arrays.copyOf(positions, elements + 1);
+        Arrays.fill(positions, oldLength, positions.length, NOT_PRESENT);
+        vals = Arrays.copyOf(vals, elements + 1);
+        max = elements;
+    }
+
     public int size() {
         return size;
     }
@@ -18,23 +18,31 @@
 
 package com.graphhopper.routing;
 
+import com.carrotsearch.hppc.IntHashSet;
 import com.carrotsearch.hppc.IntIndexedContainer;
+import com.carrotsearch.hppc.IntObjectMap;
 import com.carrotsearch.hppc.predicates.IntObjectPredicate;
+import com.graphhopper.coll.GHIntObjectHashMap;
 import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.RoutingCHEdgeExplorer;
+import com.graphhopper.storage.RoutingCHEdgeIterator;
 import com.graphhopper.storage.RoutingCHGraph;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.PMap;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
+import java.util.*;
 
 /**
  * Minimum number-of-moving-parts implementation of alternative route search with
  * contraction hierarchies.
  * <p>
  * "Alternative Routes in Road Networks" (Abraham et al.)
+ * <p>
+ * The shortest via-paths s -> v -> t of the candidates v are calculated with a single upward search from v that is
+ * combined with the search space of s (or t) that is left over from the main search, instead of running two full
+ * bidirectional searches per candidate. The search for alternatives can be limited via the
+ * alternative_route.visited_nodes_budget and alternative_route.time_budget_ms hints: once the budget is used up no
+ * further candidates are evaluated and the alternatives found so far are returned, but at least the best path.
  *
  * @author michaz
  */
@@ -43,8 +51,11 @@ public class AlternativeRouteCH extends DijkstraBidirectionCHNoSOD {
     private final double maxShareFactor;
     private final double localOptimalityFactor;
     private final int maxPaths;
+    private final int visitedNodesBudget;
+    private final long timeBudgetNanos;
     private final List<AlternativeInfo> alternatives = new ArrayList<>();
     private int extraVisitedNodes = 0;
+    private long startNanos;
 
     public AlternativeRouteCH(RoutingCHGraph graph, PMap hints) {
         super(graph);
@@ -52,6 +63,8 @@ public class AlternativeRouteCH extends DijkstraBidirectionCHNoSOD {
         maxShareFactor = hints.getDouble("alternative_route.max_share_factor", 0.8);
         localOptimalityFactor = hints.getDouble("alternative_route.local_optimality_factor", 0.25);
         maxPaths = hints.getInt("alternative_route.max_paths", 3);
+        visitedNodesBudget = hints.getInt("alternative_route.visited_nodes_budget", Integer.MAX_VALUE);
+        timeBudgetNanos = hints.getLong("alternative_route.time_budget_ms", Long.MAX_VALUE / 1_000_000) * 1_000_000;
     }
 
     @Override
@@ -60,7 +73,15 @@ public class AlternativeRouteCH extends DijkstraBidirectionCHNoSOD {
             return true;
 
         // Continue search longer than for point to point search -- not sure if makes a difference at all
-        return currFrom.weight >= bestWeight * maxWeightFactor && currTo.weight >= bestWeight * maxWeightFactor;
+        if (currFrom.weight >= bestWeight * maxWeightFactor && currTo.weight >= bestWeight * maxWeightFactor)
+            return true;
+
+        // the best path is found, but we have no budget left to look for alternatives
+        return currFrom.weight >= bestWeight && currTo.weight >= bestWeight && isBudgetExceeded();
+    }
+
+    private boolean isBudgetExceeded() {
+        return getVisitedNodes() >= visitedNodesBudget || System.nanoTime() - startNanos >= timeBudgetNanos;
     }
 
     @Override
@@ -71,6 +92,7 @@ public class AlternativeRouteCH extends DijkstraBidirectionCHNoSOD {
     List<AlternativeInfo> calcAlternatives(final int s, final int t) {
         // First, do a regular bidirectional route search
         checkAlreadyRun();
+        startNanos = System.nanoTime();
         init(s, 0, t, 0);
         runAlgo();
         final Path bestPath = extractPath();
@@ -83,6 +105,8 @@ public class AlternativeRouteCH extends DijkstraBidirectionCHNoSOD {
         final ArrayList<PotentialAlternativeInfo> potentialAlternativeInfos = new ArrayList<>();
 
         bestWeightMapFrom.forEach((IntObjectPredicate<SPTEntry>) (v, fromSPTEntry) -> {
+            if (isBudgetExceeded())
+                return false;
             SPTEntry toSPTEntry = bestWeightMapTo.get(v);
             if (toSPTEntry == null)
                 return true;
@@ -109,18 +133,15 @@ public class AlternativeRouteCH extends DijkstraBidirectionCHNoSOD {
         potentialAlternativeInfos.sort(Comparator.comparingDouble(o -> o.weight));
 
         for (PotentialAlternativeInfo potentialAlternativeInfo : potentialAlternativeInfos) {
+            if (isBudgetExceeded())
+                break;
             int v = potentialAlternativeInfo.v;
 
             // Okay, now we want the s -> v -> t shortest via-path, so we route s -> v and v -> t
             // and glue them together.
-            DijkstraBidirectionCH svRouter = new DijkstraBidirectionCH(graph);
-            final Path svPath = svRouter.calcPath(s, v);
-            extraVisitedNodes += svRouter.getVisitedNodes();
-
-            DijkstraBidirectionCH vtRouter = new DijkstraBidirectionCH(graph);
-            final Path vtPath = vtRouter.calcPath(v, t);
+            final Path svPath = calcPathViaSearchSpace(v, true);
+            final Path vtPath = calcPathViaSearchSpace(v, false);
             Path path = concat(graph.getBaseGraph(), svPath, vtPath);
-            extraVisitedNodes += vtRouter.getVisitedNodes();
 
             double sharedDistanceWithShortest = sharedDistanceWithShortest(path);
             double detourLength = path.getDistance() - sharedDistanceWithShortest;
@@ -149,6 +170,61 @@ public class AlternativeRouteCH extends DijkstraBidirectionCHNoSOD {
         return alternatives;
     }
 
+    /**
+     * Calculates the shortest path s -> v (reverse=true) or v -> t (reverse=false). For this we only need to run an
+     * upward search from v, because the upward search space of s (or t) is still available from the main search. It
+     * contains all nodes up to the weight bestWeight * maxWeightFactor, which is more than enough, because v is only a
+     * candidate if both sub paths are shorter than this. The search space must not be stalled, see
+     * {@link DijkstraBidirectionCHNoSOD}.
+     */
+    private Path calcPathViaSearchSpace(int v, boolean reverse) {
+        IntObjectMap<SPTEntry> otherSearchSpace = reverse ? bestWeightMapFrom : bestWeightMapTo;
+        RoutingCHEdgeExplorer explorer = reverse ? inEdgeExplorer : outEdgeExplorer;
+        PriorityQueue<SPTEntry> queue = new PriorityQueue<>();
+        IntObjectMap<SPTEntry> searchSpace = new GHIntObjectHashMap<>();
+        SPTEntry startEntry = createStartEntry(v, 0, reverse);
+        queue.add(startEntry);
+        searchSpace.put(v, startEntry);
+        SPTEntry bestEntry = null;
+        SPTEntry bestOtherEntry = null;
+        double bestViaWeight = Double.POSITIVE_INFINITY;
+        while (!queue.isEmpty()) {
+            SPTEntry currEntry = queue.poll();
+            extraVisitedNodes++;
+            if (currEntry.weight >= bestViaWeight)
+                break;
+
+            SPTEntry otherEntry = otherSearchSpace.get(currEntry.adjNode);
+            if (otherEntry != null && currEntry.weight + otherEntry.weight < bestViaWeight) {
+                bestViaWeight = currEntry.weight + otherEntry.weight;
+                bestEntry = currEntry;
+                bestOtherEntry = otherEntry;
+            }
+
+            RoutingCHEdgeIterator iter = explorer.setBaseNode(currEntry.adjNode);
+            while (iter.next()) {
+                if (!accept(iter, currEntry, reverse))
+                    continue;
+                double weight = calcWeight(iter, currEntry, reverse);
+                if (Double.isInfinite(weight))
+                    continue;
+                SPTEntry entry = searchSpace.get(iter.getAdjNode());
+                if (entry == null) {
+                    entry = createEntry(iter.getEdge(), iter.getAdjNode(), iter.getEdge(), weight, currEntry, reverse);
+                    searchSpace.put(iter.getAdjNode(), entry);
+                    queue.add(entry);
+                } else if (entry.weight > weight) {
+                    queue.remove(entry);
+                    updateEntry(entry, iter.getEdge(), iter.getAdjNode(), iter.getEdge(), weight, currEntry, reverse);
+                    queue.add(entry);
+                }
+            }
+        }
+        return reverse
+                ? createPathExtractor(graph).extract(bestOtherEntry, bestEntry, bestViaWeight)
+                : createPathExtractor(graph).extract(bestEntry, bestOtherEntry, bestViaWeight);
+    }
+
     private double calculateShare(final Path path) {
         double sharedDistance = sharedDistance(path);
         return sharedDistance / path.getDistance();
@@ -169,7 +245,7 @@ public class AlternativeRouteCH extends DijkstraBidirectionCHNoSOD {
         double sharedDistance = 0.0;
         List<EdgeIteratorState> edges = path.calcEdges();
         for (EdgeIteratorState edge : edges) {
-            if (alternatives.get(0).nodes.contains(edge.getBaseNode()) && alternatives.get(0).nodes.contains(edge.getAdjNode())) {
+            if (alternatives.get(0).nodeSet.contains(edge.getBaseNode()) && alternatives.get(0).nodeSet.contains(edge.getAdjNode())) {
                 sharedDistance += edge.getDistance();
             }
         }
@@ -178,7 +254,7 @@ public class AlternativeRouteCH extends DijkstraBidirectionCHNoSOD {
 
     private boolean nodesInCurrentAlternativeSetContains(int v) {
         for (AlternativeInfo alternative : alternatives) {
-            if (alternative.nodes.contains(v)) {
+            if (alternative.nodeSet.contains(v)) {
                 return true;
             }
         }
@@ -260,11 +336,14 @@ public class AlternativeRouteCH extends DijkstraBidirectionCHNoSOD {
         final double shareWeight;
         final Path path;
         final IntIndexedContainer nodes;
+        // for the fast lookups of the share calculation
+        final IntHashSet nodeSet;
 
         AlternativeInfo(Path path, double shareWeight) {
             this.path = path;
             this.shareWeight = shareWeight;
             this.nodes = path.calcNodes();
+            this.nodeSet = new IntHashSet(nodes);
         }
 
         @Override
@@ -18,6 +18,7 @@
 
 package com.graphhopper.routing;
 
+import com.carrotsearch.hppc.IntHashSet;
 import com.carrotsearch.hppc.IntIndexedContainer;
 import com.carrotsearch.hppc.cursors.IntCursor;
 import com.carrotsearch.hppc.predicates.IntObjectPredicate;
@@ -35,6 +36,9 @@ import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
  * contraction hierarchies.
  * <p>
  * "Alternative Routes in Road Networks" (Abraham et al.)
+ * <p>
+ * Like {@link AlternativeRouteCH} the search for alternatives can be limited via the
+ * alternative_route.visited_nodes_budget and alternative_route.time_budget_ms hints.
  *
  * @author michaz
  */
@@ -44,8 +48,11 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
     private final double maxShareFactor;
     private final double localOptimalityFactor;
     private final int maxPaths;
+    private final int visitedNodesBudget;
+    private final long timeBudgetNanos;
     private final List<AlternativeInfo> alternatives = new ArrayList<>();
     private int extraVisitedNodes = 0;
+    private long startNanos;
 
     public AlternativeRouteEdgeCH(RoutingCHGraph graph, PMap hints) {
         super(graph);
@@ -53,6 +60,8 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
         maxShareFactor = hints.getDouble("alternative_route.max_share_factor", 0.8);
         localOptimalityFactor = hints.getDouble("alternative_route.local_optimality_factor", 0.25);
         maxPaths = hints.getInt("alternative_route.max_paths", 3);
+        visitedNodesBudget = hints.getInt("alternative_route.visited_nodes_budget", Integer.MAX_VALUE);
+        timeBudgetNanos = hints.getLong("alternative_route.time_budget_ms", Long.MAX_VALUE / 1_000_000) * 1_000_000;
     }
 
     @Override
@@ -61,7 +70,15 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
             return true;
 
         // Continue search longer than for point to point search -- not sure if makes a difference at all
-        return currFrom.weight >= bestWeight * maxWeightFactor && currTo.weight >= bestWeight * maxWeightFactor;
+        if (currFrom.weight >= bestWeight * maxWeightFactor && currTo.weight >= bestWeight * maxWeightFactor)
+            return true;
+
+        // the best path is found, but we have no budget left to look for alternatives
+        return currFrom.weight >= bestWeight && currTo.weight >= bestWeight && isBudgetExceeded();
+    }
+
+    private boolean isBudgetExceeded() {
+        return getVisitedNodes() >= visitedNodesBudget || System.nanoTime() - startNanos >= timeBudgetNanos;
     }
 
     @Override
@@ -72,6 +89,7 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
     List<AlternativeInfo> calcAlternatives(final int s, final int t) {
         // First, do a regular bidirectional route search
         checkAlreadyRun();
+        startNanos = System.nanoTime();
         init(s, 0, t, 0);
         runAlgo();
         final Path bestPath = extractPath();
@@ -90,6 +108,8 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
         });
 
         bestWeightMapFrom.forEach((IntObjectPredicate<SPTEntry>) (wurst, fromSPTEntry) -> {
+            if (isBudgetExceeded())
+                return false;
             SPTEntry toSPTEntry = bestWeightMapByNode.get(fromSPTEntry.adjNode);
             if (toSPTEntry == null)
                 return true;
@@ -118,6 +138,8 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
         potentialAlternativeInfos.sort(Comparator.comparingDouble(o -> o.weight));
 
         for (PotentialAlternativeInfo potentialAlternativeInfo : potentialAlternativeInfos) {
+            if (isBudgetExceeded())
+                break;
             int v = potentialAlternativeInfo.v;
             int tailSv = potentialAlternativeInfo.edgeIn;
 
@@ -181,7 +203,7 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
         double sharedDistance = 0.0;
         List<EdgeIteratorState> edges = path.calcEdges();
         for (EdgeIteratorState edge : edges) {
-            if (alternatives.get(0).nodes.contains(edge.getBaseNode()) && alternatives.get(0).nodes.contains(edge.getAdjNode())) {
+            if (alternatives.get(0).nodeSet.contains(edge.getBaseNode()) && alternatives.get(0).nodeSet.contains(edge.getAdjNode())) {
                 sharedDistance += edge.getDistance();
             }
         }
@@ -190,7 +212,7 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
 
     private boolean nodesInCurrentAlternativeSetContains(int v) {
         for (AlternativeInfo alternative : alternatives) {
-            if (alternative.nodes.contains(v)) {
+            if (alternative.nodeSet.contains(v)) {
                 return true;
             }
         }
@@ -280,11 +302,14 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
         final double shareWeight;
         final Path path;
         final IntIndexedContainer nodes;
+        // for the fast lookups of the share calculation
+        final IntHashSet nodeSet;
 
         AlternativeInfo(Path path, double shareWeight) {
             this.path = path;
             this.shareWeight = shareWeight;
             this.nodes = path.calcNodes();
+            this.nodeSet = new IntHashSet(nodes);
         }
 
         @Override
@@ -23,6 +23,7 @@ import com.graphhopper.routing.util.CustomModel;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.FlagEncoder;
 import com.graphhopper.routing.weighting.*;
+import com.graphhopper.routing.weighting.custom.AreaEdgeIdCache;
 import com.graphhopper.routing.weighting.custom.CustomProfile;
 import com.graphhopper.routing.weighting.custom.CustomWeighting;
 import com.graphhopper.storage.GraphHopperStorage;
@@ -36,10 +37,19 @@ import static com.graphhopper.util.Helper.toLowerCase;
 public class DefaultWeightingFactory implements WeightingFactory {
     private final GraphHopperStorage ghStorage;
     private final EncodingManager encodingManager;
+    private final AreaEdgeIdCache areaEdgeIdCache;
 
     public DefaultWeightingFactory(GraphHopperStorage ghStorage, EncodingManager encodingManager) {
+        this(ghStorage, encodingManager, null);
+    }
+
+    /**
+     * @param areaEdgeIdCache is used to find the edges inside the areas of custom models, can be null
+     */
+    public DefaultWeightingFactory(GraphHopperStorage ghStorage, EncodingManager encodingManager, AreaEdgeIdCache areaEdgeIdCache) {
         this.ghStorage = ghStorage;
         this.encodingManager = encodingManager;
+        this.areaEdgeIdCache = areaEdgeIdCache;
     }
 
     @Override
@@ -76,7 +86,7 @@ public class DefaultWeightingFactory implements WeightingFactory {
             CustomProfile customProfile = (CustomProfile) profile;
             queryCustomModel = queryCustomModel == null ?
                     customProfile.getCustomModel() : CustomModel.merge(customProfile.getCustomModel(), queryCustomModel);
-            weighting = new CustomWeighting(encoder, encodingManager, turnCostProvider, queryCustomModel);
+            weighting = new CustomWeighting(encoder, encodingManager, turnCostProvider, queryCustomModel, areaEdgeIdCache);
         } else if ("shortest".equalsIgnoreCase(weightingStr)) {
             weighting = new ShortestWeighting(encoder, turnCostProvider);
         } else if ("fastest".equalsIgnoreCase(weightingStr)) {
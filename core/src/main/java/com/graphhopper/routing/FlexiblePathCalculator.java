@@ -76,7 +76,9 @@ public class FlexiblePathCalculator implements PathCalculator {
         // reset all direction enforcements in queryGraph to avoid influencing next path
         // todo: is this correct? aren't we taking a second look at these edges later when we calc times or
         // instructions etc.?
-        queryGraph.clearUnfavoredStatus();
+        // without unfavored edges we do not touch the query graph, so legs can be calculated concurrently
+        if (!edgeRestrictions.getUnfavoredEdges().isEmpty())
+            queryGraph.clearUnfavoredStatus();
 
         if (paths.isEmpty())
             throw new IllegalStateException("Path list was empty for " + from + " -> " + to);
@@ -283,10 +283,7 @@ public class Path {
         forEveryEdge(new EdgeVisitor() {
             @Override
             public void next(EdgeIteratorState eb, int index, int prevEdgeId) {
-                PointList pl = eb.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ);
-                for (int j = 0; j < pl.getSize(); j++) {
-                    points.add(pl, j);
-                }
+                eb.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ, points);
             }
 
             @Override
@@ -0,0 +1,163 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.coll.MinHeapWithUpdate;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.WeightApproximator;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.*;
+
+/**
+ * The same search as {@link Dijkstra} and {@link AStar}, but the shortest path tree is stored in {@link SPTLabels},
+ * i.e. in primitive arrays that are reused between the searches of the same thread, instead of creating one
+ * {@link SPTEntry} per visited node or edge. This way the allocations no longer grow with the size of the search
+ * space. Without an approximation this is a plain Dijkstra.
+ */
+public class PrimitiveAStar extends AbstractRoutingAlgorithm {
+    private WeightApproximator weightApprox;
+    private SPTLabels labels;
+    private int currLabel = SPTLabels.NO_LABEL;
+    private int visitedNodes;
+    private int to = -1;
+
+    public PrimitiveAStar(Graph graph, Weighting weighting, TraversalMode tMode) {
+        super(graph, weighting, tMode);
+    }
+
+    /**
+     * @param approx defines how distance to goal Node is approximated, use null for a Dijkstra search
+     */
+    public PrimitiveAStar setApproximation(WeightApproximator approx) {
+        weightApprox = approx;
+        return this;
+    }
+
+    @Override
+    public Path calcPath(int from, int to) {
+        checkAlreadyRun();
+        this.to = to;
+        labels = SPTLabels.acquire();
+        try {
+            if (weightApprox != null)
+                weightApprox.setTo(to);
+            currLabel = labels.add(EdgeIterator.NO_EDGE, from, 0, SPTLabels.NO_LABEL);
+            if (!traversalMode.isEdgeBased())
+                labels.put(from, currLabel);
+            runAlgo();
+            return extractPath();
+        } finally {
+            SPTLabels.release(labels);
+            labels = null;
+        }
+    }
+
+    private void runAlgo() {
+        MinHeapWithUpdate heap = labels.getHeap();
+        while (true) {
+            visitedNodes++;
+            if (isMaxVisitedNodesExceeded() || finished())
+                break;
+
+            int currNode = labels.getAdjNode(currLabel);
+            int currEdge = labels.getEdge(currLabel);
+            double currWeight = labels.getWeight(currLabel);
+            EdgeIterator iter = edgeExplorer.setBaseNode(currNode);
+            while (iter.next()) {
+                if (!accept(iter, currEdge))
+                    continue;
+
+                // todo: for #1835 move the access check into weighting
+                double tmpWeight = !outEdgeFilter.accept(iter)
+                        ? Double.POSITIVE_INFINITY
+                        : (GHUtility.calcWeightWithTurnWeight(weighting, iter, false, currEdge) + currWeight);
+                if (Double.isInfinite(tmpWeight))
+                    continue;
+
+                int traversalId = traversalMode.createTraversalId(iter, false);
+                int label = labels.find(traversalId);
+                if (label == SPTLabels.NO_LABEL) {
+                    label = labels.add(iter.getEdge(), iter.getAdjNode(), tmpWeight, currLabel);
+                    labels.put(traversalId, label);
+                    heap.push(label, calcHeapWeight(iter.getAdjNode(), tmpWeight));
+                } else if (labels.getWeight(label) > tmpWeight) {
+                    labels.set(label, iter.getEdge(), tmpWeight, currLabel);
+                    float heapWeight = calcHeapWeight(iter.getAdjNode(), tmpWeight);
+                    if (heap.contains(label))
+                        heap.update(label, heapWeight);
+                    else
+                        heap.push(label, heapWeight);
+                }
+            }
+
+            if (heap.isEmpty())
+                break;
+
+            currLabel = heap.poll();
+        }
+    }
+
+    private float calcHeapWeight(int node, double weight) {
+        return (float) (weightApprox == null ? weight : weight + weightApprox.approximate(node));
+    }
+
+    @Override
+    protected boolean finished() {
+        return labels.getAdjNode(currLabel) == to;
+    }
+
+    @Override
+    protected Path extractPath() {
+        if (currLabel == SPTLabels.NO_LABEL || !finished())
+            return createEmptyPath();
+
+        StopWatch sw = new StopWatch().start();
+        Path path = new Path(graph);
+        int label = currLabel;
+        int parent = labels.getParent(label);
+        while (EdgeIterator.Edge.isValid(labels.getEdge(label))) {
+            int edge = labels.getEdge(label);
+            EdgeIteratorState edgeState = graph.getEdgeIteratorState(edge, labels.getAdjNode(label));
+            path.addDistance(edgeState.getDistance());
+            path.addTime(GHUtility.calcMillisWithTurnMillis(weighting, edgeState, false, labels.getEdge(parent)));
+            path.addEdge(edge);
+            label = parent;
+            parent = labels.getParent(label);
+        }
+        ArrayUtil.reverse(path.getEdges());
+        path.setFromNode(labels.getAdjNode(label));
+        path.setEndNode(labels.getAdjNode(currLabel));
+        path.setFound(true);
+        path.setWeight(labels.getWeight(currLabel));
+        path.setDebugInfo("path extraction: " + sw.stop().getNanos() / 1000 + " μs");
+        return path;
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    @Override
+    public String getName() {
+        return weightApprox == null
+                ? Parameters.Algorithms.DIJKSTRA
+                : Parameters.Algorithms.ASTAR + "|" + weightApprox;
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.util.shapes.GHPoint;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * An in-process cache of route responses in front of the {@link Router}. Requests are considered equal if they have
+ * the same profile, the same points after rounding them to a fixed number of decimal places and the same headings,
+ * point hints, curbsides, snap preventions, path details, algorithm, locale and hints. The number of entries is
+ * limited and the least recently used entry is evicted first. Additionally every entry expires after a fixed time.
+ * <p>
+ * Responses with errors are not cached. Requests with hints that are not a string, number or boolean (like the custom
+ * model of a request) are not cached either, because their string representation does not necessarily identify them.
+ * Note that the same {@link GHResponse} object is returned for all hits and so it must not be modified.
+ */
+public class RouteCache {
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final double pointFactor;
+    private final LongSupplier clock;
+    private final Map<String, Entry> cache;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxEntries    the maximum number of cached responses
+     * @param ttlSeconds    the time after which a cached response expires, use 0 to keep responses until they are
+     *                      evicted or the cache is invalidated
+     * @param pointDecimals the number of decimal places the coordinates are rounded to, e.g. 5 is roughly one meter
+     */
+    public RouteCache(int maxEntries, long ttlSeconds, int pointDecimals) {
+        this(maxEntries, ttlSeconds, pointDecimals, System::nanoTime);
+    }
+
+    RouteCache(final int maxEntries, long ttlSeconds, int pointDecimals, LongSupplier clock) {
+        if (maxEntries < 1)
+            throw new IllegalArgumentException("maxEntries must be positive but was " + maxEntries);
+        if (ttlSeconds < 0)
+            throw new IllegalArgumentException("ttlSeconds must not be negative but was " + ttlSeconds);
+        if (pointDecimals < 0 || pointDecimals > 9)
+            throw new IllegalArgumentException("pointDecimals must be in [0, 9] but was " + pointDecimals);
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlSeconds == 0 ? Long.MAX_VALUE : TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.pointFactor = Math.pow(10, pointDecimals);
+        this.clock = clock;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * @return the cached response for the specified request or the response calculated by the specified router, which
+     * is then cached if it has no errors
+     */
+    public GHResponse route(GHRequest request, Function<GHRequest, GHResponse> router) {
+        // create the key before routing as the router might add hints to the request
+        String key = createKey(request);
+        if (key == null)
+            return router.apply(request);
+
+        long now = clock.getAsLong();
+        Entry entry = cache.get(key);
+        if (entry != null && now - entry.created < ttlNanos) {
+            hits.incrementAndGet();
+            return entry.response;
+        }
+        misses.incrementAndGet();
+        // two threads might calculate the same route, which is harmless
+        GHResponse response = router.apply(request);
+        if (!response.hasErrors())
+            cache.put(key, new Entry(response, now));
+        else if (entry != null)
+            cache.remove(key);
+        return response;
+    }
+
+    /**
+     * @return the key for the specified request or null if the request cannot be cached
+     */
+    String createKey(GHRequest request) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(request.getProfile()).append('|').append(request.getAlgorithm()).append('|').append(request.getLocale());
+        for (GHPoint point : request.getPoints()) {
+            sb.append('|').append(Math.round(point.getLat() * pointFactor)).append(',').append(Math.round(point.getLon() * pointFactor));
+        }
+        sb.append('|').append(request.getHeadings()).append(request.getPointHints()).append(request.getCurbsides())
+                .append(request.getSnapPreventions()).append(request.getPathDetails());
+        // sort the hints so that the order of the parameters does not matter
+        for (Map.Entry<String, Object> hint : new TreeMap<>(request.getHints().toMap()).entrySet()) {
+            Object value = hint.getValue();
+            if (!(value instanceof String || value instanceof Number || value instanceof Boolean))
+                return null;
+            sb.append('|').append(hint.getKey()).append('=').append(value);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Removes all cached responses, e.g. because the graph has changed.
+     */
+    public void invalidate() {
+        cache.clear();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int getSize() {
+        return cache.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    private static class Entry {
+        final GHResponse response;
+        final long created;
+
+        Entry(GHResponse response, long created) {
+            this.response = response;
+            this.created = created;
+        }
+    }
+}
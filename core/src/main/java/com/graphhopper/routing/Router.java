@@ -18,15 +18,20 @@
 
 package com.graphhopper.routing;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.cursors.IntCursor;
+import com.graphhopper.GHMatrixRequest;
+import com.graphhopper.GHMatrixResponse;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.ResponsePath;
 import com.graphhopper.config.Profile;
 import com.graphhopper.routing.ch.CHRoutingAlgorithmFactory;
+import com.graphhopper.routing.ch.ManyToManyCH;
 import com.graphhopper.routing.lm.LMRoutingAlgorithmFactory;
 import com.graphhopper.routing.lm.LandmarkStorage;
 import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
 import com.graphhopper.routing.util.DefaultEdgeFilter;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.FlagEncoder;
@@ -38,6 +43,7 @@ import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
 import com.graphhopper.util.details.PathDetailsBuilderFactory;
+import com.graphhopper.util.exceptions.ConnectionNotFoundException;
 import com.graphhopper.util.exceptions.PointDistanceExceededException;
 import com.graphhopper.util.exceptions.PointNotFoundException;
 import com.graphhopper.util.exceptions.PointOutOfBoundsException;
@@ -45,6 +51,10 @@ import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 import static com.graphhopper.routing.weighting.Weighting.INFINITE_U_TURN_COSTS;
 import static com.graphhopper.util.DistanceCalcEarth.DIST_EARTH;
@@ -67,6 +77,7 @@ public class Router {
     private final Map<String, LandmarkStorage> landmarks;
     private final boolean chEnabled;
     private final boolean lmEnabled;
+    private ExecutorService legExecutor;
 
     public Router(GraphHopperStorage ghStorage, LocationIndex locationIndex,
                   Map<String, Profile> profilesByName, PathDetailsBuilderFactory pathDetailsBuilderFactory,
@@ -91,7 +102,26 @@ public class Router {
         this.lmEnabled = !landmarks.isEmpty();
     }
 
+    /**
+     * Enables the concurrent calculation of the legs of via routes on the specified executor. This is only used for
+     * requests with more than two points and without headings, curbsides or pass_through.
+     */
+    public Router setLegExecutor(ExecutorService legExecutor) {
+        this.legExecutor = legExecutor;
+        return this;
+    }
+
     public GHResponse route(GHRequest request) {
+        return route(request, null, null, null);
+    }
+
+    /**
+     * @param sharedQueryGraph    a query graph that was already created for the specified snaps or null
+     * @param sharedSnaps         the snaps of the request points or null if they should be looked up for this request
+     * @param sharedCHAlgoFactory the CH algorithm factory for the shared query graph or null if it should be created
+     *                            for this request
+     */
+    private GHResponse route(GHRequest request, QueryGraph sharedQueryGraph, List<Snap> sharedSnaps, CHRoutingAlgorithmFactory sharedCHAlgoFactory) {
         try {
             validateRequest(request);
             final boolean disableCH = getDisableCH(request.getHints());
@@ -131,6 +161,10 @@ public class Router {
                 return routeRoundTrip(request, algoOpts, weighting, profile, disableLM);
             } else if (ALT_ROUTE.equalsIgnoreCase(request.getAlgorithm())) {
                 return routeAlt(request, algoOpts, weighting, profile, passThrough, forceCurbsides, disableCH, disableLM);
+            } else if (sharedSnaps != null) {
+                GHResponse ghRsp = new GHResponse();
+                ghRsp.addDebugInfo("idLookup:shared");
+                return routeVia(ghRsp, request, algoOpts, weighting, profile, passThrough, forceCurbsides, disableCH, disableLM, sharedQueryGraph, sharedSnaps, sharedCHAlgoFactory);
             } else {
                 return routeVia(request, algoOpts, weighting, profile, passThrough, forceCurbsides, disableCH, disableLM);
             }
@@ -147,6 +181,217 @@ public class Router {
         }
     }
 
+    /**
+     * Calculates the routes of all specified requests and passes the responses to the consumer in the order of the
+     * requests, each as soon as it and all its predecessors are done. The path calculations run in parallel on the
+     * specified executor. Requests with the same profile, hints and snap preventions share the snapping of their
+     * (deduplicated) points and one query graph for all of them. Requests that modify the query graph (headings and
+     * pass_through), round trips, alternative routes and block areas are calculated like separate requests.
+     */
+    public void routeBatch(List<GHRequest> requests, ExecutorService executor, Consumer<GHResponse> consumer) {
+        if (requests.size() > routerConfig.getMaxBatchRequests())
+            throw new IllegalArgumentException("Too many requests in one batch: " + requests.size() + ", the maximum is: " + routerConfig.getMaxBatchRequests());
+
+        List<Future<GHResponse>> futures = new ArrayList<>(Collections.nCopies(requests.size(), null));
+        try {
+            Map<List<Object>, IntArrayList> groups = new LinkedHashMap<>();
+            for (int i = 0; i < requests.size(); i++) {
+                GHRequest request = requests.get(i);
+                if (isBatchable(request)) {
+                    List<Object> key = Arrays.asList(request.getProfile(), request.getSnapPreventions(), request.getHints().toMap());
+                    groups.computeIfAbsent(key, k -> new IntArrayList()).add(i);
+                } else {
+                    futures.set(i, executor.submit(() -> route(request)));
+                }
+            }
+            for (IntArrayList group : groups.values()) {
+                submitGroup(requests, group, executor, futures);
+            }
+
+            for (Future<GHResponse> future : futures) {
+                try {
+                    consumer.accept(future.get());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(ex);
+                } catch (ExecutionException ex) {
+                    if (ex.getCause() instanceof RuntimeException)
+                        throw (RuntimeException) ex.getCause();
+                    throw new RuntimeException(ex.getCause());
+                }
+            }
+        } finally {
+            // if e.g. the consumer failed because the client disconnected the remaining requests are not needed. We
+            // do not interrupt the running calculations as this could close the channels of the graph storage.
+            for (Future<GHResponse> future : futures) {
+                if (future != null)
+                    future.cancel(false);
+            }
+        }
+    }
+
+    private boolean isBatchable(GHRequest request) {
+        return request.getPoints().size() > 1
+                && !ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm())
+                && !ALT_ROUTE.equalsIgnoreCase(request.getAlgorithm())
+                && request.getHeadings().isEmpty()
+                && !getPassThrough(request.getHints())
+                && !request.getHints().has(BLOCK_AREA)
+                && (request.getPointHints().isEmpty() || request.getPointHints().size() == request.getPoints().size())
+                && profilesByName.containsKey(request.getProfile());
+    }
+
+    /**
+     * Snaps the distinct points of the requests with the specified indices and submits their path calculations,
+     * which all use the same query graph.
+     */
+    private void submitGroup(List<GHRequest> requests, IntArrayList group, ExecutorService executor, List<Future<GHResponse>> futures) {
+        GHRequest first = requests.get(group.get(0));
+        Map<List<Object>, Integer> pointIndices = new HashMap<>();
+        List<GHPoint> points = new ArrayList<>();
+        List<String> pointHints = new ArrayList<>();
+        boolean anyPointHints = false;
+        for (IntCursor c : group) {
+            GHRequest request = requests.get(c.value);
+            for (int i = 0; i < request.getPoints().size(); i++) {
+                GHPoint point = request.getPoints().get(i);
+                String pointHint = request.getPointHints().isEmpty() ? "" : request.getPointHints().get(i);
+                if (pointIndices.putIfAbsent(Arrays.asList(point, pointHint), points.size()) == null) {
+                    points.add(point);
+                    pointHints.add(pointHint);
+                    anyPointHints |= !pointHint.isEmpty();
+                }
+            }
+        }
+
+        QueryGraph queryGraph = null;
+        CHRoutingAlgorithmFactory chAlgoFactory = null;
+        List<Snap> snaps = null;
+        if (points.size() > 1) {
+            try {
+                boolean useCH = chEnabled && !getDisableCH(first.getHints());
+                Profile profile = profilesByName.get(first.getProfile());
+                Weighting weighting = createWeighting(profile, first.getHints(), points, useCH);
+                snaps = ViaRouting.lookup(encodingManager, points, weighting, locationIndex, first.getSnapPreventions(),
+                        anyPointHints ? pointHints : Collections.emptyList());
+                queryGraph = QueryGraph.create(ghStorage, snaps);
+                // the CH graph of the query graph takes its edge stores from the query graph, which is not thread-safe,
+                // so it is created here once and not in every calculation
+                if (useCH)
+                    chAlgoFactory = createCHAlgorithmFactory(queryGraph, profile);
+            } catch (MultiplePointsNotFoundException | IllegalArgumentException ex) {
+                // the separate calculations report the errors for the affected requests only
+                snaps = null;
+            }
+        }
+
+        for (IntCursor c : group) {
+            GHRequest request = requests.get(c.value);
+            if (snaps == null) {
+                futures.set(c.value, executor.submit(() -> route(request)));
+                continue;
+            }
+            List<Snap> requestSnaps = new ArrayList<>(request.getPoints().size());
+            for (int i = 0; i < request.getPoints().size(); i++) {
+                String pointHint = request.getPointHints().isEmpty() ? "" : request.getPointHints().get(i);
+                requestSnaps.add(snaps.get(pointIndices.get(Arrays.asList(request.getPoints().get(i), pointHint))));
+            }
+            QueryGraph sharedQueryGraph = queryGraph;
+            CHRoutingAlgorithmFactory sharedCHAlgoFactory = chAlgoFactory;
+            futures.set(c.value, executor.submit(() -> route(request, sharedQueryGraph, requestSnaps, sharedCHAlgoFactory)));
+        }
+    }
+
+    /**
+     * Calculates the weights, times and distances between all from and to points. This is only possible for profiles
+     * with a CH preparation, see {@link ManyToManyCH}.
+     */
+    public GHMatrixResponse matrix(GHMatrixRequest request) {
+        List<GHPoint> fromPoints = request.getFromPoints();
+        List<GHPoint> toPoints = request.getToPoints();
+        try {
+            if (Helper.isEmpty(request.getProfile()))
+                throw new IllegalArgumentException("You need to specify a profile to perform a matrix request, see docs/core/profiles.md");
+            Profile profile = profilesByName.get(request.getProfile());
+            if (profile == null)
+                throw new IllegalArgumentException("The requested profile '" + request.getProfile() + "' does not exist.\nAvailable profiles: " + profilesByName.keySet());
+            RoutingCHGraph chGraph = chGraphs.get(profile.getName());
+            if (chGraph == null)
+                throw new IllegalArgumentException("The matrix requires a CH preparation, but there is none for the requested profile: '" + profile.getName() + "'" +
+                        "\navailable CH profiles: " + chGraphs.keySet());
+            if (fromPoints.isEmpty() || toPoints.isEmpty())
+                throw new IllegalArgumentException("You have to specify at least one from and one to point, but was: " + fromPoints.size() + " and " + toPoints.size());
+            if (fromPoints.size() + toPoints.size() > routerConfig.getMaxMatrixPoints())
+                throw new IllegalArgumentException("Too many points for a matrix request: " + fromPoints.size() + " from and " + toPoints.size()
+                        + " to points, the maximum is " + routerConfig.getMaxMatrixPoints() + " points in total");
+            if (!request.getFromPointHints().isEmpty() && request.getFromPointHints().size() != fromPoints.size())
+                throw new IllegalArgumentException("If you pass from_point_hints, you need to pass exactly one hint for every from point, empty hints will be ignored");
+            if (!request.getToPointHints().isEmpty() && request.getToPointHints().size() != toPoints.size())
+                throw new IllegalArgumentException("If you pass to_point_hints, you need to pass exactly one hint for every to point, empty hints will be ignored");
+
+            // snap all points at once so that they share one query graph
+            List<GHPoint> points = new ArrayList<>(fromPoints.size() + toPoints.size());
+            points.addAll(fromPoints);
+            points.addAll(toPoints);
+            checkIfPointsAreInBounds(points);
+            List<String> pointHints = new ArrayList<>();
+            if (!request.getFromPointHints().isEmpty() || !request.getToPointHints().isEmpty()) {
+                pointHints.addAll(request.getFromPointHints().isEmpty() ? Collections.nCopies(fromPoints.size(), "") : request.getFromPointHints());
+                pointHints.addAll(request.getToPointHints().isEmpty() ? Collections.nCopies(toPoints.size(), "") : request.getToPointHints());
+            }
+            Weighting weighting = createWeighting(profile, new PMap(), points, true);
+            StopWatch sw = new StopWatch().start();
+            List<Snap> snaps = ViaRouting.lookup(encodingManager, points, weighting, locationIndex, request.getSnapPreventions(), pointHints);
+            String lookupDebug = "idLookup:" + sw.stop().getSeconds() + "s";
+            QueryGraph queryGraph = QueryGraph.create(ghStorage, snaps);
+            int[] sources = new int[fromPoints.size()];
+            for (int i = 0; i < sources.length; i++) {
+                sources[i] = snaps.get(i).getClosestNode();
+            }
+            int[] targets = new int[toPoints.size()];
+            for (int i = 0; i < targets.length; i++) {
+                targets[i] = snaps.get(sources.length + i).getClosestNode();
+            }
+
+            sw = new StopWatch().start();
+            ManyToManyCH manyToMany = new ManyToManyCH(new QueryRoutingCHGraph(chGraph, queryGraph));
+            manyToMany.setMaxVisitedNodes(routerConfig.getMaxVisitedNodes());
+            GHMatrixResponse response;
+            try {
+                response = manyToMany.calcMatrix(sources, targets);
+            } finally {
+                queryGraph.release();
+            }
+            response.addDebugInfo(lookupDebug);
+            response.addDebugInfo("matrix:" + sw.stop().getSeconds() + "s, visited nodes: " + manyToMany.getVisitedNodes());
+            if (request.isFailFast()) {
+                for (int i = 0; i < sources.length; i++) {
+                    for (int j = 0; j < targets.length; j++) {
+                        if (!response.isConnected(i, j)) {
+                            Map<String, Object> details = new HashMap<>(2);
+                            details.put("from", i);
+                            details.put("to", j);
+                            return new GHMatrixResponse().addError(new ConnectionNotFoundException("Connection between from point " + i
+                                    + " and to point " + j + " not found", details));
+                        }
+                    }
+                }
+            }
+            return response;
+        } catch (MultiplePointsNotFoundException ex) {
+            GHMatrixResponse response = new GHMatrixResponse();
+            for (IntCursor p : ex.getPointsNotFound()) {
+                boolean from = p.value < fromPoints.size();
+                int index = from ? p.value : p.value - fromPoints.size();
+                response.addError(new PointNotFoundException("Cannot find " + (from ? "from" : "to") + " point " + index + ": "
+                        + (from ? fromPoints : toPoints).get(index), index));
+            }
+            return response;
+        } catch (IllegalArgumentException ex) {
+            return new GHMatrixResponse().addError(ex);
+        }
+    }
+
     protected GHResponse routeRoundTrip(GHRequest request, AlgorithmOptions algoOpts, Weighting weighting, Profile profile, boolean disableLM) {
         GHResponse ghRsp = new GHResponse();
         StopWatch sw = new StopWatch().start();
@@ -162,15 +407,19 @@ public class Router {
                 .build();
         roundTripAlgoOpts.getHints().putObject(Parameters.Algorithms.AStarBi.EPSILON, 2);
         QueryGraph queryGraph = QueryGraph.create(ghStorage, qResults);
-        FlexiblePathCalculator pathCalculator = createFlexiblePathCalculator(queryGraph, profile, roundTripAlgoOpts, disableLM);
+        try {
+            FlexiblePathCalculator pathCalculator = createFlexiblePathCalculator(queryGraph, profile, roundTripAlgoOpts, disableLM);
 
-        RoundTripRouting.Result result = RoundTripRouting.calcPaths(qResults, pathCalculator);
-        // we merge the different legs of the roundtrip into one response path
-        ResponsePath responsePath = concatenatePaths(request, weighting, queryGraph, result.paths, getWaypoints(qResults));
-        ghRsp.add(responsePath);
-        ghRsp.getHints().putObject("visited_nodes.sum", result.visitedNodes);
-        ghRsp.getHints().putObject("visited_nodes.average", (float) result.visitedNodes / (qResults.size() - 1));
-        return ghRsp;
+            RoundTripRouting.Result result = RoundTripRouting.calcPaths(qResults, pathCalculator);
+            // we merge the different legs of the roundtrip into one response path
+            ResponsePath responsePath = concatenatePaths(request, weighting, queryGraph, result.paths, getWaypoints(qResults));
+            ghRsp.add(responsePath);
+            ghRsp.getHints().putObject("visited_nodes.sum", result.visitedNodes);
+            ghRsp.getHints().putObject("visited_nodes.average", (float) result.visitedNodes / (qResults.size() - 1));
+            return ghRsp;
+        } finally {
+            queryGraph.release();
+        }
     }
 
     protected GHResponse routeAlt(GHRequest request, AlgorithmOptions algoOpts, Weighting weighting, Profile profile, boolean passThrough, boolean forceCurbsides, boolean disableCH, boolean disableLM) {
@@ -181,27 +430,31 @@ public class Router {
         List<Snap> qResults = ViaRouting.lookup(encodingManager, request.getPoints(), weighting, locationIndex, request.getSnapPreventions(), request.getPointHints());
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
         QueryGraph queryGraph = QueryGraph.create(ghStorage, qResults);
-        PathCalculator pathCalculator = createPathCalculator(queryGraph, profile, algoOpts, disableCH, disableLM);
-
-        if (passThrough)
-            throw new IllegalArgumentException("Alternative paths and " + PASS_THROUGH + " at the same time is currently not supported");
-        if (!request.getCurbsides().isEmpty())
-            throw new IllegalArgumentException("Alternative paths do not support the " + CURBSIDE + " parameter yet");
-
-        ViaRouting.Result result = ViaRouting.calcPaths(request.getPoints(), queryGraph, qResults, weighting.getFlagEncoder().getAccessEnc(), pathCalculator, request.getCurbsides(), forceCurbsides, request.getHeadings(), passThrough);
-        if (result.paths.isEmpty())
-            throw new RuntimeException("Empty paths for alternative route calculation not expected");
-
-        // each path represents a different alternative and we do the path merging for each of them
-        PathMerger pathMerger = createPathMerger(request, weighting, queryGraph);
-        for (Path path : result.paths) {
-            PointList waypoints = getWaypoints(qResults);
-            ResponsePath responsePath = pathMerger.doWork(waypoints, Collections.singletonList(path), encodingManager, translationMap.getWithFallBack(request.getLocale()));
-            ghRsp.add(responsePath);
+        try {
+            PathCalculator pathCalculator = createPathCalculator(queryGraph, profile, algoOpts, disableCH, disableLM);
+
+            if (passThrough)
+                throw new IllegalArgumentException("Alternative paths and " + PASS_THROUGH + " at the same time is currently not supported");
+            if (!request.getCurbsides().isEmpty())
+                throw new IllegalArgumentException("Alternative paths do not support the " + CURBSIDE + " parameter yet");
+
+            ViaRouting.Result result = ViaRouting.calcPaths(request.getPoints(), queryGraph, qResults, weighting.getFlagEncoder().getAccessEnc(), pathCalculator, request.getCurbsides(), forceCurbsides, request.getHeadings(), passThrough);
+            if (result.paths.isEmpty())
+                throw new RuntimeException("Empty paths for alternative route calculation not expected");
+
+            // each path represents a different alternative and we do the path merging for each of them
+            PathMerger pathMerger = createPathMerger(request, weighting, queryGraph);
+            for (Path path : result.paths) {
+                PointList waypoints = getWaypoints(qResults);
+                ResponsePath responsePath = pathMerger.doWork(waypoints, Collections.singletonList(path), encodingManager, translationMap.getWithFallBack(request.getLocale()));
+                ghRsp.add(responsePath);
+            }
+            ghRsp.getHints().putObject("visited_nodes.sum", result.visitedNodes);
+            ghRsp.getHints().putObject("visited_nodes.average", (float) result.visitedNodes / (qResults.size() - 1));
+            return ghRsp;
+        } finally {
+            queryGraph.release();
         }
-        ghRsp.getHints().putObject("visited_nodes.sum", result.visitedNodes);
-        ghRsp.getHints().putObject("visited_nodes.average", (float) result.visitedNodes / (qResults.size() - 1));
-        return ghRsp;
     }
 
     protected GHResponse routeVia(GHRequest request, AlgorithmOptions algoOpts, Weighting weighting, Profile profile, boolean passThrough, boolean forceCurbsides, boolean disableCH, boolean disableLM) {
@@ -212,8 +465,23 @@ public class Router {
         // (base) query graph used to resolve headings, curbsides etc. this is not necessarily the same thing as
         // the (possibly implementation specific) query graph used by PathCalculator
         QueryGraph queryGraph = QueryGraph.create(ghStorage, qResults);
-        PathCalculator pathCalculator = createPathCalculator(queryGraph, profile, algoOpts, disableCH, disableLM);
-        ViaRouting.Result result = ViaRouting.calcPaths(request.getPoints(), queryGraph, qResults, weighting.getFlagEncoder().getAccessEnc(), pathCalculator, request.getCurbsides(), forceCurbsides, request.getHeadings(), passThrough);
+        try {
+            return routeVia(ghRsp, request, algoOpts, weighting, profile, passThrough, forceCurbsides, disableCH, disableLM, queryGraph, qResults, null);
+        } finally {
+            queryGraph.release();
+        }
+    }
+
+    private GHResponse routeVia(GHResponse ghRsp, GHRequest request, AlgorithmOptions algoOpts, Weighting weighting, Profile profile, boolean passThrough, boolean forceCurbsides, boolean disableCH, boolean disableLM,
+                                QueryGraph queryGraph, List<Snap> qResults, CHRoutingAlgorithmFactory chAlgoFactory) {
+        ViaRouting.Result result;
+        if (legExecutor != null && qResults.size() > 2 && !passThrough && request.getCurbsides().isEmpty() && request.getHeadings().isEmpty()) {
+            List<PathCalculator> pathCalculators = createPathCalculators(queryGraph, chAlgoFactory, profile, algoOpts, disableCH, disableLM, qResults.size() - 1);
+            result = ViaRouting.calcPathsParallel(qResults, pathCalculators, legExecutor);
+        } else {
+            PathCalculator pathCalculator = createPathCalculators(queryGraph, chAlgoFactory, profile, algoOpts, disableCH, disableLM, 1).get(0);
+            result = ViaRouting.calcPaths(request.getPoints(), queryGraph, qResults, weighting.getFlagEncoder().getAccessEnc(), pathCalculator, request.getCurbsides(), forceCurbsides, request.getHeadings(), passThrough);
+        }
 
         if (request.getPoints().size() != result.paths.size() + 1)
             throw new RuntimeException("There should be exactly one more point than paths. points:" + request.getPoints().size() + ", paths:" + result.paths.size());
@@ -248,27 +516,46 @@ public class Router {
     }
 
     private PathCalculator createPathCalculator(QueryGraph queryGraph, Profile profile, AlgorithmOptions algoOpts, boolean disableCH, boolean disableLM) {
+        return createPathCalculators(queryGraph, null, profile, algoOpts, disableCH, disableLM, 1).get(0);
+    }
+
+    /**
+     * Creates the specified number of path calculators that share the same algorithm factory. Every calculator can be
+     * used on a different thread.
+     *
+     * @param chAlgoFactory the CH algorithm factory for the query graph or null if it should be created here
+     */
+    private List<PathCalculator> createPathCalculators(QueryGraph queryGraph, CHRoutingAlgorithmFactory chAlgoFactory, Profile profile, AlgorithmOptions algoOpts, boolean disableCH, boolean disableLM, int count) {
+        List<PathCalculator> pathCalculators = new ArrayList<>(count);
         if (chEnabled && !disableCH) {
             PMap opts = new PMap(algoOpts.getHints());
             opts.putObject(ALGORITHM, algoOpts.getAlgorithm());
             opts.putObject(MAX_VISITED_NODES, algoOpts.getMaxVisitedNodes());
-            return createCHPathCalculator(queryGraph, profile, opts);
+            CHRoutingAlgorithmFactory algorithmFactory = chAlgoFactory != null ? chAlgoFactory : createCHAlgorithmFactory(queryGraph, profile);
+            for (int i = 0; i < count; i++)
+                pathCalculators.add(new CHPathCalculator(algorithmFactory, opts));
         } else {
-            return createFlexiblePathCalculator(queryGraph, profile, algoOpts, disableLM);
+            RoutingAlgorithmFactory algorithmFactory = createAlgorithmFactory(profile, disableLM);
+            for (int i = 0; i < count; i++)
+                pathCalculators.add(new FlexiblePathCalculator(queryGraph, algorithmFactory, algoOpts));
         }
+        return pathCalculators;
     }
 
-    private PathCalculator createCHPathCalculator(QueryGraph queryGraph, Profile profile, PMap opts) {
+    private CHRoutingAlgorithmFactory createCHAlgorithmFactory(QueryGraph queryGraph, Profile profile) {
         RoutingCHGraph chGraph = chGraphs.get(profile.getName());
         if (chGraph == null)
             throw new IllegalArgumentException("Cannot find CH preparation for the requested profile: '" + profile.getName() + "'" +
                     "\nYou can try disabling CH using " + Parameters.CH.DISABLE + "=true" +
                     "\navailable CH profiles: " + chGraphs.keySet());
-        return new CHPathCalculator(new CHRoutingAlgorithmFactory(chGraph, queryGraph), opts);
+        return new CHRoutingAlgorithmFactory(chGraph, queryGraph);
     }
 
     private FlexiblePathCalculator createFlexiblePathCalculator(QueryGraph queryGraph, Profile profile, AlgorithmOptions algoOpts, boolean disableLM) {
-        RoutingAlgorithmFactory algorithmFactory;
+        return new FlexiblePathCalculator(queryGraph, createAlgorithmFactory(profile, disableLM), algoOpts);
+    }
+
+    private RoutingAlgorithmFactory createAlgorithmFactory(Profile profile, boolean disableLM) {
         // for now do not allow mixing CH&LM #1082,#1889
         if (lmEnabled && !disableLM) {
             LandmarkStorage landmarkStorage = landmarks.get(profile.getName());
@@ -276,11 +563,10 @@ public class Router {
                 throw new IllegalArgumentException("Cannot find LM preparation for the requested profile: '" + profile.getName() + "'" +
                         "\nYou can try disabling LM using " + Parameters.Landmark.DISABLE + "=true" +
                         "\navailable LM profiles: " + landmarks.keySet());
-            algorithmFactory = new LMRoutingAlgorithmFactory(landmarkStorage).setDefaultActiveLandmarks(routerConfig.getActiveLandmarkCount());
+            return new LMRoutingAlgorithmFactory(landmarkStorage).setDefaultActiveLandmarks(routerConfig.getActiveLandmarkCount());
         } else {
-            algorithmFactory = new RoutingAlgorithmFactorySimple();
+            return new RoutingAlgorithmFactorySimple();
         }
-        return new FlexiblePathCalculator(queryGraph, algorithmFactory, algoOpts);
     }
 
     private PathMerger createPathMerger(GHRequest request, Weighting weighting, Graph graph) {
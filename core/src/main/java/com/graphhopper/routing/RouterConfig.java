@@ -31,6 +31,8 @@ public class RouterConfig {
     private boolean simplifyResponse = true;
     private double elevationWayPointMaxDistance = Double.MAX_VALUE;
     private int activeLandmarkCount = 8;
+    private int maxBatchRequests = 1000;
+    private int maxMatrixPoints = 1000;
 
     public int getMaxVisitedNodes() {
         return maxVisitedNodes;
@@ -114,4 +116,27 @@ public class RouterConfig {
     public void setElevationWayPointMaxDistance(double elevationWayPointMaxDistance) {
         this.elevationWayPointMaxDistance = elevationWayPointMaxDistance;
     }
+
+    public int getMaxBatchRequests() {
+        return maxBatchRequests;
+    }
+
+    /**
+     * Limits the number of requests that can be calculated with one call of {@link Router#routeBatch}.
+     */
+    public void setMaxBatchRequests(int maxBatchRequests) {
+        this.maxBatchRequests = maxBatchRequests;
+    }
+
+    public int getMaxMatrixPoints() {
+        return maxMatrixPoints;
+    }
+
+    /**
+     * Limits the number of from and to points of a request for {@link Router#matrix}, as the size of the tables grows
+     * with their product.
+     */
+    public void setMaxMatrixPoints(int maxMatrixPoints) {
+        this.maxMatrixPoints = maxMatrixPoints;
+    }
 }
@@ -29,6 +29,7 @@ import com.graphhopper.util.PMap;
 
 import static com.graphhopper.util.Parameters.Algorithms.*;
 import static com.graphhopper.util.Parameters.Algorithms.AltRoute.*;
+import static com.graphhopper.util.Parameters.Routing.PRIMITIVE_SEARCH;
 
 /**
  * A simple factory creating normal algorithms (RoutingAlgorithm) without preparation.
@@ -45,7 +46,10 @@ public class RoutingAlgorithmFactorySimple implements RoutingAlgorithmFactory {
         if (DIJKSTRA_BI.equalsIgnoreCase(algoStr)) {
             ra = new DijkstraBidirectionRef(g, weighting, opts.getTraversalMode());
         } else if (DIJKSTRA.equalsIgnoreCase(algoStr)) {
-            ra = new Dijkstra(g, weighting, opts.getTraversalMode());
+            if (opts.getHints().getBool(PRIMITIVE_SEARCH, false))
+                ra = new PrimitiveAStar(g, weighting, opts.getTraversalMode());
+            else
+                ra = new Dijkstra(g, weighting, opts.getTraversalMode());
 
         } else if (ASTAR_BI.equalsIgnoreCase(algoStr) || Helper.isEmpty(algoStr)) {
             AStarBidirection aStarBi = new AStarBidirection(g, weighting,
@@ -57,9 +61,14 @@ public class RoutingAlgorithmFactorySimple implements RoutingAlgorithmFactory {
             ra = new DijkstraOneToMany(g, weighting, opts.getTraversalMode());
 
         } else if (ASTAR.equalsIgnoreCase(algoStr)) {
-            AStar aStar = new AStar(g, weighting, opts.getTraversalMode());
-            aStar.setApproximation(getApproximation(ASTAR, opts.getHints(), opts.getWeighting(), g.getNodeAccess()));
-            ra = aStar;
+            WeightApproximator approx = getApproximation(ASTAR, opts.getHints(), opts.getWeighting(), g.getNodeAccess());
+            if (opts.getHints().getBool(PRIMITIVE_SEARCH, false)) {
+                ra = new PrimitiveAStar(g, weighting, opts.getTraversalMode()).setApproximation(approx);
+            } else {
+                AStar aStar = new AStar(g, weighting, opts.getTraversalMode());
+                aStar.setApproximation(approx);
+                ra = aStar;
+            }
 
         } else if (ALT_ROUTE.equalsIgnoreCase(algoStr)) {
             AlternativeRoute altRouteAlgo = new AlternativeRoute(g, weighting, opts.getTraversalMode());
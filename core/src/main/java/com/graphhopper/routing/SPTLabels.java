@@ -0,0 +1,203 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.coll.MinHeapWithUpdate;
+
+import java.util.Arrays;
+
+/**
+ * Stores the entries of a shortest path tree in parallel primitive arrays instead of one {@link SPTEntry} object per
+ * entry. Every entry (label) is identified by its index and holds the weight of the visited path, the edge it was
+ * reached with, its adjacent node and the index of its parent label. Labels are found via their traversal id using an
+ * open addressing hash table and the search queue is a {@link MinHeapWithUpdate} over the label indices.
+ * <p>
+ * An instance can be reused for many searches: {@link #clear} only resets the touched parts of the arrays. Use
+ * {@link #acquire} and {@link #release} to reuse one instance per thread, which makes a search allocation-free in the
+ * steady state.
+ */
+public class SPTLabels {
+    public static final int NO_LABEL = -1;
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    // do not keep huge arrays of exceptionally large searches around
+    private static final int MAX_POOLED_CAPACITY = 1 << 22;
+    private static final ThreadLocal<SPTLabels> POOL = new ThreadLocal<>();
+
+    private double[] weights;
+    private int[] edges;
+    private int[] adjNodes;
+    private int[] parents;
+    private int[] traversalIds;
+    // the slot of every label in the hash table, so that we can clear the table in O(size)
+    private int[] slots;
+    private int size;
+    // contains the label index + 1 or 0 if the slot is empty
+    private int[] table;
+    private int mask;
+    private final MinHeapWithUpdate heap;
+
+    public SPTLabels() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public SPTLabels(int capacity) {
+        capacity = Math.max(16, capacity);
+        weights = new double[capacity];
+        edges = new int[capacity];
+        adjNodes = new int[capacity];
+        parents = new int[capacity];
+        traversalIds = new int[capacity];
+        slots = new int[capacity];
+        table = new int[tableSizeFor(capacity)];
+        mask = table.length - 1;
+        heap = new MinHeapWithUpdate(capacity);
+    }
+
+    /**
+     * @return a cleared instance, which is reused if {@link #release} was called on this thread before
+     */
+    public static SPTLabels acquire() {
+        SPTLabels labels = POOL.get();
+        if (labels == null)
+            return new SPTLabels();
+        // as long as the instance is in use another search on the same thread needs to create its own instance
+        POOL.set(null);
+        return labels;
+    }
+
+    /**
+     * Puts the specified instance back into the pool of the current thread. It must not be used afterwards.
+     */
+    public static void release(SPTLabels labels) {
+        if (labels.weights.length > MAX_POOLED_CAPACITY)
+            return;
+        labels.clear();
+        POOL.set(labels);
+    }
+
+    /**
+     * Creates a new label and returns its index. Use {@link #put} to make it available via its traversal id.
+     */
+    public int add(int edge, int adjNode, double weight, int parent) {
+        if (size == weights.length)
+            grow();
+        weights[size] = weight;
+        edges[size] = edge;
+        adjNodes[size] = adjNode;
+        parents[size] = parent;
+        traversalIds[size] = -1;
+        slots[size] = -1;
+        return size++;
+    }
+
+    public void set(int label, int edge, double weight, int parent) {
+        weights[label] = weight;
+        edges[label] = edge;
+        parents[label] = parent;
+    }
+
+    /**
+     * Associates the specified label with the specified traversal id. The same traversal id must not be put twice.
+     */
+    public void put(int traversalId, int label) {
+        int slot = mix(traversalId) & mask;
+        while (table[slot] != 0)
+            slot = (slot + 1) & mask;
+        table[slot] = label + 1;
+        traversalIds[label] = traversalId;
+        slots[label] = slot;
+    }
+
+    /**
+     * @return the label associated with the specified traversal id or {@link #NO_LABEL}
+     */
+    public int find(int traversalId) {
+        int slot = mix(traversalId) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            if (traversalIds[entry - 1] == traversalId)
+                return entry - 1;
+            slot = (slot + 1) & mask;
+        }
+        return NO_LABEL;
+    }
+
+    public double getWeight(int label) {
+        return weights[label];
+    }
+
+    public int getEdge(int label) {
+        return edges[label];
+    }
+
+    public int getAdjNode(int label) {
+        return adjNodes[label];
+    }
+
+    public int getParent(int label) {
+        return parents[label];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the priority queue over the label indices, its capacity grows together with the labels
+     */
+    public MinHeapWithUpdate getHeap() {
+        return heap;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            if (slots[i] >= 0)
+                table[slots[i]] = 0;
+        }
+        size = 0;
+        heap.clear();
+    }
+
+    private void grow() {
+        int capacity = weights.length * 2;
+        weights = Arrays.copyOf(weights, capacity);
+        edges = Arrays.copyOf(edges, capacity);
+        adjNodes = Arrays.copyOf(adjNodes, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        traversalIds = Arrays.copyOf(traversalIds, capacity);
+        slots = Arrays.copyOf(slots, capacity);
+        heap.ensureCapacity(capacity);
+        // rehash, the load factor of the table stays below 0.5
+        table = new int[tableSizeFor(capacity)];
+        mask = table.length - 1;
+        for (int i = 0; i < size; i++) {
+            if (slots[i] >= 0)
+                put(traversalIds[i], i);
+        }
+    }
+
+    private static int tableSizeFor(int capacity) {
+        return Integer.highestOneBit(capacity - 1) << 2;
+    }
+
+    private static int mix(int key) {
+        // the traversal ids are often consecutive, so spread them over the table
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -32,6 +32,9 @@ import com.graphhopper.util.shapes.GHPoint;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
 import static com.graphhopper.util.EdgeIterator.NO_EDGE;
@@ -46,6 +49,10 @@ import static com.graphhopper.util.Parameters.Routing.CURBSIDE;
  * @author easbar
  */
 public class ViaRouting {
+    /**
+     * Snapping all points at once only pays off for more points as they are sorted and grouped first
+     */
+    private static final int MIN_BATCH_LOOKUP_POINTS = 8;
 
     /**
      * @throws MultiplePointsNotFoundException in case one or more points could not be resolved
@@ -60,17 +67,30 @@ public class ViaRouting {
         EdgeFilter strictEdgeFilter = snapPreventions.isEmpty()
                 ? edgeFilter
                 : new SnapPreventionEdgeFilter(edgeFilter, roadClassEnc, roadEnvEnc, snapPreventions);
+        // without point hints all points use the same filter and can be snapped at once
+        List<Snap> batchSnaps = null;
+        if (pointHints.isEmpty() && points.size() >= MIN_BATCH_LOOKUP_POINTS) {
+            double[] lats = new double[points.size()], lons = new double[points.size()];
+            for (int placeIndex = 0; placeIndex < points.size(); placeIndex++) {
+                lats[placeIndex] = points.get(placeIndex).lat;
+                lons[placeIndex] = points.get(placeIndex).lon;
+            }
+            batchSnaps = locationIndex.findClosestBatch(lats, lons, strictEdgeFilter);
+        }
         List<Snap> snaps = new ArrayList<>(points.size());
         IntArrayList pointsNotFound = new IntArrayList();
         for (int placeIndex = 0; placeIndex < points.size(); placeIndex++) {
             GHPoint point = points.get(placeIndex);
-            Snap snap = null;
+            Snap snap;
             if (!pointHints.isEmpty())
                 snap = locationIndex.findClosest(point.lat, point.lon, new NameSimilarityEdgeFilter(strictEdgeFilter,
                         pointHints.get(placeIndex), point, 100));
-            else if (!snapPreventions.isEmpty())
+            else if (batchSnaps != null)
+                snap = batchSnaps.get(placeIndex);
+            else
                 snap = locationIndex.findClosest(point.lat, point.lon, strictEdgeFilter);
-            if (snap == null || !snap.isValid())
+            // the batch or lookup already used the edgeFilter if there are no snap preventions
+            if (!snap.isValid() && (!pointHints.isEmpty() || strictEdgeFilter != edgeFilter))
                 snap = locationIndex.findClosest(point.lat, point.lon, edgeFilter);
             if (!snap.isValid())
                 pointsNotFound.add(placeIndex);
@@ -132,25 +152,77 @@ public class ViaRouting {
 
             // calculate paths
             List<Path> paths = pathCalculator.calcPaths(fromSnap.getClosestNode(), toSnap.getClosestNode(), edgeRestrictions);
-            result.debug += pathCalculator.getDebugString();
-
-            // for alternative routing we get multiple paths and add all of them (which is ok, because we do not allow
-            // via-points for alternatives at the moment). otherwise we would have to return a list<list<path>> and find
-            // a good method to decide how to combine the different legs
-            for (int i = 0; i < paths.size(); i++) {
-                Path path = paths.get(i);
-                if (path.getTime() < 0)
-                    throw new RuntimeException("Time was negative " + path.getTime() + " for index " + i);
-
-                result.paths.add(path);
-                result.debug += ", " + path.getDebugInfo();
+            addPaths(result, pathCalculator, paths);
+        }
+
+        return result;
+    }
+
+    /**
+     * Calculates the legs between the snaps like {@link #calcPaths}, but concurrently. The first leg is calculated on
+     * the calling thread and all others are submitted to the executor. This requires that the legs are independent
+     * of each other and that the query graph is only read, i.e. the caller has to make sure that neither headings
+     * nor curbsides nor pass_through are used.
+     *
+     * @param pathCalculators one calculator for every leg, they are not thread-safe and need to be created before
+     *                        calling this method
+     */
+    public static Result calcPathsParallel(List<Snap> snaps, List<PathCalculator> pathCalculators, ExecutorService executor) {
+        final int legs = snaps.size() - 1;
+        if (pathCalculators.size() != legs)
+            throw new IllegalArgumentException("There has to be one path calculator per leg, legs: " + legs + ", path calculators: " + pathCalculators.size());
+        List<Future<List<Path>>> futures = new ArrayList<>(legs);
+        futures.add(null);
+        for (int leg = 1; leg < legs; ++leg) {
+            final int from = snaps.get(leg).getClosestNode();
+            final int to = snaps.get(leg + 1).getClosestNode();
+            final PathCalculator pathCalculator = pathCalculators.get(leg);
+            futures.add(executor.submit(() -> pathCalculator.calcPaths(from, to, new EdgeRestrictions())));
+        }
+
+        Result result = new Result(legs);
+        try {
+            List<Path> paths = pathCalculators.get(0).calcPaths(snaps.get(0).getClosestNode(), snaps.get(1).getClosestNode(), new EdgeRestrictions());
+            addPaths(result, pathCalculators.get(0), paths);
+            for (int leg = 1; leg < legs; ++leg) {
+                addPaths(result, pathCalculators.get(leg), futures.get(leg).get());
+            }
+            return result;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while calculating the legs", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            if (ex.getCause() instanceof Error)
+                throw (Error) ex.getCause();
+            throw new RuntimeException(ex.getCause());
+        } finally {
+            // skip the remaining legs if one of them failed, cancelling a finished future has no effect. We do not
+            // interrupt the running legs as this could close the channels of the graph storage, see Router.routeBatch
+            for (int leg = 1; leg < legs; ++leg) {
+                futures.get(leg).cancel(false);
             }
+        }
+    }
+
+    private static void addPaths(Result result, PathCalculator pathCalculator, List<Path> paths) {
+        result.debug += pathCalculator.getDebugString();
 
-            result.visitedNodes += pathCalculator.getVisitedNodes();
-            result.debug += "visited nodes sum: " + result.visitedNodes;
+        // for alternative routing we get multiple paths and add all of them (which is ok, because we do not allow
+        // via-points for alternatives at the moment). otherwise we would have to return a list<list<path>> and find
+        // a good method to decide how to combine the different legs
+        for (int i = 0; i < paths.size(); i++) {
+            Path path = paths.get(i);
+            if (path.getTime() < 0)
+                throw new RuntimeException("Time was negative " + path.getTime() + " for index " + i);
+
+            result.paths.add(path);
+            result.debug += ", " + path.getDebugInfo();
         }
 
-        return result;
+        result.visitedNodes += pathCalculator.getVisitedNodes();
+        result.debug += "visited nodes sum: " + result.visitedNodes;
     }
 
     public static class Result {
@@ -48,6 +48,7 @@ public class CHPreparationHandler {
     private final List<CHProfile> chProfiles = new ArrayList<>();
     private final List<CHConfig> chConfigs = new ArrayList<>();
     private int preparationThreads;
+    private int contractionThreads = 1;
     private ExecutorService threadPool;
     private PMap pMap = new PMap();
 
@@ -65,6 +66,7 @@ public class CHPreparationHandler {
             throw new IllegalStateException("Use profiles_ch instead of prepare.ch.edge_based, see #1922 and docs/core/profiles.md");
 
         setPreparationThreads(ghConfig.getInt(CH.PREPARE + "threads", getPreparationThreads()));
+        setContractionThreads(ghConfig.getInt(CH.PREPARE + "contraction_threads", getContractionThreads()));
         setCHProfiles(ghConfig.getCHProfiles());
         pMap = ghConfig.asPMap();
     }
@@ -178,6 +180,23 @@ public class CHPreparationHandler {
         this.threadPool = java.util.concurrent.Executors.newFixedThreadPool(preparationThreads);
     }
 
+    public int getContractionThreads() {
+        return contractionThreads;
+    }
+
+    /**
+     * This method changes the number of threads used to contract the nodes of every single CH profile. Default is 1.
+     * The total number of threads is the number of preparation threads times this number.
+     *
+     * @see PrepareContractionHierarchies#setContractionThreads
+     */
+    public CHPreparationHandler setContractionThreads(int contractionThreads) {
+        if (contractionThreads < 1)
+            throw new IllegalArgumentException(CH.PREPARE + "contraction_threads must be positive, was: " + contractionThreads);
+        this.contractionThreads = contractionThreads;
+        return this;
+    }
+
     public void prepare(final StorableProperties properties, final boolean closeEarly) {
         ExecutorCompletionService<String> completionService = new ExecutorCompletionService<>(threadPool);
         int counter = 0;
@@ -224,6 +243,7 @@ public class CHPreparationHandler {
     private PrepareContractionHierarchies createCHPreparation(GraphHopperStorage ghStorage, CHConfig chConfig) {
         PrepareContractionHierarchies pch = PrepareContractionHierarchies.fromGraphHopperStorage(ghStorage, chConfig);
         pch.setParams(pMap);
+        pch.setContractionThreads(contractionThreads);
         return pch;
     }
 }
@@ -19,11 +19,14 @@ package com.graphhopper.routing.ch;
 
 import com.carrotsearch.hppc.*;
 import com.carrotsearch.hppc.cursors.IntCursor;
+import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.util.BitUtil;
 import com.graphhopper.util.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
@@ -52,6 +55,7 @@ class EdgeBasedNodeContractor implements NodeContractor {
     private ShortcutHandler shortcutHandler;
     private final Params params = new Params();
     private final PMap pMap;
+    private final List<EdgeBasedNodeContractor> workers = new ArrayList<>();
     private final StopWatch dijkstraSW = new StopWatch();
     // temporary data used during node contraction
     private final IntSet sourceNodes = new IntHashSet(10);
@@ -101,6 +105,22 @@ class EdgeBasedNodeContractor implements NodeContractor {
         hierarchyDepths = new int[prepareGraph.getNodes()];
     }
 
+    @Override
+    public NodeContractor createWorker(GHBitSet ignoredNodes) {
+        EdgeBasedNodeContractor worker = new EdgeBasedNodeContractor(prepareGraph, null, pMap);
+        worker.inEdgeExplorer = prepareGraph.createInEdgeExplorer();
+        worker.outEdgeExplorer = prepareGraph.createOutEdgeExplorer();
+        worker.existingShortcutExplorer = prepareGraph.createOutEdgeExplorer();
+        worker.sourceNodeOrigInEdgeExplorer = prepareGraph.createInOrigEdgeExplorer();
+        worker.targetNodeOrigOutEdgeExplorer = prepareGraph.createOutOrigEdgeExplorer();
+        worker.witnessPathSearcher = new EdgeBasedWitnessPathSearcher(prepareGraph, pMap);
+        worker.witnessPathSearcher.setIgnoredNodes(ignoredNodes);
+        // the hierarchy depths are only updated by this contractor
+        worker.hierarchyDepths = hierarchyDepths;
+        workers.add(worker);
+        return worker;
+    }
+
     @Override
     public void prepareContraction() {
         // not needed
@@ -146,6 +166,30 @@ class EdgeBasedNodeContractor implements NodeContractor {
         return neighbors;
     }
 
+    @Override
+    public Shortcuts findShortcuts(int node) {
+        activeStats = addingStats;
+        stats().stopWatch.start();
+        EdgeBasedShortcuts shortcuts = new EdgeBasedShortcuts();
+        findAndHandlePrepareShortcuts(node, shortcuts::add);
+        stats().stopWatch.stop();
+        return shortcuts;
+    }
+
+    @Override
+    public IntContainer contractNode(int node, Shortcuts shortcuts) {
+        EdgeBasedShortcuts s = (EdgeBasedShortcuts) shortcuts;
+        activeStats = addingStats;
+        stats().stopWatch.start();
+        for (int i = 0; i < s.edgesTo.size(); i++)
+            addShortcutsToPrepareGraph(s.edgesFrom.get(i), s.edgesTo.get(i), s.origEdgeCounts.get(i));
+        insertShortcuts(node);
+        IntContainer neighbors = prepareGraph.disconnect(node);
+        updateHierarchyDepthsOfNeighbors(node, neighbors);
+        stats().stopWatch.stop();
+        return neighbors;
+    }
+
     @Override
     public void finishContraction() {
         shortcutHandler.finishContraction();
@@ -158,12 +202,21 @@ class EdgeBasedNodeContractor implements NodeContractor {
 
     @Override
     public long getDijkstraCount() {
-        return witnessPathSearcher.getTotalNumSearches();
+        long count = witnessPathSearcher.getTotalNumSearches();
+        for (EdgeBasedNodeContractor worker : workers)
+            count += worker.witnessPathSearcher.getTotalNumSearches();
+        return count;
     }
 
+    /**
+     * @return the time spent for witness searches, summed up over all workers
+     */
     @Override
     public float getDijkstraSeconds() {
-        return dijkstraSW.getCurrentSeconds();
+        float seconds = dijkstraSW.getCurrentSeconds();
+        for (EdgeBasedNodeContractor worker : workers)
+            seconds += worker.dijkstraSW.getCurrentSeconds();
+        return seconds;
     }
 
     @Override
@@ -383,6 +436,8 @@ class EdgeBasedNodeContractor implements NodeContractor {
 
     @Override
     public void close() {
+        for (EdgeBasedNodeContractor worker : workers)
+            worker.close();
         prepareGraph.close();
         inEdgeExplorer = null;
         outEdgeExplorer = null;
@@ -427,6 +482,19 @@ class EdgeBasedNodeContractor implements NodeContractor {
         numOrigEdges += origEdgeCount;
     }
 
+    private static class EdgeBasedShortcuts implements Shortcuts {
+        // the witness path searcher creates new entries for every search, so we can keep them until the node is contracted
+        private final List<PrepareCHEntry> edgesFrom = new ArrayList<>();
+        private final List<PrepareCHEntry> edgesTo = new ArrayList<>();
+        private final IntArrayList origEdgeCounts = new IntArrayList();
+
+        void add(PrepareCHEntry edgeFrom, PrepareCHEntry edgeTo, int origEdgeCount) {
+            edgesFrom.add(edgeFrom);
+            edgesTo.add(edgeTo);
+            origEdgeCounts.add(origEdgeCount);
+        }
+    }
+
     public static class Params {
         // todo: optimize
         private float edgeQuotientWeight = 1;
@@ -21,6 +21,7 @@ import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntObjectHashMap;
 import com.carrotsearch.hppc.IntObjectMap;
 import com.graphhopper.apache.commons.collections.IntFloatBinaryHeap;
+import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.PMap;
@@ -67,6 +68,8 @@ public class EdgeBasedWitnessPathSearcher {
     private final CHPreparationGraph prepareGraph;
     private PrepareGraphEdgeExplorer outEdgeExplorer;
     private PrepareGraphOrigEdgeExplorer origInEdgeExplorer;
+    // nodes other than the center node that may not be used for witness paths
+    private GHBitSet ignoredNodes;
 
     // general parameters affecting the number of found witnesses and the search time
     private final Params params = new Params();
@@ -214,6 +217,8 @@ public class EdgeBasedWitnessPathSearcher {
             final int fromNode = getAdjNode(currKey);
             PrepareGraphEdgeIterator iter = outEdgeExplorer.setBaseNode(fromNode);
             while (iter.next()) {
+                if (ignoredNodes != null && iter.getAdjNode() != centerNode && ignoredNodes.contains(iter.getAdjNode()))
+                    continue;
                 double edgeWeight = iter.getWeight() + calcTurnWeight(GHUtility.getEdgeFromEdgeKey(currKey),
                         iter.getBaseNode(), GHUtility.getEdgeFromEdgeKey(iter.getOrigEdgeKeyFirst()));
                 double weight = edgeWeight + weights[currKey];
@@ -289,6 +294,14 @@ public class EdgeBasedWitnessPathSearcher {
         return (adjNodesAndIsPathToCenters[key] & 0b01) == 0b01;
     }
 
+    /**
+     * Excludes all nodes of the given set except the center node from the search. The set may only change between
+     * calls of {@link #initSearch}.
+     */
+    public void setIgnoredNodes(GHBitSet ignoredNodes) {
+        this.ignoredNodes = ignoredNodes;
+    }
+
     public String getStatisticsString() {
         return "last batch: " + currentBatchStats.toString() + " total: " + totalStats.toString();
     }
@@ -0,0 +1,332 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.IntIntHashMap;
+import com.carrotsearch.hppc.LongObjectHashMap;
+import com.graphhopper.GHMatrixResponse;
+import com.graphhopper.coll.MinHeapWithUpdate;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.RoutingCHEdgeExplorer;
+import com.graphhopper.storage.RoutingCHEdgeIterator;
+import com.graphhopper.storage.RoutingCHEdgeIteratorState;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+
+import java.util.Arrays;
+
+/**
+ * Calculates the weights, times and distances between many sources and many targets using the bucket-based approach
+ * for contraction hierarchies: First a backward search is run for every target and every node settled by such a
+ * search stores the weight to the target in its bucket. Then a forward search is run for every source and the
+ * buckets of all settled nodes are scanned, i.e. the best meeting node of every source/target pair is found without
+ * running a search per pair. Both searches only explore the upward graph, so their search spaces are small.
+ * <p>
+ * Works for node- and edge-based CH graphs. For edge-based graphs the searches settle (node, edge) states and the turn
+ * costs at the meeting node are added when the buckets are scanned. The distance and time of the shortcuts are found
+ * by unpacking them once per instance.
+ */
+public class ManyToManyCH {
+    private static final int NO_LABEL = -1;
+    private final RoutingCHGraph graph;
+    private final boolean edgeBased;
+    // the weighting that takes care of turn costs at virtual nodes, like in EdgeBasedCHBidirPathExtractor
+    private final Weighting weighting;
+    private final int maxNodes;
+    private final RoutingCHEdgeExplorer inEdgeExplorer;
+    private final RoutingCHEdgeExplorer outEdgeExplorer;
+    private final ShortcutUnpacker shortcutUnpacker;
+    private final LongObjectHashMap<double[]> fwdShortcutMetrics = new LongObjectHashMap<>();
+    private final LongObjectHashMap<double[]> bwdShortcutMetrics = new LongObjectHashMap<>();
+    private double unpackedDistance;
+    private long unpackedTime;
+
+    // the labels of the current search
+    private int labelCount;
+    private double[] weights;
+    private double[] distances;
+    private long[] times;
+    private int[] edges;
+    private int[] origEdges;
+    private int[] adjNodes;
+    private final IntIntHashMap labelsByTraversalId = new IntIntHashMap();
+    private final MinHeapWithUpdate heap;
+
+    // the buckets are singly linked lists of entries, the first entry of every node is stored in bucketHeads
+    private final IntIntHashMap bucketHeads = new IntIntHashMap();
+    private int bucketSize;
+    private int[] bucketTargets;
+    private double[] bucketWeights;
+    private double[] bucketDistances;
+    private long[] bucketTimes;
+    private int[] bucketEdges;
+    private int[] bucketNext;
+
+    private int visitedNodes;
+    private int maxVisitedNodes = Integer.MAX_VALUE;
+
+    public ManyToManyCH(RoutingCHGraph graph) {
+        this.graph = graph;
+        this.edgeBased = graph.isEdgeBased();
+        this.weighting = graph.getBaseGraph().wrapWeighting(graph.getWeighting());
+        this.maxNodes = graph.getBaseGraph().getBaseGraph().getNodes();
+        this.inEdgeExplorer = graph.createInEdgeExplorer();
+        this.outEdgeExplorer = graph.createOutEdgeExplorer();
+        this.shortcutUnpacker = new ShortcutUnpacker(graph, new ShortcutUnpacker.Visitor() {
+            @Override
+            public void visit(EdgeIteratorState edge, boolean reverse, int prevOrNextEdgeId) {
+                unpackedDistance += edge.getDistance();
+                unpackedTime += GHUtility.calcMillisWithTurnMillis(weighting, edge, reverse, prevOrNextEdgeId);
+            }
+        }, edgeBased);
+        int capacity = 1 << 8;
+        weights = new double[capacity];
+        distances = new double[capacity];
+        times = new long[capacity];
+        edges = new int[capacity];
+        origEdges = new int[capacity];
+        adjNodes = new int[capacity];
+        heap = new MinHeapWithUpdate(capacity);
+        bucketTargets = new int[capacity];
+        bucketWeights = new double[capacity];
+        bucketDistances = new double[capacity];
+        bucketTimes = new long[capacity];
+        bucketEdges = new int[capacity];
+        bucketNext = new int[capacity];
+    }
+
+    /**
+     * Limits the number of nodes settled by all searches of this instance together.
+     */
+    public void setMaxVisitedNodes(int maxVisitedNodes) {
+        this.maxVisitedNodes = maxVisitedNodes;
+    }
+
+    /**
+     * @param sources the nodes of the query graph the paths start from
+     * @param targets the nodes of the query graph the paths end at
+     * @return the weights, times and distances for all pairs, the first index is the index of the source
+     */
+    public GHMatrixResponse calcMatrix(int[] sources, int[] targets) {
+        bucketHeads.clear();
+        bucketSize = 0;
+        for (int t = 0; t < targets.length; t++) {
+            search(targets[t], true);
+            for (int label = 0; label < labelCount; label++) {
+                addBucketEntry(adjNodes[label], t, label);
+            }
+        }
+
+        double[][] weightTable = new double[sources.length][targets.length];
+        long[][] timeTable = new long[sources.length][targets.length];
+        double[][] distanceTable = new double[sources.length][targets.length];
+        for (int s = 0; s < sources.length; s++) {
+            double[] weightRow = weightTable[s];
+            long[] timeRow = timeTable[s];
+            double[] distanceRow = distanceTable[s];
+            Arrays.fill(weightRow, Double.POSITIVE_INFINITY);
+            Arrays.fill(timeRow, Long.MAX_VALUE);
+            Arrays.fill(distanceRow, Double.POSITIVE_INFINITY);
+            search(sources[s], false);
+            for (int label = 0; label < labelCount; label++) {
+                int node = adjNodes[label];
+                int entry = bucketHeads.getOrDefault(node, NO_LABEL);
+                for (; entry != NO_LABEL; entry = bucketNext[entry]) {
+                    double weight = weights[label] + bucketWeights[entry];
+                    if (edgeBased)
+                        weight += graph.getTurnWeight(origEdges[label], node, bucketEdges[entry]);
+                    int t = bucketTargets[entry];
+                    if (weight < weightRow[t]) {
+                        weightRow[t] = weight;
+                        distanceRow[t] = distances[label] + bucketDistances[entry];
+                        timeRow[t] = times[label] + bucketTimes[entry]
+                                + (edgeBased ? calcTurnMillis(origEdges[label], node, bucketEdges[entry]) : 0);
+                    }
+                }
+            }
+        }
+        return new GHMatrixResponse(weightTable, timeTable, distanceTable);
+    }
+
+    /**
+     * Runs an upward search from the specified node until the queue is empty, so all labels are settled afterwards.
+     */
+    private void search(int startNode, boolean reverse) {
+        labelCount = 0;
+        labelsByTraversalId.clear();
+        heap.clear();
+        int startLabel = addLabel(EdgeIterator.NO_EDGE, EdgeIterator.NO_EDGE, startNode, 0, 0, 0);
+        if (!edgeBased)
+            labelsByTraversalId.put(startNode, startLabel);
+        RoutingCHEdgeExplorer explorer = reverse ? inEdgeExplorer : outEdgeExplorer;
+        int currLabel = startLabel;
+        while (true) {
+            if (++visitedNodes > maxVisitedNodes)
+                throw new IllegalArgumentException("No matrix calculated due to maximum nodes exceeded " + maxVisitedNodes);
+            int currNode = adjNodes[currLabel];
+            RoutingCHEdgeIterator iter = explorer.setBaseNode(currNode);
+            while (iter.next()) {
+                // for edge-based CH the first step has to consider all edges, see AbstractBidirectionEdgeCHNoSOD
+                if (!(edgeBased && currLabel == startLabel) && !accept(iter, currLabel))
+                    continue;
+                double weight = calcWeight(iter, reverse, origEdges[currLabel]);
+                if (Double.isInfinite(weight))
+                    continue;
+                weight += weights[currLabel];
+                int origEdge = reverse ? iter.getOrigEdgeFirst() : iter.getOrigEdgeLast();
+                int traversalId = edgeBased
+                        ? GHUtility.createEdgeKey(graph.getBaseGraph().getOtherNode(origEdge, iter.getAdjNode()), iter.getAdjNode(), origEdge, reverse)
+                        : iter.getAdjNode();
+                int label = labelsByTraversalId.getOrDefault(traversalId, NO_LABEL);
+                if (label != NO_LABEL && weights[label] <= weight)
+                    continue;
+
+                calcMetrics(iter, reverse, origEdges[currLabel]);
+                double distance = distances[currLabel] + unpackedDistance;
+                long time = times[currLabel] + unpackedTime;
+                if (label == NO_LABEL) {
+                    label = addLabel(iter.getEdge(), origEdge, iter.getAdjNode(), weight, distance, time);
+                    labelsByTraversalId.put(traversalId, label);
+                    heap.push(label, (float) weight);
+                } else {
+                    weights[label] = weight;
+                    distances[label] = distance;
+                    times[label] = time;
+                    edges[label] = iter.getEdge();
+                    if (heap.contains(label))
+                        heap.update(label, (float) weight);
+                    else
+                        heap.push(label, (float) weight);
+                }
+            }
+            if (heap.isEmpty())
+                break;
+            currLabel = heap.poll();
+        }
+    }
+
+    private boolean accept(RoutingCHEdgeIteratorState edgeState, int currLabel) {
+        // for node-based traversal we exclude u-turns already here, see AbstractBidirCHAlgo
+        if (!edgeBased && edgeState.getEdge() == edges[currLabel])
+            return false;
+        int base = edgeState.getBaseNode();
+        int adj = edgeState.getAdjNode();
+        // always accept virtual edges and shortcuts, see AbstractBidirCHAlgo.CHLevelEdgeFilter
+        if (base >= maxNodes || adj >= maxNodes || edgeState.isShortcut())
+            return true;
+        return graph.getLevel(base) <= graph.getLevel(adj);
+    }
+
+    private double calcWeight(RoutingCHEdgeIteratorState edgeState, boolean reverse, int prevOrNextOrigEdge) {
+        double edgeWeight = edgeState.getWeight(reverse);
+        if (!edgeBased)
+            return edgeWeight;
+        return edgeWeight + (reverse
+                ? graph.getTurnWeight(edgeState.getOrigEdgeLast(), edgeState.getBaseNode(), prevOrNextOrigEdge)
+                : graph.getTurnWeight(prevOrNextOrigEdge, edgeState.getBaseNode(), edgeState.getOrigEdgeFirst()));
+    }
+
+    /**
+     * Sets {@link #unpackedDistance} and {@link #unpackedTime} to the distance and time of the specified edge
+     * including the turn from or to the specified original edge.
+     */
+    private void calcMetrics(RoutingCHEdgeIteratorState edgeState, boolean reverse, int prevOrNextOrigEdge) {
+        if (edgeState.isShortcut()) {
+            LongObjectHashMap<double[]> cache = reverse ? bwdShortcutMetrics : fwdShortcutMetrics;
+            long key = ((long) edgeState.getEdge() << 32) | edgeState.getAdjNode();
+            double[] metrics = cache.get(key);
+            if (metrics == null) {
+                unpack(edgeState, reverse);
+                metrics = new double[]{unpackedDistance, unpackedTime};
+                cache.put(key, metrics);
+            }
+            unpackedDistance = metrics[0];
+            unpackedTime = (long) metrics[1];
+        } else {
+            unpack(edgeState, reverse);
+        }
+        if (edgeBased)
+            unpackedTime += reverse
+                    ? calcTurnMillis(edgeState.getOrigEdgeLast(), edgeState.getBaseNode(), prevOrNextOrigEdge)
+                    : calcTurnMillis(prevOrNextOrigEdge, edgeState.getBaseNode(), edgeState.getOrigEdgeFirst());
+    }
+
+    private void unpack(RoutingCHEdgeIteratorState edgeState, boolean reverse) {
+        unpackedDistance = 0;
+        unpackedTime = 0;
+        if (reverse)
+            shortcutUnpacker.visitOriginalEdgesBwd(edgeState.getEdge(), edgeState.getAdjNode(), false, EdgeIterator.NO_EDGE);
+        else
+            shortcutUnpacker.visitOriginalEdgesFwd(edgeState.getEdge(), edgeState.getAdjNode(), false, EdgeIterator.NO_EDGE);
+    }
+
+    private long calcTurnMillis(int inEdge, int viaNode, int outEdge) {
+        if (!EdgeIterator.Edge.isValid(inEdge) || !EdgeIterator.Edge.isValid(outEdge))
+            return 0;
+        return weighting.calcTurnMillis(inEdge, viaNode, outEdge);
+    }
+
+    private int addLabel(int edge, int origEdge, int adjNode, double weight, double distance, long time) {
+        if (labelCount == weights.length) {
+            int capacity = weights.length * 2;
+            weights = Arrays.copyOf(weights, capacity);
+            distances = Arrays.copyOf(distances, capacity);
+            times = Arrays.copyOf(times, capacity);
+            edges = Arrays.copyOf(edges, capacity);
+            origEdges = Arrays.copyOf(origEdges, capacity);
+            adjNodes = Arrays.copyOf(adjNodes, capacity);
+            heap.ensureCapacity(capacity);
+        }
+        weights[labelCount] = weight;
+        distances[labelCount] = distance;
+        times[labelCount] = time;
+        edges[labelCount] = edge;
+        origEdges[labelCount] = origEdge;
+        adjNodes[labelCount] = adjNode;
+        return labelCount++;
+    }
+
+    private void addBucketEntry(int node, int target, int label) {
+        if (bucketSize == bucketTargets.length) {
+            int capacity = bucketTargets.length * 2;
+            bucketTargets = Arrays.copyOf(bucketTargets, capacity);
+            bucketWeights = Arrays.copyOf(bucketWeights, capacity);
+            bucketDistances = Arrays.copyOf(bucketDistances, capacity);
+            bucketTimes = Arrays.copyOf(bucketTimes, capacity);
+            bucketEdges = Arrays.copyOf(bucketEdges, capacity);
+            bucketNext = Arrays.copyOf(bucketNext, capacity);
+        }
+        bucketTargets[bucketSize] = target;
+        bucketWeights[bucketSize] = weights[label];
+        bucketDistances[bucketSize] = distances[label];
+        bucketTimes[bucketSize] = times[label];
+        bucketEdges[bucketSize] = origEdges[label];
+        bucketNext[bucketSize] = bucketHeads.getOrDefault(node, NO_LABEL);
+        bucketHeads.put(node, bucketSize);
+        bucketSize++;
+    }
+
+    /**
+     * @return the number of nodes settled by all searches
+     */
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+}
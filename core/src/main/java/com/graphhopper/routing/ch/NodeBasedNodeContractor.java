@@ -17,10 +17,15 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntContainer;
+import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.util.PMap;
 import com.graphhopper.util.StopWatch;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 import static com.graphhopper.routing.ch.CHParameters.EDGE_DIFFERENCE_WEIGHT;
@@ -29,7 +34,10 @@ import static com.graphhopper.util.Helper.nf;
 
 class NodeBasedNodeContractor implements NodeContractor {
     private final CHPreparationGraph prepareGraph;
-    private final Params params = new Params();
+    private final Params params;
+    // workers use the mean degree of the contractor that created them
+    private final NodeBasedNodeContractor parent;
+    private final List<NodeBasedNodeContractor> workers = new ArrayList<>();
     private ShortcutHandler shortcutHandler;
     private PrepareGraphEdgeExplorer inEdgeExplorer;
     private PrepareGraphEdgeExplorer outEdgeExplorer;
@@ -47,10 +55,18 @@ class NodeBasedNodeContractor implements NodeContractor {
 
     NodeBasedNodeContractor(CHPreparationGraph prepareGraph, ShortcutHandler shortcutHandler, PMap pMap) {
         this.prepareGraph = prepareGraph;
+        this.params = new Params();
+        this.parent = null;
         extractParams(pMap);
         this.shortcutHandler = shortcutHandler;
     }
 
+    private NodeBasedNodeContractor(NodeBasedNodeContractor parent) {
+        this.prepareGraph = parent.prepareGraph;
+        this.params = parent.params;
+        this.parent = parent;
+    }
+
     private void extractParams(PMap pMap) {
         params.edgeDifferenceWeight = pMap.getFloat(EDGE_DIFFERENCE_WEIGHT, params.edgeDifferenceWeight);
         params.originalEdgesCountWeight = pMap.getFloat(ORIGINAL_EDGE_COUNT_WEIGHT, params.originalEdgesCountWeight);
@@ -74,8 +90,19 @@ class NodeBasedNodeContractor implements NodeContractor {
         meanDegree = prepareGraph.getOriginalEdges() / prepareGraph.getNodes();
     }
 
+    @Override
+    public NodeContractor createWorker(GHBitSet ignoredNodes) {
+        NodeBasedNodeContractor worker = new NodeBasedNodeContractor(this);
+        worker.initFromGraph();
+        worker.witnessPathSearcher.setIgnoredNodes(ignoredNodes);
+        workers.add(worker);
+        return worker;
+    }
+
     @Override
     public void close() {
+        for (NodeBasedNodeContractor worker : workers)
+            worker.close();
         prepareGraph.close();
         shortcutHandler = null;
         inEdgeExplorer = null;
@@ -125,6 +152,26 @@ class NodeBasedNodeContractor implements NodeContractor {
         return prepareGraph.disconnect(node);
     }
 
+    @Override
+    public Shortcuts findShortcuts(int node) {
+        NodeBasedShortcuts shortcuts = new NodeBasedShortcuts();
+        shortcuts.degree = findAndHandleShortcuts(node, shortcuts::add);
+        return shortcuts;
+    }
+
+    @Override
+    public IntContainer contractNode(int node, Shortcuts shortcuts) {
+        NodeBasedShortcuts s = (NodeBasedShortcuts) shortcuts;
+        for (int i = 0; i < s.weights.size(); i++) {
+            int p = 6 * i;
+            addOrUpdateShortcut(s.ints.get(p), s.ints.get(p + 1), s.weights.get(i),
+                    s.ints.get(p + 2), s.ints.get(p + 3), s.ints.get(p + 4), s.ints.get(p + 5));
+        }
+        insertShortcuts(node);
+        meanDegree = (meanDegree * 2 + s.degree) / 3;
+        return prepareGraph.disconnect(node);
+    }
+
     /**
      * Calls the shortcut handler for all edges and shortcuts adjacent to the given node. After this method is called
      * these edges and shortcuts will be removed from the prepare graph, so this method offers the last chance to deal
@@ -159,7 +206,7 @@ class NodeBasedNodeContractor implements NodeContractor {
     @Override
     public String getStatisticsString() {
         return String.format(Locale.ROOT, "meanDegree: %.2f, dijkstras: %10s, mem: %10s",
-                meanDegree, nf(dijkstraCount), witnessPathSearcher.getMemoryUsageAsString());
+                meanDegree, nf(getDijkstraCount()), witnessPathSearcher.getMemoryUsageAsString());
     }
 
     /**
@@ -259,15 +306,25 @@ class NodeBasedNodeContractor implements NodeContractor {
 
     @Override
     public long getDijkstraCount() {
-        return dijkstraCount;
+        long count = dijkstraCount;
+        for (NodeBasedNodeContractor worker : workers)
+            count += worker.dijkstraCount;
+        return count;
     }
 
+    /**
+     * @return the time spent for witness searches, summed up over all workers
+     */
     @Override
     public float getDijkstraSeconds() {
-        return dijkstraSW.getCurrentSeconds();
+        float seconds = dijkstraSW.getCurrentSeconds();
+        for (NodeBasedNodeContractor worker : workers)
+            seconds += worker.dijkstraSW.getCurrentSeconds();
+        return seconds;
     }
 
     private int getMaxVisitedNodesEstimate() {
+        double meanDegree = parent == null ? this.meanDegree : parent.meanDegree;
         // todo: we return 0 here if meanDegree is < 1, which is not really what we want, but changing this changes
         // the node contraction order and requires re-optimizing the parameters of the graph contraction
         return (int) meanDegree * 100;
@@ -280,6 +337,21 @@ class NodeBasedNodeContractor implements NodeContractor {
                             int incomingEdge, int inOrigEdgeCount);
     }
 
+    private static class NodeBasedShortcuts implements Shortcuts {
+        // fromNode, toNode, outgoingEdge, outOrigEdgeCount, incomingEdge, inOrigEdgeCount for every shortcut
+        private final IntArrayList ints = new IntArrayList();
+        private final DoubleArrayList weights = new DoubleArrayList();
+        private long degree;
+
+        void add(int fromNode, int toNode, double weight, int outgoingEdge, int outOrigEdgeCount,
+                 int incomingEdge, int inOrigEdgeCount) {
+            ints.add(fromNode, toNode);
+            ints.add(outgoingEdge, outOrigEdgeCount);
+            ints.add(incomingEdge, inOrigEdgeCount);
+            weights.add(weight);
+        }
+    }
+
     public static class Params {
         // default values were optimized for Unterfranken
         private float edgeDifferenceWeight = 10;
@@ -19,6 +19,7 @@ package com.graphhopper.routing.ch;
 
 import com.carrotsearch.hppc.IntArrayList;
 import com.graphhopper.apache.commons.collections.IntFloatBinaryHeap;
+import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.routing.DijkstraOneToMany;
 import com.graphhopper.util.Helper;
 
@@ -40,6 +41,7 @@ public class NodeBasedWitnessPathSearcher {
     protected double[] weights;
     private IntFloatBinaryHeap heap;
     private int ignoreNode = -1;
+    private GHBitSet ignoredNodes;
     private int visitedNodes;
     private boolean doClear = true;
     private int currNode, to;
@@ -187,8 +189,17 @@ public class NodeBasedWitnessPathSearcher {
         ignoreNode = node;
     }
 
+    /**
+     * Excludes all nodes of the given set from the search in addition to the node set via {@link #ignoreNode}.
+     * The set may change between the searches.
+     */
+    public void setIgnoredNodes(GHBitSet ignoredNodes) {
+        this.ignoredNodes = ignoredNodes;
+    }
+
     private boolean accept(PrepareGraphEdgeIterator iter) {
-        return ignoreNode < 0 || iter.getAdjNode() != ignoreNode;
+        return (ignoreNode < 0 || iter.getAdjNode() != ignoreNode)
+                && (ignoredNodes == null || !ignoredNodes.contains(iter.getAdjNode()));
     }
 
     private boolean isMaxVisitedNodesExceeded() {
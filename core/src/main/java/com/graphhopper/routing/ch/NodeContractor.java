@@ -19,6 +19,7 @@
 package com.graphhopper.routing.ch;
 
 import com.carrotsearch.hppc.IntContainer;
+import com.graphhopper.coll.GHBitSet;
 
 public interface NodeContractor {
     void initFromGraph();
@@ -37,6 +38,29 @@ public interface NodeContractor {
      */
     IntContainer contractNode(int node);
 
+    /**
+     * Runs the witness searches for the given node, but unlike {@link #contractNode(int)} does not change the graph.
+     * Use {@link #contractNode(int, Shortcuts)} to contract the node with the shortcuts found here afterwards.
+     */
+    Shortcuts findShortcuts(int node);
+
+    /**
+     * Contracts the given node using the shortcuts that were found by {@link #findShortcuts} before. The graph must
+     * not have been changed around this node in the meantime.
+     *
+     * @return the set of nodes adjacent to this node (before contraction)
+     */
+    IntContainer contractNode(int node, Shortcuts shortcuts);
+
+    /**
+     * Creates a contractor that works on the same graph, but has its own witness path searcher, so it can be used to
+     * calculate priorities and to find shortcuts on another thread. Workers never change the graph and the graph must
+     * not be changed while they are in use. Closing this contractor also closes its workers.
+     *
+     * @param ignoredNodes nodes that are not used for witness paths, because they are contracted at the same time
+     */
+    NodeContractor createWorker(GHBitSet ignoredNodes);
+
     void finishContraction();
 
     long getAddedShortcutsCount();
@@ -48,4 +72,10 @@ public interface NodeContractor {
     float getDijkstraSeconds();
 
     void prepareContraction();
+
+    /**
+     * The shortcuts required to contract a node, see {@link #findShortcuts}
+     */
+    interface Shortcuts {
+    }
 }
@@ -17,8 +17,12 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.FloatArrayList;
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntContainer;
 import com.carrotsearch.hppc.cursors.IntCursor;
+import com.graphhopper.coll.GHBitSet;
+import com.graphhopper.coll.GHBitSetImpl;
 import com.graphhopper.coll.MinHeapWithUpdate;
 import com.graphhopper.routing.util.AbstractAlgoPreparation;
 import com.graphhopper.routing.util.TraversalMode;
@@ -30,8 +34,15 @@ import com.graphhopper.util.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
 import static com.graphhopper.util.Helper.getMemInfo;
@@ -63,6 +74,7 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
     private final Params params;
     private final Graph graph;
     private NodeContractor nodeContractor;
+    private CHPreparationGraph prepareGraph;
     private final int nodes;
     private NodeOrderingProvider nodeOrderingProvider;
     private int maxLevel;
@@ -70,6 +82,10 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
     private MinHeapWithUpdate sortedNodes;
     private PMap pMap = new PMap();
     private int checkCounter;
+    private int contractionThreads = 1;
+    // only used for parallel contraction
+    private ExecutorService executorService;
+    private List<NodeContractor> workers;
 
     public static PrepareContractionHierarchies fromGraphHopperStorage(GraphHopperStorage ghStorage, CHConfig chConfig) {
         return new PrepareContractionHierarchies(ghStorage, chConfig);
@@ -116,6 +132,21 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         return this;
     }
 
+    /**
+     * Sets the number of threads used to contract the nodes of this graph. With more than one thread sets of
+     * independent nodes, i.e. nodes that are neither adjacent nor share a neighbor, are contracted in rounds and the
+     * witness searches and priority updates are distributed over the threads. Every thread needs its own witness path
+     * searcher, so this increases the memory usage. Note that the contraction order deviates slightly from the
+     * sequential one, so the resulting hierarchy is not identical, but comparable to the one of a sequential
+     * contraction. A fixed node ordering is always contracted sequentially.
+     */
+    public PrepareContractionHierarchies setContractionThreads(int contractionThreads) {
+        if (contractionThreads < 1)
+            throw new IllegalArgumentException("contraction threads must be positive, was: " + contractionThreads);
+        this.contractionThreads = contractionThreads;
+        return this;
+    }
+
     @Override
     public void doSpecificWork() {
         if (!chGraph.isReadyForContraction()) {
@@ -143,6 +174,8 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         setMaxLevelOnAllNodes();
         if (nodeOrderingProvider != null) {
             contractNodesUsingFixedNodeOrdering();
+        } else if (contractionThreads > 1) {
+            contractNodesInParallel();
         } else {
             contractNodesUsingHeuristicNodeOrdering();
         }
@@ -157,7 +190,6 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         // not simply prepare contraction hierarchies, but instead it also serves as some kind of 'container' to give
         // access to the preparations in the GraphHopper class. If this was not so we could make this a lot cleaner here,
         // declare variables final and would not need all these close() methods...
-        CHPreparationGraph prepareGraph;
         if (chConfig.getTraversalMode().isEdgeBased()) {
             TurnCostStorage turnCostStorage = chGraph.getBaseGraph().getTurnCostStorage();
             if (turnCostStorage == null) {
@@ -310,6 +342,247 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         _close();
     }
 
+    /**
+     * Contracts the nodes in rounds. In every round we pick a set of nodes with low priorities such that no two of
+     * them are adjacent or share a neighbor, find their shortcuts in parallel and then contract them one after another.
+     * The witness searches ignore all nodes of the current round, so the shortcuts found for one node remain valid
+     * while the other nodes of the round are contracted.
+     */
+    private void contractNodesInParallel() {
+        logger.info("Contracting nodes using {} threads", contractionThreads);
+        executorService = Executors.newFixedThreadPool(contractionThreads);
+        GHBitSet roundNodes = new GHBitSetImpl(nodes);
+        workers = new ArrayList<>(contractionThreads);
+        for (int i = 0; i < contractionThreads; i++)
+            workers.add(nodeContractor.createWorker(roundNodes));
+        try {
+            contractNodesInRounds(roundNodes);
+        } finally {
+            executorService.shutdownNow();
+            executorService = null;
+            workers = null;
+        }
+    }
+
+    private void contractNodesInRounds(GHBitSet roundNodes) {
+        StopWatch sw = new StopWatch().start();
+        logger.info("Building initial queue of nodes to be contracted: {} nodes, {}", nodes, getMemInfo());
+        // same order as for the sequential contraction, see contractNodesUsingHeuristicNodeOrdering
+        updatePrioritiesOfRemainingNodesInParallel();
+        logger.info("Finished building queue, took: {}s, {}", sw.stop().getSeconds(), getMemInfo());
+        nodeContractor.prepareContraction();
+        final int initSize = sortedNodes.size();
+        int level = 0;
+        checkCounter = 0;
+        final long logSize = params.getLogMessagesPercentage() == 0
+                ? Long.MAX_VALUE
+                : Math.round(Math.max(10, initSize * (params.getLogMessagesPercentage() / 100d)));
+        final long periodicUpdatesCount = params.getPeriodicUpdatesPercentage() == 0
+                ? Long.MAX_VALUE
+                : Math.round(Math.max(10, initSize * (params.getPeriodicUpdatesPercentage() / 100d)));
+        final long lastNodesLazyUpdates = Math.round(initSize * (params.getLastNodesLazyUpdatePercentage() / 100d));
+        final long nodesToAvoidContract = Math.round(initSize * ((100 - params.getNodesContractedPercentage()) / 100d));
+        final boolean neighborUpdate = (params.getNeighborUpdatePercentage() != 0);
+        int updateCounter = 0;
+        long nextPeriodicUpdate = periodicUpdatesCount;
+        long nextLog = 0;
+
+        PrepareGraphEdgeExplorer inEdgeExplorer = prepareGraph.createInEdgeExplorer();
+        PrepareGraphEdgeExplorer outEdgeExplorer = prepareGraph.createOutEdgeExplorer();
+        // the nodes of the current round and their neighbors
+        GHBitSet blockedNodes = new GHBitSetImpl(nodes);
+        IntArrayList blockedList = new IntArrayList();
+        IntArrayList roundList = new IntArrayList();
+        IntArrayList deferredNodes = new IntArrayList();
+        FloatArrayList deferredPriorities = new FloatArrayList();
+        IntArrayList updateList = new IntArrayList();
+
+        while (!sortedNodes.isEmpty()) {
+            stopIfInterrupted();
+            if (checkCounter >= nextPeriodicUpdate) {
+                updatePrioritiesOfRemainingNodesInParallel();
+                updateCounter++;
+                nextPeriodicUpdate += periodicUpdatesCount;
+            }
+
+            if (checkCounter >= nextLog) {
+                logHeuristicStats(updateCounter);
+                nextLog += logSize;
+            }
+
+            // pick the nodes of this round. small rounds stay closer to the sequential contraction order, but larger
+            // rounds keep the threads busy
+            long maxRoundSize = Math.max(1, Math.min(sortedNodes.size() - nodesToAvoidContract,
+                    Math.max(4L * contractionThreads, sortedNodes.size() / 100)));
+            long maxPolledNodes = 4 * maxRoundSize;
+            for (long polled = 0; polled < maxPolledNodes && roundList.size() < maxRoundSize && !sortedNodes.isEmpty(); polled++) {
+                float priority = sortedNodes.peekValue();
+                int node = sortedNodes.poll();
+                if (isBlocked(node, blockedNodes, inEdgeExplorer, outEdgeExplorer)) {
+                    deferredNodes.add(node);
+                    deferredPriorities.add(priority);
+                    continue;
+                }
+                checkCounter++;
+                roundList.add(node);
+                block(node, blockedNodes, blockedList, inEdgeExplorer, outEdgeExplorer);
+            }
+            for (int i = 0; i < deferredNodes.size(); i++)
+                sortedNodes.push(deferredNodes.get(i), deferredPriorities.get(i));
+            deferredNodes.elementsCount = 0;
+            deferredPriorities.elementsCount = 0;
+            for (int i = 0; i < blockedList.size(); i++)
+                blockedNodes.remove(blockedList.get(i));
+            blockedList.elementsCount = 0;
+
+            if (!sortedNodes.isEmpty() && sortedNodes.size() < lastNodesLazyUpdates) {
+                lazyUpdateSW.start();
+                final IntArrayList candidates = roundList;
+                final float[] priorities = new float[candidates.size()];
+                runInParallel(candidates.size(), (worker, i) -> priorities[i] = worker.calculatePriority(candidates.get(i)));
+                // nodes that got more important than the remaining ones are contracted later
+                float minPriority = sortedNodes.peekValue();
+                int keep = 0;
+                for (int i = 0; i < candidates.size(); i++) {
+                    if (priorities[i] > minPriority)
+                        sortedNodes.push(candidates.get(i), priorities[i]);
+                    else
+                        candidates.set(keep++, candidates.get(i));
+                }
+                candidates.elementsCount = keep;
+                lazyUpdateSW.stop();
+            }
+
+            contractionSW.start();
+            final IntArrayList round = roundList;
+            for (int i = 0; i < round.size(); i++)
+                roundNodes.add(round.get(i));
+            final NodeContractor.Shortcuts[] shortcuts = new NodeContractor.Shortcuts[round.size()];
+            runInParallel(round.size(), (worker, i) -> shortcuts[i] = worker.findShortcuts(round.get(i)));
+            for (int i = 0; i < round.size(); i++) {
+                int node = round.get(i);
+                IntContainer neighbors = nodeContractor.contractNode(node, shortcuts[i]);
+                chGraph.setLevel(node, level);
+                level++;
+                if (!neighborUpdate)
+                    continue;
+                // the nodes of one round never share a neighbor, so every neighbor is added only once
+                for (IntCursor neighbor : neighbors) {
+                    if (rand.nextInt(100) < params.getNeighborUpdatePercentage())
+                        updateList.add(neighbor.value);
+                }
+            }
+            for (int i = 0; i < round.size(); i++)
+                roundNodes.remove(round.get(i));
+            roundList.elementsCount = 0;
+            contractionSW.stop();
+
+            if (sortedNodes.size() < nodesToAvoidContract)
+                // skipped nodes are already set to maxLevel
+                break;
+
+            if (!updateList.isEmpty()) {
+                neighborUpdateSW.start();
+                final IntArrayList updates = updateList;
+                final float[] priorities = new float[updates.size()];
+                runInParallel(updates.size(), (worker, i) -> priorities[i] = worker.calculatePriority(updates.get(i)));
+                for (int i = 0; i < updates.size(); i++)
+                    sortedNodes.update(updates.get(i), priorities[i]);
+                updateList.elementsCount = 0;
+                neighborUpdateSW.stop();
+            }
+        }
+
+        nodeContractor.finishContraction();
+
+        logHeuristicStats(updateCounter);
+
+        logger.info(
+                "new shortcuts: " + nf(nodeContractor.getAddedShortcutsCount())
+                        + ", initSize:" + nf(initSize)
+                        + ", " + chConfig.getWeighting()
+                        + ", threads:" + contractionThreads
+                        + ", periodic:" + params.getPeriodicUpdatesPercentage()
+                        + ", lazy:" + params.getLastNodesLazyUpdatePercentage()
+                        + ", neighbor:" + params.getNeighborUpdatePercentage()
+                        + ", " + getTimesAsString()
+                        + ", lazy-overhead: " + (int) (100 * ((checkCounter / (double) initSize) - 1)) + "%"
+                        + ", " + Helper.getMemInfo());
+
+        _close();
+    }
+
+    private boolean isBlocked(int node, GHBitSet blockedNodes, PrepareGraphEdgeExplorer inEdgeExplorer, PrepareGraphEdgeExplorer outEdgeExplorer) {
+        if (blockedNodes.contains(node))
+            return true;
+        PrepareGraphEdgeIterator iter = inEdgeExplorer.setBaseNode(node);
+        while (iter.next()) {
+            if (blockedNodes.contains(iter.getAdjNode()))
+                return true;
+        }
+        iter = outEdgeExplorer.setBaseNode(node);
+        while (iter.next()) {
+            if (blockedNodes.contains(iter.getAdjNode()))
+                return true;
+        }
+        return false;
+    }
+
+    private void block(int node, GHBitSet blockedNodes, IntArrayList blockedList, PrepareGraphEdgeExplorer inEdgeExplorer, PrepareGraphEdgeExplorer outEdgeExplorer) {
+        blockedNodes.add(node);
+        blockedList.add(node);
+        PrepareGraphEdgeIterator iter = inEdgeExplorer.setBaseNode(node);
+        while (iter.next()) {
+            blockedNodes.add(iter.getAdjNode());
+            blockedList.add(iter.getAdjNode());
+        }
+        iter = outEdgeExplorer.setBaseNode(node);
+        while (iter.next()) {
+            blockedNodes.add(iter.getAdjNode());
+            blockedList.add(iter.getAdjNode());
+        }
+    }
+
+    private void updatePrioritiesOfRemainingNodesInParallel() {
+        periodicUpdateSW.start();
+        sortedNodes.clear();
+        final IntArrayList remainingNodes = new IntArrayList();
+        for (int node = 0; node < nodes; node++) {
+            if (!isContracted(node))
+                remainingNodes.add(node);
+        }
+        final float[] priorities = new float[remainingNodes.size()];
+        runInParallel(remainingNodes.size(), (worker, i) -> priorities[i] = worker.calculatePriority(remainingNodes.get(i)));
+        for (int i = 0; i < remainingNodes.size(); i++)
+            sortedNodes.push(remainingNodes.get(i), priorities[i]);
+        periodicUpdateSW.stop();
+    }
+
+    /**
+     * Runs the given task for every index in [0, tasks) using the workers, every worker on its own thread. Returns
+     * once all tasks are done.
+     */
+    private void runInParallel(final int tasks, final WorkerTask task) {
+        final AtomicInteger nextTask = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>(workers.size());
+        for (int w = 0; w < Math.min(tasks, workers.size()); w++) {
+            final NodeContractor worker = workers.get(w);
+            futures.add(executorService.submit(() -> {
+                for (int i = nextTask.getAndIncrement(); i < tasks; i = nextTask.getAndIncrement())
+                    task.run(worker, i);
+            }));
+        }
+        try {
+            for (Future<?> future : futures)
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Parallel contraction failed", e.getCause());
+        }
+    }
+
     private void contractNodesUsingFixedNodeOrdering() {
         nodeContractor.prepareContraction();
         final int nodesToContract = nodeOrderingProvider.getNumNodes();
@@ -434,9 +707,15 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
 
     private void _close() {
         nodeContractor.close();
+        prepareGraph = null;
         sortedNodes = null;
     }
 
+    @FunctionalInterface
+    private interface WorkerTask {
+        void run(NodeContractor worker, int task);
+    }
+
     void close() {
         CHGraphImpl cg = (CHGraphImpl) chGraph;
         cg.flush();
@@ -51,6 +51,12 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
         final Weighting weighting = g.wrapWeighting(opts.getWeighting());
         if (ASTAR.equalsIgnoreCase(algoStr)) {
             double epsilon = opts.getHints().getDouble(Parameters.Algorithms.AStar.EPSILON, 1);
+            if (opts.getHints().getBool(Parameters.Routing.PRIMITIVE_SEARCH, false)) {
+                PrimitiveAStar algo = new PrimitiveAStar(g, weighting, opts.getTraversalMode());
+                algo.setApproximation(getApproximator(g, activeLM, epsilon));
+                algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
+                return algo;
+            }
             AStar algo = new AStar(g, weighting, opts.getTraversalMode());
             algo.setApproximation(getApproximator(g, activeLM, epsilon));
             algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
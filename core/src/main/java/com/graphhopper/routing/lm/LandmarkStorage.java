@@ -47,6 +47,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -92,6 +96,7 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
     private List<LandmarkSuggestion> landmarkSuggestions = Collections.emptyList();
     private SpatialRuleLookup ruleLookup;
     private boolean logDetails = false;
+    private int landmarkThreads = 1;
     /**
      * 'to' and 'from' fit into 32 bit => 16 bit for each of them => 65536
      */
@@ -166,6 +171,23 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         this.logDetails = logDetails;
     }
 
+    /**
+     * This method changes the number of threads used to calculate the weights of the landmarks of one subnetwork.
+     * The forward and backward explorations of the landmarks are independent from each other and every exploration
+     * writes to its own column, so they can run concurrently. Default is 1. Note that every thread keeps the shortest
+     * path tree of a full subnetwork in memory.
+     */
+    public LandmarkStorage setLandmarkThreads(int landmarkThreads) {
+        if (landmarkThreads < 1)
+            throw new IllegalArgumentException("landmark threads must be positive, was: " + landmarkThreads);
+        this.landmarkThreads = landmarkThreads;
+        return this;
+    }
+
+    public int getLandmarkThreads() {
+        return landmarkThreads;
+    }
+
     /**
      * This method forces the landmark preparation to skip the landmark search and uses the specified landmark list instead.
      * Useful for manual tuning of larger areas to safe import time or improve quality.
@@ -430,37 +452,45 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         }
 
         // 2) calculate weights for all landmarks -> 'from' and 'to' weight
-        for (int lmIdx = 0; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
-            if (Thread.currentThread().isInterrupted()) {
-                throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
+        // the explorations of the first landmark set the subnetwork ids, which can fail, so do them before all others
+        int firstNodeId = tmpLandmarkNodeIds[0];
+        if (exploreLandmark(0, firstNodeId, blockedEdges, true).setSubnetworks(subnetworks, subnetworkId)
+                || exploreLandmark(0, firstNodeId, blockedEdges, false).setSubnetworks(subnetworks, subnetworkId))
+            return false;
+
+        if (landmarkThreads == 1) {
+            for (int lmIdx = 1; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
+                }
+                int lmNodeId = tmpLandmarkNodeIds[lmIdx];
+                exploreLandmark(lmIdx, lmNodeId, blockedEdges, true);
+                exploreLandmark(lmIdx, lmNodeId, blockedEdges, false);
+                logWeightProgress(lmIdx, logOffset);
             }
-            int lmNodeId = tmpLandmarkNodeIds[lmIdx];
-            LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, true);
-            explorer.setStartNode(lmNodeId);
-            explorer.setFilter(blockedEdges, false, true);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, FROM_OFFSET);
-
-            // set subnetwork id to all explored nodes, but do this only for the first landmark
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
+        } else {
+            // one task per landmark and direction
+            ExecutorService executorService = Executors.newFixedThreadPool(landmarkThreads);
+            List<Future<?>> futures = new ArrayList<>(2 * tmpLandmarkNodeIds.length);
+            for (int lmIdx = 1; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
+                final int idx = lmIdx, lmNodeId = tmpLandmarkNodeIds[lmIdx];
+                futures.add(executorService.submit(() -> exploreLandmark(idx, lmNodeId, blockedEdges, true)));
+                futures.add(executorService.submit(() -> exploreLandmark(idx, lmNodeId, blockedEdges, false)));
             }
-
-            explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, false);
-            explorer.setStartNode(lmNodeId);
-            explorer.setFilter(blockedEdges, true, false);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, TO_OFFSET);
-
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
+            try {
+                for (int i = 0; i < futures.size(); i++) {
+                    futures.get(i).get();
+                    if (i % 2 == 1)
+                        logWeightProgress(1 + i / 2, logOffset);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Thread was interrupted while calculating landmark weights", ex);
+            } catch (ExecutionException ex) {
+                throw new RuntimeException("Calculating landmark weights failed for " + lmConfig, ex.getCause());
+            } finally {
+                executorService.shutdownNow();
             }
-
-            if (logDetails && lmIdx % logOffset == 0)
-                LOGGER.info("Set landmarks weights [" + weighting + "]. "
-                        + "Progress " + (int) (100.0 * lmIdx / tmpLandmarkNodeIds.length) + "%");
         }
 
         // TODO set weight to SHORT_MAX if entry has either no 'from' or no 'to' entry
@@ -468,6 +498,25 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         return true;
     }
 
+    /**
+     * Runs the forward ('from') or backward exploration of the specified landmark and stores the weights in its column.
+     * This method is called concurrently for different landmarks or directions if landmarkThreads is bigger than 1.
+     */
+    private LandmarkExplorer exploreLandmark(int lmIdx, int lmNodeId, IntHashSet blockedEdges, boolean from) {
+        LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, from);
+        explorer.setStartNode(lmNodeId);
+        explorer.setFilter(blockedEdges, !from, from);
+        explorer.runAlgo();
+        explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, from ? FROM_OFFSET : TO_OFFSET);
+        return explorer;
+    }
+
+    private void logWeightProgress(int lmIdx, int logOffset) {
+        if (logDetails && lmIdx % logOffset == 0)
+            LOGGER.info("Set landmarks weights [" + weighting + "]. "
+                    + "Progress " + (int) (100.0 * lmIdx / landmarks) + "%");
+    }
+
     /**
      * This method specifies the polygons which should be used to split the world wide area to improve performance and
      * quality in this scenario.
@@ -20,8 +20,7 @@ package com.graphhopper.routing.querygraph;
 
 import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntObjectMap;
-import com.carrotsearch.hppc.procedures.IntProcedure;
-import com.graphhopper.coll.GHIntHashSet;
+import com.carrotsearch.hppc.cursors.IntObjectCursor;
 import com.graphhopper.util.EdgeIteratorState;
 
 import java.util.List;
@@ -31,64 +30,55 @@ import static com.graphhopper.routing.querygraph.QueryGraph.*;
 /**
  * Helper class for {@link QueryOverlayBuilder}
  *
- * @see #build(IntArrayList, List, int, IntObjectMap)
+ * @see #build(QueryOverlay, int)
  */
 class EdgeChangeBuilder {
+    private final QueryOverlay queryOverlay;
     private final IntArrayList closestEdges;
     private final List<VirtualEdgeIteratorState> virtualEdges;
     private final IntObjectMap<QueryOverlay.EdgeChanges> edgeChangesAtRealNodes;
     private final int firstVirtualNodeId;
 
     /**
-     * Builds a mapping between real node ids and the set of changes for their adjacent edges.
-     *
-     * @param edgeChangesAtRealNodes output parameter, you need to pass an empty & modifiable map and the results will
-     *                               be added to it
+     * Builds a mapping between real node ids and the set of changes for their adjacent edges and adds it to the
+     * edge changes of the specified overlay, which need to be empty.
      */
-    static void build(IntArrayList closestEdges, List<VirtualEdgeIteratorState> virtualEdges, int firstVirtualNodeId, IntObjectMap<QueryOverlay.EdgeChanges> edgeChangesAtRealNodes) {
-        new EdgeChangeBuilder(closestEdges, virtualEdges, firstVirtualNodeId, edgeChangesAtRealNodes).build();
+    static void build(QueryOverlay queryOverlay, int firstVirtualNodeId) {
+        new EdgeChangeBuilder(queryOverlay, firstVirtualNodeId).build();
     }
 
-    private EdgeChangeBuilder(IntArrayList closestEdges, List<VirtualEdgeIteratorState> virtualEdges, int firstVirtualNodeId, IntObjectMap<QueryOverlay.EdgeChanges> edgeChangesAtRealNodes) {
-        this.closestEdges = closestEdges;
-        this.virtualEdges = virtualEdges;
+    private EdgeChangeBuilder(QueryOverlay queryOverlay, int firstVirtualNodeId) {
+        this.queryOverlay = queryOverlay;
+        this.closestEdges = queryOverlay.getClosestEdges();
+        this.virtualEdges = queryOverlay.getVirtualEdges();
         this.firstVirtualNodeId = firstVirtualNodeId;
-        if (!edgeChangesAtRealNodes.isEmpty()) {
+        if (!queryOverlay.getEdgeChangesAtRealNodes().isEmpty()) {
             throw new IllegalArgumentException("real node modifications need to be empty");
         }
-        this.edgeChangesAtRealNodes = edgeChangesAtRealNodes;
+        this.edgeChangesAtRealNodes = queryOverlay.getEdgeChangesAtRealNodes();
     }
 
     private void build() {
-        final GHIntHashSet towerNodesToChange = new GHIntHashSet(getNumVirtualNodes());
-
-        // 1. for every real node adjacent to a virtual one we collect the virtual edges, also build a set of
-        //    these adjacent real nodes so we can use them in the next step
+        // 1. for every real node adjacent to a virtual one we collect the virtual edges, the keys of the edge changes
+        //    are then exactly the real nodes we need in the next step
         for (int i = 0; i < getNumVirtualNodes(); i++) {
             // base node
             EdgeIteratorState baseRevEdge = getVirtualEdge(i * 4 + SNAP_BASE);
             int towerNode = baseRevEdge.getAdjNode();
-            if (!isVirtualNode(towerNode)) {
-                towerNodesToChange.add(towerNode);
+            if (!isVirtualNode(towerNode))
                 addVirtualEdges(true, towerNode, i);
-            }
 
             // adj node
             EdgeIteratorState adjEdge = getVirtualEdge(i * 4 + SNAP_ADJ);
             towerNode = adjEdge.getAdjNode();
-            if (!isVirtualNode(towerNode)) {
-                towerNodesToChange.add(towerNode);
+            if (!isVirtualNode(towerNode))
                 addVirtualEdges(false, towerNode, i);
-            }
         }
 
         // 2. build the list of removed edges for all real nodes adjacent to virtual ones
-        towerNodesToChange.forEach(new IntProcedure() {
-            @Override
-            public void apply(int value) {
-                addRemovedEdges(value);
-            }
-        });
+        for (IntObjectCursor<QueryOverlay.EdgeChanges> c : edgeChangesAtRealNodes) {
+            addRemovedEdges(c.key);
+        }
     }
 
     /**
@@ -97,7 +87,7 @@ class EdgeChangeBuilder {
     private void addVirtualEdges(boolean base, int node, int virtNode) {
         QueryOverlay.EdgeChanges edgeChanges = edgeChangesAtRealNodes.get(node);
         if (edgeChanges == null) {
-            edgeChanges = new QueryOverlay.EdgeChanges(2, 2);
+            edgeChanges = queryOverlay.createEdgeChanges();
             edgeChangesAtRealNodes.put(node, edgeChanges);
         }
         EdgeIteratorState edge = base
@@ -0,0 +1,146 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.querygraph;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntIntHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Stores the CH edges that {@link QueryRoutingCHGraph} iterates at the nodes that are modified by the virtual nodes in
+ * parallel primitive arrays instead of one object per edge. The edges of a node are added consecutively and are found
+ * via the index range of the node. An instance is reset via {@link #clear} and reused, see {@link QueryOverlay}.
+ */
+class QueryCHEdges {
+    private static final int INITIAL_CAPACITY = 32;
+    private int[] edges = new int[INITIAL_CAPACITY];
+    private int[] origEdges = new int[INITIAL_CAPACITY];
+    private int[] baseNodes = new int[INITIAL_CAPACITY];
+    private int[] adjNodes = new int[INITIAL_CAPACITY];
+    private int[] origEdgesFirst = new int[INITIAL_CAPACITY];
+    private int[] origEdgesLast = new int[INITIAL_CAPACITY];
+    private int[] skippedEdges1 = new int[INITIAL_CAPACITY];
+    private int[] skippedEdges2 = new int[INITIAL_CAPACITY];
+    private double[] weightsFwd = new double[INITIAL_CAPACITY];
+    private double[] weightsBwd = new double[INITIAL_CAPACITY];
+    private int size;
+    // maps a node to the index of its range in rangeStarts and rangeEnds
+    private final IntIntHashMap ranges = new IntIntHashMap();
+    private final IntArrayList rangeStarts = new IntArrayList();
+    private final IntArrayList rangeEnds = new IntArrayList();
+
+    /**
+     * Starts the edges of the specified node, all edges added until the next call belong to this node.
+     */
+    void startNode(int node) {
+        ranges.put(node, rangeStarts.size());
+        rangeStarts.add(size);
+        rangeEnds.add(size);
+    }
+
+    void add(int edge, int origEdge, int baseNode, int adjNode, int origEdgeFirst, int origEdgeLast,
+             int skippedEdge1, int skippedEdge2, double weightFwd, double weightBwd) {
+        if (size == edges.length)
+            grow();
+        edges[size] = edge;
+        origEdges[size] = origEdge;
+        baseNodes[size] = baseNode;
+        adjNodes[size] = adjNode;
+        origEdgesFirst[size] = origEdgeFirst;
+        origEdgesLast[size] = origEdgeLast;
+        skippedEdges1[size] = skippedEdge1;
+        skippedEdges2[size] = skippedEdge2;
+        weightsFwd[size] = weightFwd;
+        weightsBwd[size] = weightBwd;
+        size++;
+        rangeEnds.set(rangeEnds.size() - 1, size);
+    }
+
+    /**
+     * @return the index of the range of the specified node or -1 if no edges were stored for it
+     */
+    int getRange(int node) {
+        return ranges.getOrDefault(node, -1);
+    }
+
+    int getRangeStart(int range) {
+        return rangeStarts.get(range);
+    }
+
+    int getRangeEnd(int range) {
+        return rangeEnds.get(range);
+    }
+
+    int getEdge(int index) {
+        return edges[index];
+    }
+
+    int getOrigEdge(int index) {
+        return origEdges[index];
+    }
+
+    int getBaseNode(int index) {
+        return baseNodes[index];
+    }
+
+    int getAdjNode(int index) {
+        return adjNodes[index];
+    }
+
+    int getOrigEdgeFirst(int index) {
+        return origEdgesFirst[index];
+    }
+
+    int getOrigEdgeLast(int index) {
+        return origEdgesLast[index];
+    }
+
+    int getSkippedEdge1(int index) {
+        return skippedEdges1[index];
+    }
+
+    int getSkippedEdge2(int index) {
+        return skippedEdges2[index];
+    }
+
+    double getWeight(int index, boolean reverse) {
+        return reverse ? weightsBwd[index] : weightsFwd[index];
+    }
+
+    void clear() {
+        size = 0;
+        ranges.clear();
+        rangeStarts.clear();
+        rangeEnds.clear();
+    }
+
+    private void grow() {
+        int capacity = edges.length * 2;
+        edges = Arrays.copyOf(edges, capacity);
+        origEdges = Arrays.copyOf(origEdges, capacity);
+        baseNodes = Arrays.copyOf(baseNodes, capacity);
+        adjNodes = Arrays.copyOf(adjNodes, capacity);
+        origEdgesFirst = Arrays.copyOf(origEdgesFirst, capacity);
+        origEdgesLast = Arrays.copyOf(origEdgesLast, capacity);
+        skippedEdges1 = Arrays.copyOf(skippedEdges1, capacity);
+        skippedEdges2 = Arrays.copyOf(skippedEdges2, capacity);
+        weightsFwd = Arrays.copyOf(weightsFwd, capacity);
+        weightsBwd = Arrays.copyOf(weightsBwd, capacity);
+    }
+}
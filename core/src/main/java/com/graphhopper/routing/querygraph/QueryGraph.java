@@ -18,10 +18,7 @@
 package com.graphhopper.routing.querygraph;
 
 import com.carrotsearch.hppc.IntArrayList;
-import com.carrotsearch.hppc.IntObjectMap;
 import com.carrotsearch.hppc.cursors.IntCursor;
-import com.carrotsearch.hppc.procedures.IntObjectProcedure;
-import com.graphhopper.coll.GHIntObjectHashMap;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.routing.weighting.QueryGraphWeighting;
@@ -49,6 +46,9 @@ import java.util.*;
  * to each adjacent nodes via 2 virtual edges with opposite base node / adjacent node encoding.
  * However, the edge explorer returned by {@link #createEdgeExplorer()} only returns two
  * virtual edges per virtual node (the ones with correct base node).
+ * <p>
+ * Call {@link #release} when the query graph is no longer needed, then its internal data structures are reused by
+ * the next query graph that is created on the same thread.
  *
  * @author Peter Karich
  */
@@ -63,8 +63,6 @@ public class QueryGraph implements Graph {
 
     // Use LinkedHashSet for predictable iteration order.
     private final Set<VirtualEdgeIteratorState> unfavoredEdges = new LinkedHashSet<>(5);
-    private final IntObjectMap<List<EdgeIteratorState>> virtualEdgesAtRealNodes;
-    private final List<List<EdgeIteratorState>> virtualEdgesAtVirtualNodes;
 
     public static QueryGraph create(Graph graph, Snap snap) {
         return QueryGraph.create(graph, Collections.singletonList(snap));
@@ -86,12 +84,15 @@ public class QueryGraph implements Graph {
         queryOverlay = QueryOverlayBuilder.build(graph, snaps);
         nodeAccess = new ExtendedNodeAccess(graph.getNodeAccess(), queryOverlay.getVirtualNodes(), baseNodes);
         turnCostStorage = baseGraph.getTurnCostStorage();
+    }
 
-        // build data structures holding the virtual edges at all real/virtual nodes that are modified compared to the
-        // mainGraph.
-        final EdgeExplorer mainExplorer = baseGraph.createEdgeExplorer();
-        virtualEdgesAtRealNodes = buildVirtualEdgesAtRealNodes(mainExplorer);
-        virtualEdgesAtVirtualNodes = buildVirtualEdgesAtVirtualNodes();
+    /**
+     * Puts the internal data structures into a pool of the current thread, so that the next query graph can be
+     * created without allocating them again. This query graph and the {@link QueryRoutingCHGraph}s on top of it must
+     * not be used afterwards, but the paths and edge states obtained from them stay valid.
+     */
+    public void release() {
+        QueryOverlay.release(queryOverlay);
     }
 
     public QueryOverlay getQueryOverlay() {
@@ -221,51 +222,24 @@ public class QueryGraph implements Graph {
             @Override
             public EdgeIterator setBaseNode(int baseNode) {
                 if (isVirtualNode(baseNode)) {
-                    List<EdgeIteratorState> virtualEdges = virtualEdgesAtVirtualNodes.get(baseNode - baseNodes);
-                    return virtualEdgeIterator.reset(virtualEdges);
+                    // the edges snap-base and snap-adj of every virtual node are stored next to each other
+                    int first = (baseNode - baseNodes) * 4 + SNAP_BASE;
+                    return virtualEdgeIterator.reset(queryOverlay.getVirtualEdges(), first, first + 2, null, null);
                 } else {
-                    List<EdgeIteratorState> virtualEdges = virtualEdgesAtRealNodes.get(baseNode);
-                    if (virtualEdges == null) {
+                    QueryOverlay.EdgeChanges edgeChanges = queryOverlay.getEdgeChangesAtRealNodes().get(baseNode);
+                    if (edgeChanges == null) {
                         return mainExplorer.setBaseNode(baseNode);
                     } else {
-                        return virtualEdgeIterator.reset(virtualEdges);
+                        // the virtual edges and then the remaining edges of the base graph
+                        List<EdgeIteratorState> additionalEdges = edgeChanges.getAdditionalEdges();
+                        return virtualEdgeIterator.reset(additionalEdges, 0, additionalEdges.size(),
+                                mainExplorer.setBaseNode(baseNode), edgeChanges.getRemovedEdges());
                     }
                 }
             }
         };
     }
 
-    private IntObjectMap<List<EdgeIteratorState>> buildVirtualEdgesAtRealNodes(final EdgeExplorer mainExplorer) {
-        final IntObjectMap<List<EdgeIteratorState>> virtualEdgesAtRealNodes =
-                new GHIntObjectHashMap<>(queryOverlay.getEdgeChangesAtRealNodes().size());
-        queryOverlay.getEdgeChangesAtRealNodes().forEach(new IntObjectProcedure<QueryOverlay.EdgeChanges>() {
-            @Override
-            public void apply(int node, QueryOverlay.EdgeChanges edgeChanges) {
-                List<EdgeIteratorState> virtualEdges = new ArrayList<>(edgeChanges.getAdditionalEdges());
-                EdgeIterator mainIter = mainExplorer.setBaseNode(node);
-                while (mainIter.next()) {
-                    if (!edgeChanges.getRemovedEdges().contains(mainIter.getEdge())) {
-                        virtualEdges.add(mainIter.detach(false));
-                    }
-                }
-                virtualEdgesAtRealNodes.put(node, virtualEdges);
-            }
-        });
-        return virtualEdgesAtRealNodes;
-    }
-
-    private List<List<EdgeIteratorState>> buildVirtualEdgesAtVirtualNodes() {
-        final List<List<EdgeIteratorState>> virtualEdgesAtVirtualNodes = new ArrayList<>();
-        for (int i = 0; i < queryOverlay.getVirtualNodes().size(); i++) {
-            List<EdgeIteratorState> virtualEdges = Arrays.<EdgeIteratorState>asList(
-                    queryOverlay.getVirtualEdge(i * 4 + SNAP_BASE),
-                    queryOverlay.getVirtualEdge(i * 4 + SNAP_ADJ)
-            );
-            virtualEdgesAtVirtualNodes.add(virtualEdges);
-        }
-        return virtualEdgesAtVirtualNodes;
-    }
-
     @Override
     public AllEdgesIterator getAllEdges() {
         throw new UnsupportedOperationException("Not supported yet.");
@@ -30,16 +30,28 @@ import java.util.List;
 /**
  * This class holds the data that is necessary to add additional nodes and edges to an existing graph, as it is needed
  * when we want to start/end a route at a location that is in between the actual nodes of the graph (virtual nodes+edges).
+ * <p>
+ * The containers of an instance can be reused for many queries: use {@link #acquire} and {@link #release} to keep one
+ * instance per thread, so that building a query graph does not allocate them again and again. Only the virtual edges
+ * themselves are created per query as they can be referenced after the query graph is released.
  */
 class QueryOverlay {
+    // do not keep the containers of exceptionally large queries like big matrices around
+    private static final int MAX_POOLED_VIRTUAL_NODES = 1000;
+    private static final ThreadLocal<QueryOverlay> POOL = new ThreadLocal<>();
     // stores the coordinates of the additional/virtual nodes
-    private final PointList virtualNodes;
+    private PointList virtualNodes;
     // stores the closest edge id for each virtual node
     private final IntArrayList closestEdges;
     // stores the virtual edges, for every virtual node there are four such edges: base-snap, snap-base, snap-adj, adj-snap.
     private final List<VirtualEdgeIteratorState> virtualEdges;
     // stores the changes that need to be done to the real nodes
     private final IntObjectMap<EdgeChanges> edgeChangesAtRealNodes;
+    // the edge changes and the CH edges that were created for this overlay and that are reused after clear
+    private final List<EdgeChanges> edgeChangesPool = new ArrayList<>();
+    private int usedEdgeChanges;
+    private final List<QueryCHEdges> chEdgesPool = new ArrayList<>();
+    private int usedCHEdges;
 
     QueryOverlay(int numVirtualNodes, boolean is3D) {
         this.virtualNodes = new PointList(numVirtualNodes, is3D);
@@ -48,6 +60,46 @@ class QueryOverlay {
         edgeChangesAtRealNodes = new GHIntObjectHashMap<>(numVirtualNodes * 3);
     }
 
+    /**
+     * @return an empty instance, which is reused if {@link #release} was called on this thread before
+     */
+    static QueryOverlay acquire(int numVirtualNodes, boolean is3D) {
+        QueryOverlay overlay = POOL.get();
+        if (overlay == null)
+            return new QueryOverlay(numVirtualNodes, is3D);
+        // as long as the instance is in use another query graph on the same thread needs to create its own instance
+        POOL.set(null);
+        if (overlay.virtualNodes.is3D() != is3D)
+            overlay.virtualNodes = new PointList(numVirtualNodes, is3D);
+        return overlay;
+    }
+
+    /**
+     * Puts the specified instance back into the pool of the current thread. Neither the instance nor a query graph
+     * using it must be used afterwards.
+     */
+    static void release(QueryOverlay overlay) {
+        if (overlay.virtualNodes.size() > MAX_POOLED_VIRTUAL_NODES)
+            return;
+        overlay.clear();
+        POOL.set(overlay);
+    }
+
+    private void clear() {
+        virtualNodes.clear();
+        closestEdges.clear();
+        virtualEdges.clear();
+        edgeChangesAtRealNodes.clear();
+        for (int i = 0; i < usedEdgeChanges; i++) {
+            edgeChangesPool.get(i).clear();
+        }
+        usedEdgeChanges = 0;
+        for (int i = 0; i < usedCHEdges; i++) {
+            chEdgesPool.get(i).clear();
+        }
+        usedCHEdges = 0;
+    }
+
     int getNumVirtualEdges() {
         return virtualEdges.size();
     }
@@ -68,6 +120,25 @@ class QueryOverlay {
         return edgeChangesAtRealNodes;
     }
 
+    /**
+     * @return empty edge changes, which are reused after this overlay is released
+     */
+    EdgeChanges createEdgeChanges() {
+        if (usedEdgeChanges == edgeChangesPool.size())
+            edgeChangesPool.add(new EdgeChanges(2, 2));
+        return edgeChangesPool.get(usedEdgeChanges++);
+    }
+
+    /**
+     * @return an empty store for the CH edges of a {@link QueryRoutingCHGraph}, which is reused after this overlay is
+     * released
+     */
+    QueryCHEdges createCHEdges() {
+        if (usedCHEdges == chEdgesPool.size())
+            chEdgesPool.add(new QueryCHEdges());
+        return chEdgesPool.get(usedCHEdges++);
+    }
+
     PointList getVirtualNodes() {
         return virtualNodes;
     }
@@ -92,5 +163,10 @@ class QueryOverlay {
         IntArrayList getRemovedEdges() {
             return removedEdges;
         }
+
+        void clear() {
+            additionalEdges.clear();
+            removedEdges.clear();
+        }
     }
 }
@@ -53,7 +53,7 @@ class QueryOverlayBuilder {
     }
 
     private QueryOverlay build(List<Snap> resList) {
-        queryOverlay = new QueryOverlay(resList.size(), is3D);
+        queryOverlay = QueryOverlay.acquire(resList.size(), is3D);
         buildVirtualEdges(resList);
         buildEdgeChangesAtRealNodes();
         return queryOverlay;
@@ -237,6 +237,6 @@ class QueryOverlayBuilder {
     }
 
     private void buildEdgeChangesAtRealNodes() {
-        EdgeChangeBuilder.build(queryOverlay.getClosestEdges(), queryOverlay.getVirtualEdges(), firstVirtualNodeId, queryOverlay.getEdgeChangesAtRealNodes());
+        EdgeChangeBuilder.build(queryOverlay, firstVirtualNodeId);
     }
 }
\ No newline at end of file
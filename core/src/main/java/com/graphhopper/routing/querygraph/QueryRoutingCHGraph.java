@@ -18,19 +18,13 @@
 
 package com.graphhopper.routing.querygraph;
 
-import com.carrotsearch.hppc.IntObjectHashMap;
-import com.carrotsearch.hppc.IntObjectMap;
-import com.carrotsearch.hppc.procedures.IntObjectProcedure;
+import com.carrotsearch.hppc.cursors.IntObjectCursor;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.*;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.Helper;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-
 import static com.graphhopper.routing.querygraph.QueryGraph.SNAP_ADJ;
 import static com.graphhopper.routing.querygraph.QueryGraph.SNAP_BASE;
 import static com.graphhopper.util.EdgeIterator.NO_EDGE;
@@ -48,9 +42,9 @@ public class QueryRoutingCHGraph implements RoutingCHGraph {
     private final Weighting queryGraphWeighting;
     private final int nodes;
 
-    private final IntObjectMap<List<RoutingCHEdgeIteratorState>> virtualOutEdgesAtRealNodes;
-    private final IntObjectMap<List<RoutingCHEdgeIteratorState>> virtualInEdgesAtRealNodes;
-    private final List<List<RoutingCHEdgeIteratorState>> virtualEdgesAtVirtualNodes;
+    // the edges at all real and virtual nodes that are modified compared to the base graph
+    private final QueryCHEdges outEdges;
+    private final QueryCHEdges inEdges;
 
     public QueryRoutingCHGraph(RoutingCHGraph routingCHGraph, QueryGraph queryGraph) {
         this.routingCHGraph = routingCHGraph;
@@ -58,9 +52,8 @@ public class QueryRoutingCHGraph implements RoutingCHGraph {
         this.queryOverlay = queryGraph.getQueryOverlay();
         this.queryGraph = queryGraph;
         this.queryGraphWeighting = queryGraph.wrapWeighting(weighting);
-        virtualOutEdgesAtRealNodes = buildVirtualEdgesAtRealNodes(routingCHGraph.createOutEdgeExplorer());
-        virtualInEdgesAtRealNodes = buildVirtualEdgesAtRealNodes(routingCHGraph.createInEdgeExplorer());
-        virtualEdgesAtVirtualNodes = buildVirtualEdgesAtVirtualNodes();
+        outEdges = buildEdges(routingCHGraph.createOutEdgeExplorer());
+        inEdges = buildEdges(routingCHGraph.createInEdgeExplorer());
         nodes = queryGraph.getNodes();
     }
 
@@ -92,32 +85,26 @@ public class QueryRoutingCHGraph implements RoutingCHGraph {
 
     @Override
     public RoutingCHEdgeExplorer createInEdgeExplorer() {
-        return createEdgeExplorer(routingCHGraph.createInEdgeExplorer(), virtualInEdgesAtRealNodes);
+        return createEdgeExplorer(routingCHGraph.createInEdgeExplorer(), inEdges);
     }
 
     @Override
     public RoutingCHEdgeExplorer createOutEdgeExplorer() {
-        return createEdgeExplorer(routingCHGraph.createOutEdgeExplorer(), virtualOutEdgesAtRealNodes);
+        return createEdgeExplorer(routingCHGraph.createOutEdgeExplorer(), outEdges);
     }
 
-    private RoutingCHEdgeExplorer createEdgeExplorer(final RoutingCHEdgeExplorer explorer, final IntObjectMap<List<RoutingCHEdgeIteratorState>> virtualEdgesAtRealNodes) {
-        final VirtualCHEdgeIterator iterator = new VirtualCHEdgeIterator();
+    private RoutingCHEdgeExplorer createEdgeExplorer(final RoutingCHEdgeExplorer explorer, final QueryCHEdges edges) {
+        final VirtualCHEdgeIterator iterator = new VirtualCHEdgeIterator(edges);
         return new RoutingCHEdgeExplorer() {
             @Override
             public RoutingCHEdgeIterator setBaseNode(int baseNode) {
-                if (isVirtualNode(baseNode)) {
-                    List<RoutingCHEdgeIteratorState> virtualEdges = virtualEdgesAtVirtualNodes.get(baseNode - routingCHGraph.getNodes());
-                    iterator.reset(virtualEdges);
-                    return iterator;
-                } else {
-                    List<RoutingCHEdgeIteratorState> virtualEdges = virtualEdgesAtRealNodes.get(baseNode);
-                    if (virtualEdges == null) {
-                        return explorer.setBaseNode(baseNode);
-                    } else {
-                        iterator.reset(virtualEdges);
-                        return iterator;
-                    }
+                int range = edges.getRange(baseNode);
+                if (range < 0) {
+                    assert !isVirtualNode(baseNode);
+                    return explorer.setBaseNode(baseNode);
                 }
+                iterator.reset(edges.getRangeStart(range), edges.getRangeEnd(range));
+                return iterator;
             }
         };
     }
@@ -181,51 +168,57 @@ public class QueryRoutingCHGraph implements RoutingCHGraph {
         return virtualEdge;
     }
 
-    private IntObjectMap<List<RoutingCHEdgeIteratorState>> buildVirtualEdgesAtRealNodes(final RoutingCHEdgeExplorer explorer) {
-        final IntObjectMap<List<RoutingCHEdgeIteratorState>> virtualEdgesAtRealNodes =
-                new IntObjectHashMap<>(queryOverlay.getEdgeChangesAtRealNodes().size());
-        queryOverlay.getEdgeChangesAtRealNodes().forEach(new IntObjectProcedure<QueryOverlay.EdgeChanges>() {
-            @Override
-            public void apply(int node, QueryOverlay.EdgeChanges edgeChanges) {
-                List<RoutingCHEdgeIteratorState> virtualEdges = new ArrayList<>();
-                for (EdgeIteratorState v : edgeChanges.getAdditionalEdges()) {
-                    assert v.getBaseNode() == node;
-                    int edge = v.getEdge();
-                    if (queryGraph.isVirtualEdge(edge)) {
-                        edge = shiftVirtualEdgeIDForCH(edge);
-                    }
-                    virtualEdges.add(buildVirtualCHEdgeState(v, edge));
+    private QueryCHEdges buildEdges(RoutingCHEdgeExplorer explorer) {
+        QueryCHEdges edges = queryOverlay.createCHEdges();
+        for (IntObjectCursor<QueryOverlay.EdgeChanges> c : queryOverlay.getEdgeChangesAtRealNodes()) {
+            int node = c.key;
+            QueryOverlay.EdgeChanges edgeChanges = c.value;
+            edges.startNode(node);
+            for (EdgeIteratorState v : edgeChanges.getAdditionalEdges()) {
+                assert v.getBaseNode() == node;
+                int edge = v.getEdge();
+                if (queryGraph.isVirtualEdge(edge)) {
+                    edge = shiftVirtualEdgeIDForCH(edge);
                 }
-                RoutingCHEdgeIterator iter = explorer.setBaseNode(node);
-                while (iter.next()) {
-                    // shortcuts cannot be in the removed edge set because this was determined on the (base) query graph
-                    if (iter.isShortcut()) {
-                        virtualEdges.add(new VirtualCHEdgeIteratorState(iter.getEdge(), iter.getOrigEdge(),
-                                iter.getBaseNode(), iter.getAdjNode(), iter.getOrigEdgeFirst(), iter.getOrigEdgeLast(),
-                                iter.getSkippedEdge1(), iter.getSkippedEdge2(), iter.getWeight(false), iter.getWeight(true)));
-                    } else if (!edgeChanges.getRemovedEdges().contains(iter.getEdge())) {
-                        virtualEdges.add(new VirtualCHEdgeIteratorState(iter.getEdge(), iter.getOrigEdge(),
-                                iter.getBaseNode(), iter.getAdjNode(), iter.getOrigEdgeFirst(), iter.getOrigEdgeLast(),
-                                NO_EDGE, NO_EDGE, iter.getWeight(false), iter.getWeight(true)));
-                    }
+                addVirtualCHEdge(edges, v, edge);
+            }
+            RoutingCHEdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                // shortcuts cannot be in the removed edge set because this was determined on the (base) query graph
+                if (iter.isShortcut()) {
+                    edges.add(iter.getEdge(), iter.getOrigEdge(),
+                            iter.getBaseNode(), iter.getAdjNode(), iter.getOrigEdgeFirst(), iter.getOrigEdgeLast(),
+                            iter.getSkippedEdge1(), iter.getSkippedEdge2(), iter.getWeight(false), iter.getWeight(true));
+                } else if (!edgeChanges.getRemovedEdges().contains(iter.getEdge())) {
+                    edges.add(iter.getEdge(), iter.getOrigEdge(),
+                            iter.getBaseNode(), iter.getAdjNode(), iter.getOrigEdgeFirst(), iter.getOrigEdgeLast(),
+                            NO_EDGE, NO_EDGE, iter.getWeight(false), iter.getWeight(true));
                 }
-                virtualEdgesAtRealNodes.put(node, virtualEdges);
             }
-        });
-        return virtualEdgesAtRealNodes;
-    }
+        }
 
-    private List<List<RoutingCHEdgeIteratorState>> buildVirtualEdgesAtVirtualNodes() {
         final int virtualNodes = queryOverlay.getVirtualNodes().size();
-        final List<List<RoutingCHEdgeIteratorState>> virtualEdgesAtVirtualNodes = new ArrayList<>(virtualNodes);
         for (int i = 0; i < virtualNodes; i++) {
-            List<RoutingCHEdgeIteratorState> virtualEdges = Arrays.<RoutingCHEdgeIteratorState>asList(
-                    buildVirtualCHEdgeState(queryOverlay.getVirtualEdges().get(i * 4 + SNAP_BASE)),
-                    buildVirtualCHEdgeState(queryOverlay.getVirtualEdges().get(i * 4 + SNAP_ADJ))
-            );
-            virtualEdgesAtVirtualNodes.add(virtualEdges);
+            edges.startNode(routingCHGraph.getNodes() + i);
+            VirtualEdgeIteratorState snapBase = queryOverlay.getVirtualEdge(i * 4 + SNAP_BASE);
+            addVirtualCHEdge(edges, snapBase, shiftVirtualEdgeIDForCH(snapBase.getEdge()));
+            VirtualEdgeIteratorState snapAdj = queryOverlay.getVirtualEdge(i * 4 + SNAP_ADJ);
+            addVirtualCHEdge(edges, snapAdj, shiftVirtualEdgeIDForCH(snapAdj.getEdge()));
         }
-        return virtualEdgesAtVirtualNodes;
+        return edges;
+    }
+
+    private void addVirtualCHEdge(QueryCHEdges edges, EdgeIteratorState edgeState, int edgeID) {
+        int origEdge = edgeState.getEdge();
+        edges.add(edgeID, origEdge, edgeState.getBaseNode(), edgeState.getAdjNode(), origEdge, origEdge, NO_EDGE, NO_EDGE,
+                calcWeight(edgeState, false), calcWeight(edgeState, true));
+    }
+
+    private double calcWeight(EdgeIteratorState edgeState, boolean reverse) {
+        // todo: move access flag checks into weighting, #1835
+        BooleanEncodedValue accessEnc = weighting.getFlagEncoder().getAccessEnc();
+        boolean access = reverse ? edgeState.getReverse(accessEnc) : edgeState.get(accessEnc);
+        return !access ? Double.POSITIVE_INFINITY : weighting.calcEdgeWeight(edgeState, reverse);
     }
 
     private VirtualCHEdgeIteratorState buildVirtualCHEdgeState(VirtualEdgeIteratorState virtualEdgeState) {
@@ -235,12 +228,8 @@ public class QueryRoutingCHGraph implements RoutingCHGraph {
 
     private VirtualCHEdgeIteratorState buildVirtualCHEdgeState(EdgeIteratorState edgeState, int edgeID) {
         int origEdge = edgeState.getEdge();
-        // todo: move access flag checks into weighting, #1835
-        BooleanEncodedValue accessEnc = weighting.getFlagEncoder().getAccessEnc();
-        double fwdWeight = !edgeState.get(accessEnc) ? Double.POSITIVE_INFINITY : weighting.calcEdgeWeight(edgeState, false);
-        double bwdWeight = !edgeState.getReverse(accessEnc) ? Double.POSITIVE_INFINITY : weighting.calcEdgeWeight(edgeState, true);
         return new VirtualCHEdgeIteratorState(edgeID, origEdge, edgeState.getBaseNode(), edgeState.getAdjNode(),
-                origEdge, origEdge, NO_EDGE, NO_EDGE, fwdWeight, bwdWeight);
+                origEdge, origEdge, NO_EDGE, NO_EDGE, calcWeight(edgeState, false), calcWeight(edgeState, true));
     }
 
     private int shiftVirtualEdgeIDForCH(int edge) {
@@ -342,79 +331,84 @@ public class QueryRoutingCHGraph implements RoutingCHGraph {
     }
 
     private static class VirtualCHEdgeIterator implements RoutingCHEdgeIterator {
-        private List<RoutingCHEdgeIteratorState> edges;
+        private final QueryCHEdges edges;
+        private int start;
+        private int end;
         private int current = -1;
 
+        VirtualCHEdgeIterator(QueryCHEdges edges) {
+            this.edges = edges;
+        }
+
         @Override
         public boolean next() {
             current++;
-            return current < edges.size();
+            return current < end;
         }
 
-        void reset(List<RoutingCHEdgeIteratorState> edges) {
-            this.edges = edges;
-            current = -1;
+        void reset(int start, int end) {
+            this.start = start;
+            this.end = end;
+            current = start - 1;
         }
 
         @Override
         public int getEdge() {
-            return getCurrent().getEdge();
+            return edges.getEdge(current);
         }
 
         @Override
         public int getOrigEdge() {
-            return getCurrent().getOrigEdge();
+            return edges.getOrigEdge(current);
         }
 
         @Override
         public int getOrigEdgeFirst() {
-            return getCurrent().getOrigEdgeFirst();
+            return edges.getOrigEdgeFirst(current);
         }
 
         @Override
         public int getOrigEdgeLast() {
-            return getCurrent().getOrigEdgeLast();
+            return edges.getOrigEdgeLast(current);
         }
 
         @Override
         public int getBaseNode() {
-            return getCurrent().getBaseNode();
+            return edges.getBaseNode(current);
         }
 
         @Override
         public int getAdjNode() {
-            return getCurrent().getAdjNode();
+            return edges.getAdjNode(current);
         }
 
         @Override
         public boolean isShortcut() {
-            return getCurrent().isShortcut();
+            return edges.getOrigEdge(current) == NO_EDGE;
         }
 
         @Override
         public int getSkippedEdge1() {
-            return getCurrent().getSkippedEdge1();
+            return edges.getSkippedEdge1(current);
         }
 
         @Override
         public int getSkippedEdge2() {
-            return getCurrent().getSkippedEdge2();
+            return edges.getSkippedEdge2(current);
         }
 
         @Override
         public double getWeight(boolean reverse) {
-            return getCurrent().getWeight(reverse);
+            return edges.getWeight(current, reverse);
         }
 
         @Override
         public String toString() {
-            if (current < 0)
+            if (current < start)
                 return "not started";
-            return edges.get(current).toString() + ", current: " + (current + 1) + "/" + edges.size();
-        }
-
-        private RoutingCHEdgeIteratorState getCurrent() {
-            return edges.get(current);
+            return "virtual: " + getEdge() + ": " + getBaseNode() + "->" + getAdjNode() + ", orig: " + getOrigEdge()
+                    + ", weightFwd: " + Helper.round2(getWeight(false)) + ", weightBwd: " + Helper.round2(getWeight(true))
+                    + ", current: " + (current - start + 1) + "/" + (end - start);
         }
     }
-}
\ No newline at end of file
+}
@@ -17,6 +17,7 @@
  */
 package com.graphhopper.routing.querygraph;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.ev.DecimalEncodedValue;
 import com.graphhopper.routing.ev.EnumEncodedValue;
@@ -31,36 +32,71 @@ import com.graphhopper.util.PointList;
 import java.util.List;
 
 /**
+ * Iterates a list of edges, which are usually virtual, and optionally the edges of a node of the base graph that
+ * follow them.
+ *
  * @author Peter Karich
  */
 class VirtualEdgeIterator implements EdgeIterator {
     private final EdgeFilter edgeFilter;
-    private List<EdgeIteratorState> edges;
+    private List<? extends EdgeIteratorState> edges;
     private int current;
+    private int end;
+    // iterates the edges of the base graph after the listed edges, can be null
+    private EdgeIterator mainIter;
+    private IntArrayList removedEdges;
+    private boolean inMainIter;
 
     VirtualEdgeIterator(EdgeFilter edgeFilter, List<EdgeIteratorState> edges) {
-        this.edges = edges;
-        this.current = -1;
         this.edgeFilter = edgeFilter;
+        if (edges != null)
+            reset(edges);
     }
 
     EdgeIterator reset(List<EdgeIteratorState> edges) {
+        return reset(edges, 0, edges.size(), null, null);
+    }
+
+    /**
+     * Iterates the edges of the specified list from the index from (inclusive) to end (exclusive) and afterwards
+     * the edges of mainIter that are not contained in removedEdges. This way no list needs to be created per node.
+     *
+     * @param mainIter an iterator of the base graph that already applies the edge filter or null
+     */
+    EdgeIterator reset(List<? extends EdgeIteratorState> edges, int from, int end, EdgeIterator mainIter, IntArrayList removedEdges) {
         this.edges = edges;
-        current = -1;
+        this.current = from - 1;
+        this.end = end;
+        this.mainIter = mainIter;
+        this.removedEdges = removedEdges;
+        this.inMainIter = false;
         return this;
     }
 
     @Override
     public boolean next() {
-        current++;
-        while (current < edges.size() && !edgeFilter.accept(edges.get(current))) {
+        if (!inMainIter) {
             current++;
+            while (current < end && !edgeFilter.accept(edges.get(current))) {
+                current++;
+            }
+            if (current < end)
+                return true;
+            if (mainIter == null)
+                return false;
+            inMainIter = true;
         }
-        return current < edges.size();
+        while (mainIter.next()) {
+            if (!removedEdges.contains(mainIter.getEdge()))
+                return true;
+        }
+        return false;
     }
 
     @Override
     public EdgeIteratorState detach(boolean reverse) {
+        if (inMainIter)
+            return mainIter.detach(reverse);
         if (reverse)
             throw new IllegalStateException("Not yet supported");
         return getCurrentEdge();
@@ -216,11 +252,12 @@ class VirtualEdgeIterator implements EdgeIterator {
 
     @Override
     public String toString() {
-        if (current >= 0 && current < edges.size()) {
-            return "virtual edge: " + getCurrentEdge() + ", all: " + edges.toString();
-        } else {
-            return "virtual edge: (invalid)" + ", all: " + edges.toString();
-        }
+        if (inMainIter)
+            return "virtual edge: " + mainIter;
+        else if (current >= 0 && current < end)
+            return "virtual edge: " + getCurrentEdge() + ", all: " + edges.subList(0, end);
+        else
+            return "virtual edge: (invalid)" + ", all: " + edges;
     }
 
     @Override
@@ -239,10 +276,6 @@ class VirtualEdgeIterator implements EdgeIterator {
     }
 
     private EdgeIteratorState getCurrentEdge() {
-        return edges.get(current);
-    }
-
-    public List<EdgeIteratorState> getEdges() {
-        return edges;
+        return inMainIter ? mainIter : edges.get(current);
     }
 }
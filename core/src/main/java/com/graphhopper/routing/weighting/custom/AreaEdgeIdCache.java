@@ -0,0 +1,87 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting.custom;
+
+import com.graphhopper.coll.GHBitSet;
+import com.graphhopper.coll.GHBitSetImpl;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.shapes.Polygon;
+import org.locationtech.jts.geom.Geometry;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Finds the edges of the graph that are inside an area of a custom model. The areas are looked up in the
+ * {@link LocationIndex} only once and then the edges are stored in a bitset, so that the geometric test is no longer
+ * necessary for every edge while routing. As the same areas are often used in many requests the bitsets are cached.
+ */
+public class AreaEdgeIdCache {
+    private static final int MAX_CACHED_AREAS = 100;
+    private final Graph graph;
+    private final LocationIndex locationIndex;
+    private final Map<Geometry, GHBitSet> cache = Collections.synchronizedMap(
+            new LinkedHashMap<Geometry, GHBitSet>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Geometry, GHBitSet> eldest) {
+                    return size() > MAX_CACHED_AREAS;
+                }
+            });
+
+    public AreaEdgeIdCache(Graph graph, LocationIndex locationIndex) {
+        this.graph = graph;
+        this.locationIndex = locationIndex;
+    }
+
+    /**
+     * @return the number of edges of the graph, i.e. edges with a bigger id (virtual edges) are not contained in the
+     * bitsets returned from {@link #getEdgeIds}
+     */
+    int getEdgeCount() {
+        return graph.getEdges();
+    }
+
+    /**
+     * @return the ids of all edges that are inside the specified area, see {@link GeoToValueEntry#intersects}
+     */
+    GHBitSet getEdgeIds(Geometry geometry, Polygon polygon) {
+        GHBitSet edgeIds = cache.get(geometry);
+        if (edgeIds != null)
+            return edgeIds;
+
+        // two threads might calculate the same area, which is harmless
+        final GHBitSet result = new GHBitSetImpl();
+        locationIndex.query(polygon.getBounds(), new LocationIndex.EdgeVisitor(graph.createEdgeExplorer(EdgeFilter.ALL_EDGES)) {
+            @Override
+            public void onEdge(EdgeIteratorState edge, int nodeA, int nodeB) {
+                if (GeoToValueEntry.intersects(polygon, edge))
+                    result.add(edge.getEdge());
+            }
+        });
+        cache.put(geometry, result);
+        return result;
+    }
+
+    int getCacheSize() {
+        return cache.size();
+    }
+}
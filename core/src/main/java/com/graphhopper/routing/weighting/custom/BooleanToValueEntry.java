@@ -78,6 +78,15 @@ final class BooleanToValueEntry implements EdgeToValueEntry {
         return iter.get(bev) ? value : elseValue;
     }
 
+    @Override
+    public String getValueSource(CustomModelCompiler.ClassSource source) {
+        if (Double.isNaN(value))
+            return "        return " + CustomModelCompiler.literal(elseValue) + ";\n";
+        String ev = source.addField(BooleanEncodedValue.class, bev);
+        return "        return edge.get(" + ev + ") ? " + CustomModelCompiler.literal(value) + " : "
+                + CustomModelCompiler.literal(elseValue) + ";\n";
+    }
+
     @Override
     public String toString() {
         return bev.getName() + ": " + value + ", else:" + elseValue;
@@ -0,0 +1,32 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting.custom;
+
+import com.graphhopper.util.EdgeIteratorState;
+
+/**
+ * A list of {@link EdgeToValueEntry}s that was compiled into a single class by the {@link CustomModelCompiler}. This
+ * interface is only public because the compiled classes are defined in a separate class loader.
+ */
+public interface CompiledEdgeToValueEntries {
+
+    /**
+     * @return the specified value combined with the values of all entries for the given (directed) edge
+     */
+    double apply(double value, EdgeIteratorState edge, boolean reverse);
+}
@@ -0,0 +1,156 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting.custom;
+
+import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.janino.SimpleCompiler;
+
+import java.util.*;
+
+/**
+ * Compiles a list of {@link EdgeToValueEntry}s of a custom model into a class with straight-line code, i.e. all
+ * conditions and values of the entries are inlined and the encoded values are read from final fields. This avoids
+ * the iteration over the entries and the (megamorphic) interface calls for every edge.
+ * <p>
+ * The generated source contains everything that identifies the class except the encoded values and areas, which are
+ * passed to the constructor. So the compiled classes are cached by their source and the same custom model used in
+ * many requests is compiled only once.
+ */
+final class CustomModelCompiler {
+    private static final String CLASS_NAME = "CompiledEntries";
+    private static final int MAX_CACHED_CLASSES = 1000;
+    private static final Map<String, Class<?>> CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<String, Class<?>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Class<?>> eldest) {
+                    return size() > MAX_CACHED_CLASSES;
+                }
+            });
+
+    enum Operation {
+        /**
+         * multiply the value with the value of every entry and stop if it is 0
+         */
+        MULTIPLY,
+        /**
+         * reduce the value to the minimum of the value and the values of all entries
+         */
+        MINIMUM
+    }
+
+    private CustomModelCompiler() {
+    }
+
+    static CompiledEdgeToValueEntries compile(List<EdgeToValueEntry> entries, Operation operation) {
+        if (entries.isEmpty())
+            return (value, edge, reverse) -> value;
+
+        ClassSource source = new ClassSource();
+        StringBuilder apply = new StringBuilder();
+        for (int i = 0; i < entries.size(); i++) {
+            String method = "value" + i;
+            source.methods.append("    private double ").append(method).append("(EdgeIteratorState edge, boolean reverse) {\n")
+                    .append(entries.get(i).getValueSource(source))
+                    .append("    }\n");
+            if (operation == Operation.MULTIPLY)
+                apply.append("        value *= ").append(method).append("(edge, reverse);\n")
+                        .append("        if (value == 0) return 0;\n");
+            else
+                apply.append("        double tmp").append(i).append(" = ").append(method).append("(edge, reverse);\n")
+                        .append("        if (value > tmp").append(i).append(") value = tmp").append(i).append(";\n");
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("import com.graphhopper.routing.ev.*;\n")
+                .append("import com.graphhopper.util.*;\n")
+                .append("import com.graphhopper.util.shapes.*;\n")
+                .append("public final class ").append(CLASS_NAME).append(" implements ")
+                .append(CompiledEdgeToValueEntries.class.getName()).append(" {\n")
+                .append(source.fields)
+                .append("    public ").append(CLASS_NAME).append("(Object[] args) {\n")
+                .append(source.constructor)
+                .append("    }\n")
+                .append("    public double apply(double value, EdgeIteratorState edge, boolean reverse) {\n")
+                .append(apply)
+                .append("        return value;\n")
+                .append("    }\n")
+                .append(source.methods)
+                .append("}\n");
+        String classSource = sb.toString();
+        try {
+            return (CompiledEdgeToValueEntries) getOrCompile(classSource).getConstructor(Object[].class).
+                    newInstance((Object) source.args.toArray());
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Cannot create instance of compiled custom model entries " + entries, ex);
+        }
+    }
+
+    private static Class<?> getOrCompile(String classSource) {
+        Class<?> clazz = CACHE.get(classSource);
+        if (clazz != null)
+            return clazz;
+        // two threads might compile the same source, which is harmless
+        try {
+            SimpleCompiler compiler = new SimpleCompiler();
+            compiler.setParentClassLoader(CustomModelCompiler.class.getClassLoader());
+            compiler.cook(classSource);
+            clazz = compiler.getClassLoader().loadClass(CLASS_NAME);
+        } catch (CompileException | ClassNotFoundException ex) {
+            throw new IllegalStateException("Cannot compile custom model entries:\n" + classSource, ex);
+        }
+        CACHE.put(classSource, clazz);
+        return clazz;
+    }
+
+    static int getCacheSize() {
+        return CACHE.size();
+    }
+
+    /**
+     * @return the value as java literal
+     */
+    static String literal(double value) {
+        if (Double.isNaN(value))
+            return "Double.NaN";
+        if (Double.isInfinite(value))
+            return value > 0 ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY";
+        return Double.toString(value);
+    }
+
+    /**
+     * Collects the fields of the compiled class. Their values are passed to the constructor.
+     */
+    static final class ClassSource {
+        private final List<Object> args = new ArrayList<>();
+        private final StringBuilder fields = new StringBuilder();
+        private final StringBuilder constructor = new StringBuilder();
+        private final StringBuilder methods = new StringBuilder();
+
+        /**
+         * @return the name of the new field that holds the specified value
+         */
+        String addField(Class<?> type, Object value) {
+            String name = "f" + args.size();
+            fields.append("    private final ").append(type.getName()).append(' ').append(name).append(";\n");
+            constructor.append("        ").append(name).append(" = (").append(type.getName()).append(") args[")
+                    .append(args.size()).append("];\n");
+            args.add(value);
+            return name;
+        }
+    }
+}
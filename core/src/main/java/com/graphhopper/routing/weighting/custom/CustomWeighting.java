@@ -91,16 +91,26 @@ public final class CustomWeighting extends AbstractWeighting {
 
     public CustomWeighting(FlagEncoder baseFlagEncoder, EncodedValueLookup lookup,
                            TurnCostProvider turnCostProvider, CustomModel customModel) {
+        this(baseFlagEncoder, lookup, turnCostProvider, customModel, null);
+    }
+
+    /**
+     * @param areaEdgeIdCache if not null the edges inside the areas of the custom model are looked up once instead of
+     *                        testing the geometry of every edge against the areas
+     */
+    public CustomWeighting(FlagEncoder baseFlagEncoder, EncodedValueLookup lookup, TurnCostProvider turnCostProvider,
+                           CustomModel customModel, AreaEdgeIdCache areaEdgeIdCache) {
         super(baseFlagEncoder, turnCostProvider);
         if (customModel == null)
             throw new IllegalStateException("CustomModel cannot be null");
 
         headingPenaltySeconds = customModel.getHeadingPenalty();
         baseVehicleAccessEnc = baseFlagEncoder.getAccessEnc();
-        speedCalculator = new SpeedCalculator(baseFlagEncoder.getMaxSpeed(), customModel, baseFlagEncoder.getAverageSpeedEnc(), lookup);
+        speedCalculator = new SpeedCalculator(baseFlagEncoder.getMaxSpeed(), customModel, baseFlagEncoder.getAverageSpeedEnc(),
+                lookup, areaEdgeIdCache);
         maxSpeed = speedCalculator.getMaxSpeed() / SPEED_CONV;
 
-        priorityCalculator = new PriorityCalculator(customModel, lookup);
+        priorityCalculator = new PriorityCalculator(customModel, lookup, areaEdgeIdCache);
 
         // given unit is s/km -> convert to s/m
         distanceInfluence = customModel.getDistanceInfluence() / 1000;
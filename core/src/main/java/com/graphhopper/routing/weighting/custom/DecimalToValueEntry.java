@@ -109,6 +109,14 @@ final class DecimalToValueEntry implements EdgeToValueEntry {
         throw new IllegalArgumentException("Range is invalid. It must be e.g. \">3\" or \"<5\" but was: " + rangeAsString);
     }
 
+    @Override
+    public String getValueSource(CustomModelCompiler.ClassSource source) {
+        String ev = source.addField(DecimalEncodedValue.class, dev);
+        return "        double edgeValue = reverse ? edge.getReverse(" + ev + ") : edge.get(" + ev + ");\n"
+                + "        return edgeValue < " + CustomModelCompiler.literal(maxExclusive) + " && edgeValue > " + CustomModelCompiler.literal(minExclusive)
+                + " ? " + CustomModelCompiler.literal(rangeValue) + " : " + CustomModelCompiler.literal(fallback) + ";\n";
+    }
+
     @Override
     public String toString() {
         return dev.getName() + ", range: min:" + minExclusive + ", max:" + maxExclusive + ", value:" + rangeValue;
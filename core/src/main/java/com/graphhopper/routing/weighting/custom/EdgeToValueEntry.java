@@ -30,4 +30,10 @@ interface EdgeToValueEntry {
      * @return the numeric value that shall be associated with the given (directed) edge
      */
     double getValue(EdgeIteratorState iter, boolean reverse);
+
+    /**
+     * @return the body of a method with the parameters 'edge' and 'reverse' that returns the same value as
+     * {@link #getValue}. Objects required by the method have to be added as fields to the specified source.
+     */
+    String getValueSource(CustomModelCompiler.ClassSource source);
 }
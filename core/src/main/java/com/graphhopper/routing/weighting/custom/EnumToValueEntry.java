@@ -41,6 +41,34 @@ final class EnumToValueEntry implements EdgeToValueEntry {
         return values[enumOrdinal];
     }
 
+    @Override
+    public String getValueSource(CustomModelCompiler.ClassSource source) {
+        String ev = source.addField(IntEncodedValue.class, eev);
+        // the most frequent value is the default of the switch
+        double defaultValue = values[0];
+        int maxCount = 0;
+        for (double value : values) {
+            int count = 0;
+            for (double other : values) {
+                if (other == value)
+                    count++;
+            }
+            if (count > maxCount) {
+                maxCount = count;
+                defaultValue = value;
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("        switch (reverse ? edge.getReverse(").append(ev).append(") : edge.get(").append(ev).append(")) {\n");
+        for (int ordinal = 0; ordinal < values.length; ordinal++) {
+            if (values[ordinal] != defaultValue)
+                sb.append("            case ").append(ordinal).append(": return ").append(CustomModelCompiler.literal(values[ordinal])).append(";\n");
+        }
+        sb.append("            default: return ").append(CustomModelCompiler.literal(defaultValue)).append(";\n");
+        sb.append("        }\n");
+        return sb.toString();
+    }
+
     /**
      * Example map:
      * <pre>
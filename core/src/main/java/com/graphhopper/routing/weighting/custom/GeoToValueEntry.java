@@ -17,6 +17,7 @@
  */
 package com.graphhopper.routing.weighting.custom;
 
+import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.json.geo.JsonFeature;
 import com.graphhopper.routing.util.CustomModel;
 import com.graphhopper.util.EdgeIteratorState;
@@ -31,11 +32,16 @@ final class GeoToValueEntry implements EdgeToValueEntry {
     static final String AREA_PREFIX = "area_";
     private final Polygon ghPolygon;
     private final double value, elseValue;
+    // the edges inside the area or null if unknown, only valid for edge ids smaller than edgeCount
+    private final GHBitSet edgeIds;
+    private final int edgeCount;
 
-    private GeoToValueEntry(PreparedGeometry geometry, double value, double elseValue) {
-        this.ghPolygon = new Polygon(geometry);
+    private GeoToValueEntry(Polygon polygon, double value, double elseValue, GHBitSet edgeIds, int edgeCount) {
+        this.ghPolygon = polygon;
         this.value = value;
         this.elseValue = elseValue;
+        this.edgeIds = edgeIds;
+        this.edgeCount = edgeCount;
     }
 
     static Geometry pickGeometry(CustomModel customModel, String key) {
@@ -50,23 +56,59 @@ final class GeoToValueEntry implements EdgeToValueEntry {
 
     public static EdgeToValueEntry create(String name, PreparedGeometry preparedGeometry, Number value, double defaultValue,
                                           double minValue, double maxValue) {
+        return create(name, preparedGeometry, value, defaultValue, minValue, maxValue, null);
+    }
+
+    /**
+     * @param areaEdgeIdCache if not null the edges inside the area are determined once and the geometric test is only
+     *                        necessary for virtual edges
+     */
+    public static EdgeToValueEntry create(String name, PreparedGeometry preparedGeometry, Number value, double defaultValue,
+                                          double minValue, double maxValue, AreaEdgeIdCache areaEdgeIdCache) {
         double number = value.doubleValue();
         if (number < minValue)
             throw new IllegalArgumentException(name + " cannot be smaller than " + minValue + ", was " + number);
         if (number > maxValue)
             throw new IllegalArgumentException(name + " cannot be bigger than " + maxValue + ", was " + number);
 
-        return new GeoToValueEntry(preparedGeometry, number, defaultValue);
+        Polygon polygon = new Polygon(preparedGeometry);
+        if (areaEdgeIdCache == null)
+            return new GeoToValueEntry(polygon, number, defaultValue, null, 0);
+        return new GeoToValueEntry(polygon, number, defaultValue,
+                areaEdgeIdCache.getEdgeIds(preparedGeometry.getGeometry(), polygon), areaEdgeIdCache.getEdgeCount());
+    }
+
+    /**
+     * @return true if the geometry of the specified edge intersects the polygon. Edges whose tower nodes are far away
+     * from the polygon are always considered to be outside to avoid fetching the pillar nodes.
+     */
+    static boolean intersects(Polygon polygon, EdgeIteratorState edgeState) {
+        BBox bbox = GHUtility.createBBox(edgeState);
+        return polygon.getBounds().intersects(bbox)
+                && polygon.intersects(edgeState.fetchWayGeometry(FetchMode.ALL).makeImmutable());
     }
 
     @Override
     public double getValue(EdgeIteratorState edgeState, boolean reverse) {
-        BBox bbox = GHUtility.createBBox(edgeState);
-        if (ghPolygon.getBounds().intersects(bbox)) {
-            if (ghPolygon.intersects(edgeState.fetchWayGeometry(FetchMode.ALL).makeImmutable()))
-                return value;
-        }
-        return elseValue;
+        if (edgeIds != null && edgeState.getEdge() < edgeCount)
+            return edgeIds.contains(edgeState.getEdge()) ? value : elseValue;
+        return intersects(ghPolygon, edgeState) ? value : elseValue;
+    }
+
+    @Override
+    public String getValueSource(CustomModelCompiler.ClassSource source) {
+        String polygon = source.addField(Polygon.class, ghPolygon);
+        String result = "        if (" + polygon + ".getBounds().intersects(GHUtility.createBBox(edge))\n"
+                + "                && " + polygon + ".intersects(edge.fetchWayGeometry(FetchMode.ALL).makeImmutable()))\n"
+                + "            return " + CustomModelCompiler.literal(value) + ";\n"
+                + "        return " + CustomModelCompiler.literal(elseValue) + ";\n";
+        if (edgeIds == null)
+            return result;
+        // the edge count is a constant of the source as it is the same for all requests
+        String ids = source.addField(GHBitSet.class, edgeIds);
+        return "        if (edge.getEdge() < " + edgeCount + ")\n"
+                + "            return " + ids + ".contains(edge.getEdge()) ? " + CustomModelCompiler.literal(value)
+                + " : " + CustomModelCompiler.literal(elseValue) + ";\n" + result;
     }
 
     @Override
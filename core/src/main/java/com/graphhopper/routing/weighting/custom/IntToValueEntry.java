@@ -74,6 +74,14 @@ final class IntToValueEntry implements EdgeToValueEntry {
         return new IntToValueEntry(dev, ranges.get(0), defaultValue);
     }
 
+    @Override
+    public String getValueSource(CustomModelCompiler.ClassSource source) {
+        String ev = source.addField(IntEncodedValue.class, iev);
+        return "        double edgeValue = reverse ? edge.getReverse(" + ev + ") : edge.get(" + ev + ");\n"
+                + "        return edgeValue < " + CustomModelCompiler.literal(maxExclusive) + " && edgeValue > " + CustomModelCompiler.literal(minExclusive)
+                + " ? " + CustomModelCompiler.literal(rangeValue) + " : " + CustomModelCompiler.literal(fallback) + ";\n";
+    }
+
     @Override
     public String toString() {
         return iev.getName() + ", range: min:" + minExclusive + ", max:" + maxExclusive + ", value:" + rangeValue;
@@ -28,9 +28,13 @@ import java.util.List;
 import java.util.Map;
 
 final class PriorityCalculator {
-    private final List<EdgeToValueEntry> priorityList = new ArrayList<>();
+    private final CompiledEdgeToValueEntries priorities;
 
-    public PriorityCalculator(CustomModel customModel, EncodedValueLookup lookup) {
+    /**
+     * @param areaEdgeIdCache is used to find the edges inside the areas of the custom model, can be null
+     */
+    public PriorityCalculator(CustomModel customModel, EncodedValueLookup lookup, AreaEdgeIdCache areaEdgeIdCache) {
+        List<EdgeToValueEntry> priorityList = new ArrayList<>();
         for (Map.Entry<String, Object> entry : customModel.getPriority().entrySet()) {
             String key = entry.getKey();
             String priorityKey = "priority." + key;
@@ -43,7 +47,7 @@ final class PriorityCalculator {
                     throw new IllegalArgumentException(priorityKey + ": area entry requires number value but was: " + value.getClass().getSimpleName());
                 Geometry geometry = GeoToValueEntry.pickGeometry(customModel, key);
                 priorityList.add(GeoToValueEntry.create(priorityKey, new PreparedGeometryFactory().create(geometry),
-                        (Number) value, 1, 0, 1));
+                        (Number) value, 1, 0, 1, areaEdgeIdCache));
             } else {
                 if (!(value instanceof Map))
                     throw new IllegalArgumentException(priorityKey + ": non-root entries require a map but was: " + value.getClass().getSimpleName());
@@ -67,6 +71,7 @@ final class PriorityCalculator {
                 }
             }
         }
+        priorities = CustomModelCompiler.compile(priorityList, CustomModelCompiler.Operation.MULTIPLY);
     }
 
     static EncodedValue getEV(EncodedValueLookup lookup, String name, String key) {
@@ -88,13 +93,6 @@ final class PriorityCalculator {
      * @return weight without unit. The lower the priority is the higher the weight of the specified edge will be.
      */
     public double calcPriority(EdgeIteratorState edge, boolean reverse) {
-        double priority = 1;
-        for (int i = 0; i < priorityList.size(); i++) {
-            EdgeToValueEntry entry = priorityList.get(i);
-            double value = entry.getValue(edge, reverse);
-            if (value == 0) return 0;
-            priority *= value;
-        }
-        return priority;
+        return priorities.apply(1, edge, reverse);
     }
 }
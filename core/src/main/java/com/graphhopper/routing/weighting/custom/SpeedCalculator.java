@@ -31,20 +31,26 @@ import static com.graphhopper.routing.weighting.custom.GeoToValueEntry.AREA_PREF
 import static com.graphhopper.routing.weighting.custom.PriorityCalculator.getEV;
 
 final class SpeedCalculator {
-    private final List<EdgeToValueEntry> speedFactorList = new ArrayList<>();
-    private final List<EdgeToValueEntry> maxSpeedList = new ArrayList<>();
+    private final CompiledEdgeToValueEntries speedFactors;
+    private final CompiledEdgeToValueEntries maxSpeeds;
     private final DecimalEncodedValue avgSpeedEnc;
     private final double maxSpeed;
     private final double maxSpeedFallback;
 
+    /**
+     * @param areaEdgeIdCache is used to find the edges inside the areas of the custom model, can be null
+     */
     public SpeedCalculator(final double maxSpeed, CustomModel customModel, DecimalEncodedValue avgSpeedEnc,
-                           EncodedValueLookup lookup) {
+                           EncodedValueLookup lookup, AreaEdgeIdCache areaEdgeIdCache) {
         this.maxSpeed = maxSpeed;
         this.maxSpeedFallback = customModel.getMaxSpeedFallback() == null ? maxSpeed : customModel.getMaxSpeedFallback();
         this.avgSpeedEnc = avgSpeedEnc;
         if (this.maxSpeedFallback > maxSpeed)
             throw new IllegalArgumentException("max_speed_fallback cannot be bigger than max_speed " + maxSpeed);
 
+        List<EdgeToValueEntry> speedFactorList = new ArrayList<>();
+        List<EdgeToValueEntry> maxSpeedList = new ArrayList<>();
+
         // use max_speed to lower speed for the specified conditions
         for (Map.Entry<String, Object> entry : customModel.getMaxSpeed().entrySet()) {
             String key = entry.getKey();
@@ -58,7 +64,7 @@ final class SpeedCalculator {
                     throw new IllegalArgumentException(maxSpeedKey + ": area entry requires number value but was: " + value.getClass().getSimpleName());
                 Geometry geometry = GeoToValueEntry.pickGeometry(customModel, key);
                 maxSpeedList.add(GeoToValueEntry.create(maxSpeedKey, new PreparedGeometryFactory().create(geometry),
-                        (Number) value, maxSpeed, 0, maxSpeed));
+                        (Number) value, maxSpeed, 0, maxSpeed, areaEdgeIdCache));
             } else {
                 if (!(value instanceof Map))
                     throw new IllegalArgumentException(maxSpeedKey + ": non-root entries require a map but was: " + value.getClass().getSimpleName());
@@ -96,7 +102,7 @@ final class SpeedCalculator {
                     throw new IllegalArgumentException(speedFactorKey + ": area entry requires number value but was: " + value.getClass().getSimpleName());
                 Geometry geometry = GeoToValueEntry.pickGeometry(customModel, key);
                 speedFactorList.add(GeoToValueEntry.create(speedFactorKey, new PreparedGeometryFactory().create(geometry),
-                        (Number) value, 1, 0, 1));
+                        (Number) value, 1, 0, 1, areaEdgeIdCache));
             } else {
                 if (!(value instanceof Map))
                     throw new IllegalArgumentException(speedFactorKey + ": non-root entries require a map but was: " + value.getClass().getSimpleName());
@@ -120,6 +126,8 @@ final class SpeedCalculator {
                 }
             }
         }
+        speedFactors = CustomModelCompiler.compile(speedFactorList, CustomModelCompiler.Operation.MULTIPLY);
+        maxSpeeds = CustomModelCompiler.compile(maxSpeedList, CustomModelCompiler.Operation.MINIMUM);
     }
 
     public double getMaxSpeed() {
@@ -134,21 +142,13 @@ final class SpeedCalculator {
         if (Double.isInfinite(speed) || Double.isNaN(speed) || speed < 0)
             throw new IllegalStateException("Invalid estimated speed " + speed);
 
-        for (int i = 0; i < speedFactorList.size(); i++) {
-            EdgeToValueEntry entry = speedFactorList.get(i);
-            double factorValue = entry.getValue(edge, reverse);
-            speed *= factorValue;
-            if (speed == 0) break;
-        }
+        speed = speedFactors.apply(speed, edge, reverse);
 
         boolean applied = false;
-        for (int i = 0; i < maxSpeedList.size(); i++) {
-            EdgeToValueEntry entry = maxSpeedList.get(i);
-            double maxValue = entry.getValue(edge, reverse);
-            if (speed > maxValue) {
-                applied = true;
-                speed = maxValue;
-            }
+        double maxValue = maxSpeeds.apply(Double.POSITIVE_INFINITY, edge, reverse);
+        if (speed > maxValue) {
+            applied = true;
+            speed = maxValue;
         }
 
         if (!applied && speed > maxSpeedFallback)
@@ -29,6 +29,7 @@ import com.graphhopper.search.StringIndex;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Locale;
 
@@ -51,6 +52,9 @@ class BaseGraph implements Graph {
     // See OSMReader.addEdge and #1871.
     private static final double INT_DIST_FACTOR = 1000d;
     static double MAX_DIST = Integer.MAX_VALUE / INT_DIST_FACTOR;
+    // the encodings of the way geometry, stored in the header of the geometry file
+    private static final int GEOMETRY_RAW = 0;
+    private static final int GEOMETRY_COMPRESSED = 1;
 
     final DataAccess edges;
     final DataAccess nodes;
@@ -66,7 +70,9 @@ class BaseGraph implements Graph {
     private final int intsForFlags;
     // length | nodeA | nextNode | ... | nodeB
     // as we use integer index in 'egdes' area => 'geometry' area is limited to 4GB (we use pos&neg values!)
+    // compressed: byte length | vlong length | zigzag vlong deltas of the coordinates ... | padding to 4 bytes
     private final DataAccess wayGeometry;
+    private boolean compressedGeometry;
     private final Directory dir;
     private final InternalGraphEventListener listener;
     /**
@@ -102,8 +108,8 @@ class BaseGraph implements Graph {
         this.bitUtil = BitUtil.get(dir.getByteOrder());
         this.wayGeometry = dir.find("geometry");
         this.stringIndex = new StringIndex(dir);
-        this.nodes = dir.find("nodes", DAType.getPreferredInt(dir.getDefaultType()));
-        this.edges = dir.find("edges", DAType.getPreferredInt(dir.getDefaultType()));
+        this.nodes = dir.find("nodes", dir.getDefaultType("nodes", true));
+        this.edges = dir.find("edges", dir.getDefaultType("edges", true));
         this.listener = listener;
         this.edgeAccess = new EdgeAccess(edges) {
             @Override
@@ -220,15 +226,33 @@ class BaseGraph implements Graph {
 
     protected int loadWayGeometryHeader() {
         maxGeoRef = bitUtil.combineIntsToLong(wayGeometry.getHeader(0), wayGeometry.getHeader(4));
+        int encoding = wayGeometry.getHeader(2 * 4);
+        if (encoding != GEOMETRY_RAW && encoding != GEOMETRY_COMPRESSED)
+            throw new IllegalStateException("Unknown geometry encoding " + encoding + ", corrupt file or directory? " + dir);
+        compressedGeometry = encoding == GEOMETRY_COMPRESSED;
         return 1;
     }
 
     protected int setWayGeometryHeader() {
         wayGeometry.setHeader(0, bitUtil.getIntLow(maxGeoRef));
         wayGeometry.setHeader(4, bitUtil.getIntHigh(maxGeoRef));
+        wayGeometry.setHeader(2 * 4, compressedGeometry ? GEOMETRY_COMPRESSED : GEOMETRY_RAW);
         return 1;
     }
 
+    /**
+     * Stores the pillar nodes as variable length deltas, which roughly halves the size of the geometry. Has to be
+     * called before create, for loadExisting the encoding is read from the stored graph.
+     */
+    void setCompressedGeometry(boolean compressedGeometry) {
+        checkNotInitialized();
+        this.compressedGeometry = compressedGeometry;
+    }
+
+    boolean isCompressedGeometry() {
+        return compressedGeometry;
+    }
+
     void initStorage() {
         edgeEntryIndex = 0;
         nodeEntryIndex = 0;
@@ -704,33 +728,29 @@ class BaseGraph implements Graph {
                         + "D for graph which is " + nodeAccess.getDimension() + "D");
 
             long existingGeoRef = Helper.toUnsignedLong(edges.getInt(edgePointer + E_GEO));
-
-            int len = pillarNodes.getSize();
-            int dim = nodeAccess.getDimension();
-            if (existingGeoRef > 0) {
-                final int count = wayGeometry.getInt(existingGeoRef * 4L);
-                if (len <= count) {
-                    setWayGeometryAtGeoRef(pillarNodes, edgePointer, reverse, existingGeoRef);
-                    return;
-                }
-            }
-
-            long nextGeoRef = nextGeoRef(len * dim);
-            setWayGeometryAtGeoRef(pillarNodes, edgePointer, reverse, nextGeoRef);
+            byte[] wayGeometryBytes = compressedGeometry
+                    ? createCompressedWayGeometryBytes(pillarNodes, reverse)
+                    : createWayGeometryBytes(pillarNodes, reverse);
+            long geoRef = existingGeoRef > 0 && wayGeometryBytes.length <= getWayGeometryBytes(existingGeoRef)
+                    ? existingGeoRef
+                    : nextGeoRef(wayGeometryBytes.length / 4 - 1);
+            long geoRefPosition = geoRef * 4;
+            ensureGeometry(geoRefPosition, wayGeometryBytes.length);
+            wayGeometry.setBytes(geoRefPosition, wayGeometryBytes, wayGeometryBytes.length);
+            edges.setInt(edgePointer + E_GEO, Helper.toSignedInt(geoRef));
         } else {
             edges.setInt(edgePointer + E_GEO, 0);
         }
     }
 
-    private void setWayGeometryAtGeoRef(PointList pillarNodes, long edgePointer, boolean reverse, long geoRef) {
-        int len = pillarNodes.getSize();
-        int dim = nodeAccess.getDimension();
-        long geoRefPosition = geoRef * 4;
-        int totalLen = len * dim * 4 + 4;
-        ensureGeometry(geoRefPosition, totalLen);
-        byte[] wayGeometryBytes = createWayGeometryBytes(pillarNodes, reverse);
-        wayGeometry.setBytes(geoRefPosition, wayGeometryBytes, wayGeometryBytes.length);
-        edges.setInt(edgePointer + E_GEO, Helper.toSignedInt(geoRef));
+    /**
+     * @return the number of bytes that are reserved for the way geometry at the specified geoRef
+     */
+    private int getWayGeometryBytes(long geoRef) {
+        int value = wayGeometry.getInt(geoRef * 4L);
+        return compressedGeometry
+                ? (4 + value + 3) / 4 * 4
+                : (value * nodeAccess.getDimension() + 1) * 4;
     }
 
     private byte[] createWayGeometryBytes(PointList pillarNodes, boolean reverse) {
@@ -759,6 +779,66 @@ class BaseGraph implements Graph {
         return bytes;
     }
 
+    /**
+     * The coordinates are stored as differences to the previous pillar node (the first pillar node relative to 0)
+     * so that most of them fit into one or two bytes. We cannot use the tower nodes as reference, because their
+     * coordinates can still change after the geometry was set, e.g. for the elevation interpolation.
+     */
+    private byte[] createCompressedWayGeometryBytes(PointList pillarNodes, boolean reverse) {
+        int len = pillarNodes.getSize();
+        if (reverse)
+            pillarNodes.reverse();
+
+        boolean is3D = nodeAccess.is3D();
+        VLongStorage storage = new VLongStorage(8 + len * nodeAccess.getDimension() * 2);
+        // the byte length is written at the end
+        storage.seek(4);
+        storage.writeVLong(len);
+        int prevLat = 0, prevLon = 0, prevEle = 0;
+        for (int i = 0; i < len; i++) {
+            int lat = Helper.degreeToInt(pillarNodes.getLatitude(i));
+            int lon = Helper.degreeToInt(pillarNodes.getLongitude(i));
+            storage.writeVLong(zigZag((long) lat - prevLat));
+            storage.writeVLong(zigZag((long) lon - prevLon));
+            prevLat = lat;
+            prevLon = lon;
+            if (is3D) {
+                int ele = Helper.eleToInt(pillarNodes.getElevation(i));
+                storage.writeVLong(zigZag((long) ele - prevEle));
+                prevEle = ele;
+            }
+        }
+        int byteLength = (int) storage.getPosition() - 4;
+        // the geoRefs point to ints, so we need to pad the bytes
+        byte[] bytes = Arrays.copyOf(storage.getBytes(), (4 + byteLength + 3) / 4 * 4);
+        bitUtil.fromInt(bytes, byteLength, 0);
+        return bytes;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * @return the number of pillar nodes stored at the specified byte position of the way geometry
+     */
+    private int getPillarNodeCount(long geoRef) {
+        if (!compressedGeometry)
+            return wayGeometry.getInt(geoRef);
+        // the count is the first variable length value after the byte length, see VLongStorage
+        int count = 0;
+        for (int i = 0; ; i++) {
+            byte b = wayGeometry.getByte(geoRef + 4 + i);
+            count |= (b & 0x7F) << (7 * i);
+            if (b >= 0)
+                return count;
+        }
+    }
+
     private PointList fetchWayGeometry_(long edgePointer, boolean reverse, FetchMode mode, int baseNode, int adjNode) {
         if (mode == FetchMode.TOWER_ONLY) {
             // no reverse handling required as adjNode and baseNode is already properly switched
@@ -767,49 +847,94 @@ class BaseGraph implements Graph {
             pillarNodes.add(nodeAccess, adjNode);
             return pillarNodes;
         }
-        long geoRef = Helper.toUnsignedLong(edges.getInt(edgePointer + E_GEO));
-        int count = 0;
-        byte[] bytes = null;
-        if (geoRef > 0) {
-            geoRef *= 4L;
-            count = wayGeometry.getInt(geoRef);
-
-            geoRef += 4L;
-            bytes = new byte[count * nodeAccess.getDimension() * 4];
-            wayGeometry.getBytes(geoRef, bytes, bytes.length);
-        } else if (mode == FetchMode.PILLAR_ONLY)
+        long geoRef = Helper.toUnsignedLong(edges.getInt(edgePointer + E_GEO)) * 4L;
+        int count = geoRef == 0 ? 0 : getPillarNodeCount(geoRef);
+        if (count == 0 && mode == FetchMode.PILLAR_ONLY)
             return PointList.EMPTY;
 
         PointList pillarNodes = new PointList(getPointListLength(count, mode), nodeAccess.is3D());
+        addWayGeometry(geoRef, reverse, mode, baseNode, adjNode, pillarNodes);
+        return pillarNodes;
+    }
+
+    private void fetchWayGeometry_(long edgePointer, boolean reverse, FetchMode mode, int baseNode, int adjNode, PointList points) {
+        if (points.getDimension() != nodeAccess.getDimension())
+            throw new IllegalArgumentException("Cannot use pointlist which is " + points.getDimension()
+                    + "D for graph which is " + nodeAccess.getDimension() + "D");
+        if (mode == FetchMode.TOWER_ONLY) {
+            points.add(nodeAccess, baseNode);
+            points.add(nodeAccess, adjNode);
+        } else {
+            addWayGeometry(Helper.toUnsignedLong(edges.getInt(edgePointer + E_GEO)) * 4L, reverse, mode, baseNode, adjNode, points);
+        }
+    }
+
+    /**
+     * Appends the points of the specified mode to the specified list. The pillar nodes are decoded in the order of the
+     * stored edge, so for reverse we add the points of the base and adj node the other way round and reverse the
+     * appended points afterwards.
+     */
+    private void addWayGeometry(long geoRef, boolean reverse, FetchMode mode, int baseNode, int adjNode, PointList points) {
+        int start = points.size();
         if (reverse) {
             if (mode == FetchMode.ALL || mode == FetchMode.PILLAR_AND_ADJ)
-                pillarNodes.add(nodeAccess, adjNode);
+                points.add(nodeAccess, adjNode);
         } else if (mode == FetchMode.ALL || mode == FetchMode.BASE_AND_PILLAR)
-            pillarNodes.add(nodeAccess, baseNode);
+            points.add(nodeAccess, baseNode);
+
+        if (geoRef > 0) {
+            if (compressedGeometry)
+                addCompressedPillarNodes(geoRef, points);
+            else
+                addPillarNodes(geoRef, points);
+        }
+
+        if (reverse) {
+            if (mode == FetchMode.ALL || mode == FetchMode.BASE_AND_PILLAR)
+                points.add(nodeAccess, baseNode);
+
+            points.reverse(start, points.size());
+        } else if (mode == FetchMode.ALL || mode == FetchMode.PILLAR_AND_ADJ)
+            points.add(nodeAccess, adjNode);
+    }
 
+    private void addPillarNodes(long geoRef, PointList points) {
+        int count = wayGeometry.getInt(geoRef);
+        boolean is3D = nodeAccess.is3D();
+        byte[] bytes = new byte[count * nodeAccess.getDimension() * 4];
+        wayGeometry.getBytes(geoRef + 4L, bytes, bytes.length);
         int index = 0;
         for (int i = 0; i < count; i++) {
             double lat = Helper.intToDegree(bitUtil.toInt(bytes, index));
             index += 4;
             double lon = Helper.intToDegree(bitUtil.toInt(bytes, index));
             index += 4;
-            if (nodeAccess.is3D()) {
-                pillarNodes.add(lat, lon, Helper.intToEle(bitUtil.toInt(bytes, index)));
+            if (is3D) {
+                points.add(lat, lon, Helper.intToEle(bitUtil.toInt(bytes, index)));
                 index += 4;
             } else {
-                pillarNodes.add(lat, lon);
+                points.add(lat, lon);
             }
         }
+    }
 
-        if (reverse) {
-            if (mode == FetchMode.ALL || mode == FetchMode.BASE_AND_PILLAR)
-                pillarNodes.add(nodeAccess, baseNode);
-
-            pillarNodes.reverse();
-        } else if (mode == FetchMode.ALL || mode == FetchMode.PILLAR_AND_ADJ)
-            pillarNodes.add(nodeAccess, adjNode);
-
-        return pillarNodes;
+    private void addCompressedPillarNodes(long geoRef, PointList points) {
+        boolean is3D = nodeAccess.is3D();
+        byte[] bytes = new byte[wayGeometry.getInt(geoRef)];
+        wayGeometry.getBytes(geoRef + 4L, bytes, bytes.length);
+        VLongStorage storage = new VLongStorage(bytes);
+        int count = (int) storage.readVLong();
+        long lat = 0, lon = 0, ele = 0;
+        for (int i = 0; i < count; i++) {
+            lat += unZigZag(storage.readVLong());
+            lon += unZigZag(storage.readVLong());
+            if (is3D) {
+                ele += unZigZag(storage.readVLong());
+                points.add(Helper.intToDegree((int) lat), Helper.intToDegree((int) lon), Helper.intToEle((int) ele));
+            } else {
+                points.add(Helper.intToDegree((int) lat), Helper.intToDegree((int) lon));
+            }
+        }
     }
 
     static int getPointListLength(int pillarNodes, FetchMode mode) {
@@ -1184,6 +1309,11 @@ class BaseGraph implements Graph {
             return baseGraph.fetchWayGeometry_(edgePointer, reverse, mode, getBaseNode(), getAdjNode());
         }
 
+        @Override
+        public void fetchWayGeometry(FetchMode mode, PointList points) {
+            baseGraph.fetchWayGeometry_(edgePointer, reverse, mode, getBaseNode(), getAdjNode(), points);
+        }
+
         @Override
         public int getEdge() {
             return edgeId;
@@ -71,8 +71,8 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
         this.chConfig = chConfig;
         this.baseGraph = baseGraph;
         final String name = chConfig.getName();
-        this.nodesCH = dir.find("nodes_ch_" + name, DAType.getPreferredInt(dir.getDefaultType()));
-        this.shortcuts = dir.find("shortcuts_" + name, DAType.getPreferredInt(dir.getDefaultType()));
+        this.nodesCH = dir.find("nodes_ch_" + name, dir.getDefaultType("nodes_ch_" + name, true));
+        this.shortcuts = dir.find("shortcuts_" + name, dir.getDefaultType("shortcuts_" + name, true));
         this.chEdgeAccess = new CHEdgeAccess(name);
         if (segmentSize >= 0) {
             nodesCH.setSegmentSize(segmentSize);
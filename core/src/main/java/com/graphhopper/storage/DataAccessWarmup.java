@@ -0,0 +1,139 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.graphhopper.util.Helper.nf;
+
+/**
+ * Loads the pages of memory mapped DataAccess objects into physical memory in background threads. Without this
+ * the pages are fetched from disc on their first access, which makes the first requests after loading a large
+ * graph with MMAP slow. The requests can be answered while the warmup is running.
+ * <p>
+ * The DataAccess objects are selected via regular expressions of their names like "nodes" or "shortcuts_.*" and
+ * are warmed up in the order of the first matching expression. DataAccess objects that are not memory mapped are
+ * skipped as they are completely loaded anyway.
+ */
+public class DataAccessWarmup {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DataAccessWarmup.class);
+    private final List<MMapDataAccess> dataAccesses = new ArrayList<>();
+    // the segments to warm up, encoded as data access index and segment index
+    private final List<int[]> segments = new ArrayList<>();
+    private final AtomicInteger nextSegment = new AtomicInteger();
+    private final AtomicLong warmedUpBytes = new AtomicLong();
+    private final long bytes;
+    private final int threads;
+    private final CountDownLatch finished;
+    private volatile boolean stopped;
+
+    public DataAccessWarmup(Directory directory, List<String> namePatterns, int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be positive but was " + threads);
+        this.threads = threads;
+        long tmpBytes = 0;
+        for (String pattern : namePatterns) {
+            for (DataAccess da : directory.getAll()) {
+                if (!(da instanceof MMapDataAccess) || dataAccesses.contains(da) || !da.getName().matches(pattern))
+                    continue;
+                for (int s = 0; s < da.getSegments(); s++) {
+                    segments.add(new int[]{dataAccesses.size(), s});
+                }
+                dataAccesses.add((MMapDataAccess) da);
+                tmpBytes += da.getCapacity();
+            }
+        }
+        bytes = tmpBytes;
+        finished = new CountDownLatch(threads);
+    }
+
+    /**
+     * Starts the daemon threads that load the pages. The threads stop when all pages are loaded or {@link #stop}
+     * is called.
+     */
+    public DataAccessWarmup start() {
+        LOGGER.info("warming up " + dataAccesses.size() + " memory mapped files with " + nf(bytes) + " bytes");
+        final StopWatch sw = new StopWatch().start();
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    warmUp();
+                } catch (Exception ex) {
+                    LOGGER.warn("warmup failed", ex);
+                } finally {
+                    finished.countDown();
+                    if (finished.getCount() == 0)
+                        LOGGER.info("warmup finished, " + nf(warmedUpBytes.get()) + " bytes, took: " + sw.stop().getSeconds() + "s");
+                }
+            }, "graph-warmup-" + t);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return this;
+    }
+
+    private void warmUp() {
+        while (!stopped) {
+            int index = nextSegment.getAndIncrement();
+            if (index >= segments.size())
+                return;
+            int[] segment = segments.get(index);
+            warmedUpBytes.addAndGet(dataAccesses.get(segment[0]).prefault(segment[1]));
+        }
+    }
+
+    public void stop() {
+        stopped = true;
+    }
+
+    public boolean isFinished() {
+        return finished.getCount() == 0;
+    }
+
+    /**
+     * @return true if the warmup finished within the specified time
+     */
+    public boolean awaitFinished(long timeout, TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+
+    /**
+     * @return the number of bytes of all memory mapped DataAccess objects that are warmed up
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getWarmedUpBytes() {
+        return warmedUpBytes.get();
+    }
+
+    @Override
+    public String toString() {
+        return (isFinished() ? "finished" : "running") + ", " + nf(getWarmedUpBytes()) + " of " + nf(bytes) + " bytes";
+    }
+}
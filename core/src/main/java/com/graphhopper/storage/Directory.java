@@ -57,6 +57,13 @@ public interface Directory {
      */
     DAType getDefaultType();
 
+    /**
+     * @param preferInts if true an in-memory type is returned as its integer optimized variant
+     * @return the type of a newly created DataAccess object with the specified name, which might differ from
+     * the default type if configured per name
+     */
+    DAType getDefaultType(String name, boolean preferInts);
+
     /**
      * Removes all contained objects from the directory and releases its resources.
      */
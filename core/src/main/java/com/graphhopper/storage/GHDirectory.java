@@ -21,6 +21,7 @@ import java.io.File;
 import java.nio.ByteOrder;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import static com.graphhopper.util.Helper.*;
@@ -36,6 +37,7 @@ public class GHDirectory implements Directory {
     private final ByteOrder byteOrder = ByteOrder.LITTLE_ENDIAN;
     protected Map<String, DataAccess> map = new HashMap<>();
     protected Map<String, DAType> types = new HashMap<>();
+    private final Map<String, DAType> typePatterns = new LinkedHashMap<>();
 
     public GHDirectory(String _location, DAType defaultType) {
         this.defaultType = defaultType;
@@ -64,13 +66,37 @@ public class GHDirectory implements Directory {
         return this;
     }
 
+    /**
+     * Configures the DAType of the DataAccess objects via the specified map. The keys are regular expressions
+     * matching the names of the DataAccess objects like "edges" or "shortcuts_.*" and the values are the
+     * DAType strings like OFF_HEAP_STORE. The first matching entry is used, names without a matching entry
+     * fall back to the default type.
+     */
+    public GHDirectory configure(LinkedHashMap<String, String> typesByPattern) {
+        for (Map.Entry<String, String> entry : typesByPattern.entrySet()) {
+            typePatterns.put(entry.getKey(), DAType.fromString(entry.getValue().trim()));
+        }
+        return this;
+    }
+
     @Override
-    public DataAccess find(String name) {
+    public DAType getDefaultType(String name, boolean preferInts) {
         DAType type = types.get(name);
-        if (type == null)
+        if (type == null) {
             type = defaultType;
+            for (Map.Entry<String, DAType> entry : typePatterns.entrySet()) {
+                if (name.matches(entry.getKey())) {
+                    type = entry.getValue();
+                    break;
+                }
+            }
+        }
+        return preferInts ? DAType.getPreferredInt(type) : type;
+    }
 
-        return find(name, type);
+    @Override
+    public DataAccess find(String name) {
+        return find(name, getDefaultType(name, false));
     }
 
     @Override
@@ -98,6 +124,8 @@ public class GHDirectory implements Directory {
                 da = new RAMDataAccess(name, location, false, byteOrder);
         } else if (type.isMMap()) {
             da = new MMapDataAccess(name, location, byteOrder, type.isAllowWrites());
+        } else if (type.isOffHeap()) {
+            da = new OffHeapDataAccess(name, location, type.isStoring(), byteOrder);
         } else {
             throw new IllegalArgumentException("DAType not supported " + type);
         }
@@ -39,6 +39,7 @@ public class GraphBuilder {
     private Directory dir = new RAMDirectory();
     private boolean elevation;
     private boolean turnCosts;
+    private boolean compressedGeometry;
     private long bytes = 100;
     private int segmentSize = -1;
     private List<String> chConfigStrings = new ArrayList<>();
@@ -112,6 +113,11 @@ public class GraphBuilder {
         return this;
     }
 
+    public GraphBuilder setCompressedGeometry(boolean compressedGeometry) {
+        this.compressedGeometry = compressedGeometry;
+        return this;
+    }
+
     public GraphBuilder setSegmentSize(int segmentSize) {
         this.segmentSize = segmentSize;
         return this;
@@ -124,6 +130,7 @@ public class GraphBuilder {
      */
     public GraphHopperStorage build() {
         GraphHopperStorage ghStorage = new GraphHopperStorage(dir, encodingManager, elevation, turnCosts, segmentSize);
+        ghStorage.setCompressedGeometry(compressedGeometry);
         addCHProfilesFromStrings(ghStorage.getTurnCostStorage());
         ghStorage.addCHGraphs(chConfigs);
         return ghStorage;
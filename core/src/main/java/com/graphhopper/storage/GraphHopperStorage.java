@@ -178,6 +178,19 @@ public final class GraphHopperStorage implements GraphStorage, Graph {
         return dir;
     }
 
+    /**
+     * Enables the compact encoding of the way geometry. You need to call this method before calling
+     * {@link #create(long)}, for {@link #loadExisting()} the encoding of the stored graph is used.
+     */
+    public GraphHopperStorage setCompressedGeometry(boolean compressedGeometry) {
+        baseGraph.setCompressedGeometry(compressedGeometry);
+        return this;
+    }
+
+    public boolean isCompressedGeometry() {
+        return baseGraph.isCompressedGeometry();
+    }
+
     /**
      * After configuring this storage you need to create it explicitly.
      */
@@ -50,6 +50,10 @@ import java.util.StringTokenizer;
  * This class itself is intended to be as thread-safe as other DataAccess
  * implementations are.
  * <p>
+ * If opened read-only (see DAType.MMAP_RO) the buffers are never modified and all getters use
+ * absolute reads only. Absolute reads do not touch the position of a ByteBuffer and so the
+ * read path is lock-free, which avoids contention if many threads access the same segments.
+ * <p>
  * The exact behavior of memory-mapping is reported to be wildly platform-dependent.
  *
  * @author Peter Karich
@@ -319,8 +323,23 @@ public final class MMapDataAccess extends AbstractDataAccess {
         }
     }
 
+    /**
+     * Loads the pages of the specified segment into physical memory, so that later reads do not need to fetch
+     * them from disc. Does nothing if this object is already closed.
+     *
+     * @return the number of bytes of the segment or 0 if this object is closed
+     */
+    public synchronized long prefault(int segment) {
+        if (isClosed() || segment >= segments.size())
+            return 0;
+        MappedByteBuffer bb = segments.get(segment);
+        bb.load();
+        return bb.capacity();
+    }
+
     @Override
-    public void close() {
+    public synchronized void close() {
+        // synchronized to avoid that prefault touches an unmapped segment
         super.close();
         clean(0, segments.size());
         segments.clear();
@@ -346,6 +365,8 @@ public final class MMapDataAccess extends AbstractDataAccess {
         if (index + 4 > segmentSizeInBytes)
             throw new IllegalStateException("Padding required. Currently an int cannot be distributed over two segments. " + bytePos);
         ByteBuffer byteBuffer = segments.get(bufferIndex);
+        if (!allowWrites)
+            return byteBuffer.getInt(index);
         synchronized (byteBuffer) {
             return byteBuffer.getInt(index);
         }
@@ -375,6 +396,11 @@ public final class MMapDataAccess extends AbstractDataAccess {
         int bufferIndex = (int) (bytePos >>> segmentSizePower);
         int index = (int) (bytePos & indexDivisor);
         ByteBuffer byteBuffer = segments.get(bufferIndex);
+        if (!allowWrites) {
+            if (index + 2 > segmentSizeInBytes)
+                return (short) ((segments.get(bufferIndex + 1).get(0) & 0xFF) << 8 | byteBuffer.get(index) & 0xFF);
+            return byteBuffer.getShort(index);
+        }
         if (index + 2 > segmentSizeInBytes) {
             ByteBuffer byteBufferNext = segments.get(bufferIndex + 1);
             // never lock byteBuffer and byteBufferNext in a different order to avoid deadlocks (shouldn't happen)
@@ -421,6 +447,21 @@ public final class MMapDataAccess extends AbstractDataAccess {
         int index = (int) (bytePos & indexDivisor);
         int delta = index + length - segmentSizeInBytes;
         final ByteBuffer bb1 = segments.get(bufferIndex);
+        if (!allowWrites) {
+            // avoid the relative bulk get as it modifies the position
+            if (delta > 0)
+                length -= delta;
+            for (int i = 0; i < length; i++) {
+                values[i] = bb1.get(index + i);
+            }
+            if (delta > 0) {
+                final ByteBuffer bb2 = segments.get(bufferIndex + 1);
+                for (int i = 0; i < delta; i++) {
+                    values[length + i] = bb2.get(i);
+                }
+            }
+            return;
+        }
         synchronized (bb1) {
             bb1.position(index);
             if (delta > 0) {
@@ -455,6 +496,8 @@ public final class MMapDataAccess extends AbstractDataAccess {
         int bufferIndex = (int) (bytePos >>> segmentSizePower);
         int index = (int) (bytePos & indexDivisor);
         final ByteBuffer bb1 = segments.get(bufferIndex);
+        if (!allowWrites)
+            return bb1.get(index);
         synchronized (bb1) {
             bb1.position(index);
             return bb1.get();
@@ -509,6 +552,6 @@ public final class MMapDataAccess extends AbstractDataAccess {
 
     @Override
     public DAType getType() {
-        return DAType.MMAP;
+        return allowWrites ? DAType.MMAP : DAType.MMAP_RO;
     }
 }
@@ -25,6 +25,9 @@ import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.shapes.BBox;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Provides a way to map real world data "lat,lon" to internal ids/indices of a memory efficient graph
  * - often just implemented as an array.
@@ -61,6 +64,21 @@ public interface LocationIndex extends Storable<LocationIndex> {
      */
     Snap findClosest(double lat, double lon, EdgeFilter edgeFilter);
 
+    /**
+     * Snaps many points at once, which can be faster than calling {@link #findClosest} for every point.
+     *
+     * @return the snaps in the order of the specified points, invalid snaps are included
+     */
+    default List<Snap> findClosestBatch(double[] lats, double[] lons, EdgeFilter edgeFilter) {
+        if (lats.length != lons.length)
+            throw new IllegalArgumentException("lats and lons must have the same length: " + lats.length + " vs. " + lons.length);
+        List<Snap> snaps = new ArrayList<>(lats.length);
+        for (int i = 0; i < lats.length; i++) {
+            snaps.add(findClosest(lats[i], lons[i], edgeFilter));
+        }
+        return snaps;
+    }
+
     /**
      * @param approxDist false if initialization and querying should be faster but less precise.
      */
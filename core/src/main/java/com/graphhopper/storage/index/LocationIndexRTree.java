@@ -0,0 +1,442 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage.index;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.apache.commons.collections.IntFloatBinaryHeap;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.*;
+import com.graphhopper.util.shapes.BBox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * A static R-tree over the edges of the graph as an alternative to {@link LocationIndexTree}. Every edge is a leaf
+ * item with the bounding box of its geometry. The items are sorted by the Hilbert curve value of their center and
+ * packed bottom-up into nodes of {@link #NODE_SIZE} children, so no pointers need to be stored. The bounding boxes
+ * of all levels and the edge ids of the leaf items are stored in one DataAccess.
+ * <p>
+ * {@link #findClosest} and {@link #findKClosest} do a best-first search with a priority queue ordered by the distance
+ * of the query point to the bounding boxes, so the result does not depend on a tile size. The search radius is
+ * limited to resolution * maxRegionSearch meters to keep the semantics of a not found point similar to
+ * LocationIndexTree. The build computes the bounding boxes and the Hilbert values in parallel.
+ */
+public class LocationIndexRTree implements LocationIndex {
+    static final int NODE_SIZE = 16;
+    private static final int MAGIC_INT = Integer.MAX_VALUE / 22318;
+    private static final double FACTOR = 1e7;
+    // the hilbert value of every item is calculated on a grid of 2^HILBERT_BITS x 2^HILBERT_BITS cells
+    private static final int HILBERT_BITS = 15;
+    private static final int BOX_BYTES = 16;
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final Graph graph;
+    private final DataAccess dataAccess;
+    private DistanceCalc distCalc = DistancePlaneProjection.DIST_PLANE;
+    private int minResolutionInMeter = 300;
+    private int maxRegionSearch = 4;
+    private double maxNormedDist;
+    private int items;
+    private int[] levelStarts;
+    private int[] levelSizes;
+    private long edgeIdsPointer;
+    private boolean initialized = false;
+
+    public LocationIndexRTree(Graph graph, Directory dir) {
+        this.graph = graph;
+        dataAccess = dir.find("location_index_rtree", dir.getDefaultType("location_index_rtree", true));
+    }
+
+    /**
+     * The maximum search radius is this resolution multiplied with maxRegionSearch.
+     */
+    @Override
+    public LocationIndex setResolution(int minResolutionInMeter) {
+        if (minResolutionInMeter <= 0)
+            throw new IllegalStateException("Negative precision is not allowed!");
+
+        this.minResolutionInMeter = minResolutionInMeter;
+        return this;
+    }
+
+    public LocationIndexRTree setMaxRegionSearch(int numTiles) {
+        if (numTiles < 1)
+            throw new IllegalArgumentException("Region of location index must be at least 1 but was " + numTiles);
+
+        this.maxRegionSearch = numTiles;
+        return this;
+    }
+
+    @Override
+    public LocationIndex setApproximation(boolean approx) {
+        if (approx)
+            distCalc = DistancePlaneProjection.DIST_PLANE;
+        else
+            distCalc = DistanceCalcEarth.DIST_EARTH;
+        return this;
+    }
+
+    @Override
+    public LocationIndexRTree create(long size) {
+        throw new UnsupportedOperationException("Not supported. Use prepareIndex instead.");
+    }
+
+    @Override
+    public boolean loadExisting() {
+        if (initialized)
+            throw new IllegalStateException("Call loadExisting only once");
+
+        if (!dataAccess.loadExisting())
+            return false;
+
+        if (dataAccess.getHeader(0) != MAGIC_INT)
+            throw new IllegalStateException("incorrect location index version, expected:" + MAGIC_INT);
+
+        if (dataAccess.getHeader(1 * 4) != graph.getNodes())
+            throw new IllegalStateException("location index was opened with incorrect graph: "
+                    + dataAccess.getHeader(1 * 4) + " vs. " + graph.getNodes());
+
+        initLevels(dataAccess.getHeader(2 * 4));
+        initialized = true;
+        return true;
+    }
+
+    @Override
+    public void flush() {
+        dataAccess.setHeader(0, MAGIC_INT);
+        dataAccess.setHeader(1 * 4, graph.getNodes());
+        dataAccess.setHeader(2 * 4, items);
+        dataAccess.flush();
+    }
+
+    private void initLevels(int items) {
+        this.items = items;
+        IntArrayList starts = new IntArrayList();
+        IntArrayList sizes = new IntArrayList();
+        int start = 0, size = items;
+        while (true) {
+            starts.add(start);
+            sizes.add(size);
+            start += size;
+            if (size <= 1)
+                break;
+            size = (size + NODE_SIZE - 1) / NODE_SIZE;
+        }
+        levelStarts = starts.toArray();
+        levelSizes = sizes.toArray();
+        edgeIdsPointer = (long) start * BOX_BYTES;
+        maxNormedDist = distCalc.calcNormalizedDist((double) minResolutionInMeter * maxRegionSearch);
+    }
+
+    @Override
+    public LocationIndex prepareIndex() {
+        if (initialized)
+            throw new IllegalStateException("Call prepareIndex only once");
+
+        StopWatch sw = new StopWatch().start();
+        int edges = graph.getEdges();
+        initLevels(edges);
+        int[] minLats = new int[edges], maxLats = new int[edges], minLons = new int[edges], maxLons = new int[edges];
+        long[] sortKeys = new long[edges];
+        BBox bounds = graph.getBounds();
+        double latScale = ((1 << HILBERT_BITS) - 1) / Math.max(1e-9, bounds.maxLat - bounds.minLat);
+        double lonScale = ((1 << HILBERT_BITS) - 1) / Math.max(1e-9, bounds.maxLon - bounds.minLon);
+        IntStream.range(0, edges).parallel().forEach(edge -> {
+            PointList points = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE).fetchWayGeometry(FetchMode.ALL);
+            double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE, minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+            for (int i = 0; i < points.size(); i++) {
+                minLat = Math.min(minLat, points.getLat(i));
+                maxLat = Math.max(maxLat, points.getLat(i));
+                minLon = Math.min(minLon, points.getLon(i));
+                maxLon = Math.max(maxLon, points.getLon(i));
+            }
+            minLats[edge] = (int) Math.floor(minLat * FACTOR);
+            maxLats[edge] = (int) Math.ceil(maxLat * FACTOR);
+            minLons[edge] = (int) Math.floor(minLon * FACTOR);
+            maxLons[edge] = (int) Math.ceil(maxLon * FACTOR);
+            int x = clampToGrid(((minLon + maxLon) / 2 - bounds.minLon) * lonScale);
+            int y = clampToGrid(((minLat + maxLat) / 2 - bounds.minLat) * latScale);
+            sortKeys[edge] = hilbertValue(x, y) << 32 | edge;
+        });
+        Arrays.parallelSort(sortKeys);
+
+        dataAccess.create(64 * 1024);
+        dataAccess.ensureCapacity(edgeIdsPointer + (long) items * 4);
+        IntStream.range(0, items).parallel().forEach(item -> {
+            int edge = (int) sortKeys[item];
+            setBox(item, minLats[edge], maxLats[edge], minLons[edge], maxLons[edge]);
+            dataAccess.setInt(edgeIdsPointer + (long) item * 4, edge);
+        });
+        for (int level = 1; level < levelStarts.length; level++) {
+            final int childLevel = level - 1;
+            final int currLevel = level;
+            IntStream.range(0, levelSizes[level]).parallel().forEach(node -> {
+                int minLat = Integer.MAX_VALUE, maxLat = Integer.MIN_VALUE, minLon = Integer.MAX_VALUE, maxLon = Integer.MIN_VALUE;
+                int end = Math.min(levelSizes[childLevel], (node + 1) * NODE_SIZE);
+                for (int child = node * NODE_SIZE; child < end; child++) {
+                    long pointer = (long) (levelStarts[childLevel] + child) * BOX_BYTES;
+                    minLat = Math.min(minLat, dataAccess.getInt(pointer));
+                    maxLat = Math.max(maxLat, dataAccess.getInt(pointer + 4));
+                    minLon = Math.min(minLon, dataAccess.getInt(pointer + 8));
+                    maxLon = Math.max(maxLon, dataAccess.getInt(pointer + 12));
+                }
+                setBox(levelStarts[currLevel] + node, minLat, maxLat, minLon, maxLon);
+            });
+        }
+        flush();
+        initialized = true;
+        logger.info("location index (rtree) created in " + sw.stop().getSeconds() + "s, items:" + Helper.nf(items)
+                + ", levels:" + levelStarts.length + ", size:" + Helper.nf(dataAccess.getCapacity()));
+        return this;
+    }
+
+    private static int clampToGrid(double value) {
+        return (int) Math.max(0, Math.min((1 << HILBERT_BITS) - 1, value));
+    }
+
+    /**
+     * @return the distance of the specified cell to the start of a Hilbert curve on a grid of
+     * 2^HILBERT_BITS x 2^HILBERT_BITS cells
+     */
+    static long hilbertValue(int x, int y) {
+        final int n = 1 << HILBERT_BITS;
+        long d = 0;
+        for (int s = n / 2; s > 0; s /= 2) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            // rotate the quadrant
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = n - 1 - x;
+                    y = n - 1 - y;
+                }
+                int tmp = x;
+                x = y;
+                y = tmp;
+            }
+        }
+        return d;
+    }
+
+    private void setBox(int position, int minLat, int maxLat, int minLon, int maxLon) {
+        long pointer = (long) position * BOX_BYTES;
+        dataAccess.setInt(pointer, minLat);
+        dataAccess.setInt(pointer + 4, maxLat);
+        dataAccess.setInt(pointer + 8, minLon);
+        dataAccess.setInt(pointer + 12, maxLon);
+    }
+
+    private double calcNormalizedBoxDist(double queryLat, double queryLon, int position) {
+        long pointer = (long) position * BOX_BYTES;
+        double lat = clamp(queryLat, dataAccess.getInt(pointer) / FACTOR, dataAccess.getInt(pointer + 4) / FACTOR);
+        double lon = clamp(queryLon, dataAccess.getInt(pointer + 8) / FACTOR, dataAccess.getInt(pointer + 12) / FACTOR);
+        if (lat == queryLat && lon == queryLon)
+            return 0;
+        return distCalc.calcNormalizedDist(queryLat, queryLon, lat, lon);
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return value < min ? min : (value > max ? max : value);
+    }
+
+    @Override
+    public Snap findClosest(double queryLat, double queryLon, EdgeFilter edgeFilter) {
+        List<Snap> snaps = findKClosest(queryLat, queryLon, edgeFilter, 1);
+        return snaps.isEmpty() ? new Snap(queryLat, queryLon) : snaps.get(0);
+    }
+
+    /**
+     * @return the closest snap of every edge for the k edges that are closest to the specified location and accepted
+     * by the edge filter, sorted by the distance. The list is smaller than k if there are not enough edges within the
+     * maximum search radius.
+     */
+    public List<Snap> findKClosest(double queryLat, double queryLon, EdgeFilter edgeFilter, int k) {
+        if (isClosed())
+            throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
+        if (k < 1)
+            throw new IllegalArgumentException("k must be positive but was " + k);
+
+        // the k best snaps, the worst one on top
+        PriorityQueue<Snap> best = new PriorityQueue<>(k + 1, Comparator.comparingDouble(Snap::getQueryDistance).reversed());
+        if (items == 0)
+            return new ArrayList<>();
+
+        int root = levelStarts[levelStarts.length - 1];
+        IntFloatBinaryHeap heap = new IntFloatBinaryHeap(64);
+        heap.insert(calcNormalizedBoxDist(queryLat, queryLon, root), root);
+        while (!heap.isEmpty()) {
+            double threshold = best.size() == k ? best.peek().getQueryDistance() : maxNormedDist;
+            if (heap.peekKey() > threshold)
+                break;
+
+            int position = heap.poll();
+            if (position < items) {
+                int edge = dataAccess.getInt(edgeIdsPointer + (long) position * 4);
+                EdgeIteratorState edgeState = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+                if (!edgeFilter.accept(edgeState))
+                    continue;
+                Snap snap = calcSnap(queryLat, queryLon, edgeState);
+                if (snap.getQueryDistance() <= threshold) {
+                    best.add(snap);
+                    if (best.size() > k)
+                        best.poll();
+                }
+                continue;
+            }
+
+            int level = 1;
+            while (level + 1 < levelStarts.length && position >= levelStarts[level + 1])
+                level++;
+            int node = position - levelStarts[level];
+            int end = Math.min(levelSizes[level - 1], (node + 1) * NODE_SIZE);
+            for (int child = node * NODE_SIZE; child < end; child++) {
+                int childPosition = levelStarts[level - 1] + child;
+                double dist = calcNormalizedBoxDist(queryLat, queryLon, childPosition);
+                if (dist <= threshold)
+                    heap.insert(dist, childPosition);
+            }
+        }
+
+        List<Snap> snaps = new ArrayList<>(best);
+        snaps.sort(Comparator.comparingDouble(Snap::getQueryDistance));
+        for (Snap snap : snaps) {
+            snap.setQueryDistance(distCalc.calcDenormalizedDist(snap.getQueryDistance()));
+            snap.calcSnappedPoint(distCalc);
+        }
+        return snaps;
+    }
+
+    /**
+     * Finds the closest point of the specified edge like LocationIndexTree does: the closest tower node, pillar node
+     * or the projection onto one of the segments. The query distance of the returned Snap is still normalized.
+     */
+    private Snap calcSnap(double queryLat, double queryLon, EdgeIteratorState edge) {
+        PointList points = edge.fetchWayGeometry(FetchMode.ALL);
+        int last = points.size() - 1;
+        double baseDist = distCalc.calcNormalizedDist(queryLat, queryLon, points.getLat(0), points.getLon(0));
+        double adjDist = distCalc.calcNormalizedDist(queryLat, queryLon, points.getLat(last), points.getLon(last));
+
+        double bestDist = baseDist;
+        int bestWayIndex = 0;
+        Snap.Position bestPos = Snap.Position.TOWER;
+        for (int i = 0; i < last; i++) {
+            double fromLat = points.getLat(i), fromLon = points.getLon(i);
+            double toLat = points.getLat(i + 1), toLon = points.getLon(i + 1);
+            if (distCalc.isCrossBoundary(fromLon, toLon))
+                continue;
+
+            double dist;
+            int wayIndex;
+            Snap.Position pos;
+            if (distCalc.validEdgeDistance(queryLat, queryLon, fromLat, fromLon, toLat, toLon)) {
+                dist = distCalc.calcNormalizedEdgeDistance(queryLat, queryLon, fromLat, fromLon, toLat, toLon);
+                wayIndex = i;
+                pos = Snap.Position.EDGE;
+            } else {
+                wayIndex = i + 1;
+                if (wayIndex == last) {
+                    dist = adjDist;
+                    pos = Snap.Position.TOWER;
+                } else {
+                    dist = distCalc.calcNormalizedDist(queryLat, queryLon, toLat, toLon);
+                    pos = Snap.Position.PILLAR;
+                }
+            }
+            if (dist < bestDist) {
+                bestDist = dist;
+                bestWayIndex = wayIndex;
+                bestPos = pos;
+            }
+        }
+
+        Snap snap = new Snap(queryLat, queryLon);
+        snap.setQueryDistance(bestDist);
+        if (bestPos == Snap.Position.TOWER)
+            snap.setClosestNode(bestWayIndex == 0 ? edge.getBaseNode() : edge.getAdjNode());
+        else
+            snap.setClosestNode(adjDist < baseDist ? edge.getAdjNode() : edge.getBaseNode());
+        snap.setClosestEdge(edge);
+        snap.setWayIndex(bestWayIndex);
+        snap.setSnappedPosition(bestPos);
+        return snap;
+    }
+
+    @Override
+    public void query(BBox queryBBox, Visitor function) {
+        if (items == 0)
+            return;
+
+        int minLat = (int) Math.floor(queryBBox.minLat * FACTOR), maxLat = (int) Math.ceil(queryBBox.maxLat * FACTOR);
+        int minLon = (int) Math.floor(queryBBox.minLon * FACTOR), maxLon = (int) Math.ceil(queryBBox.maxLon * FACTOR);
+        IntArrayList stack = new IntArrayList();
+        stack.add(levelStarts[levelStarts.length - 1]);
+        while (!stack.isEmpty()) {
+            int position = stack.remove(stack.size() - 1);
+            long pointer = (long) position * BOX_BYTES;
+            int boxMinLat = dataAccess.getInt(pointer), boxMaxLat = dataAccess.getInt(pointer + 4);
+            int boxMinLon = dataAccess.getInt(pointer + 8), boxMaxLon = dataAccess.getInt(pointer + 12);
+            if (boxMinLat > maxLat || boxMaxLat < minLat || boxMinLon > maxLon || boxMaxLon < minLon)
+                continue;
+
+            if (position < items) {
+                int edge = dataAccess.getInt(edgeIdsPointer + (long) position * 4);
+                EdgeIteratorState edgeState = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+                function.onNode(edgeState.getBaseNode());
+                function.onNode(edgeState.getAdjNode());
+                continue;
+            }
+
+            int level = 1;
+            while (level + 1 < levelStarts.length && position >= levelStarts[level + 1])
+                level++;
+            if (function.isTileInfo())
+                function.onTile(new BBox(boxMinLon / FACTOR, boxMaxLon / FACTOR, boxMinLat / FACTOR, boxMaxLat / FACTOR), level);
+            int node = position - levelStarts[level];
+            int end = Math.min(levelSizes[level - 1], (node + 1) * NODE_SIZE);
+            for (int child = node * NODE_SIZE; child < end; child++) {
+                stack.add(levelStarts[level - 1] + child);
+            }
+        }
+    }
+
+    @Override
+    public void setSegmentSize(int bytes) {
+        dataAccess.setSegmentSize(bytes);
+    }
+
+    @Override
+    public void close() {
+        dataAccess.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return dataAccess.isClosed();
+    }
+
+    @Override
+    public long getCapacity() {
+        return dataAccess.getCapacity();
+    }
+}
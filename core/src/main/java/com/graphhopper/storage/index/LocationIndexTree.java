@@ -23,6 +23,7 @@ import com.carrotsearch.hppc.cursors.IntCursor;
 import com.carrotsearch.hppc.predicates.IntPredicate;
 import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.coll.GHIntHashSet;
+import com.graphhopper.coll.GHLongObjectHashMap;
 import com.graphhopper.coll.GHTBitSet;
 import com.graphhopper.geohash.SpatialKeyAlgo;
 import com.graphhopper.routing.util.EdgeFilter;
@@ -34,6 +35,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.stream.IntStream;
 
 /**
  * This class implements a Quadtree to get the closest node or edge from GPS coordinates.
@@ -59,6 +61,8 @@ import java.util.*;
 public class LocationIndexTree implements LocationIndex {
     // do not start with 0 as a positive value means leaf and a negative means "entry with subentries"
     static final int START_POINTER = 1;
+    static final int PARALLEL_BATCH_SIZE = 2000;
+    private static final int MAX_CACHED_REGIONS = 1000;
     protected final Graph graph;
     final DataAccess dataAccess;
     private final Logger logger = LoggerFactory.getLogger(getClass());
@@ -91,7 +95,7 @@ public class LocationIndexTree implements LocationIndex {
         MAGIC_INT = Integer.MAX_VALUE / 22317;
         this.graph = g;
         this.nodeAccess = g.getNodeAccess();
-        dataAccess = dir.find("location_index", DAType.getPreferredInt(dir.getDefaultType()));
+        dataAccess = dir.find("location_index", dir.getDefaultType("location_index", true));
     }
 
     public int getMinResolutionInMeter() {
@@ -515,24 +519,33 @@ public class LocationIndexTree implements LocationIndex {
      */
     final boolean findNetworkEntries(double queryLat, double queryLon,
                                      GHIntHashSet foundEntries, int iteration) {
+        return findNetworkEntries(queryLat, queryLon, foundEntries, iteration, null);
+    }
+
+    /**
+     * @param regionCache if not null the node ids of the regions are looked up in and added to this cache, which
+     *                    avoids traversing the tree again for nearby query points
+     */
+    private boolean findNetworkEntries(double queryLat, double queryLon, GHIntHashSet foundEntries, int iteration,
+                                       GHLongObjectHashMap<GHIntHashSet> regionCache) {
         // find entries in border of searchbox
         for (int yreg = -iteration; yreg <= iteration; yreg++) {
             double subqueryLat = queryLat + yreg * deltaLat;
             double subqueryLonA = queryLon - iteration * deltaLon;
             double subqueryLonB = queryLon + iteration * deltaLon;
-            findNetworkEntriesSingleRegion(foundEntries, subqueryLat, subqueryLonA);
+            findNetworkEntriesSingleRegion(foundEntries, subqueryLat, subqueryLonA, regionCache);
 
             // minor optimization for iteration == 0
             if (iteration > 0)
-                findNetworkEntriesSingleRegion(foundEntries, subqueryLat, subqueryLonB);
+                findNetworkEntriesSingleRegion(foundEntries, subqueryLat, subqueryLonB, regionCache);
         }
 
         for (int xreg = -iteration + 1; xreg <= iteration - 1; xreg++) {
             double subqueryLon = queryLon + xreg * deltaLon;
             double subqueryLatA = queryLat - iteration * deltaLat;
             double subqueryLatB = queryLat + iteration * deltaLat;
-            findNetworkEntriesSingleRegion(foundEntries, subqueryLatA, subqueryLon);
-            findNetworkEntriesSingleRegion(foundEntries, subqueryLatB, subqueryLon);
+            findNetworkEntriesSingleRegion(foundEntries, subqueryLatA, subqueryLon, regionCache);
+            findNetworkEntriesSingleRegion(foundEntries, subqueryLatB, subqueryLon, regionCache);
         }
 
         if (iteration % 2 != 0) {
@@ -570,8 +583,24 @@ public class LocationIndexTree implements LocationIndex {
     }
 
     final void findNetworkEntriesSingleRegion(GHIntHashSet storedNetworkEntryIds, double queryLat, double queryLon) {
+        findNetworkEntriesSingleRegion(storedNetworkEntryIds, queryLat, queryLon, null);
+    }
+
+    private void findNetworkEntriesSingleRegion(GHIntHashSet storedNetworkEntryIds, double queryLat, double queryLon,
+                                                GHLongObjectHashMap<GHIntHashSet> regionCache) {
         long keyPart = createReverseKey(queryLat, queryLon);
-        fillIDs(keyPart, START_POINTER, storedNetworkEntryIds, 0);
+        if (regionCache == null) {
+            fillIDs(keyPart, START_POINTER, storedNetworkEntryIds, 0);
+            return;
+        }
+
+        GHIntHashSet regionEntryIds = regionCache.get(keyPart);
+        if (regionEntryIds == null) {
+            regionEntryIds = new GHIntHashSet();
+            fillIDs(keyPart, START_POINTER, regionEntryIds, 0);
+            regionCache.put(keyPart, regionEntryIds);
+        }
+        storedNetworkEntryIds.addAll(regionEntryIds);
     }
 
     @Override
@@ -579,11 +608,65 @@ public class LocationIndexTree implements LocationIndex {
         if (isClosed())
             throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
 
+        return findClosest(queryLat, queryLon, edgeFilter, null);
+    }
+
+    /**
+     * Does the same as {@link #findClosest} for every point, but the points are processed in the order of their
+     * spatial key and the node ids of the visited regions are cached, so nearby points do not traverse the tree again.
+     * The batch is split among threads if it contains at least {@link #PARALLEL_BATCH_SIZE} points.
+     */
+    @Override
+    public List<Snap> findClosestBatch(double[] lats, double[] lons, EdgeFilter edgeFilter) {
+        return findClosestBatch(lats, lons, edgeFilter, lats.length >= PARALLEL_BATCH_SIZE);
+    }
+
+    /**
+     * @param parallel if true the points are split into chunks of nearby points that are snapped in parallel, the
+     *                 edgeFilter must be thread safe then
+     * @return the snaps in the order of the specified points
+     */
+    public List<Snap> findClosestBatch(double[] lats, double[] lons, EdgeFilter edgeFilter, boolean parallel) {
+        if (isClosed())
+            throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
+        if (lats.length != lons.length)
+            throw new IllegalArgumentException("lats and lons must have the same length: " + lats.length + " vs. " + lons.length);
+
+        final int size = lats.length;
+        long[] keys = new long[size];
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = keyAlgo.encode(lats[i], lons[i]);
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> keys[i]));
+
+        final Snap[] snaps = new Snap[size];
+        int chunks = parallel ? Math.min(size, Runtime.getRuntime().availableProcessors() * 4) : 1;
+        final int chunkSize = chunks == 0 ? 0 : (size + chunks - 1) / chunks;
+        IntStream stream = IntStream.range(0, chunks);
+        if (parallel)
+            stream = stream.parallel();
+        stream.forEach(chunk -> {
+            GHLongObjectHashMap<GHIntHashSet> regionCache = new GHLongObjectHashMap<>();
+            for (int i = chunk * chunkSize; i < Math.min(size, (chunk + 1) * chunkSize); i++) {
+                // the points are sorted, so regions of points that are far away are unlikely to be used again
+                if (regionCache.size() > MAX_CACHED_REGIONS)
+                    regionCache.clear();
+                int point = order[i];
+                snaps[point] = findClosest(lats[point], lons[point], edgeFilter, regionCache);
+            }
+        });
+        return Arrays.asList(snaps);
+    }
+
+    private Snap findClosest(final double queryLat, final double queryLon, final EdgeFilter edgeFilter,
+                             GHLongObjectHashMap<GHIntHashSet> regionCache) {
         GHIntHashSet allCollectedEntryIds = new GHIntHashSet();
         final Snap closestMatch = new Snap(queryLat, queryLon);
         for (int iteration = 0; iteration < maxRegionSearch; iteration++) {
             GHIntHashSet storedNetworkEntryIds = new GHIntHashSet();
-            boolean earlyFinish = findNetworkEntries(queryLat, queryLon, storedNetworkEntryIds, iteration);
+            boolean earlyFinish = findNetworkEntries(queryLat, queryLon, storedNetworkEntryIds, iteration, regionCache);
             storedNetworkEntryIds.removeAll(allCollectedEntryIds);
             allCollectedEntryIds.addAll(storedNetworkEntryIds);
 
@@ -122,6 +122,15 @@ public interface EdgeIteratorState {
      */
     PointList fetchWayGeometry(FetchMode mode);
 
+    /**
+     * Like {@link #fetchWayGeometry(FetchMode)}, but adds the points to the specified list instead of creating a new
+     * one. This avoids the allocations if the points of many edges are collected, e.g. for a path, or if the list is
+     * reused.
+     */
+    default void fetchWayGeometry(FetchMode mode, PointList points) {
+        points.add(fetchWayGeometry(mode));
+    }
+
     /**
      * @param list is a sorted collection of coordinates between the base node and the current adjacent node. Specify
      *             the list without the adjacent and base node. This method can be called multiple times, but if the
@@ -432,6 +432,7 @@ public class GHUtility {
         return new GraphBuilder(store.getEncodingManager())
                 .withTurnCosts(store.getTurnCostStorage() != null)
                 .set3D(is3D)
+                .setCompressedGeometry(store.isCompressedGeometry())
                 .setDir(outdir)
                 .setCHConfigs(store.getCHConfigs())
                 .setBytes(store.getNodes())
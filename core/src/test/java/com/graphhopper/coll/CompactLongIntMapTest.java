@@ -0,0 +1,131 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.graphhopper.storage.RAMDirectory;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CompactLongIntMapTest {
+
+    @Test
+    public void testPutAndGet() {
+        CompactLongIntMap map = new CompactLongIntMap(new RAMDirectory(), "test", -1, 4);
+        assertEquals(-1, map.get(5));
+        assertEquals(-1, map.put(5, 10));
+        assertEquals(-1, map.put(Long.MAX_VALUE, 11));
+        assertEquals(-1, map.put(-Long.MAX_VALUE, 12));
+        assertEquals(-1, map.put(0, 13));
+        // this merges the keys into the sorted blocks
+        assertEquals(-1, map.put(6, 14));
+        assertEquals(5, map.getSize());
+        assertEquals(10, map.put(5, 20));
+        assertEquals(20, map.get(5));
+        assertEquals(11, map.get(Long.MAX_VALUE));
+        assertEquals(12, map.get(-Long.MAX_VALUE));
+        assertEquals(13, map.get(0));
+        assertEquals(14, map.get(6));
+        assertEquals(-1, map.get(4));
+        assertEquals(-1, map.get(7));
+        assertEquals(-1, map.get(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void testRandom() {
+        Random rand = new Random(12);
+        CompactLongIntMap map = new CompactLongIntMap(new RAMDirectory(), "test", -1, 100);
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 50_000; i++) {
+            // mostly dense ids like in OSM, but also some big gaps
+            long key = rand.nextInt(10) == 0 ? rand.nextLong() : rand.nextInt(100_000);
+            int value = rand.nextInt(1000);
+            Integer old = expected.put(key, value);
+            assertEquals(old == null ? -1 : old, map.put(key, value));
+            if (i % 1000 == 0)
+                map.optimize();
+        }
+        assertEquals(expected.size(), map.getSize());
+        for (Map.Entry<Long, Integer> e : expected.entrySet()) {
+            assertEquals((int) e.getValue(), map.get(e.getKey()));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            long key = rand.nextInt(200_000);
+            assertEquals(expected.getOrDefault(key, -1).intValue(), map.get(key));
+        }
+    }
+
+    @Test
+    public void testIncreasingKeys() {
+        Random rand = new Random(34);
+        // the pending keys are appended to the blocks, which often ends within a block
+        CompactLongIntMap map = new CompactLongIntMap(new RAMDirectory(), "test", -1, 37);
+        Map<Long, Integer> expected = new HashMap<>();
+        long key = 0;
+        for (int i = 0; i < 20_000; i++) {
+            key += 1 + (rand.nextInt(100) == 0 ? rand.nextInt(1 << 30) : rand.nextInt(3));
+            expected.put(key, i);
+            assertEquals(-1, map.put(key, i));
+        }
+        // smaller keys require rewriting the blocks
+        for (int i = 0; i < 100; i++) {
+            long smallerKey = rand.nextInt(100_000);
+            Integer old = expected.put(smallerKey, i);
+            assertEquals(old == null ? -1 : old, map.put(smallerKey, i));
+        }
+        map.optimize();
+        assertEquals(expected.size(), map.getSize());
+        for (Map.Entry<Long, Integer> e : expected.entrySet()) {
+            assertEquals((int) e.getValue(), map.get(e.getKey()));
+        }
+        assertEquals(-1, map.get(key + 1));
+    }
+
+    @Test
+    public void testConcurrentGet() throws Exception {
+        CompactLongIntMap map = new CompactLongIntMap(new RAMDirectory(), "test", -1);
+        for (long key = 0; key < 200_000; key += 3) {
+            map.put(key, (int) key);
+        }
+        map.optimize();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    int errors = 0;
+                    for (long key = 0; key < 200_000; key++) {
+                        if (map.get(key) != (key % 3 == 0 ? key : -1))
+                            errors++;
+                    }
+                    return errors;
+                }));
+            }
+            for (Future<Integer> future : futures) {
+                assertEquals(0, (int) future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -130,5 +130,24 @@ public class MinHeapWithUpdateTest implements BinaryHeapTestInterface {
         assertFalse(contains(2));
     }
 
+    @Test
+    void ensureCapacity() {
+        create(3);
+        push(2, 0.5f);
+        push(0, 0.3f);
+        push(1, 0.7f);
+        assertThrows(IllegalArgumentException.class, () -> push(3, 0.1f));
+        heap.ensureCapacity(10);
+        assertFalse(contains(9));
+        push(9, 0.1f);
+        push(5, 0.4f);
+        assertEquals(5, size());
+        assertEquals(9, poll());
+        assertEquals(0, poll());
+        assertEquals(5, poll());
+        assertEquals(2, poll());
+        assertEquals(1, poll());
+        assertTrue(isEmpty());
+    }
 
 }
\ No newline at end of file
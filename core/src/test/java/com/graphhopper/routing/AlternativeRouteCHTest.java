@@ -17,6 +17,7 @@
  */
 package com.graphhopper.routing;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.graphhopper.routing.ch.NodeOrderingProvider;
 import com.graphhopper.routing.ch.PrepareContractionHierarchies;
 import com.graphhopper.routing.util.CarFlagEncoder;
@@ -126,4 +127,25 @@ public class AlternativeRouteCHTest {
         // 4 -> 11 -> 12 -> 10 is not too long compared to 4 -> 10
     }
 
+    @Test
+    public void testBudget() {
+        GraphHopperStorage g = createTestGraph(em);
+        PMap hints = new PMap();
+        hints.putObject("alternative_route.max_weight_factor", 4);
+        hints.putObject("alternative_route.local_optimality_factor", 0.5);
+        hints.putObject("alternative_route.max_paths", 4);
+        hints.putObject("alternative_route.visited_nodes_budget", 1);
+        AlternativeRouteCH altDijkstra = new AlternativeRouteCH(g.getRoutingCHGraph(), hints);
+        List<AlternativeRouteCH.AlternativeInfo> pathInfos = altDijkstra.calcAlternatives(5, 10);
+        // no budget is left for the alternatives, but we still get the best path
+        assertEquals(1, pathInfos.size());
+        assertEquals(IntArrayList.from(5, 6, 3, 4, 10), pathInfos.get(0).getPath().calcNodes());
+
+        hints.putObject("alternative_route.visited_nodes_budget", Integer.MAX_VALUE);
+        hints.putObject("alternative_route.time_budget_ms", 0);
+        altDijkstra = new AlternativeRouteCH(g.getRoutingCHGraph(), hints);
+        pathInfos = altDijkstra.calcAlternatives(5, 10);
+        assertEquals(1, pathInfos.size());
+    }
+
 }
@@ -34,6 +34,7 @@ public class RandomCHRoutingTest {
     private final TraversalMode traversalMode;
     private final int maxTurnCosts;
     private final int uTurnCosts;
+    private final int contractionThreads;
     private Directory dir;
     private CarFlagEncoder encoder;
     private EncodingManager encodingManager;
@@ -42,19 +43,22 @@ public class RandomCHRoutingTest {
     private CHConfig chConfig;
     private LocationIndexTree locationIndex;
 
-    @Parameterized.Parameters(name = "{0}, u-turn-costs={1}")
+    @Parameterized.Parameters(name = "{0}, u-turn-costs={1}, threads={2}")
     public static Collection<Object[]> params() {
         return Arrays.asList(new Object[][]{
-                {TraversalMode.NODE_BASED, INFINITE_U_TURN_COSTS},
-                {TraversalMode.EDGE_BASED, 40},
-                {TraversalMode.EDGE_BASED, INFINITE_U_TURN_COSTS}
+                {TraversalMode.NODE_BASED, INFINITE_U_TURN_COSTS, 1},
+                {TraversalMode.EDGE_BASED, 40, 1},
+                {TraversalMode.EDGE_BASED, INFINITE_U_TURN_COSTS, 1},
+                {TraversalMode.NODE_BASED, INFINITE_U_TURN_COSTS, 4},
+                {TraversalMode.EDGE_BASED, 40, 4}
         });
     }
 
-    public RandomCHRoutingTest(TraversalMode traversalMode, int uTurnCosts) {
+    public RandomCHRoutingTest(TraversalMode traversalMode, int uTurnCosts, int contractionThreads) {
         this.traversalMode = traversalMode;
         this.maxTurnCosts = 10;
         this.uTurnCosts = uTurnCosts;
+        this.contractionThreads = contractionThreads;
     }
 
     @Before
@@ -139,7 +143,8 @@ public class RandomCHRoutingTest {
 
         graph.freeze();
         RoutingCHGraph chGraph = graph.getRoutingCHGraph(chConfig.getName());
-        PrepareContractionHierarchies pch = PrepareContractionHierarchies.fromGraphHopperStorage(graph, chConfig);
+        PrepareContractionHierarchies pch = PrepareContractionHierarchies.fromGraphHopperStorage(graph, chConfig)
+                .setContractionThreads(contractionThreads);
         pch.doWork();
 
         int numQueryGraph = 25;
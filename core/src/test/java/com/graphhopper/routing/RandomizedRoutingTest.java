@@ -29,6 +29,7 @@ import com.graphhopper.routing.lm.PrepareLandmarks;
 import com.graphhopper.routing.querygraph.QueryGraph;
 import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
 import com.graphhopper.routing.util.*;
+import com.graphhopper.routing.weighting.BeelineWeightApproximator;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.*;
 import com.graphhopper.storage.index.LocationIndex;
@@ -89,6 +90,7 @@ public class RandomizedRoutingTest {
                 {Algo.DIJKSTRA, false, false, NODE_BASED},
                 {Algo.ASTAR_UNIDIR, false, false, NODE_BASED},
                 {Algo.ASTAR_BIDIR, false, false, NODE_BASED},
+                {Algo.PRIMITIVE_ASTAR, false, false, NODE_BASED},
                 {Algo.CH_ASTAR, true, false, NODE_BASED},
                 {Algo.CH_DIJKSTRA, true, false, NODE_BASED},
                 {Algo.LM_UNIDIR, false, true, NODE_BASED},
@@ -96,6 +98,7 @@ public class RandomizedRoutingTest {
                 {Algo.DIJKSTRA, false, false, EDGE_BASED},
                 {Algo.ASTAR_UNIDIR, false, false, EDGE_BASED},
                 {Algo.ASTAR_BIDIR, false, false, EDGE_BASED},
+                {Algo.PRIMITIVE_ASTAR, false, false, EDGE_BASED},
                 {Algo.CH_ASTAR, true, false, EDGE_BASED},
                 {Algo.CH_DIJKSTRA, true, false, EDGE_BASED},
                 {Algo.LM_UNIDIR, false, true, EDGE_BASED},
@@ -108,6 +111,7 @@ public class RandomizedRoutingTest {
         DIJKSTRA,
         ASTAR_BIDIR,
         ASTAR_UNIDIR,
+        PRIMITIVE_ASTAR,
         CH_ASTAR,
         CH_DIJKSTRA,
         LM_BIDIR,
@@ -167,6 +171,9 @@ public class RandomizedRoutingTest {
                 return new AStar(graph, graph.wrapWeighting(weighting), traversalMode);
             case ASTAR_BIDIR:
                 return new AStarBidirection(graph, graph.wrapWeighting(weighting), traversalMode);
+            case PRIMITIVE_ASTAR:
+                return new PrimitiveAStar(graph, graph.wrapWeighting(weighting), traversalMode)
+                        .setApproximation(new BeelineWeightApproximator(graph.getNodeAccess(), weighting));
             case CH_DIJKSTRA: {
                 CHRoutingAlgorithmFactory algoFactory = graph instanceof QueryGraph
                         ? new CHRoutingAlgorithmFactory(new QueryRoutingCHGraph(routingCHGraph, (QueryGraph) graph))
@@ -0,0 +1,114 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.routing.util.CustomModel;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteCacheTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final Function<GHRequest, GHResponse> router = request -> {
+        calls.incrementAndGet();
+        return new GHResponse();
+    };
+
+    @Test
+    void hitsForNearIdenticalRequests() {
+        RouteCache cache = new RouteCache(10, 0, 5);
+        GHResponse rsp = cache.route(new GHRequest(52.5, 13.4, 52.6, 13.5).setProfile("car"), router);
+        // differs only in the 7th decimal place
+        assertSame(rsp, cache.route(new GHRequest(52.5000001, 13.4, 52.6, 13.5).setProfile("car"), router));
+        assertEquals(1, calls.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        assertNotSame(rsp, cache.route(new GHRequest(52.501, 13.4, 52.6, 13.5).setProfile("car"), router));
+        assertNotSame(rsp, cache.route(new GHRequest(52.5, 13.4, 52.6, 13.5).setProfile("bike"), router));
+        GHRequest request = new GHRequest(52.5, 13.4, 52.6, 13.5).setProfile("car");
+        request.putHint("instructions", false);
+        assertNotSame(rsp, cache.route(request, router));
+        assertEquals(4, calls.get());
+        assertEquals(4, cache.getSize());
+    }
+
+    @Test
+    void hintOrderDoesNotMatter() {
+        RouteCache cache = new RouteCache(10, 0, 5);
+        GHRequest request1 = new GHRequest(52.5, 13.4, 52.6, 13.5).setProfile("car");
+        request1.putHint("a", 1).putHint("b", "x");
+        GHRequest request2 = new GHRequest(52.5, 13.4, 52.6, 13.5).setProfile("car");
+        request2.putHint("b", "x").putHint("a", 1);
+        assertEquals(cache.createKey(request1), cache.createKey(request2));
+    }
+
+    @Test
+    void doNotCacheErrorsAndObjectHints() {
+        RouteCache cache = new RouteCache(10, 0, 5);
+        Function<GHRequest, GHResponse> failingRouter = request -> {
+            calls.incrementAndGet();
+            return new GHResponse().addError(new IllegalArgumentException("no route"));
+        };
+        GHRequest request = new GHRequest(52.5, 13.4, 52.6, 13.5).setProfile("car");
+        cache.route(request, failingRouter);
+        cache.route(request, failingRouter);
+        assertEquals(2, calls.get());
+        assertEquals(0, cache.getSize());
+
+        request.putHint("custom_model", new CustomModel());
+        assertNull(cache.createKey(request));
+        cache.route(request, router);
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    void evictionAndExpiration() {
+        AtomicLong time = new AtomicLong();
+        RouteCache cache = new RouteCache(2, 60, 5, time::get);
+        GHRequest request1 = new GHRequest(52.5, 13.4, 52.6, 13.5).setProfile("car");
+        GHRequest request2 = new GHRequest(52.5, 13.4, 52.7, 13.5).setProfile("car");
+        GHRequest request3 = new GHRequest(52.5, 13.4, 52.8, 13.5).setProfile("car");
+        cache.route(request1, router);
+        cache.route(request2, router);
+        // request1 is now the most recently used entry and so request2 is evicted
+        cache.route(request1, router);
+        cache.route(request3, router);
+        assertEquals(2, cache.getSize());
+        assertEquals(3, calls.get());
+        cache.route(request2, router);
+        assertEquals(4, calls.get());
+
+        cache.route(request2, router);
+        assertEquals(4, calls.get());
+        time.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        cache.route(request2, router);
+        assertEquals(5, calls.get());
+
+        cache.invalidate();
+        assertEquals(0, cache.getSize());
+    }
+}
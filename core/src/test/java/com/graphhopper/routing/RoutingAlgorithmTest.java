@@ -29,6 +29,7 @@ import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.FlagEncoder;
 import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.BeelineWeightApproximator;
 import com.graphhopper.routing.weighting.FastestWeighting;
 import com.graphhopper.routing.weighting.ShortestWeighting;
 import com.graphhopper.routing.weighting.TurnCostProvider;
@@ -115,6 +116,10 @@ public class RoutingAlgorithmTest {
                 {new AStarCalculator(), EDGE_BASED},
                 {new BidirAStarCalculator(), NODE_BASED},
                 {new BidirAStarCalculator(), EDGE_BASED},
+                {new PrimitiveDijkstraCalculator(), NODE_BASED},
+                {new PrimitiveDijkstraCalculator(), EDGE_BASED},
+                {new PrimitiveAStarCalculator(), NODE_BASED},
+                {new PrimitiveAStarCalculator(), EDGE_BASED},
                 // so far only supports node-based
                 {new DijkstraOneToManyCalculator(), NODE_BASED},
                 {new CHAStarCalculator(), NODE_BASED},
@@ -1149,6 +1154,32 @@ public class RoutingAlgorithmTest {
         }
     }
 
+    private static class PrimitiveDijkstraCalculator extends SimpleCalculator {
+        @Override
+        RoutingAlgorithm createAlgo(Graph graph, Weighting weighting, TraversalMode traversalMode) {
+            return new PrimitiveAStar(graph, weighting, traversalMode);
+        }
+
+        @Override
+        public String toString() {
+            return "PRIMITIVE_DIJKSTRA";
+        }
+    }
+
+    private static class PrimitiveAStarCalculator extends SimpleCalculator {
+        @Override
+        RoutingAlgorithm createAlgo(Graph graph, Weighting weighting, TraversalMode traversalMode) {
+            BeelineWeightApproximator approx = new BeelineWeightApproximator(graph.getNodeAccess(), weighting);
+            approx.setDistanceCalc(DistancePlaneProjection.DIST_PLANE);
+            return new PrimitiveAStar(graph, weighting, traversalMode).setApproximation(approx);
+        }
+
+        @Override
+        public String toString() {
+            return "PRIMITIVE_ASTAR";
+        }
+    }
+
     private static class DijkstraOneToManyCalculator extends SimpleCalculator {
         @Override
         RoutingAlgorithm createAlgo(Graph graph, Weighting weighting, TraversalMode traversalMode) {
@@ -0,0 +1,79 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class SPTLabelsTest {
+
+    @Test
+    void putFindAndGrow() {
+        SPTLabels labels = new SPTLabels(16);
+        for (int i = 0; i < 1000; i++) {
+            int label = labels.add(i, i + 1, i * 0.5, i - 1);
+            assertEquals(i, label);
+            labels.put(i * 7, label);
+        }
+        assertEquals(1000, labels.size());
+        for (int i = 0; i < 1000; i++) {
+            int label = labels.find(i * 7);
+            assertEquals(i, label);
+            assertEquals(i, labels.getEdge(label));
+            assertEquals(i + 1, labels.getAdjNode(label));
+            assertEquals(i * 0.5, labels.getWeight(label));
+            assertEquals(i - 1, labels.getParent(label));
+        }
+        assertEquals(SPTLabels.NO_LABEL, labels.find(1));
+        labels.getHeap().push(999, 1);
+
+        labels.set(3, 10, 0.1, 7);
+        assertEquals(10, labels.getEdge(3));
+        assertEquals(0.1, labels.getWeight(3));
+        assertEquals(7, labels.getParent(3));
+    }
+
+    @Test
+    void clear() {
+        SPTLabels labels = new SPTLabels(16);
+        labels.put(5, labels.add(1, 2, 3, SPTLabels.NO_LABEL));
+        labels.getHeap().push(0, 3);
+        labels.clear();
+        assertEquals(0, labels.size());
+        assertEquals(SPTLabels.NO_LABEL, labels.find(5));
+        assertEquals(0, labels.getHeap().size());
+        labels.put(6, labels.add(1, 2, 3, SPTLabels.NO_LABEL));
+        assertEquals(0, labels.find(6));
+    }
+
+    @Test
+    void pool() {
+        SPTLabels labels = SPTLabels.acquire();
+        labels.put(5, labels.add(1, 2, 3, SPTLabels.NO_LABEL));
+        // nested usage gets its own instance
+        SPTLabels other = SPTLabels.acquire();
+        assertEquals(0, other.size());
+        SPTLabels.release(labels);
+        SPTLabels reused = SPTLabels.acquire();
+        assertSame(labels, reused);
+        assertEquals(0, reused.size());
+        assertEquals(SPTLabels.NO_LABEL, reused.find(5));
+    }
+}
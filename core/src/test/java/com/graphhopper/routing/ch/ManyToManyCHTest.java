@@ -0,0 +1,111 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.GHMatrixResponse;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.RoutingAlgorithm;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.storage.*;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.shapes.BBox;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ManyToManyCHTest {
+
+    @ParameterizedTest
+    @EnumSource(value = TraversalMode.class, names = {"NODE_BASED", "EDGE_BASED"})
+    void compareWithBidirectionalCH(TraversalMode traversalMode) {
+        long seed = 4567;
+        Random rnd = new Random(seed);
+        CarFlagEncoder encoder = new CarFlagEncoder(5, 5, 10);
+        EncodingManager em = EncodingManager.create(encoder);
+        GraphHopperStorage graph = new GraphBuilder(em)
+                .setCHConfigStrings("p|car|fastest|" + (traversalMode.isEdgeBased() ? "edge" : "node"))
+                .create();
+        CHConfig chConfig = graph.getCHGraph().getCHConfig();
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.5, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.9, 0);
+        if (traversalMode.isEdgeBased())
+            GHUtility.addRandomTurnCosts(graph, seed, em, encoder, 10, graph.getTurnCostStorage());
+        LocationIndexTree locationIndex = new LocationIndexTree(graph, new RAMDirectory());
+        locationIndex.prepareIndex();
+        graph.freeze();
+        PrepareContractionHierarchies.fromGraphHopperStorage(graph, chConfig).doWork();
+        RoutingCHGraph chGraph = graph.getRoutingCHGraph(chConfig.getName());
+
+        // use virtual nodes as sources and targets, like for snapped points
+        List<Snap> snaps = new ArrayList<>();
+        BBox bounds = graph.getBounds();
+        while (snaps.size() < 10) {
+            Snap snap = locationIndex.findClosest(bounds.minLat + rnd.nextDouble() * (bounds.maxLat - bounds.minLat),
+                    bounds.minLon + rnd.nextDouble() * (bounds.maxLon - bounds.minLon), EdgeFilter.ALL_EDGES);
+            if (snap.isValid())
+                snaps.add(snap);
+        }
+        QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+        int[] sources = new int[8];
+        int[] targets = new int[12];
+        for (int i = 0; i < sources.length; i++)
+            sources[i] = i < 5 ? snaps.get(i).getClosestNode() : rnd.nextInt(graph.getNodes());
+        for (int i = 0; i < targets.length; i++)
+            targets[i] = i < 5 ? snaps.get(5 + i).getClosestNode() : rnd.nextInt(graph.getNodes());
+        // the same node as source and target
+        targets[11] = sources[0];
+
+        QueryRoutingCHGraph queryCHGraph = new QueryRoutingCHGraph(chGraph, queryGraph);
+        GHMatrixResponse matrix = new ManyToManyCH(queryCHGraph).calcMatrix(sources, targets);
+        int connected = 0;
+        for (int i = 0; i < sources.length; i++) {
+            for (int j = 0; j < targets.length; j++) {
+                RoutingAlgorithm algo = new CHRoutingAlgorithmFactory(queryCHGraph).createAlgo(new PMap());
+                Path path = algo.calcPath(sources[i], targets[j]);
+                String msg = sources[i] + "->" + targets[j];
+                assertEquals(path.isFound(), matrix.isConnected(i, j), msg);
+                if (!path.isFound()) {
+                    assertEquals(Long.MAX_VALUE, matrix.getTime(i, j), msg);
+                    continue;
+                }
+                connected++;
+                assertEquals(path.getWeight(), matrix.getWeight(i, j), 1.e-6, msg);
+                assertEquals(path.getDistance(), matrix.getDistance(i, j), 1.e-3, msg);
+                assertEquals(path.getTime(), matrix.getTime(i, j), msg);
+            }
+        }
+        assertTrue(connected > sources.length * targets.length / 2, "too few connected pairs: " + connected);
+        assertEquals(0, matrix.getWeight(0, 11));
+
+        ManyToManyCH limited = new ManyToManyCH(queryCHGraph);
+        limited.setMaxVisitedNodes(10);
+        assertThrows(IllegalArgumentException.class, () -> limited.calcMatrix(sources, targets));
+    }
+}
@@ -651,6 +651,38 @@ public class PrepareContractionHierarchiesTest {
         assertTrue("reusing node ordering should speed up ch contraction", timeMotorCycle < 0.5 * timeCar);
     }
 
+    @Test
+    public void testParallelContraction() {
+        CarFlagEncoder carFlagEncoder = new CarFlagEncoder();
+        EncodingManager em = EncodingManager.create(carFlagEncoder);
+        CHConfig sequentialConfig = CHConfig.nodeBased("c1", new FastestWeighting(carFlagEncoder));
+        CHConfig parallelConfig = CHConfig.nodeBased("c2", new FastestWeighting(carFlagEncoder));
+        GraphHopperStorage ghStorage = new GraphBuilder(em).setCHConfigs(sequentialConfig, parallelConfig).create();
+
+        int numNodes = 5_000;
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(ghStorage, rnd, numNodes, 1.3, true, true, carFlagEncoder.getAverageSpeedEnc(), 0.7, 0.9, 0.8);
+        ghStorage.freeze();
+
+        PrepareContractionHierarchies sequentialPch = PrepareContractionHierarchies.fromGraphHopperStorage(ghStorage, sequentialConfig);
+        sequentialPch.doWork();
+        PrepareContractionHierarchies parallelPch = PrepareContractionHierarchies.fromGraphHopperStorage(ghStorage, parallelConfig)
+                .setContractionThreads(4);
+        parallelPch.doWork();
+        assertTrue("too many shortcuts, seed: " + seed + ", sequential: " + sequentialPch.getShortcuts() + ", parallel: " + parallelPch.getShortcuts(),
+                parallelPch.getShortcuts() < 1.5 * sequentialPch.getShortcuts());
+
+        RoutingCHGraph parallelCH = ghStorage.getRoutingCHGraph(parallelConfig.getName());
+        for (int i = 0; i < 100; ++i) {
+            Dijkstra dijkstra = new Dijkstra(ghStorage, parallelConfig.getWeighting(), TraversalMode.NODE_BASED);
+            RoutingAlgorithm chAlgo = new CHRoutingAlgorithmFactory(parallelCH).createAlgo(new PMap());
+            int from = rnd.nextInt(numNodes);
+            int to = rnd.nextInt(numNodes);
+            assertEquals("seed: " + seed, dijkstra.calcPath(from, to).getWeight(), chAlgo.calcPath(from, to).getWeight(), 1.e-1);
+        }
+    }
+
     private void checkPath(GraphHopperStorage g, CHConfig c, int expShortcuts, double expDistance, IntIndexedContainer expNodes, int[] nodeOrdering) {
         RoutingCHGraph lg = g.getRoutingCHGraph(c.getName());
         PrepareContractionHierarchies prepare = createPrepareContractionHierarchies(g, c);
@@ -41,6 +41,7 @@ import org.locationtech.jts.geom.Polygon;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.Assert.*;
 
@@ -184,6 +185,33 @@ public class LandmarkStorageTest {
         assertEquals("[1, 0]", Arrays.toString(storage.getLandmarks(1)));
     }
 
+    @Test
+    public void testParallelLandmarkWeights() {
+        // the random graph has several subnetworks, some of them too small for landmarks
+        GHUtility.buildRandomGraph(ghStorage, new Random(42), 500, 2.2, false, false, encoder.getAverageSpeedEnc(), 0.7, 0.6, 0.8);
+        ghStorage.freeze();
+
+        LandmarkStorage sequential = new LandmarkStorage(ghStorage, new RAMDirectory(), new LMConfig("c1", new FastestWeighting(encoder)), 8);
+        sequential.setMinimumNodes(10);
+        sequential.createLandmarks();
+        LandmarkStorage parallel = new LandmarkStorage(ghStorage, new RAMDirectory(), new LMConfig("c2", new FastestWeighting(encoder)), 8);
+        parallel.setMinimumNodes(10);
+        parallel.setLandmarkThreads(4);
+        parallel.createLandmarks();
+
+        assertTrue(sequential.getSubnetworksWithLandmarks() > 1);
+        assertEquals(sequential.getSubnetworksWithLandmarks(), parallel.getSubnetworksWithLandmarks());
+        for (int subnetwork = 1; subnetwork < sequential.getSubnetworksWithLandmarks(); subnetwork++) {
+            assertArrayEquals(sequential.getLandmarks(subnetwork), parallel.getLandmarks(subnetwork));
+        }
+        for (int node = 0; node < ghStorage.getNodes(); node++) {
+            for (int lmIdx = 0; lmIdx < 8; lmIdx++) {
+                assertEquals(sequential.getFromWeight(lmIdx, node), parallel.getFromWeight(lmIdx, node));
+                assertEquals(sequential.getToWeight(lmIdx, node), parallel.getToWeight(lmIdx, node));
+            }
+        }
+    }
+
     @Test
     public void testWithBorderBlocking() {
         RoutingAlgorithmTest.initBiGraph(ghStorage);
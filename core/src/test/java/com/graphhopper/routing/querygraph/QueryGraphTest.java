@@ -37,6 +37,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashSet;
@@ -186,8 +187,46 @@ public class QueryGraphTest {
         assertEquals(2, state.fetchWayGeometry(FetchMode.ALL).size());
 
         // now we actually test the edges at the real tower nodes (virtual ones should be added and some real ones removed)
-        assertEquals("[1->4, 1 1-0]", ((VirtualEdgeIterator) queryGraph.createEdgeExplorer().setBaseNode(1)).getEdges().toString());
-        assertEquals("[3->4]", ((VirtualEdgeIterator) queryGraph.createEdgeExplorer().setBaseNode(3)).getEdges().toString());
+        assertEquals("[1->4, 1 1-0]", getEdges(queryGraph.createEdgeExplorer().setBaseNode(1)));
+        assertEquals("[3->4]", getEdges(queryGraph.createEdgeExplorer().setBaseNode(3)));
+    }
+
+    @Test
+    public void testReleaseAndReuse() {
+        initGraph(g);
+        QueryGraph queryGraph = QueryGraph.create(g, createLocationResult(0.5, 0, g.getEdgeIteratorState(0, 2), 0, EDGE));
+        EdgeIteratorState virtualEdge = GHUtility.getEdge(queryGraph, 3, 2).detach(false);
+        queryGraph.release();
+
+        // the released data structures are reused for the next query graph
+        List<Snap> snaps = Arrays.asList(
+                createLocationResult(0.3, 0, g.getEdgeIteratorState(0, 2), 0, EDGE),
+                createLocationResult(1.5, 1.2, g.getEdgeIteratorState(1, 1), 1, EDGE));
+        QueryGraph queryGraph2 = QueryGraph.create(g, snaps);
+        assertSame(queryGraph.getQueryOverlay(), queryGraph2.getQueryOverlay());
+        // a query graph that is not released does not share its data structures
+        QueryGraph queryGraph3 = QueryGraph.create(g, snaps);
+        assertNotSame(queryGraph2.getQueryOverlay(), queryGraph3.getQueryOverlay());
+
+        assertEquals(5, queryGraph2.getNodes());
+        assertEquals(8, queryGraph2.getVirtualEdges().size());
+        for (int node = 0; node < queryGraph3.getNodes(); node++) {
+            assertEquals(getEdges(queryGraph3.createEdgeExplorer().setBaseNode(node)),
+                    getEdges(queryGraph2.createEdgeExplorer().setBaseNode(node)), "node " + node);
+        }
+        assertEquals("[3->0, 3->2]", getEdges(queryGraph2.createEdgeExplorer().setBaseNode(3)));
+        // edge states of the released query graph stay valid
+        assertEquals(0.5, virtualEdge.fetchWayGeometry(FetchMode.ALL).getLat(0), 1.e-6);
+        queryGraph2.release();
+        queryGraph3.release();
+    }
+
+    private static String getEdges(EdgeIterator iter) {
+        List<EdgeIteratorState> edges = new ArrayList<>();
+        while (iter.next()) {
+            edges.add(iter.detach(false));
+        }
+        return edges.toString();
     }
 
     @Test
@@ -0,0 +1,75 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting.custom;
+
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AreaEdgeIdCacheTest {
+
+    @Test
+    public void edgeIdsMatchGeometricTest() {
+        FlagEncoder encoder = new CarFlagEncoder();
+        GraphHopperStorage graph = new GraphBuilder(EncodingManager.create(encoder)).create();
+        // the nodes are within 49.4,9.7 and 49.41,9.71
+        GHUtility.buildRandomGraph(graph, new Random(42), 500, 2.2, false, false, encoder.getAverageSpeedEnc(), 0.7, 0.8, 0.8);
+        LocationIndexTree index = new LocationIndexTree(graph, new RAMDirectory());
+        index.prepareIndex();
+        AreaEdgeIdCache cache = new AreaEdgeIdCache(graph, index);
+
+        Coordinate[] coordinates = {new Coordinate(9.702, 49.402), new Coordinate(9.702, 49.405),
+                new Coordinate(9.706, 49.406), new Coordinate(9.705, 49.402), new Coordinate(9.702, 49.402)};
+        Polygon polygon = new GeometryFactory().createPolygon(coordinates);
+        EdgeToValueEntry geometric = GeoToValueEntry.create("priority.area_test", PreparedGeometryFactory.prepare(polygon), 0.5, 1, 0, 1);
+        EdgeToValueEntry cached = GeoToValueEntry.create("priority.area_test", PreparedGeometryFactory.prepare(polygon), 0.5, 1, 0, 1, cache);
+        CompiledEdgeToValueEntries compiled = CustomModelCompiler.compile(Collections.singletonList(cached), CustomModelCompiler.Operation.MULTIPLY);
+
+        int inside = 0;
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            double expected = geometric.getValue(iter, false);
+            if (expected == 0.5)
+                inside++;
+            assertEquals(expected, cached.getValue(iter, false), iter.toString());
+            assertEquals(expected, compiled.apply(1, iter, false), iter.toString());
+        }
+        assertTrue(inside > 10, "too few edges inside the area " + inside);
+
+        // an equal area is not looked up again
+        GeoToValueEntry.create("speed_factor.area_test", PreparedGeometryFactory.prepare((Polygon) polygon.copy()), 0.7, 1, 0, 1, cache);
+        assertEquals(1, cache.getCacheSize());
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting.custom;
+
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.EdgeIteratorState;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class CustomModelCompilerTest {
+
+    private final EncodingManager em = EncodingManager.create("car");
+    private final EnumEncodedValue<RoadClass> roadClassEnc = em.getEnumEncodedValue(RoadClass.KEY, RoadClass.class);
+    private final BooleanEncodedValue roundaboutEnc = em.getBooleanEncodedValue(Roundabout.KEY);
+    private final DecimalEncodedValue maxSpeedEnc = em.getDecimalEncodedValue(MaxSpeed.KEY);
+
+    @Test
+    public void compiledEntriesMatchEntries() {
+        Graph graph = new GraphBuilder(em).create();
+        NodeAccess na = graph.getNodeAccess();
+        Random rnd = new Random(123);
+        for (int node = 0; node < 50; node++) {
+            na.setNode(node, 50 + rnd.nextDouble(), 10 + rnd.nextDouble());
+        }
+        List<EdgeIteratorState> edges = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            EdgeIteratorState edge = graph.edge(rnd.nextInt(50), rnd.nextInt(50), 100, true);
+            edge.set(roadClassEnc, RoadClass.values()[rnd.nextInt(RoadClass.values().length)]);
+            edge.set(roundaboutEnc, rnd.nextBoolean());
+            edge.set(maxSpeedEnc, rnd.nextInt(10) * 10);
+            edge.setReverse(maxSpeedEnc, rnd.nextInt(10) * 10);
+            edges.add(edge);
+        }
+
+        List<EdgeToValueEntry> entries = createEntries();
+        CompiledEdgeToValueEntries product = CustomModelCompiler.compile(entries, CustomModelCompiler.Operation.MULTIPLY);
+        CompiledEdgeToValueEntries minimum = CustomModelCompiler.compile(entries, CustomModelCompiler.Operation.MINIMUM);
+        for (EdgeIteratorState edge : edges) {
+            for (boolean reverse : new boolean[]{false, true}) {
+                double expectedProduct = 1, expectedMinimum = Double.POSITIVE_INFINITY;
+                for (EdgeToValueEntry entry : entries) {
+                    double value = entry.getValue(edge, reverse);
+                    expectedProduct *= value;
+                    expectedMinimum = Math.min(expectedMinimum, value);
+                }
+                assertEquals(expectedProduct, product.apply(1, edge, reverse), edge.toString());
+                assertEquals(expectedMinimum, minimum.apply(Double.POSITIVE_INFINITY, edge, reverse), edge.toString());
+            }
+        }
+    }
+
+    @Test
+    public void compiledClassesAreCached() {
+        CompiledEdgeToValueEntries first = CustomModelCompiler.compile(createEntries(), CustomModelCompiler.Operation.MULTIPLY);
+        int cacheSize = CustomModelCompiler.getCacheSize();
+        CompiledEdgeToValueEntries second = CustomModelCompiler.compile(createEntries(), CustomModelCompiler.Operation.MULTIPLY);
+        assertEquals(cacheSize, CustomModelCompiler.getCacheSize());
+        assertSame(first.getClass(), second.getClass());
+    }
+
+    private List<EdgeToValueEntry> createEntries() {
+        List<EdgeToValueEntry> entries = new ArrayList<>();
+        Map<String, Object> roadClassMap = new HashMap<>();
+        roadClassMap.put(RoadClass.PRIMARY.toString(), 0.5);
+        roadClassMap.put(RoadClass.RESIDENTIAL.toString(), 0.7);
+        roadClassMap.put("*", 0.9);
+        entries.add(EnumToValueEntry.create("priority.road_class", roadClassEnc, roadClassMap, 1, 0, 1));
+        entries.add(BooleanToValueEntry.create("priority.roundabout", roundaboutEnc,
+                Collections.singletonMap("true", 0.8), 1, 0, 1));
+        entries.add(DecimalToValueEntry.create("priority.max_speed", maxSpeedEnc,
+                Collections.singletonMap(">40", 0.6), 1, 0, 1));
+        Coordinate[] coordinates = {new Coordinate(10.2, 50.2), new Coordinate(10.2, 50.7), new Coordinate(10.7, 50.7),
+                new Coordinate(10.7, 50.2), new Coordinate(10.2, 50.2)};
+        entries.add(GeoToValueEntry.create("priority.area_test", PreparedGeometryFactory.prepare(
+                new GeometryFactory().createPolygon(coordinates)), 0.4, 1, 0, 1));
+        return entries;
+    }
+}
@@ -113,12 +113,12 @@ class PriorityCalculatorTest {
         model.getPriority().put(MaxSpeed.KEY, maxSpeedMap);
         assertEquals(1.0, calcPriority(edge, model));
 
-        PriorityCalculator priorityCalculator = new PriorityCalculator(model, em);
+        PriorityCalculator priorityCalculator = new PriorityCalculator(model, em, null);
         assertEquals(0.5, priorityCalculator.calcPriority(edge, true));
     }
 
     private double calcPriority(EdgeIteratorState edge, CustomModel model) {
-        PriorityCalculator priorityCalculator = new PriorityCalculator(model, em);
+        PriorityCalculator priorityCalculator = new PriorityCalculator(model, em, null);
         return priorityCalculator.calcPriority(edge, false);
     }
 }
\ No newline at end of file
@@ -169,7 +169,7 @@ class SpeedCalculatorTest {
 
     private double calcSpeed(EdgeIteratorState edge, CustomModel model) {
         FlagEncoder encoder = em.fetchEdgeEncoders().iterator().next();
-        SpeedCalculator speedCalculator = new SpeedCalculator(encoder.getMaxSpeed(), model, encoder.getAverageSpeedEnc(), em);
+        SpeedCalculator speedCalculator = new SpeedCalculator(encoder.getMaxSpeed(), model, encoder.getAverageSpeedEnc(), em, null);
         return speedCalculator.calcSpeed(edge, false);
     }
 
@@ -0,0 +1,84 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataAccessWarmupTest {
+    private final String location = "./target/tmp/warmup";
+
+    @BeforeEach
+    public void setUp() {
+        Helper.removeDir(new File(location));
+        Directory dir = new GHDirectory(location, DAType.RAM_STORE).create();
+        for (String name : Arrays.asList("nodes", "edges", "shortcuts_car", "geometry")) {
+            DataAccess da = dir.find(name).setSegmentSize(1 << 12);
+            da.create(10_000);
+            da.setInt(400, name.length());
+            da.flush();
+        }
+        dir.close();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Helper.removeDir(new File(location));
+    }
+
+    @Test
+    public void testWarmup() throws InterruptedException {
+        GHDirectory dir = new GHDirectory(location, DAType.MMAP_RO);
+        // only memory mapped files are warmed up
+        dir.put("geometry", DAType.RAM_STORE);
+        for (String name : Arrays.asList("nodes", "edges", "shortcuts_car", "geometry")) {
+            assertTrue(dir.find(name).loadExisting());
+        }
+        DataAccessWarmup warmup = new DataAccessWarmup(dir, Arrays.asList("edges", "shortcuts_.*", "geometry"), 3).start();
+        assertTrue(warmup.awaitFinished(10, TimeUnit.SECONDS));
+        assertTrue(warmup.isFinished());
+        long expected = dir.find("edges").getCapacity() + dir.find("shortcuts_car").getCapacity();
+        assertEquals(expected, warmup.getBytes());
+        assertEquals(expected, warmup.getWarmedUpBytes());
+        assertEquals(5, dir.find("edges").getInt(400));
+        assertEquals(13, dir.find("shortcuts_car").getInt(400));
+        dir.close();
+    }
+
+    @Test
+    public void testCloseDuringWarmup() throws InterruptedException {
+        GHDirectory dir = new GHDirectory(location, DAType.MMAP_RO);
+        for (String name : Arrays.asList("nodes", "edges", "shortcuts_car", "geometry")) {
+            assertTrue(dir.find(name).loadExisting());
+        }
+        DataAccessWarmup warmup = new DataAccessWarmup(dir, Arrays.asList(".*"), 2).start();
+        warmup.stop();
+        // closed segments are skipped
+        dir.close();
+        assertTrue(warmup.awaitFinished(10, TimeUnit.SECONDS));
+        assertTrue(warmup.getWarmedUpBytes() <= warmup.getBytes());
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.FetchMode;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PointList;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs all tests of {@link GraphHopperStorageTest} with the compact encoding of the way geometry.
+ */
+public class GraphHopperStorageWithCompressedGeometryTest extends GraphHopperStorageTest {
+    @Override
+    protected GraphHopperStorage newGHStorage(Directory dir, boolean enabled3D, int segmentSize) {
+        return GraphBuilder.start(encodingManager).setDir(dir).set3D(enabled3D).setSegmentSize(segmentSize).
+                setCompressedGeometry(true).build();
+    }
+
+    @Override
+    @Test
+    public void testDontGrowOnUpdate() {
+        graph = createGHStorage(defaultGraphLoc, true);
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 10, 10, 0);
+        na.setNode(1, 11, 20, 1);
+        na.setNode(2, 12, 12, 0.4);
+
+        EdgeIteratorState iter2 = graph.edge(0, 1, 100, true);
+        final BaseGraph baseGraph = (BaseGraph) graph.getBaseGraph();
+        assertEquals(4, baseGraph.getMaxGeoRef());
+        iter2.setWayGeometry(Helper.createPointList3D(1, 2, 3, 3, 4, 5, 5, 6, 7, 7, 8, 9));
+        long maxGeoRef = baseGraph.getMaxGeoRef();
+        assertTrue(maxGeoRef > 4);
+        iter2.setWayGeometry(Helper.createPointList3D(1, 2, 3, 3, 4, 5, 5, 6, 7));
+        assertEquals(maxGeoRef, baseGraph.getMaxGeoRef());
+        iter2.setWayGeometry(Helper.createPointList3D(1, 2, 3, 3, 4, 5));
+        assertEquals(maxGeoRef, baseGraph.getMaxGeoRef());
+        iter2.setWayGeometry(Helper.createPointList3D(1, 2, 3));
+        assertEquals(maxGeoRef, baseGraph.getMaxGeoRef());
+        assertEquals(Helper.createPointList3D(1, 2, 3), iter2.fetchWayGeometry(FetchMode.PILLAR_ONLY));
+    }
+
+    @Test
+    public void testCompressedGeometry() {
+        Helper.removeDir(new File(defaultGraphLoc));
+        graph = newGHStorage(new RAMDirectory(defaultGraphLoc, true), true).create(defaultSize);
+        assertTrue(graph.isCompressedGeometry());
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 50.0, 10.0, 100);
+        na.setNode(1, 50.01, 10.01, 120);
+        PointList pillars = new PointList(5, true);
+        for (int i = 1; i <= 5; i++) {
+            pillars.add(50.0012345 + i * 0.001, 10.0023456 + i * 0.0015, 100 + i * 1.5);
+        }
+        BaseGraph baseGraph = (BaseGraph) graph.getBaseGraph();
+        long maxGeoRef = baseGraph.getMaxGeoRef();
+        EdgeIteratorState edge = graph.edge(0, 1).setWayGeometry(pillars);
+        // without compression we would need 5 * 3 + 1 ints
+        assertTrue("compressed geometry too large", baseGraph.getMaxGeoRef() - maxGeoRef < 5 * 3 + 1);
+        assertEquals(pillars, edge.fetchWayGeometry(FetchMode.PILLAR_ONLY));
+
+        // a large jump does not fit into the small deltas
+        pillars.add(-49.9, -170.5, -10);
+        edge.setWayGeometry(pillars);
+        maxGeoRef = baseGraph.getMaxGeoRef();
+        assertEquals(pillars, edge.fetchWayGeometry(FetchMode.PILLAR_ONLY));
+        PointList reversed = graph.getEdgeIteratorState(edge.getEdge(), 0).fetchWayGeometry(FetchMode.ALL);
+        assertEquals(8, reversed.size());
+        assertEquals(50.01, reversed.getLat(0), 1e-6);
+        assertEquals(-49.9, reversed.getLat(1), 1e-6);
+        assertEquals(-170.5, reversed.getLon(1), 1e-6);
+        assertEquals(-10, reversed.getEle(1), 1e-2);
+        assertEquals(50.0022345, reversed.getLat(6), 1e-6);
+        assertEquals(50.0, reversed.getLat(7), 1e-6);
+
+        // the points are added to the specified list
+        PointList points = new PointList(10, true);
+        points.add(1, 2, 3);
+        edge.fetchWayGeometry(FetchMode.BASE_AND_PILLAR, points);
+        assertEquals(8, points.size());
+        assertEquals(50.0, points.getLat(1), 1e-6);
+        assertEquals(-49.9, points.getLat(7), 1e-6);
+
+        // a shorter geometry reuses the space of the existing one
+        PointList shorter = new PointList(1, true);
+        shorter.add(50.005, 10.005, 110);
+        edge.setWayGeometry(shorter);
+        assertEquals(maxGeoRef, baseGraph.getMaxGeoRef());
+        assertEquals(shorter, edge.fetchWayGeometry(FetchMode.PILLAR_ONLY));
+
+        graph.flush();
+        graph.close();
+        graph = newGHStorage(new RAMDirectory(defaultGraphLoc, true), true);
+        // the encoding is read from the stored graph
+        graph.setCompressedGeometry(false);
+        assertTrue(graph.loadExisting());
+        assertTrue(graph.isCompressedGeometry());
+        assertEquals(shorter, graph.getEdgeIteratorState(edge.getEdge(), 1).fetchWayGeometry(FetchMode.PILLAR_ONLY));
+    }
+}
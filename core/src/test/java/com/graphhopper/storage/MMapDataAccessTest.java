@@ -59,4 +59,30 @@ public class MMapDataAccessTest extends DataAccessTest {
         assertEquals(123, da.getInt(7 * 4));
         da.close();
     }
+
+    @Test
+    public void testReadOnly() {
+        DataAccess da = createDataAccess(name);
+        da.create(300);
+        da.setInt(7 * 4, 123);
+        // short and bytes spanning two segments
+        da.setShort(127, (short) 1234);
+        da.setBytes(125, new byte[]{1, 2, 3, 4, 5, 6}, 6);
+        da.setShort(200, (short) -5);
+        da.flush();
+        da.close();
+
+        da = new MMapDataAccess(name, directory, defaultOrder, false).setSegmentSize(128);
+        assertTrue(da.loadExisting());
+        assertEquals(DAType.MMAP_RO.isAllowWrites(), da.getType().isAllowWrites());
+        assertEquals(123, da.getInt(7 * 4));
+        assertEquals(-5, da.getShort(200));
+        assertEquals(4, da.getByte(128));
+        byte[] bytes = new byte[6];
+        da.getBytes(125, bytes, 6);
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6}, bytes);
+        assertEquals((short) (6 << 8 | 5), da.getShort(129));
+        assertEquals((short) (4 << 8 | 3), da.getShort(127));
+        da.close();
+    }
 }
@@ -0,0 +1,63 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OffHeapDataAccessTest extends DataAccessTest {
+    @Override
+    public DataAccess createDataAccess(String name) {
+        return new OffHeapDataAccess(name, directory, true, defaultOrder).setSegmentSize(128);
+    }
+
+    @Test
+    public void testMixOffHeap2RAM() {
+        DataAccess da = createDataAccess(name);
+        da.create(300);
+        da.setInt(7 * 4, 123);
+        da.setShort(127, (short) -300);
+        da.flush();
+        da.close();
+
+        da = new RAMDataAccess(name, directory, true, defaultOrder);
+        assertTrue(da.loadExisting());
+        assertEquals(123, da.getInt(7 * 4));
+        assertEquals(-300, da.getShort(127));
+        da.close();
+    }
+
+    @Test
+    public void testPerNameType() {
+        GHDirectory dir = new GHDirectory(directory, DAType.RAM_STORE);
+        LinkedHashMap<String, String> types = new LinkedHashMap<>();
+        types.put("edges", "OFF_HEAP_STORE");
+        types.put("shortcuts_.*", "OFF_HEAP");
+        dir.configure(types);
+        assertEquals(DAType.OFF_HEAP_STORE, dir.getDefaultType("edges", true));
+        assertEquals(DAType.OFF_HEAP, dir.getDefaultType("shortcuts_car", false));
+        assertEquals(DAType.RAM_INT_STORE, dir.getDefaultType("nodes", true));
+        assertEquals(DAType.RAM_STORE, dir.getDefaultType("geometry", false));
+        assertTrue(dir.find("edges") instanceof OffHeapDataAccess);
+        dir.close();
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage.index;
+
+import com.graphhopper.coll.GHIntHashSet;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.PointList;
+import com.graphhopper.util.shapes.BBox;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LocationIndexRTreeTest extends AbstractLocationIndexTester {
+
+    @Override
+    public LocationIndexRTree createIndex(Graph g, int resolution) {
+        if (resolution < 0)
+            resolution = 500000;
+        LocationIndexRTree index = new LocationIndexRTree(g, new RAMDirectory(location));
+        index.setResolution(resolution);
+        return (LocationIndexRTree) index.prepareIndex();
+    }
+
+    @Override
+    public boolean hasEdgeSupport() {
+        return true;
+    }
+
+    private GraphHopperStorage createRandomGraph(Random rand, int nodes) {
+        GraphHopperStorage graph = createGHStorage(EncodingManager.create("car"));
+        NodeAccess na = graph.getNodeAccess();
+        for (int node = 0; node < nodes; node++) {
+            na.setNode(node, 50 + rand.nextDouble() * 0.1, 10 + rand.nextDouble() * 0.1);
+        }
+        for (int i = 0; i < nodes * 2; i++) {
+            int from = rand.nextInt(nodes), to = rand.nextInt(nodes);
+            EdgeIteratorState edge = graph.edge(from, to).setDistance(1);
+            if (rand.nextBoolean()) {
+                PointList pillars = new PointList();
+                pillars.add((na.getLat(from) + na.getLat(to)) / 2 + rand.nextDouble() * 0.01,
+                        (na.getLon(from) + na.getLon(to)) / 2 + rand.nextDouble() * 0.01);
+                edge.setWayGeometry(pillars);
+            }
+        }
+        return graph;
+    }
+
+    @Test
+    public void testSameDistanceAsLocationIndexTree() {
+        Random rand = new Random(12);
+        GraphHopperStorage graph = createRandomGraph(rand, 2000);
+        idx = createIndex(graph, 300);
+        LocationIndexTree tree = new LocationIndexTree(graph, new RAMDirectory());
+        tree.setResolution(300);
+        tree.setMaxRegionSearch(100);
+        tree.prepareIndex();
+        for (int i = 0; i < 1000; i++) {
+            double lat = 50 + rand.nextDouble() * 0.1, lon = 10 + rand.nextDouble() * 0.1;
+            Snap expected = tree.findClosest(lat, lon, EdgeFilter.ALL_EDGES);
+            Snap snap = idx.findClosest(lat, lon, EdgeFilter.ALL_EDGES);
+            assertTrue(snap.isValid());
+            assertEquals(expected.getQueryDistance(), snap.getQueryDistance(), 1.e-3);
+            assertEquals(expected.getSnappedPoint().lat, snap.getSnappedPoint().lat, 1.e-6);
+            assertEquals(expected.getSnappedPoint().lon, snap.getSnappedPoint().lon, 1.e-6);
+        }
+        tree.close();
+    }
+
+    @Test
+    public void testFindKClosest() {
+        Random rand = new Random(13);
+        GraphHopperStorage graph = createRandomGraph(rand, 500);
+        LocationIndexRTree index = createIndex(graph, 300);
+        idx = index;
+        for (int i = 0; i < 100; i++) {
+            double lat = 50 + rand.nextDouble() * 0.1, lon = 10 + rand.nextDouble() * 0.1;
+            List<Snap> snaps = index.findKClosest(lat, lon, EdgeFilter.ALL_EDGES, 5);
+            assertEquals(5, snaps.size());
+            assertEquals(index.findClosest(lat, lon, EdgeFilter.ALL_EDGES).getQueryDistance(), snaps.get(0).getQueryDistance(), 1.e-6);
+            GHIntHashSet edges = new GHIntHashSet();
+            for (int s = 0; s < snaps.size(); s++) {
+                assertTrue(edges.add(snaps.get(s).getClosestEdge().getEdge()));
+                if (s > 0)
+                    assertTrue(snaps.get(s - 1).getQueryDistance() <= snaps.get(s).getQueryDistance());
+            }
+            // no other edge is closer than the last of the five
+            double maxDist = snaps.get(4).getQueryDistance();
+            for (int edge = 0; edge < graph.getEdges(); edge++) {
+                if (edges.contains(edge))
+                    continue;
+                final int tmpEdge = edge;
+                Snap snap = index.findClosest(lat, lon, e -> e.getEdge() == tmpEdge);
+                assertTrue(snap.getQueryDistance() >= maxDist - 1.e-6);
+            }
+        }
+    }
+
+    @Test
+    public void testMaxSearchDistance() {
+        GraphHopperStorage graph = createGHStorage(EncodingManager.create("car"));
+        graph.getNodeAccess().setNode(0, 50, 10);
+        graph.getNodeAccess().setNode(1, 50.001, 10);
+        graph.edge(0, 1).setDistance(111);
+        // 100m * 4
+        idx = createIndex(graph, 100);
+        assertTrue(idx.findClosest(50.002, 10, EdgeFilter.ALL_EDGES).isValid());
+        assertFalse(idx.findClosest(50.01, 10, EdgeFilter.ALL_EDGES).isValid());
+    }
+
+    @Test
+    public void testQueryAndLoadExisting() {
+        Random rand = new Random(14);
+        GraphHopperStorage graph = createRandomGraph(rand, 500);
+        Directory dir = new RAMDirectory(location, true).create();
+        LocationIndexRTree index = new LocationIndexRTree(graph, dir);
+        index.prepareIndex();
+        index.flush();
+        index.close();
+
+        index = new LocationIndexRTree(graph, new RAMDirectory(location, true));
+        assertTrue(index.loadExisting());
+        idx = index;
+        BBox bbox = new BBox(10.02, 10.05, 50.02, 50.05);
+        GHIntHashSet nodes = new GHIntHashSet();
+        index.query(bbox, new LocationIndex.Visitor() {
+            @Override
+            public void onNode(int nodeId) {
+                nodes.add(nodeId);
+            }
+        });
+        NodeAccess na = graph.getNodeAccess();
+        for (int node = 0; node < graph.getNodes(); node++) {
+            if (bbox.contains(na.getLat(node), na.getLon(node)) && graph.createEdgeExplorer().setBaseNode(node).next())
+                assertTrue("node " + node + " was not visited", nodes.contains(node));
+        }
+        Snap snap = index.findClosest(50.03, 10.03, EdgeFilter.ALL_EDGES);
+        assertTrue(snap.isValid());
+    }
+}
@@ -34,6 +34,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.Assert.*;
 
@@ -590,4 +591,44 @@ public class LocationIndexTreeTest extends AbstractLocationIndexTester {
                 Arrays.asList(edge4_5.getEdge(), edge4_7.getEdge()), ids);
     }
 
+    @Test
+    public void testFindClosestBatch() {
+        Random rand = new Random(12);
+        Graph graph = createGHStorage(encodingManager);
+        NodeAccess na = graph.getNodeAccess();
+        for (int node = 0; node < 1000; node++) {
+            na.setNode(node, 50 + rand.nextDouble() * 0.1, 10 + rand.nextDouble() * 0.1);
+        }
+        for (int i = 0; i < 2000; i++) {
+            graph.edge(rand.nextInt(1000), rand.nextInt(1000)).setDistance(1);
+        }
+        LocationIndexTree index = createIndexNoPrepare(graph, 300);
+        index.prepareIndex();
+
+        // a track of nearby points and some points outside of the graph
+        int size = 3 * LocationIndexTree.PARALLEL_BATCH_SIZE;
+        double[] lats = new double[size], lons = new double[size];
+        double lat = 50.05, lon = 10.05;
+        for (int i = 0; i < size; i++) {
+            lat += (rand.nextDouble() - 0.5) * 0.002;
+            lon += (rand.nextDouble() - 0.5) * 0.002;
+            lats[i] = i % 100 == 0 ? 40 : lat;
+            lons[i] = lon;
+        }
+        for (boolean parallel : new boolean[]{false, true}) {
+            List<Snap> snaps = index.findClosestBatch(lats, lons, EdgeFilter.ALL_EDGES, parallel);
+            assertEquals(size, snaps.size());
+            for (int i = 0; i < size; i++) {
+                Snap expected = index.findClosest(lats[i], lons[i], EdgeFilter.ALL_EDGES);
+                Snap snap = snaps.get(i);
+                assertEquals(expected.isValid(), snap.isValid());
+                if (expected.isValid()) {
+                    // several edges can be equally close, e.g. if the snap is a tower node
+                    assertEquals(expected.getQueryDistance(), snap.getQueryDistance(), 1.e-6);
+                    assertEquals(expected.getSnappedPoint().getLat(), snap.getSnappedPoint().getLat(), 1.e-6);
+                    assertEquals(expected.getSnappedPoint().getLon(), snap.getSnappedPoint().getLon(), 1.e-6);
+                }
+            }
+        }
+    }
 }
@@ -54,6 +54,20 @@ public class PointListTest {
         assertEquals(clonedList, instance.clone(true));
     }
 
+    @Test
+    public void testReverseRange() {
+        PointList instance = new PointList();
+        for (int i = 0; i < 5; i++) {
+            instance.add(i, i);
+        }
+        instance.reverse(1, 4);
+        assertEquals(0, instance.getLongitude(0), 1e-7);
+        assertEquals(3, instance.getLongitude(1), 1e-7);
+        assertEquals(2, instance.getLongitude(2), 1e-7);
+        assertEquals(1, instance.getLongitude(3), 1e-7);
+        assertEquals(4, instance.getLongitude(4), 1e-7);
+    }
+
     @Test
     public void testAddPL() {
         PointList instance = new PointList();
@@ -34,8 +34,8 @@ public class IsochroneExample {
         AtomicInteger counter = new AtomicInteger(0);
         // you need to specify a callback to define what should be done
         tree.search(snap.getClosestNode(), label -> {
-            // see IsoLabel.java for more properties
-            // System.out.println("node: " + label.node + ", time: " + label.time + ", distance: " + label.distance);
+            // the label is only valid during this callback, see IsoLabel for more properties
+            // System.out.println("node: " + label.getNode() + ", time: " + label.getTime() + ", distance: " + label.getDistance());
             counter.incrementAndGet();
         });
         assert counter.get() > 200;
@@ -51,15 +51,15 @@ public class JTSTriangulator implements Triangulator {
         Collection<Coordinate> sites = new ArrayList<>();
         shortestPathTree.search(snap.getClosestNode(), label -> {
             double exploreValue = fz.applyAsDouble(label);
-            double lat = na.getLatitude(label.node);
-            double lon = na.getLongitude(label.node);
+            double lat = na.getLatitude(label.getNode());
+            double lon = na.getLongitude(label.getNode());
             Coordinate site = new Coordinate(lon, lat);
             site.z = exploreValue;
             sites.add(site);
 
             // add a pillar node to increase precision a bit for longer roads
-            if (label.parent != null) {
-                EdgeIteratorState edge = queryGraph.getEdgeIteratorState(label.edge, label.node);
+            if (label.getParent() != null) {
+                EdgeIteratorState edge = queryGraph.getEdgeIteratorState(label.getEdge(), label.getNode());
                 PointList innerPoints = edge.fetchWayGeometry(FetchMode.PILLAR_ONLY);
                 if (innerPoints.getSize() > 0) {
                     int midIndex = innerPoints.getSize() / 2;
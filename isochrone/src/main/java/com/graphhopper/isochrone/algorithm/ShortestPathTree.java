@@ -17,10 +17,10 @@
  */
 package com.graphhopper.isochrone.algorithm;
 
-import com.carrotsearch.hppc.IntObjectHashMap;
-import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.coll.MinHeapWithUpdate;
 import com.graphhopper.routing.AbstractRoutingAlgorithm;
 import com.graphhopper.routing.Path;
+import com.graphhopper.routing.SPTLabels;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.Weighting;
@@ -28,23 +28,21 @@ import com.graphhopper.storage.Graph;
 import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.GHUtility;
 
-import java.util.PriorityQueue;
+import java.util.Arrays;
 import java.util.function.Consumer;
 
 import static com.graphhopper.isochrone.algorithm.ShortestPathTree.ExploreType.*;
-import static java.util.Comparator.comparingDouble;
 
 /**
  * Computes a shortest path tree by a given weighting. Terminates when all shortest paths up to
  * a given travel time or distance have been explored. The catch is that the function for termination
- * is different from the function for search. This implementation uses a second queue to keep track of
- * the termination criterion.
- *
- * IMPLEMENTATION NOTE:
- * util.PriorityQueue doesn't support efficient removes. We work around this by giving the labels
- * a deleted flag, not remove()ing them, and popping deleted elements off both queues.
- * Note to self/others: If you think this optimization is not needed, please test it with a scenario
- * where updates actually occur a lot, such as using finite, non-zero u-turn costs.
+ * is different from the function for search: a label is only added to the tree if its travel time or distance is
+ * within the limit.
+ * <p>
+ * The labels are stored in {@link SPTLabels} and two parallel arrays for the time and distance, i.e. in primitive
+ * arrays that are reused between the searches of the same thread, and the queue is an indexed heap with an update
+ * operation. The visited labels are passed to the consumer as an {@link IsoLabel} flyweight, so no object is created
+ * per label.
  *
  * @author Peter Karich
  * @author Michael Zilske
@@ -53,39 +51,82 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
 
     enum ExploreType {TIME, DISTANCE, WEIGHT}
 
-    public static class IsoLabel {
+    // marks a label that was dropped from the queue, because a lighter path to it exceeds the limit
+    private static final long EXCLUDED = -1;
+    // do not keep huge arrays of exceptionally large searches around
+    private static final int MAX_POOLED_CAPACITY = 1 << 22;
+    private static final ThreadLocal<ExploreValues> POOL = new ThreadLocal<>();
+
+    /**
+     * A view of a label of the shortest path tree. The consumer of {@link #search} gets the same instance for all
+     * labels, so it must not keep a reference to it or to its parent after returning.
+     */
+    public static final class IsoLabel {
+        private final ShortestPathTree tree;
+        private int label;
+        private IsoLabel parent;
+
+        private IsoLabel(ShortestPathTree tree) {
+            this.tree = tree;
+        }
+
+        public int getNode() {
+            return tree.labels.getAdjNode(label);
+        }
 
-        IsoLabel(int node, int edge, double weight, long time, double distance, IsoLabel parent) {
-            this.node = node;
-            this.edge = edge;
-            this.weight = weight;
-            this.time = time;
-            this.distance = distance;
-            this.parent = parent;
+        /**
+         * @return the edge this label was reached with or -1 for the start
+         */
+        public int getEdge() {
+            return tree.labels.getEdge(label);
         }
 
-        public boolean deleted = false;
-        public int node;
-        public int edge;
-        public double weight;
-        public long time;
-        public double distance;
-        public IsoLabel parent;
+        public double getWeight() {
+            return tree.labels.getWeight(label);
+        }
+
+        /**
+         * @return the time in milliseconds
+         */
+        public long getTime() {
+            return tree.values.times[label];
+        }
+
+        /**
+         * @return the distance in meter
+         */
+        public double getDistance() {
+            return tree.values.distances[label];
+        }
+
+        /**
+         * @return the previous label on the shortest path to this label or null for the start. The returned instance
+         * is reused as well.
+         */
+        public IsoLabel getParent() {
+            int parentLabel = tree.labels.getParent(label);
+            if (parentLabel == SPTLabels.NO_LABEL)
+                return null;
+            if (parent == null)
+                parent = new IsoLabel(tree);
+            parent.label = parentLabel;
+            return parent;
+        }
 
         @Override
         public String toString() {
             return "IsoLabel{" +
-                    "node=" + node +
-                    ", edge=" + edge +
-                    ", weight=" + weight +
-                    ", time=" + time +
-                    ", distance=" + distance +
+                    "node=" + getNode() +
+                    ", edge=" + getEdge() +
+                    ", weight=" + getWeight() +
+                    ", time=" + getTime() +
+                    ", distance=" + getDistance() +
                     '}';
         }
     }
 
-    private IntObjectHashMap<IsoLabel> fromMap;
-    private PriorityQueue<IsoLabel> queueByWeighting;
+    private SPTLabels labels;
+    private ExploreValues values;
     private int visitedNodes;
     private double limit = -1;
     private ExploreType exploreType = TIME;
@@ -93,8 +134,6 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
 
     public ShortestPathTree(Graph g, Weighting weighting, boolean reverseFlow, TraversalMode traversalMode) {
         super(g, weighting, traversalMode);
-        queueByWeighting = new PriorityQueue<>(1000, comparingDouble(l -> l.weight));
-        fromMap = new GHIntObjectHashMap<>(1000);
         this.reverseFlow = reverseFlow;
     }
 
@@ -124,68 +163,116 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
         this.limit = limit;
     }
 
+    /**
+     * Visits the labels of the shortest path tree in the order of their weight.
+     */
     public void search(int from, final Consumer<IsoLabel> consumer) {
         checkAlreadyRun();
-        IsoLabel currentLabel = new IsoLabel(from, -1, 0, 0, 0, null);
-        queueByWeighting.add(currentLabel);
+        labels = SPTLabels.acquire();
+        values = acquireValues();
+        try {
+            runSearch(from, consumer);
+        } finally {
+            SPTLabels.release(labels);
+            if (values.times.length <= MAX_POOLED_CAPACITY)
+                POOL.set(values);
+            labels = null;
+            values = null;
+        }
+    }
+
+    private void runSearch(int from, Consumer<IsoLabel> consumer) {
+        IsoLabel cursor = new IsoLabel(this);
+        MinHeapWithUpdate heap = labels.getHeap();
+        int currentLabel = addLabel(EdgeIterator.NO_EDGE, from, 0, 0, 0, SPTLabels.NO_LABEL);
         if (traversalMode == TraversalMode.NODE_BASED) {
-            fromMap.put(from, currentLabel);
+            labels.put(from, currentLabel);
         }
+        heap.push(currentLabel, 0);
         EdgeFilter filter = reverseFlow ? inEdgeFilter : outEdgeFilter;
         while (!finished()) {
-            currentLabel = queueByWeighting.poll();
-            if (currentLabel.deleted)
+            currentLabel = heap.poll();
+            if (values.times[currentLabel] == EXCLUDED)
                 continue;
-            consumer.accept(currentLabel);
-            currentLabel.deleted = true;
+            cursor.label = currentLabel;
+            consumer.accept(cursor);
             visitedNodes++;
 
-            EdgeIterator iter = edgeExplorer.setBaseNode(currentLabel.node);
+            int currentEdge = labels.getEdge(currentLabel);
+            double currentWeight = labels.getWeight(currentLabel);
+            long currentTime = values.times[currentLabel];
+            double currentDistance = values.distances[currentLabel];
+            EdgeIterator iter = edgeExplorer.setBaseNode(labels.getAdjNode(currentLabel));
             while (iter.next()) {
-                if (!accept(iter, currentLabel.edge)) {
+                if (!accept(iter, currentEdge)) {
                     continue;
                 }
 
                 // todo: for #1835 move the access check into weighting
                 double nextWeight = !filter.accept(iter)
                         ? Double.POSITIVE_INFINITY
-                        : (GHUtility.calcWeightWithTurnWeight(weighting, iter, reverseFlow, currentLabel.edge) + currentLabel.weight);
+                        : (GHUtility.calcWeightWithTurnWeight(weighting, iter, reverseFlow, currentEdge) + currentWeight);
                 if (Double.isInfinite(nextWeight))
                     continue;
 
-                double nextDistance = iter.getDistance() + currentLabel.distance;
-                long nextTime = GHUtility.calcMillisWithTurnMillis(weighting, iter, reverseFlow, currentLabel.edge) + currentLabel.time;
+                double nextDistance = iter.getDistance() + currentDistance;
+                long nextTime = GHUtility.calcMillisWithTurnMillis(weighting, iter, reverseFlow, currentEdge) + currentTime;
+                boolean withinLimit = getExploreValue(nextWeight, nextTime, nextDistance) <= limit;
                 int nextTraversalId = traversalMode.createTraversalId(iter, reverseFlow);
-                IsoLabel label = fromMap.get(nextTraversalId);
-                if (label == null) {
-                    label = new IsoLabel(iter.getAdjNode(), iter.getEdge(), nextWeight, nextTime, nextDistance, currentLabel);
-                    if (getExploreValue(label) <= limit) {
-                        fromMap.put(nextTraversalId, label);
-                        queueByWeighting.add(label);
+                int label = labels.find(nextTraversalId);
+                if (label == SPTLabels.NO_LABEL) {
+                    if (withinLimit) {
+                        label = addLabel(iter.getEdge(), iter.getAdjNode(), nextWeight, nextTime, nextDistance, currentLabel);
+                        labels.put(nextTraversalId, label);
+                        heap.push(label, (float) nextWeight);
                     }
-                } else if (label.weight > nextWeight) {
-                    label.deleted = true;
-                    label = new IsoLabel(iter.getAdjNode(), iter.getEdge(), nextWeight, nextTime, nextDistance, currentLabel);
-                    if (getExploreValue(label) <= limit) {
-                        fromMap.put(nextTraversalId, label);
-                        queueByWeighting.add(label);
+                } else if (labels.getWeight(label) > nextWeight) {
+                    if (withinLimit) {
+                        labels.set(label, iter.getEdge(), nextWeight, currentLabel);
+                        values.times[label] = nextTime;
+                        values.distances[label] = nextDistance;
+                        if (heap.contains(label))
+                            heap.update(label, (float) nextWeight);
+                        else
+                            heap.push(label, (float) nextWeight);
+                    } else {
+                        // the label is dropped, but we keep its weight, so that a later path that is lighter and
+                        // within the limit is still added
+                        values.times[label] = EXCLUDED;
                     }
                 }
             }
         }
     }
 
-    private double getExploreValue(IsoLabel label) {
+    private int addLabel(int edge, int node, double weight, long time, double distance, int parent) {
+        int label = labels.add(edge, node, weight, parent);
+        values.ensureCapacity(label + 1);
+        values.times[label] = time;
+        values.distances[label] = distance;
+        return label;
+    }
+
+    private double getExploreValue(double weight, long time, double distance) {
         if (exploreType == TIME)
-            return label.time;
+            return time;
         if (exploreType == WEIGHT)
-            return label.weight;
-        return label.distance;
+            return weight;
+        return distance;
+    }
+
+    private static ExploreValues acquireValues() {
+        ExploreValues values = POOL.get();
+        if (values == null)
+            return new ExploreValues();
+        // as long as the instance is in use another search on the same thread needs to create its own instance
+        POOL.set(null);
+        return values;
     }
 
     @Override
     protected boolean finished() {
-        return queueByWeighting.isEmpty();
+        return labels.getHeap().isEmpty();
     }
 
     @Override
@@ -202,4 +289,20 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
     public int getVisitedNodes() {
         return visitedNodes;
     }
+
+    /**
+     * The time and distance of the labels, parallel to the arrays of {@link SPTLabels}.
+     */
+    private static class ExploreValues {
+        long[] times = new long[1 << 10];
+        double[] distances = new double[1 << 10];
+
+        void ensureCapacity(int capacity) {
+            if (capacity <= times.length)
+                return;
+            int newCapacity = Math.max(capacity, times.length * 2);
+            times = Arrays.copyOf(times, newCapacity);
+            distances = Arrays.copyOf(distances, newCapacity);
+        }
+    }
 }
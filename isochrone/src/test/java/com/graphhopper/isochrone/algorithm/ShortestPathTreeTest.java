@@ -1,5 +1,6 @@
 package com.graphhopper.isochrone.algorithm;
 
+import com.carrotsearch.hppc.IntHashSet;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.EncodingManager;
@@ -21,6 +22,7 @@ import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * @author Peter Karich
@@ -113,6 +115,21 @@ public class ShortestPathTreeTest {
         return result;
     }
 
+    // the labels are reused during the search, so we copy what we need
+    private static class Visit {
+        final int node;
+        final int parentNode;
+        final long time;
+        final double distance;
+
+        Visit(ShortestPathTree.IsoLabel label) {
+            node = label.getNode();
+            parentNode = label.getParent() == null ? -1 : label.getParent().getNode();
+            time = label.getTime();
+            distance = label.getDistance();
+        }
+    }
+
     @AfterEach
     public void tearDown() {
         graph.close();
@@ -120,10 +137,10 @@ public class ShortestPathTreeTest {
 
     @Test
     public void testSearch25Seconds() {
-        List<ShortestPathTree.IsoLabel> result = new ArrayList<>();
+        List<Visit> result = new ArrayList<>();
         ShortestPathTree instance = new ShortestPathTree(graph, new FastestWeighting(carEncoder, new PMap()), false, TraversalMode.NODE_BASED);
         instance.setTimeLimit(26_000);
-        instance.search(0, result::add);
+        instance.search(0, l -> result.add(new Visit(l)));
         assertEquals(4, result.size());
         assertAll(
                 () -> assertEquals(0, result.get(0).time),
@@ -135,10 +152,10 @@ public class ShortestPathTreeTest {
 
     @Test
     public void testNoTimeLimit() {
-        List<ShortestPathTree.IsoLabel> result = new ArrayList<>();
+        List<Visit> result = new ArrayList<>();
         ShortestPathTree instance = new ShortestPathTree(graph, new FastestWeighting(carEncoder, new PMap()), false, TraversalMode.NODE_BASED);
         instance.setTimeLimit(Double.MAX_VALUE);
-        instance.search(0, result::add);
+        instance.search(0, l -> result.add(new Visit(l)));
         assertEquals(9, result.size());
         assertAll(
                 () -> assertEquals(0, result.get(0).time),
@@ -152,12 +169,37 @@ public class ShortestPathTreeTest {
         );
     }
 
+    @Test
+    public void testParentsAndRepeatedSearch() {
+        List<Visit> result = new ArrayList<>();
+        ShortestPathTree instance = new ShortestPathTree(graph, new FastestWeighting(carEncoder, new PMap()), false, TraversalMode.NODE_BASED);
+        instance.setTimeLimit(Double.MAX_VALUE);
+        instance.search(0, l -> result.add(new Visit(l)));
+        assertEquals(-1, result.get(0).parentNode);
+        IntHashSet visitedNodes = new IntHashSet();
+        for (Visit visit : result) {
+            assertTrue(visit.parentNode < 0 || visitedNodes.contains(visit.parentNode), "parent must be visited before");
+            visitedNodes.add(visit.node);
+        }
+
+        // the second search on the same thread reuses the arrays of the first one
+        List<Visit> result2 = new ArrayList<>();
+        ShortestPathTree instance2 = new ShortestPathTree(graph, new FastestWeighting(carEncoder, new PMap()), false, TraversalMode.NODE_BASED);
+        instance2.setTimeLimit(Double.MAX_VALUE);
+        instance2.search(0, l -> result2.add(new Visit(l)));
+        assertEquals(result.size(), result2.size());
+        for (int i = 0; i < result.size(); i++) {
+            assertEquals(result.get(i).node, result2.get(i).node);
+            assertEquals(result.get(i).time, result2.get(i).time);
+        }
+    }
+
     @Test
     public void testEdgeBasedWithFreeUTurns() {
-        List<ShortestPathTree.IsoLabel> result = new ArrayList<>();
+        List<Visit> result = new ArrayList<>();
         ShortestPathTree instance = new ShortestPathTree(graph, new FastestWeighting(carEncoder, new PMap()), false, TraversalMode.EDGE_BASED);
         instance.setTimeLimit(Double.MAX_VALUE);
-        instance.search(0, result::add);
+        instance.search(0, l -> result.add(new Visit(l)));
         // The origin, and every end of every directed edge, are traversed.
         assertEquals(countDirectedEdges(graph) + 1, result.size());
         assertAll(
@@ -188,10 +230,10 @@ public class ShortestPathTreeTest {
     @Test
     public void testEdgeBasedWithForbiddenUTurns() {
         FastestWeighting fastestWeighting = new FastestWeighting(carEncoder, new PMap(), FORBIDDEN_UTURNS);
-        List<ShortestPathTree.IsoLabel> result = new ArrayList<>();
+        List<Visit> result = new ArrayList<>();
         ShortestPathTree instance = new ShortestPathTree(graph, fastestWeighting, false, TraversalMode.EDGE_BASED);
         instance.setTimeLimit(Double.MAX_VALUE);
-        instance.search(0, result::add);
+        instance.search(0, l -> result.add(new Visit(l)));
         // Every directed edge of the graph, plus the origin, minus one edge for the dead end, are traversed.
         assertEquals(countDirectedEdges(graph) + 1 - 1, result.size());
         assertAll(
@@ -222,10 +264,10 @@ public class ShortestPathTreeTest {
     public void testEdgeBasedWithFinitePositiveUTurnCost() {
         TimeBasedUTurnCost turnCost = new TimeBasedUTurnCost(80000);
         FastestWeighting fastestWeighting = new FastestWeighting(carEncoder, new PMap(), turnCost);
-        List<ShortestPathTree.IsoLabel> result = new ArrayList<>();
+        List<Visit> result = new ArrayList<>();
         ShortestPathTree instance = new ShortestPathTree(graph, fastestWeighting, false, TraversalMode.EDGE_BASED);
         instance.setTimeLimit(Double.MAX_VALUE);
-        instance.search(0, result::add);
+        instance.search(0, l -> result.add(new Visit(l)));
         // Just like with forbidden U-turns, but last thing is I can get out of the dead-end
         assertEquals(countDirectedEdges(graph) + 1, result.size());
         assertAll(
@@ -257,10 +299,10 @@ public class ShortestPathTreeTest {
     public void testEdgeBasedWithSmallerUTurnCost() {
         TimeBasedUTurnCost turnCost = new TimeBasedUTurnCost(20000);
         FastestWeighting fastestWeighting = new FastestWeighting(carEncoder, new PMap(), turnCost);
-        List<ShortestPathTree.IsoLabel> result = new ArrayList<>();
+        List<Visit> result = new ArrayList<>();
         ShortestPathTree instance = new ShortestPathTree(graph, fastestWeighting, false, TraversalMode.EDGE_BASED);
         instance.setTimeLimit(Double.MAX_VALUE);
-        instance.search(0, result::add);
+        instance.search(0, l -> result.add(new Visit(l)));
         // Something in between
         assertEquals(countDirectedEdges(graph) + 1, result.size());
         assertAll(
@@ -290,10 +332,10 @@ public class ShortestPathTreeTest {
 
     @Test
     public void testSearchByDistance() {
-        List<ShortestPathTree.IsoLabel> result = new ArrayList<>();
+        List<Visit> result = new ArrayList<>();
         ShortestPathTree instance = new ShortestPathTree(graph, new FastestWeighting(carEncoder, new PMap()), false, TraversalMode.NODE_BASED);
         instance.setDistanceLimit(110.0);
-        instance.search(5, result::add);
+        instance.search(5, l -> result.add(new Visit(l)));
         assertEquals(6, result.size());
         // We are searching by time, but terminating by distance.
         // Expected distance values are out of search order,
@@ -309,4 +351,28 @@ public class ShortestPathTreeTest {
         );
     }
 
+
+    @Test
+    public void testLighterPathOverLimit() {
+        GraphHopperStorage g = new GraphHopperStorage(new RAMDirectory(), encodingManager, false);
+        g.create(1000);
+        // 3 is reached via 0-3 first, then via the lighter path 0-1-3, which is too long, and finally via 0-2-3,
+        // which is lighter than 0-3 and within the limit
+        GHUtility.setProperties(((Graph) g).edge(0, 3).setDistance(100), carEncoder, 10, true, true);
+        GHUtility.setProperties(((Graph) g).edge(0, 1).setDistance(10), carEncoder, 100, true, true);
+        GHUtility.setProperties(((Graph) g).edge(1, 3).setDistance(500), carEncoder, 100, true, true);
+        GHUtility.setProperties(((Graph) g).edge(0, 2).setDistance(100), carEncoder, 20, true, true);
+        GHUtility.setProperties(((Graph) g).edge(2, 3).setDistance(50), carEncoder, 20, true, true);
+        List<Visit> result = new ArrayList<>();
+        ShortestPathTree instance = new ShortestPathTree(g, new FastestWeighting(carEncoder, new PMap()), false, TraversalMode.NODE_BASED);
+        instance.setDistanceLimit(300);
+        instance.search(0, l -> result.add(new Visit(l)));
+        g.close();
+        assertEquals(4, result.size());
+        assertAll(
+                () -> assertEquals(3, result.get(3).node),
+                () -> assertEquals(2, result.get(3).parentNode),
+                () -> assertEquals(150.0, result.get(3).distance)
+        );
+    }
 }
@@ -185,6 +185,7 @@ public class GraphHopperGtfs extends GraphHopperOSM {
                     readers.put(id, gtfsReader);
                 });
                 insertTransfersBetweenFeeds(readers);
+                getGtfsStorage().flush();
             } catch (Exception e) {
                 throw new RuntimeException("Error while constructing transit network. Is your GTFS file valid? Please check log for possible causes.", e);
             }
@@ -193,6 +194,10 @@ public class GraphHopperGtfs extends GraphHopperOSM {
             locationIndex.prepareIndex();
             setLocationIndex(locationIndex);
         }
+        if (ghConfig.getBool("gtfs.raptor", false)) {
+            // built from the feeds on every start, which is much faster than the import of the graph
+            getGtfsStorage().setRaptorTimetable(new RaptorTimetable(getGtfsStorage()));
+        }
     }
 
     private void insertTransfersBetweenFeeds(HashMap<String, GtfsReader> readers) {
@@ -211,13 +216,13 @@ public class GraphHopperGtfs extends GraphHopperOSM {
                 if (label.parent != null) {
                     EdgeIteratorState edgeIteratorState = graphHopperStorage.getEdgeIteratorState(label.edge, label.adjNode);
                     if (edgeIteratorState.get(ptEncodedValues.getTypeEnc()) == GtfsStorage.EdgeType.EXIT_PT) {
-                        GtfsStorageI.PlatformDescriptor fromPlatformDescriptor = getGtfsStorage().getPlatformDescriptorByEdge().get(label.edge);
+                        GtfsStorageI.PlatformDescriptor fromPlatformDescriptor = getGtfsStorage().getPlatformDescriptor(label.edge);
                         DefaultEdgeFilter filter = DefaultEdgeFilter.outEdges(ptEncodedValues.getAccessEnc());
                         EdgeExplorer edgeExplorer = graphHopperStorage.createEdgeExplorer(filter);
                         EdgeIterator edgeIterator = edgeExplorer.setBaseNode(stationNode);
                         while (edgeIterator.next()) {
                             if (edgeIterator.get(ptEncodedValues.getTypeEnc()) == GtfsStorage.EdgeType.ENTER_PT) {
-                                GtfsStorageI.PlatformDescriptor toPlatformDescriptor = getGtfsStorage().getPlatformDescriptorByEdge().get(edgeIterator.getEdge());
+                                GtfsStorageI.PlatformDescriptor toPlatformDescriptor = getGtfsStorage().getPlatformDescriptor(edgeIterator.getEdge());
                                 if (!toPlatformDescriptor.feed_id.equals(fromPlatformDescriptor.feed_id)) {
                                     GtfsReader toFeedReader = readers.get(toPlatformDescriptor.feed_id);
                                     toFeedReader.insertTransferEdges(label.adjNode, (int) Duration.ofMinutes(2).getSeconds(), toPlatformDescriptor);
@@ -0,0 +1,327 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.transit.realtime.GtfsRealtime;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+
+import java.io.*;
+import java.util.*;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Stores the stop sequence, the trip descriptor and the platform descriptor of the transit edges in edge-indexed
+ * {@link DataAccess} files instead of maps with boxed keys. Trip and platform descriptors are deduplicated: the edges
+ * only reference them by an index and they are decoded once when the storage is loaded, so a lookup during the search
+ * or the leg extraction is an array access.
+ */
+class GtfsEdgeStorage {
+    // we store the stop sequence, trip descriptor and platform descriptor of each edge, each plus one so that a
+    // zero-initialized entry means 'none'
+    private static final int E_STOP_SEQUENCE = 0;
+    private static final int E_TRIP_DESCRIPTOR = 4;
+    private static final int E_PLATFORM_DESCRIPTOR = 8;
+    private static final int BYTES_PER_EDGE = 12;
+
+    private final DataAccess edges;
+    private final DataAccess tripDescriptorData;
+    private final DataAccess platformDescriptorData;
+    private int edgeCount;
+    private final List<GtfsRealtime.TripDescriptor> tripDescriptors = new ArrayList<>();
+    private final List<GtfsStorageI.PlatformDescriptor> platformDescriptors = new ArrayList<>();
+    // only needed for the deduplication while writing
+    private final Map<GtfsRealtime.TripDescriptor, Integer> tripDescriptorIds = new HashMap<>();
+    private final Map<GtfsStorageI.PlatformDescriptor, Integer> platformDescriptorIds = new HashMap<>();
+    private final DescriptorWriter tripDescriptorWriter;
+    private final DescriptorWriter platformDescriptorWriter;
+
+    GtfsEdgeStorage(Directory dir) {
+        edges = dir.find("pt_edges");
+        tripDescriptorData = dir.find("pt_trip_descriptors");
+        platformDescriptorData = dir.find("pt_platform_descriptors");
+        tripDescriptorWriter = new DescriptorWriter(tripDescriptorData);
+        platformDescriptorWriter = new DescriptorWriter(platformDescriptorData);
+    }
+
+    void create() {
+        edges.create(1000 * BYTES_PER_EDGE);
+        tripDescriptorData.create(1000);
+        platformDescriptorData.create(1000);
+    }
+
+    boolean loadExisting() {
+        if (!edges.loadExisting() || !tripDescriptorData.loadExisting() || !platformDescriptorData.loadExisting())
+            return false;
+        if (edges.getHeader(0) != BYTES_PER_EDGE)
+            throw new IllegalStateException("Number of bytes per transit edge does not match the current configuration: " + edges.getHeader(0) + " vs. " + BYTES_PER_EDGE);
+        edgeCount = edges.getHeader(4);
+        for (byte[] bytes : DescriptorWriter.read(tripDescriptorData)) {
+            try {
+                tripDescriptors.add(GtfsRealtime.TripDescriptor.parseFrom(bytes));
+            } catch (InvalidProtocolBufferException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        for (byte[] bytes : DescriptorWriter.read(platformDescriptorData)) {
+            platformDescriptors.add(decodePlatformDescriptor(bytes));
+        }
+        return true;
+    }
+
+    void flush() {
+        edges.setHeader(0, BYTES_PER_EDGE);
+        edges.setHeader(4, edgeCount);
+        edges.flush();
+        tripDescriptorWriter.flush();
+        platformDescriptorWriter.flush();
+    }
+
+    void close() {
+        edges.close();
+        tripDescriptorData.close();
+        platformDescriptorData.close();
+    }
+
+    /**
+     * @return the stop sequence of the specified edge or -1 if it has none
+     */
+    int getStopSequence(int edge) {
+        return getInt(edge, E_STOP_SEQUENCE) - 1;
+    }
+
+    void setStopSequence(int edge, int stopSequence) {
+        if (stopSequence < 0)
+            throw new IllegalArgumentException("stop sequence must not be negative: " + stopSequence);
+        setInt(edge, E_STOP_SEQUENCE, stopSequence + 1);
+    }
+
+    /**
+     * @return the trip descriptor of the specified edge or null if it has none
+     */
+    GtfsRealtime.TripDescriptor getTripDescriptor(int edge) {
+        int id = getInt(edge, E_TRIP_DESCRIPTOR) - 1;
+        return id < 0 ? null : tripDescriptors.get(id);
+    }
+
+    void setTripDescriptor(int edge, GtfsRealtime.TripDescriptor tripDescriptor) {
+        int id = tripDescriptorIds.computeIfAbsent(tripDescriptor, t -> {
+            tripDescriptorWriter.add(t.toByteArray());
+            tripDescriptors.add(t);
+            return tripDescriptors.size() - 1;
+        });
+        setInt(edge, E_TRIP_DESCRIPTOR, id + 1);
+    }
+
+    /**
+     * @return the platform descriptor of the specified edge or null if it has none
+     */
+    GtfsStorageI.PlatformDescriptor getPlatformDescriptor(int edge) {
+        int id = getInt(edge, E_PLATFORM_DESCRIPTOR) - 1;
+        return id < 0 ? null : platformDescriptors.get(id);
+    }
+
+    void setPlatformDescriptor(int edge, GtfsStorageI.PlatformDescriptor platformDescriptor) {
+        int id = platformDescriptorIds.computeIfAbsent(platformDescriptor, p -> {
+            platformDescriptorWriter.add(encodePlatformDescriptor(p));
+            platformDescriptors.add(p);
+            return platformDescriptors.size() - 1;
+        });
+        setInt(edge, E_PLATFORM_DESCRIPTOR, id + 1);
+    }
+
+    int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * @return a view of the stop sequences as a map, which is what {@link GtfsReader} writes to
+     */
+    Map<Integer, Integer> getStopSequences() {
+        return new EdgeMap<>(edge -> {
+            int stopSequence = getStopSequence(edge);
+            return stopSequence < 0 ? null : stopSequence;
+        }, (stopSequence, edge) -> setStopSequence(edge, stopSequence));
+    }
+
+    Map<Integer, GtfsRealtime.TripDescriptor> getTripDescriptors() {
+        return new EdgeMap<>(this::getTripDescriptor, (tripDescriptor, edge) -> setTripDescriptor(edge, tripDescriptor));
+    }
+
+    Map<Integer, GtfsStorageI.PlatformDescriptor> getPlatformDescriptors() {
+        return new EdgeMap<>(this::getPlatformDescriptor, (platformDescriptor, edge) -> setPlatformDescriptor(edge, platformDescriptor));
+    }
+
+    private int getInt(int edge, int offset) {
+        if (edge < 0 || edge >= edgeCount)
+            return 0;
+        return edges.getInt((long) edge * BYTES_PER_EDGE + offset);
+    }
+
+    private void setInt(int edge, int offset, int value) {
+        if (edge >= edgeCount) {
+            edges.ensureCapacity((long) (edge + 1) * BYTES_PER_EDGE);
+            edgeCount = edge + 1;
+        }
+        edges.setInt((long) edge * BYTES_PER_EDGE + offset, value);
+    }
+
+    private static byte[] encodePlatformDescriptor(GtfsStorageI.PlatformDescriptor platformDescriptor) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(platformDescriptor.feed_id);
+            out.writeUTF(platformDescriptor.stop_id);
+            if (platformDescriptor instanceof GtfsStorageI.RoutePlatform) {
+                out.writeBoolean(true);
+                out.writeUTF(((GtfsStorageI.RoutePlatform) platformDescriptor).route_id);
+            } else {
+                out.writeBoolean(false);
+                out.writeInt(((GtfsStorageI.RouteTypePlatform) platformDescriptor).route_type);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static GtfsStorageI.PlatformDescriptor decodePlatformDescriptor(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            String feedId = in.readUTF();
+            String stopId = in.readUTF();
+            if (in.readBoolean())
+                return GtfsStorageI.PlatformDescriptor.route(feedId, stopId, in.readUTF());
+            else
+                return GtfsStorageI.PlatformDescriptor.routeType(feedId, stopId, in.readInt());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private class EdgeMap<V> extends AbstractMap<Integer, V> {
+        private final IntFunction<V> getter;
+        private final ObjIntConsumer<V> setter;
+
+        EdgeMap(IntFunction<V> getter, ObjIntConsumer<V> setter) {
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        @Override
+        public V get(Object key) {
+            return key instanceof Integer ? getter.apply((Integer) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public V put(Integer key, V value) {
+            V old = getter.apply(key);
+            setter.accept(value, key);
+            return old;
+        }
+
+        @Override
+        public Set<Entry<Integer, V>> entrySet() {
+            return new AbstractSet<Entry<Integer, V>>() {
+                @Override
+                public Iterator<Entry<Integer, V>> iterator() {
+                    return new Iterator<Entry<Integer, V>>() {
+                        int edge = advance(0);
+
+                        private int advance(int edge) {
+                            while (edge < edgeCount && getter.apply(edge) == null)
+                                edge++;
+                            return edge;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return edge < edgeCount;
+                        }
+
+                        @Override
+                        public Entry<Integer, V> next() {
+                            if (!hasNext())
+                                throw new NoSuchElementException();
+                            Entry<Integer, V> entry = new SimpleImmutableEntry<>(edge, getter.apply(edge));
+                            edge = advance(edge + 1);
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    int size = 0;
+                    for (int edge = 0; edge < edgeCount; edge++) {
+                        if (getter.apply(edge) != null)
+                            size++;
+                    }
+                    return size;
+                }
+            };
+        }
+    }
+
+    /**
+     * Appends variable-length records as |length|bytes| to a DataAccess. Every record starts at a multiple of four
+     * bytes, as an int cannot be split over two segments.
+     */
+    private static class DescriptorWriter {
+        private final DataAccess da;
+        private long pointer;
+        private int count;
+
+        DescriptorWriter(DataAccess da) {
+            this.da = da;
+        }
+
+        void add(byte[] bytes) {
+            long end = pointer + 4 + bytes.length;
+            da.ensureCapacity(end);
+            da.setInt(pointer, bytes.length);
+            da.setBytes(pointer + 4, bytes, bytes.length);
+            pointer = (end + 3) & ~3L;
+            count++;
+        }
+
+        void flush() {
+            da.setHeader(0, count);
+            da.flush();
+        }
+
+        static List<byte[]> read(DataAccess da) {
+            int count = da.getHeader(0);
+            List<byte[]> result = new ArrayList<>(count);
+            long pointer = 0;
+            for (int i = 0; i < count; i++) {
+                byte[] bytes = new byte[da.getInt(pointer)];
+                da.getBytes(pointer + 4, bytes, bytes.length);
+                result.add(bytes);
+                pointer = (pointer + 4 + bytes.length + 3) & ~3L;
+            }
+            return result;
+        }
+    }
+}
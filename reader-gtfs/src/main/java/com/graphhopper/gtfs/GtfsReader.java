@@ -349,7 +349,7 @@ class GtfsReader {
             }
             boardEdges.add(boardEdge.getEdge());
             gtfsStorage.getStopSequences().put(boardEdge.getEdge(), stopTime.stop_sequence);
-            gtfsStorage.getTripDescriptors().put(boardEdge.getEdge(), tripDescriptor.toByteArray());
+            gtfsStorage.getTripDescriptors().put(boardEdge.getEdge(), tripDescriptor);
             boardEdge.set(validityIdEnc, validityId);
             boardEdge.set(ptEncodedValues.getTransfersEnc(), 1);
 
@@ -362,7 +362,7 @@ class GtfsReader {
             }
             alightEdges.add(alightEdge.getEdge());
             gtfsStorage.getStopSequences().put(alightEdge.getEdge(), stopTime.stop_sequence);
-            gtfsStorage.getTripDescriptors().put(alightEdge.getEdge(), tripDescriptor.toByteArray());
+            gtfsStorage.getTripDescriptors().put(alightEdge.getEdge(), tripDescriptor);
             alightEdge.set(validityIdEnc, validityId);
 
             EdgeIteratorState dwellEdge = graph.edge(arrivalNode, departureNode);
@@ -534,7 +534,7 @@ class GtfsReader {
         boardEdge.setName(getRouteName(feed, trip));
         setEdgeTypeAndClearDistance(boardEdge, GtfsStorage.EdgeType.BOARD);
         gtfsStorage.getStopSequences().put(boardEdge.getEdge(), stopSequence);
-        gtfsStorage.getTripDescriptors().put(boardEdge.getEdge(), tripDescriptor.toByteArray());
+        gtfsStorage.getTripDescriptors().put(boardEdge.getEdge(), tripDescriptor);
         boardEdge.set(validityIdEnc, validityId);
         boardEdge.set(ptEncodedValues.getTransfersEnc(), 1);
         return boardEdge.getEdge();
@@ -619,7 +619,7 @@ class GtfsReader {
                 setEdgeTypeAndClearDistance(boardEdge, GtfsStorage.EdgeType.BOARD);
                 boardEdge.set(validityIdEnc, blockTransferValidityId);
                 gtfsStorage.getStopSequences().put(boardEdge.getEdge(), stopTime.stop_sequence);
-                gtfsStorage.getTripDescriptors().put(boardEdge.getEdge(), tripDescriptor.toByteArray());
+                gtfsStorage.getTripDescriptors().put(boardEdge.getEdge(), tripDescriptor);
                 accumulatorValidity.andNot(lastTrip.tripWithStopTimes.validOnDay);
             }
         }
@@ -120,10 +120,7 @@ public class GtfsStorage implements GtfsStorageI {
 	private HTreeMap<Validity, Integer> operatingDayPatterns;
 	private Bind.MapWithModificationListener<FeedIdWithTimezone, Integer> timeZones;
 	private Map<Integer, FeedIdWithTimezone> readableTimeZones;
-	private Map<Integer, byte[]> tripDescriptors;
-	private Map<Integer, Integer> stopSequences;
-
-	private Map<Integer, PlatformDescriptor> platformDescriptorsByEdge;
+	private GtfsEdgeStorage edgeStorage;
 
 	private Map<String, Fare> fares;
 	private Map<String, int[]> boardEdgesForTrip;
@@ -131,6 +128,8 @@ public class GtfsStorage implements GtfsStorageI {
 
 	private Map<FeedIdWithStopId, Integer> stationNodes;
 
+	private RaptorTimetable raptorTimetable;
+
 	public enum EdgeType {
 		HIGHWAY, ENTER_TIME_EXPANDED_NETWORK, LEAVE_TIME_EXPANDED_NETWORK, ENTER_PT, EXIT_PT, HOP, DWELL, BOARD, ALIGHT, OVERNIGHT, TRANSFER, WAIT, WAIT_ARRIVAL
     }
@@ -148,6 +147,10 @@ public class GtfsStorage implements GtfsStorageI {
 		}
 		this.data = DBMaker.newFileDB(file).transactionDisable().mmapFileEnable().readOnly().make();
 		init();
+		this.edgeStorage = new GtfsEdgeStorage(dir);
+		if (!edgeStorage.loadExisting()) {
+			throw new IllegalStateException("The transit edges are missing in " + dir.getLocation() + ". Please import the graph again.");
+		}
 		for (String gtfsFeedId : this.gtfsFeedIds) {
 			File dbFile = new File(dir.getLocation() + "/" + gtfsFeedId);
 
@@ -177,6 +180,8 @@ public class GtfsStorage implements GtfsStorageI {
 		}
 		this.data = DBMaker.newFileDB(file).transactionDisable().mmapFileEnable().asyncWriteEnable().make();
 		init();
+		this.edgeStorage = new GtfsEdgeStorage(dir);
+		edgeStorage.create();
 	}
 
     private void init() {
@@ -189,13 +194,10 @@ public class GtfsStorage implements GtfsStorageI {
 		}
 		Bind.mapInverse(this.timeZones, readableTimeZones);
 		this.readableTimeZones = Collections.unmodifiableMap(readableTimeZones);
-		this.tripDescriptors = data.getTreeMap("tripDescriptors");
-		this.stopSequences = data.getTreeMap("stopSequences");
 		this.fares = data.getTreeMap("fares");
 		this.boardEdgesForTrip = data.getHashMap("boardEdgesForTrip");
 		this.leaveEdgesForTrip = data.getHashMap("leaveEdgesForTrip");
 		this.stationNodes = data.getHashMap("stationNodes");
-		this.platformDescriptorsByEdge = data.getHashMap("routes");
 	}
 
 	void loadGtfsFromZipFile(String id, ZipFile zipFile) {
@@ -211,10 +213,15 @@ public class GtfsStorage implements GtfsStorageI {
 		this.gtfsFeedIds.add(id);
 	}
 
+	void flush() {
+		edgeStorage.flush();
+	}
+
 	public void close() {
 		if (!isClosed) {
 			isClosed = true;
 			data.close();
+			edgeStorage.close();
 			for (GTFSFeed feed : gtfsFeeds.values()) {
 				feed.close();
 			}
@@ -237,13 +244,34 @@ public class GtfsStorage implements GtfsStorageI {
 	}
 
 	@Override
-	public Map<Integer, byte[]> getTripDescriptors() {
-		return tripDescriptors;
+	public Map<Integer, GtfsRealtime.TripDescriptor> getTripDescriptors() {
+		return edgeStorage.getTripDescriptors();
 	}
 
 	@Override
 	public Map<Integer, Integer> getStopSequences() {
-		return stopSequences;
+		return edgeStorage.getStopSequences();
+	}
+
+	/**
+	 * @return the trip descriptor of the specified board or alight edge or null if the edge has none
+	 */
+	public GtfsRealtime.TripDescriptor getTripDescriptor(int edge) {
+		return edgeStorage.getTripDescriptor(edge);
+	}
+
+	/**
+	 * @return the stop sequence of the specified edge or -1 if the edge has none
+	 */
+	public int getStopSequence(int edge) {
+		return edgeStorage.getStopSequence(edge);
+	}
+
+	/**
+	 * @return the platform descriptor of the specified edge or null if the edge has none
+	 */
+	public PlatformDescriptor getPlatformDescriptor(int edge) {
+		return edgeStorage.getPlatformDescriptor(edge);
 	}
 
 	@Override
@@ -257,8 +285,18 @@ public class GtfsStorage implements GtfsStorageI {
 	}
 
     @Override
-    public Map<Integer, PlatformDescriptor> getPlatformDescriptorByEdge() {
-        return platformDescriptorsByEdge;
+    public PlatformDescriptorsByEdge getPlatformDescriptorByEdge() {
+        return new PlatformDescriptorsByEdge() {
+            @Override
+            public PlatformDescriptor get(int edge) {
+                return edgeStorage.getPlatformDescriptor(edge);
+            }
+
+            @Override
+            public void put(int edge, PlatformDescriptor platformDescriptor) {
+                edgeStorage.setPlatformDescriptor(edge, platformDescriptor);
+            }
+        };
     }
 
     @Override
@@ -275,6 +313,17 @@ public class GtfsStorage implements GtfsStorageI {
 		return stationNodes;
 	}
 
+	/**
+	 * @return the timetable for {@link Request.Algorithm#RAPTOR} or null if it was not created
+	 */
+	public RaptorTimetable getRaptorTimetable() {
+		return raptorTimetable;
+	}
+
+	void setRaptorTimetable(RaptorTimetable raptorTimetable) {
+		this.raptorTimetable = raptorTimetable;
+	}
+
 	static String tripKey(GtfsRealtime.TripDescriptor tripDescriptor, boolean isFrequencyBased) {
 		if (isFrequencyBased) {
 			return tripDescriptor.getTripId()+tripDescriptor.getStartTime();
@@ -20,6 +20,7 @@ package com.graphhopper.gtfs;
 
 import com.conveyal.gtfs.GTFSFeed;
 import com.conveyal.gtfs.model.Fare;
+import com.google.transit.realtime.GtfsRealtime;
 
 import java.io.Serializable;
 import java.util.Map;
@@ -128,7 +129,7 @@ public interface GtfsStorageI {
 
     Map<Integer, GtfsStorage.FeedIdWithTimezone> getTimeZones();
 
-    Map<Integer, byte[]> getTripDescriptors();
+    Map<Integer, GtfsRealtime.TripDescriptor> getTripDescriptors();
 
     Map<Integer, Integer> getStopSequences();
 
@@ -140,5 +141,18 @@ public interface GtfsStorageI {
 
     Map<GtfsStorage.FeedIdWithStopId, Integer> getStationNodes();
 
-    Map<Integer, PlatformDescriptor> getPlatformDescriptorByEdge();
+    /**
+     * The platform descriptors of the edges. This is no Map because the storages can only look up and set the
+     * descriptor of a single edge.
+     */
+    interface PlatformDescriptorsByEdge {
+        /**
+         * @return the platform descriptor of the specified edge or null if it has none
+         */
+        PlatformDescriptor get(int edge);
+
+        void put(int edge, PlatformDescriptor platformDescriptor);
+    }
+
+    PlatformDescriptorsByEdge getPlatformDescriptorByEdge();
 }
@@ -134,7 +134,7 @@ public class Label {
         GtfsStorage.EdgeType edgeType = edgeIteratorState.get(flagEncoder.getTypeEnc());
         String feedId;
         if (edgeType == GtfsStorage.EdgeType.ENTER_PT || edgeType == GtfsStorage.EdgeType.TRANSFER) {
-            GtfsStorageI.PlatformDescriptor platformDescriptor = realtimeFeed.getPlatformDescriptorByEdge().get(edgeIteratorState.getEdge());
+            GtfsStorageI.PlatformDescriptor platformDescriptor = realtimeFeed.getPlatformDescriptor(edgeIteratorState.getEdge());
             feedId = platformDescriptor.feed_id;
         } else {
             feedId = null;
@@ -18,6 +18,9 @@
 
 package com.graphhopper.gtfs;
 
+import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.IntObjectHashMap;
+import com.carrotsearch.hppc.IntObjectMap;
 import com.conveyal.gtfs.GTFSFeed;
 import com.google.transit.realtime.GtfsRealtime;
 import com.graphhopper.GHResponse;
@@ -33,6 +36,9 @@ import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.GraphHopperStorage;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.PointList;
 import com.graphhopper.util.StopWatch;
 import com.graphhopper.util.Translation;
@@ -125,6 +131,7 @@ public final class PtRouterImpl implements PtRouter {
         private final GHLocation exit;
         private final Translation translation;
         private final List<String> requestedPathDetails;
+        private final Request.Algorithm algorithm;
         private final List<VirtualEdgeIteratorState> extraEdges = new ArrayList<>(realtimeFeed.getAdditionalEdges());
 
         private final GHResponse response = new GHResponse();
@@ -150,6 +157,7 @@ public final class PtRouterImpl implements PtRouter {
             exit = request.getPoints().get(1);
             limitStreetTime = request.getLimitStreetTime() != null ? request.getLimitStreetTime().toMillis() : Long.MAX_VALUE;
             requestedPathDetails = request.getPathDetails();
+            algorithm = request.getAlgorithm();
         }
 
         GHResponse route() {
@@ -182,7 +190,9 @@ public final class PtRouterImpl implements PtRouter {
                 startNode = allSnaps.get(0).getClosestNode();
                 destNode = allSnaps.get(1).getClosestNode();
             }
-            List<List<Label.Transition>> solutions = findPaths(startNode, destNode);
+            List<List<Label.Transition>> solutions = algorithm == Request.Algorithm.RAPTOR && !arriveBy
+                    ? findPathsWithRaptor(startNode, destNode)
+                    : findPaths(startNode, destNode);
             parseSolutionsAndAddToResponse(solutions, points);
             return response;
         }
@@ -357,6 +367,177 @@ public final class PtRouterImpl implements PtRouter {
             return paths;
         }
 
+        private List<List<Label.Transition>> findPathsWithRaptor(int startNode, int destNode) {
+            StopWatch stopWatch = new StopWatch().start();
+            RaptorTimetable timetable = gtfsStorage.getRaptorTimetable();
+            if (timetable == null)
+                throw new IllegalArgumentException("The RAPTOR timetable was not created, enable it with gtfs.raptor: true");
+
+            IntHashSet accessNodes = new IntHashSet();
+            accessNodes.addAll(timetable.stationNodes);
+            accessNodes.add(destNode);
+            IntObjectMap<Label> accessLabels = findWalkLabels(startNode, destNode, false, accessNodes);
+            IntHashSet egressNodes = new IntHashSet();
+            egressNodes.addAll(timetable.stationNodes);
+            IntObjectMap<Label> egressLabels = findWalkLabels(destNode, startNode, true, egressNodes);
+
+            long startMillis = initialTime.getEpochSecond() * 1000;
+            Raptor raptor = new Raptor(timetable, initialTime, profileQuery ? (int) (maxProfileDuration / 1000) : 0, blockedRouteTypes, Raptor.DEFAULT_MAX_ROUNDS);
+            for (int stop = 0; stop < timetable.getStops(); stop++) {
+                Label accessLabel = accessLabels.get(timetable.stationNodes[stop]);
+                if (accessLabel != null)
+                    raptor.addAccess(stop, toSeconds(accessLabel.currentTime - startMillis));
+                Label egressLabel = egressLabels.get(timetable.stationNodes[stop]);
+                if (egressLabel != null)
+                    raptor.addEgress(stop, toSeconds(initialTime.toEpochMilli() - egressLabel.currentTime));
+            }
+            List<Raptor.Journey> journeys = new ArrayList<>(raptor.route(!ignoreTransfers));
+            journeys.sort(Comparator.<Raptor.Journey>comparingInt(j -> j.departureTime).thenComparingInt(j -> j.arrivalTime));
+
+            List<List<Label.Transition>> paths = new ArrayList<>();
+            for (Raptor.Journey journey : journeys) {
+                paths.add(getTransitions(timetable, journey, accessLabels, egressLabels));
+            }
+            Label walkLabel = accessLabels.get(destNode);
+            if (walkLabel != null) {
+                // we can start walking at any time, so it dominates all journeys which are not faster
+                long walkDuration = walkLabel.currentTime - initialTime.toEpochMilli();
+                if (ignoreTransfers)
+                    paths.removeIf(path -> duration(path) >= walkDuration);
+                if (!ignoreTransfers || paths.isEmpty() || profileQuery)
+                    paths.add(0, Label.getTransitions(walkLabel, false, ptEncodedValues, queryGraph, realtimeFeed));
+            }
+            if (paths.size() > limitSolutions)
+                paths = new ArrayList<>(paths.subList(0, limitSolutions));
+
+            visitedNodes += raptor.getVisitedStops();
+            response.addDebugInfo("routing:" + stopWatch.stop().getSeconds() + "s");
+            response.getHints().putObject("visited_nodes.sum", visitedNodes);
+            response.getHints().putObject("visited_nodes.average", visitedNodes);
+            if (paths.isEmpty()) {
+                response.addError(new RuntimeException("No route found"));
+            }
+            return paths;
+        }
+
+        /**
+         * @return the first label of the walk-only search at each of the specified nodes, the search stops at the
+         * specified node as walking further than to the other end of the query is never useful
+         */
+        private IntObjectMap<Label> findWalkLabels(int node, int stopNode, boolean reverse, IntHashSet nodes) {
+            GraphExplorer explorer = new GraphExplorer(queryGraph, accessEgressWeighting, ptEncodedValues, gtfsStorage, realtimeFeed, reverse, true, walkSpeedKmH, false);
+            MultiCriteriaLabelSetting router = new MultiCriteriaLabelSetting(explorer, ptEncodedValues, reverse, false, false, false, maxVisitedNodesForRequest, new ArrayList<>());
+            router.setBetaWalkTime(betaWalkTime);
+            router.setLimitStreetTime(limitStreetTime);
+            IntObjectMap<Label> result = new IntObjectHashMap<>();
+            Iterator<Label> iterator = router.calcLabels(node, initialTime, blockedRouteTypes).iterator();
+            while (iterator.hasNext()) {
+                Label label = iterator.next();
+                if (nodes.contains(label.adjNode) && !result.containsKey(label.adjNode))
+                    result.put(label.adjNode, label);
+                if (label.adjNode == stopNode)
+                    break;
+            }
+            visitedNodes += router.getVisitedNodes();
+            return result;
+        }
+
+        private int toSeconds(long millis) {
+            return (int) Math.max(0, (millis + 999) / 1000);
+        }
+
+        private long duration(List<Label.Transition> path) {
+            return path.get(path.size() - 1).label.currentTime - path.get(0).label.currentTime;
+        }
+
+        /**
+         * Translates a journey back into a path through the graph, so that the legs are created in the same way as
+         * for the label-setting search.
+         */
+        private List<Label.Transition> getTransitions(RaptorTimetable timetable, Raptor.Journey journey, IntObjectMap<Label> accessLabels, IntObjectMap<Label> egressLabels) {
+            long departureTime = initialTime.toEpochMilli() + journey.departureTime * 1000L;
+            Raptor.Ride firstRide = journey.rides.get(0);
+            int accessStop = timetable.patternStops[timetable.patternStopsStart[firstRide.pattern] + firstRide.boardPosition];
+            List<Label.Transition> result = shift(Label.getTransitions(accessLabels.get(timetable.stationNodes[accessStop]), false, ptEncodedValues, queryGraph, realtimeFeed), journey.departureTime * 1000L);
+            Label accessLabel = result.get(result.size() - 1).label;
+
+            EdgeExplorer inExplorer = queryGraph.createEdgeExplorer(DefaultEdgeFilter.inEdges(ptEncodedValues.getAccessEnc()));
+            EdgeExplorer outExplorer = queryGraph.createEdgeExplorer(DefaultEdgeFilter.outEdges(ptEncodedValues.getAccessEnc()));
+            long time = accessLabel.currentTime;
+            int nTransfers = 0;
+            for (Raptor.Ride ride : journey.rides) {
+                nTransfers++;
+                String tripKey = timetable.getTripKey(ride.trip);
+                int stopTimes = timetable.tripStopTimesStart[ride.trip];
+                int boardEdge = gtfsStorage.getBoardEdgesForTrip().get(tripKey)[timetable.stopSequences[stopTimes + ride.boardPosition]];
+                int alightEdge = gtfsStorage.getAlightEdgesForTrip().get(tripKey)[timetable.stopSequences[stopTimes + ride.alightPosition]];
+                EdgeIteratorState board = queryGraph.getEdgeIteratorState(boardEdge, Integer.MIN_VALUE);
+                EdgeIteratorState alight = queryGraph.getEdgeIteratorState(alightEdge, Integer.MIN_VALUE);
+                long boardTime = toMillis(ride, timetable.departureTimes[stopTimes + ride.boardPosition]);
+
+                EdgeIteratorState enterTimeline = findEdge(inExplorer, board.getBaseNode(), GtfsStorage.EdgeType.ENTER_TIME_EXPANDED_NETWORK, true);
+                EdgeIteratorState enter = findEdge(inExplorer, enterTimeline.getBaseNode(), GtfsStorage.EdgeType.ENTER_PT, true);
+                result.add(transition(enter, time, nTransfers, departureTime, accessLabel));
+                result.add(transition(enterTimeline, boardTime, nTransfers, departureTime, accessLabel));
+                result.add(transition(board, boardTime, nTransfers, departureTime, accessLabel));
+                int position = ride.boardPosition;
+                EdgeIteratorState hop = findEdge(outExplorer, board.getAdjNode(), GtfsStorage.EdgeType.HOP, false);
+                while (true) {
+                    position++;
+                    long arrival = toMillis(ride, timetable.arrivalTimes[stopTimes + position]);
+                    result.add(transition(hop, arrival, nTransfers, departureTime, accessLabel));
+                    if (hop.getAdjNode() == alight.getBaseNode() || position >= ride.alightPosition)
+                        break;
+                    long departure = toMillis(ride, timetable.departureTimes[stopTimes + position]);
+                    EdgeIteratorState dwell = findEdge(outExplorer, hop.getAdjNode(), GtfsStorage.EdgeType.DWELL, false);
+                    result.add(transition(dwell, departure, nTransfers, departureTime, accessLabel));
+                    hop = findEdge(outExplorer, dwell.getAdjNode(), GtfsStorage.EdgeType.HOP, false);
+                }
+                if (hop.getAdjNode() != alight.getBaseNode())
+                    throw new IllegalStateException("The trip " + tripKey + " does not match the timetable");
+                time = toMillis(ride, timetable.arrivalTimes[stopTimes + ride.alightPosition]);
+                EdgeIteratorState leave = findEdge(outExplorer, alight.getAdjNode(), GtfsStorage.EdgeType.LEAVE_TIME_EXPANDED_NETWORK, false);
+                EdgeIteratorState exit = findEdge(outExplorer, leave.getAdjNode(), GtfsStorage.EdgeType.EXIT_PT, false);
+                result.add(transition(alight, time, nTransfers, departureTime, accessLabel));
+                result.add(transition(leave, time, nTransfers, departureTime, accessLabel));
+                result.add(transition(exit, time, nTransfers, departureTime, accessLabel));
+            }
+
+            List<Label.Transition> egress = Label.getTransitions(egressLabels.get(timetable.stationNodes[journey.egressStop]), true, ptEncodedValues, queryGraph, realtimeFeed);
+            result.addAll(shift(egress, time - egress.get(0).label.currentTime).subList(1, egress.size()));
+            return result;
+        }
+
+        /**
+         * @return the epoch milliseconds of the specified time of the service day of the ride
+         */
+        private long toMillis(Raptor.Ride ride, int timeOfDay) {
+            return (initialTime.getEpochSecond() + ride.dayStart + timeOfDay) * 1000;
+        }
+
+        /**
+         * @param inEdge true if the edge ends at the specified node, it is then returned in travel direction as well
+         */
+        private EdgeIteratorState findEdge(EdgeExplorer explorer, int node, GtfsStorage.EdgeType edgeType, boolean inEdge) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                if (iter.get(ptEncodedValues.getTypeEnc()) == edgeType)
+                    return iter.detach(inEdge);
+            }
+            throw new IllegalStateException("No " + edgeType + " edge at node " + node);
+        }
+
+        private Label.Transition transition(EdgeIteratorState edge, long time, int nTransfers, long departureTime, Label accessLabel) {
+            Label label = new Label(time, edge.getEdge(), edge.getAdjNode(), nTransfers, 0, departureTime, accessLabel.walkTime, 0, false, null);
+            return new Label.Transition(label, Label.getEdgeLabel(edge, ptEncodedValues, realtimeFeed));
+        }
+
+        private List<Label.Transition> shift(List<Label.Transition> transitions, long diff) {
+            return transitions.stream().map(t -> {
+                return new Label.Transition(new Label(t.label.currentTime + diff, t.label.edge, t.label.adjNode, t.label.nTransfers, t.label.walkDistanceOnCurrentLeg, t.label.departureTime, t.label.walkTime, t.label.residualDelay, t.label.impossible, null), t.edge);
+            }).collect(Collectors.toList());
+        }
+
         private boolean profileFinished(MultiCriteriaLabelSetting router, List<Label> discoveredSolutions, Label walkSolution) {
             return discoveredSolutions.size() >= limitSolutions ||
                     (!discoveredSolutions.isEmpty() && router.timeSinceStartTime(discoveredSolutions.get(discoveredSolutions.size() - 1)) > maxProfileDuration) ||
@@ -0,0 +1,471 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.cursors.IntCursor;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Round-based public transit search (RAPTOR) on a {@link RaptorTimetable}, see "Round-Based Public Transit Routing"
+ * by Delling, Pajor and Werneck. Round k finds the earliest arrival at every stop with k boardings, so the result is
+ * the Pareto set of journeys regarding arrival time and number of boardings. Profile queries over a departure window
+ * are answered with rRAPTOR: one run per departure from an access stop, latest first, which keeps the labels of the
+ * later runs as upper bounds.
+ * <p>
+ * All times are seconds since the requested departure time. The street access and egress are specified per stop.
+ */
+class Raptor {
+    static final int DEFAULT_MAX_ROUNDS = 10;
+    private static final int INF = Integer.MAX_VALUE;
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    static class Ride {
+        final int pattern;
+        final int trip;
+        final int boardPosition;
+        final int alightPosition;
+        // the start of the service day of the trip
+        final int dayStart;
+
+        Ride(int pattern, int trip, int boardPosition, int alightPosition, int dayStart) {
+            this.pattern = pattern;
+            this.trip = trip;
+            this.boardPosition = boardPosition;
+            this.alightPosition = alightPosition;
+            this.dayStart = dayStart;
+        }
+    }
+
+    static class Journey {
+        // the departure from the origin
+        final int departureTime;
+        final List<Ride> rides;
+        final int egressStop;
+        final int arrivalTime;
+
+        Journey(int departureTime, List<Ride> rides, int egressStop, int arrivalTime) {
+            this.departureTime = departureTime;
+            this.rides = rides;
+            this.egressStop = egressStop;
+            this.arrivalTime = arrivalTime;
+        }
+    }
+
+    private final RaptorTimetable timetable;
+    private final long startSeconds;
+    private final int profileDuration;
+    private final int blockedRouteTypes;
+    private final int maxRounds;
+    private final int[] accessTimes;
+    private final int[] egressTimes;
+    private final IntArrayList accessStops = new IntArrayList();
+    private final IntArrayList egressStops = new IntArrayList();
+
+    // the service days which are considered for every time zone and the start of each day in seconds
+    private final long[] serviceEpochDays;
+    private final Map<ZoneId, int[]> dayStartsByZone = new HashMap<>();
+
+    // per round: the arrival at each stop in a vehicle, and the time when we are ready to board after a transfer
+    private final int[][] rideArrivals;
+    private final int[][] boardingTimes;
+    private final int[][] ridePatterns;
+    private final int[][] rideTrips;
+    private final int[][] rideBoardPositions;
+    private final int[][] rideAlightPositions;
+    private final int[][] rideDayStarts;
+    private final int[][] transferOrigins;
+    private final int[] destinationArrivals;
+    private final int[] destinationStops;
+    private final int[] patternFirstPositions;
+    private final boolean[] isMarked;
+    private final long[] feedStartDays;
+    private int visitedStops;
+
+    /**
+     * @param profileDuration the length of the departure window in seconds or 0 for a query with a single departure
+     */
+    Raptor(RaptorTimetable timetable, Instant startTime, int profileDuration, int blockedRouteTypes, int maxRounds) {
+        this.timetable = timetable;
+        this.startSeconds = startTime.getEpochSecond();
+        this.profileDuration = profileDuration;
+        this.blockedRouteTypes = blockedRouteTypes;
+        this.maxRounds = maxRounds;
+        int stops = timetable.getStops();
+        accessTimes = new int[stops];
+        egressTimes = new int[stops];
+        Arrays.fill(accessTimes, INF);
+        Arrays.fill(egressTimes, INF);
+
+        // trips of the previous service day can still run after midnight and a journey can end on the next day
+        long firstDay = LocalDate.ofEpochDay(Math.floorDiv(startSeconds, SECONDS_PER_DAY)).minusDays(2).toEpochDay();
+        long lastDay = LocalDate.ofEpochDay(Math.floorDiv(startSeconds + profileDuration, SECONDS_PER_DAY)).plusDays(2).toEpochDay();
+        serviceEpochDays = new long[(int) (lastDay - firstDay + 1)];
+        for (int d = 0; d < serviceEpochDays.length; d++) {
+            serviceEpochDays[d] = firstDay + d;
+        }
+
+        rideArrivals = new int[maxRounds + 1][];
+        boardingTimes = new int[maxRounds + 1][];
+        ridePatterns = new int[maxRounds + 1][];
+        rideTrips = new int[maxRounds + 1][];
+        rideBoardPositions = new int[maxRounds + 1][];
+        rideAlightPositions = new int[maxRounds + 1][];
+        rideDayStarts = new int[maxRounds + 1][];
+        transferOrigins = new int[maxRounds + 1][];
+        for (int k = 0; k <= maxRounds; k++) {
+            rideArrivals[k] = filled(stops, INF);
+            boardingTimes[k] = filled(stops, INF);
+            transferOrigins[k] = filled(stops, -1);
+            if (k > 0) {
+                ridePatterns[k] = new int[stops];
+                rideTrips[k] = new int[stops];
+                rideBoardPositions[k] = new int[stops];
+                rideAlightPositions[k] = new int[stops];
+                rideDayStarts[k] = new int[stops];
+            }
+        }
+        destinationArrivals = filled(maxRounds + 1, INF);
+        destinationStops = filled(maxRounds + 1, -1);
+        patternFirstPositions = filled(timetable.getPatterns(), INF);
+        isMarked = new boolean[stops];
+        feedStartDays = new long[timetable.feedStartDates.length];
+        for (int f = 0; f < feedStartDays.length; f++) {
+            feedStartDays[f] = timetable.feedStartDates[f].toEpochDay();
+        }
+    }
+
+    private static int[] filled(int length, int value) {
+        int[] array = new int[length];
+        Arrays.fill(array, value);
+        return array;
+    }
+
+    /**
+     * Specifies that the stop can be reached from the origin by walking for the specified number of seconds.
+     */
+    void addAccess(int stop, int seconds) {
+        if (accessTimes[stop] == INF)
+            accessStops.add(stop);
+        accessTimes[stop] = Math.min(accessTimes[stop], seconds);
+    }
+
+    /**
+     * Specifies that the destination can be reached from the stop by walking for the specified number of seconds.
+     */
+    void addEgress(int stop, int seconds) {
+        if (egressTimes[stop] == INF)
+            egressStops.add(stop);
+        egressTimes[stop] = Math.min(egressTimes[stop], seconds);
+    }
+
+    int getVisitedStops() {
+        return visitedStops;
+    }
+
+    /**
+     * Finds the journeys which depart at the start time or, for a profile query, within the departure window.
+     *
+     * @param mindTransfers if false only the journey with the earliest arrival is returned for every departure,
+     *                      otherwise also journeys with fewer boardings and a later arrival
+     */
+    List<Journey> route(boolean mindTransfers) {
+        List<Journey> result = new ArrayList<>();
+        if (accessStops.isEmpty() || egressStops.isEmpty())
+            return result;
+        int[] departureTimes = profileDuration > 0 ? findDepartureTimes() : new int[]{0};
+        for (int i = departureTimes.length - 1; i >= 0; i--) {
+            int bestBefore = best(destinationArrivals, maxRounds);
+            boolean[] improved = run(departureTimes[i]);
+            int bestAfter = best(destinationArrivals, maxRounds);
+            for (int k = 1; k <= maxRounds; k++) {
+                if (!improved[k])
+                    continue;
+                if (!mindTransfers && (bestAfter == bestBefore || destinationArrivals[k] != bestAfter))
+                    continue;
+                result.add(extractJourney(departureTimes[i], k));
+                if (!mindTransfers)
+                    break;
+            }
+        }
+        return result;
+    }
+
+    private static int best(int[] values, int maxIndex) {
+        int best = INF;
+        for (int i = 0; i <= maxIndex; i++) {
+            best = Math.min(best, values[i]);
+        }
+        return best;
+    }
+
+    /**
+     * @return the departure times from the origin which allow to catch a trip at one of the access stops
+     */
+    private int[] findDepartureTimes() {
+        IntHashSet times = new IntHashSet();
+        times.add(0);
+        // the first departure after the window is the best option at its end
+        times.add(profileDuration);
+        for (IntCursor stop : accessStops) {
+            int accessTime = accessTimes[stop.value];
+            for (int i = timetable.stopPatternsStart[stop.value]; i < timetable.stopPatternsStart[stop.value + 1]; i++) {
+                int pattern = timetable.stopPatterns[i];
+                if (isBlocked(pattern))
+                    continue;
+                int[] dayStarts = getDayStarts(pattern);
+                int stopsStart = timetable.patternStopsStart[pattern];
+                for (int pos = 0; pos < timetable.patternStopsStart[pattern + 1] - stopsStart; pos++) {
+                    if (timetable.patternStops[stopsStart + pos] != stop.value)
+                        continue;
+                    for (int trip = timetable.patternTripsStart[pattern]; trip < timetable.patternTripsStart[pattern + 1]; trip++) {
+                        for (int d = 0; d < dayStarts.length; d++) {
+                            long departure = (long) dayStarts[d] + timetable.departureTimes[timetable.tripStopTimesStart[trip] + pos] - accessTime;
+                            if (departure >= 0 && departure <= profileDuration && isValid(pattern, trip, d))
+                                times.add((int) departure);
+                        }
+                    }
+                }
+            }
+        }
+        int[] result = times.toArray();
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Runs all rounds for the specified departure time and keeps the labels of previous runs.
+     *
+     * @return for every round whether the arrival at the destination improved
+     */
+    private boolean[] run(int departureTime) {
+        boolean[] improvedRounds = new boolean[maxRounds + 1];
+        IntArrayList marked = new IntArrayList();
+        for (IntCursor stop : accessStops) {
+            int time = departureTime + accessTimes[stop.value];
+            if (time < boardingTimes[0][stop.value]) {
+                boardingTimes[0][stop.value] = time;
+                transferOrigins[0][stop.value] = -1;
+                marked.add(stop.value);
+            }
+        }
+
+        for (int k = 1; k <= maxRounds && !marked.isEmpty(); k++) {
+            IntArrayList improvedStops = scanPatterns(k, marked);
+            for (IntCursor stop : improvedStops) {
+                int egressTime = egressTimes[stop.value];
+                if (egressTime == INF)
+                    continue;
+                int arrival = rideArrivals[k][stop.value] + egressTime;
+                if (arrival < best(destinationArrivals, k)) {
+                    destinationArrivals[k] = arrival;
+                    destinationStops[k] = stop.value;
+                    improvedRounds[k] = true;
+                }
+            }
+            marked = relaxTransfers(k, improvedStops);
+        }
+        return improvedRounds;
+    }
+
+    private IntArrayList scanPatterns(int k, IntArrayList marked) {
+        IntArrayList patterns = new IntArrayList();
+        for (IntCursor stop : marked) {
+            for (int i = timetable.stopPatternsStart[stop.value]; i < timetable.stopPatternsStart[stop.value + 1]; i++) {
+                int pattern = timetable.stopPatterns[i];
+                if (isBlocked(pattern))
+                    continue;
+                int stopsStart = timetable.patternStopsStart[pattern];
+                for (int pos = 0; pos < timetable.patternStopsStart[pattern + 1] - stopsStart; pos++) {
+                    if (timetable.patternStops[stopsStart + pos] == stop.value) {
+                        if (patternFirstPositions[pattern] == INF)
+                            patterns.add(pattern);
+                        patternFirstPositions[pattern] = Math.min(patternFirstPositions[pattern], pos);
+                        break;
+                    }
+                }
+            }
+        }
+
+        IntArrayList improvedStops = new IntArrayList();
+        int bestDestination = best(destinationArrivals, k);
+        for (IntCursor p : patterns) {
+            int pattern = p.value;
+            int stopsStart = timetable.patternStopsStart[pattern];
+            int patternLength = timetable.patternStopsStart[pattern + 1] - stopsStart;
+            int trip = -1, boardPosition = -1, dayStart = 0;
+            for (int pos = patternFirstPositions[pattern]; pos < patternLength; pos++) {
+                int stop = timetable.patternStops[stopsStart + pos];
+                if (trip >= 0) {
+                    int arrival = dayStart + timetable.arrivalTimes[timetable.tripStopTimesStart[trip] + pos];
+                    if (arrival < bestDestination && isImprovement(rideArrivals, k, stop, arrival)) {
+                        mark(improvedStops, stop);
+                        rideArrivals[k][stop] = arrival;
+                        ridePatterns[k][stop] = pattern;
+                        rideTrips[k][stop] = trip;
+                        rideBoardPositions[k][stop] = boardPosition;
+                        rideAlightPositions[k][stop] = pos;
+                        rideDayStarts[k][stop] = dayStart;
+                        visitedStops++;
+                    }
+                }
+                int boardingTime = boardingTimes[k - 1][stop];
+                if (boardingTime != INF && (trip < 0 || boardingTime <= dayStart + timetable.departureTimes[timetable.tripStopTimesStart[trip] + pos])) {
+                    long found = findEarliestTrip(pattern, pos, boardingTime);
+                    if (found >= 0) {
+                        int foundTrip = (int) (found >>> 32);
+                        int foundDayStart = getDayStarts(pattern)[(int) found];
+                        if (trip < 0 || foundDayStart + timetable.departureTimes[timetable.tripStopTimesStart[foundTrip] + pos]
+                                < dayStart + timetable.departureTimes[timetable.tripStopTimesStart[trip] + pos]) {
+                            trip = foundTrip;
+                            dayStart = foundDayStart;
+                            boardPosition = pos;
+                        }
+                    }
+                }
+            }
+            patternFirstPositions[pattern] = INF;
+        }
+        unmark(improvedStops);
+        return improvedStops;
+    }
+
+    private void mark(IntArrayList stops, int stop) {
+        if (!isMarked[stop]) {
+            isMarked[stop] = true;
+            stops.add(stop);
+        }
+    }
+
+    private void unmark(IntArrayList stops) {
+        for (IntCursor stop : stops) {
+            isMarked[stop.value] = false;
+        }
+    }
+
+    private IntArrayList relaxTransfers(int k, IntArrayList improvedStops) {
+        IntArrayList marked = new IntArrayList();
+        for (IntCursor stop : improvedStops) {
+            int arrival = rideArrivals[k][stop.value];
+            int group = timetable.patternTransferGroups[timetable.patternStopsStart[ridePatterns[k][stop.value]] + rideAlightPositions[k][stop.value]];
+            for (int i = timetable.transfersStart[group]; i < timetable.transfersStart[group + 1]; i++) {
+                int target = timetable.transferTargets[i];
+                int time = arrival + timetable.transferTimes[i];
+                if (isImprovement(boardingTimes, k, target, time)) {
+                    mark(marked, target);
+                    boardingTimes[k][target] = time;
+                    transferOrigins[k][target] = stop.value;
+                }
+            }
+        }
+        unmark(marked);
+        return marked;
+    }
+
+    /**
+     * A label of round k is only useful if it is better than the labels with fewer boardings.
+     */
+    private static boolean isImprovement(int[][] labels, int k, int stop, int time) {
+        for (int j = 0; j <= k; j++) {
+            if (time >= labels[j][stop])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the earliest trip of the pattern which departs at the specified position not before the specified time
+     * in the upper 32 bits and the index of its service day in the lower bits or -1 if there is no such trip
+     */
+    private long findEarliestTrip(int pattern, int pos, int time) {
+        int[] dayStarts = getDayStarts(pattern);
+        int tripsStart = timetable.patternTripsStart[pattern];
+        int tripsEnd = timetable.patternTripsStart[pattern + 1];
+        long bestDeparture = Long.MAX_VALUE;
+        long result = -1;
+        for (int d = 0; d < dayStarts.length; d++) {
+            int timeOfDay = time - dayStarts[d];
+            // the trips of a pattern do not overtake each other, so they are sorted by departure at every position
+            int low = tripsStart, high = tripsEnd;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (timetable.departureTimes[timetable.tripStopTimesStart[mid] + pos] < timeOfDay)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+            for (int trip = low; trip < tripsEnd; trip++) {
+                long departure = (long) dayStarts[d] + timetable.departureTimes[timetable.tripStopTimesStart[trip] + pos];
+                if (departure >= bestDeparture)
+                    break;
+                if (isValid(pattern, trip, d)) {
+                    bestDeparture = departure;
+                    result = ((long) trip << 32) | d;
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private boolean isValid(int pattern, int trip, int day) {
+        long trafficDay = serviceEpochDays[day] - feedStartDays[timetable.patternFeeds[pattern]];
+        return trafficDay >= 0 && trafficDay <= Integer.MAX_VALUE && timetable.tripValidities[trip].get((int) trafficDay);
+    }
+
+    private boolean isBlocked(int pattern) {
+        return (blockedRouteTypes & (1 << timetable.patternRouteTypes[pattern])) != 0;
+    }
+
+    private int[] getDayStarts(int pattern) {
+        ZoneId zoneId = timetable.patternZoneIds[pattern];
+        int[] dayStarts = dayStartsByZone.get(zoneId);
+        if (dayStarts == null) {
+            dayStarts = new int[serviceEpochDays.length];
+            for (int d = 0; d < serviceEpochDays.length; d++) {
+                // the same as in the graph, which uses the local time of day
+                long dayStart = LocalDate.ofEpochDay(serviceEpochDays[d]).atStartOfDay(zoneId).toEpochSecond();
+                dayStarts[d] = (int) (dayStart - startSeconds);
+            }
+            dayStartsByZone.put(zoneId, dayStarts);
+        }
+        return dayStarts;
+    }
+
+    private Journey extractJourney(int departureTime, int k) {
+        int egressStop = destinationStops[k];
+        LinkedList<Ride> rides = new LinkedList<>();
+        int stop = egressStop;
+        for (int round = k; round > 0; round--) {
+            Ride ride = new Ride(ridePatterns[round][stop], rideTrips[round][stop], rideBoardPositions[round][stop],
+                    rideAlightPositions[round][stop], rideDayStarts[round][stop]);
+            rides.addFirst(ride);
+            int boardStop = timetable.patternStops[timetable.patternStopsStart[ride.pattern] + ride.boardPosition];
+            stop = transferOrigins[round - 1][boardStop];
+            if (round > 1 && stop < 0)
+                throw new IllegalStateException("Missing transfer to stop " + timetable.stopIds[boardStop] + " in round " + (round - 1));
+        }
+        return new Journey(departureTime, new ArrayList<>(rides), egressStop, destinationArrivals[k]);
+    }
+}
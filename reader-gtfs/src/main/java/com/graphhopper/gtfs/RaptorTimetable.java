@@ -0,0 +1,391 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.conveyal.gtfs.GTFSFeed;
+import com.conveyal.gtfs.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static java.time.temporal.ChronoUnit.DAYS;
+
+/**
+ * The timetable of all feeds in the flat array layout used by {@link Raptor}. Trips which serve the same sequence of
+ * stops of the same route and which do not overtake each other are grouped into a pattern, and the trips of a pattern
+ * are sorted by departure time, so that the earliest trip from a stop can be found with a binary search.
+ * <p>
+ * Frequency-based trips are expanded into one trip per departure, the same way as in the graph. The times are seconds
+ * since the start of the service day in the time zone of the agency.
+ */
+public class RaptorTimetable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RaptorTimetable.class);
+
+    // stops
+    final String[] stopIds;
+    final int[] stopFeeds;
+    final int[] stationNodes;
+
+    // feeds
+    final String[] feedIds;
+    final LocalDate[] feedStartDates;
+
+    // patterns, the stops and trips of pattern p start at patternStopsStart[p] and patternTripsStart[p]
+    final int[] patternStopsStart;
+    final int[] patternStops;
+    final int[] patternTripsStart;
+    final int[] patternFeeds;
+    final int[] patternRouteTypes;
+    final ZoneId[] patternZoneIds;
+
+    // trips, the stop times of trip t start at tripStopTimesStart[t], one per stop of its pattern
+    final String[] tripIds;
+    final String[] tripRouteIds;
+    // the start time of a frequency-based trip or -1
+    final int[] tripStartTimes;
+    // the service days since the start date of the feed
+    final BitSet[] tripValidities;
+    final int[] tripStopTimesStart;
+    final int[] arrivalTimes;
+    final int[] departureTimes;
+    final int[] stopSequences;
+
+    // the patterns serving stop s start at stopPatternsStart[s]
+    final int[] stopPatternsStart;
+    final int[] stopPatterns;
+
+    // the transfers after alighting at position i of a pattern are transfer group patternTransferGroups[i], the
+    // transfers of group g start at transfersStart[g] and include the transfer within the stop
+    final int[] patternTransferGroups;
+    final int[] transfersStart;
+    final int[] transferTargets;
+    final int[] transferTimes;
+
+    private final Map<GtfsStorage.FeedIdWithStopId, Integer> stopIndex = new HashMap<>();
+
+    private static class TripInstance {
+        final Trip trip;
+        final int startTime;
+        final BitSet validity;
+        final int[] arrivals;
+        final int[] departures;
+        final int[] stopSequences;
+
+        TripInstance(Trip trip, int startTime, BitSet validity, int[] arrivals, int[] departures, int[] stopSequences) {
+            this.trip = trip;
+            this.startTime = startTime;
+            this.validity = validity;
+            this.arrivals = arrivals;
+            this.departures = departures;
+            this.stopSequences = stopSequences;
+        }
+
+        boolean overtakes(TripInstance other) {
+            for (int i = 0; i < departures.length; i++) {
+                if (departures[i] < other.departures[i] || arrivals[i] < other.arrivals[i])
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    public RaptorTimetable(GtfsStorage gtfsStorage) {
+        List<String> stopIdList = new ArrayList<>();
+        IntArrayList stopFeedList = new IntArrayList();
+        IntArrayList stationNodeList = new IntArrayList();
+        List<String> feedIdList = new ArrayList<>(gtfsStorage.getGtfsFeeds().keySet());
+        Collections.sort(feedIdList);
+        feedIds = feedIdList.toArray(new String[0]);
+        feedStartDates = new LocalDate[feedIds.length];
+
+        IntArrayList patternStopsStartList = new IntArrayList();
+        IntArrayList patternStopsList = new IntArrayList();
+        IntArrayList patternTripsStartList = new IntArrayList();
+        IntArrayList patternFeedList = new IntArrayList();
+        IntArrayList patternRouteTypeList = new IntArrayList();
+        List<ZoneId> patternZoneIdList = new ArrayList<>();
+        List<TripInstance> trips = new ArrayList<>();
+        IntArrayList patternTransferGroupList = new IntArrayList();
+        List<List<int[]>> transferGroups = new ArrayList<>();
+
+        for (int f = 0; f < feedIds.length; f++) {
+            GTFSFeed feed = gtfsStorage.getGtfsFeeds().get(feedIds[f]);
+            feedStartDates[f] = feed.getStartDate();
+            for (Stop stop : feed.stops.values()) {
+                Integer stationNode = gtfsStorage.getStationNodes().get(new GtfsStorage.FeedIdWithStopId(feedIds[f], stop.stop_id));
+                if (stationNode == null)
+                    continue;
+                stopIndex.put(new GtfsStorage.FeedIdWithStopId(feedIds[f], stop.stop_id), stopIdList.size());
+                stopIdList.add(stop.stop_id);
+                stopFeedList.add(f);
+                stationNodeList.add(stationNode);
+            }
+
+            Map<String, List<Transfer>> transfersFromStop = feed.transfers.values().stream()
+                    .filter(t -> t.transfer_type == 0 || t.transfer_type == 2)
+                    .collect(Collectors.groupingBy(t -> t.from_stop_id));
+            Map<String, Integer> transferGroupIndex = new HashMap<>();
+
+            Map<List<String>, List<TripInstance>> tripsByStopSequence = new LinkedHashMap<>();
+            Map<String, BitSet> validityByService = new HashMap<>();
+            for (Trip trip : feed.trips.values()) {
+                List<StopTime> stopTimes = new ArrayList<>();
+                feed.getInterpolatedStopTimesForTrip(trip.trip_id).forEach(stopTimes::add);
+                if (stopTimes.isEmpty())
+                    continue;
+                List<String> key = new ArrayList<>(stopTimes.size() + 1);
+                key.add(trip.route_id);
+                for (StopTime stopTime : stopTimes) {
+                    key.add(stopTime.stop_id);
+                }
+                BitSet validity = validityByService.computeIfAbsent(trip.service_id, serviceId -> validity(feed, feed.services.get(serviceId)));
+                Collection<Frequency> frequencies = feed.getFrequencies(trip.trip_id);
+                List<TripInstance> instances = tripsByStopSequence.computeIfAbsent(key, k -> new ArrayList<>());
+                if (frequencies.isEmpty()) {
+                    instances.add(tripInstance(trip, stopTimes, 0, -1, validity));
+                } else {
+                    for (Frequency frequency : frequencies) {
+                        for (int time = frequency.start_time; time < frequency.end_time; time += frequency.headway_secs) {
+                            instances.add(tripInstance(trip, stopTimes, time, time, validity));
+                        }
+                    }
+                }
+            }
+
+            for (Map.Entry<List<String>, List<TripInstance>> entry : tripsByStopSequence.entrySet()) {
+                List<String> key = entry.getKey();
+                int[] stops = new int[key.size() - 1];
+                boolean allStopsKnown = true;
+                for (int i = 0; i < stops.length; i++) {
+                    Integer stop = stopIndex.get(new GtfsStorage.FeedIdWithStopId(feedIds[f], key.get(i + 1)));
+                    if (stop == null) {
+                        allStopsKnown = false;
+                        break;
+                    }
+                    stops[i] = stop;
+                }
+                if (!allStopsKnown) {
+                    LOGGER.warn("Skipping trips of route {} which serve a stop without station", key.get(0));
+                    continue;
+                }
+                Route route = feed.routes.get(key.get(0));
+                ZoneId zoneId = ZoneId.of(feed.agency.get(route.agency_id).agency_timezone);
+                int[] transferGroupsOfStops = new int[stops.length];
+                for (int i = 0; i < stops.length; i++) {
+                    List<Transfer> rules = transfersFromStop.getOrDefault(key.get(i + 1), Collections.emptyList());
+                    boolean routeSpecific = rules.stream().anyMatch(t -> route.route_id.equals(t.from_route_id));
+                    String groupKey = key.get(i + 1) + (routeSpecific ? "|" + route.route_id : "");
+                    final String feedId = feedIds[f];
+                    final int fromStop = stops[i];
+                    transferGroupsOfStops[i] = transferGroupIndex.computeIfAbsent(groupKey, k -> {
+                        transferGroups.add(transfers(feedId, fromStop, rules, routeSpecific ? route.route_id : null));
+                        return transferGroups.size() - 1;
+                    });
+                }
+                for (List<TripInstance> patternTrips : splitIntoFifoPatterns(entry.getValue())) {
+                    patternStopsStartList.add(patternStopsList.size());
+                    patternStopsList.add(stops);
+                    patternTransferGroupList.add(transferGroupsOfStops);
+                    patternTripsStartList.add(trips.size());
+                    patternFeedList.add(f);
+                    patternRouteTypeList.add(route.route_type);
+                    patternZoneIdList.add(zoneId);
+                    trips.addAll(patternTrips);
+                }
+            }
+        }
+        patternStopsStartList.add(patternStopsList.size());
+        patternTripsStartList.add(trips.size());
+
+        stopIds = stopIdList.toArray(new String[0]);
+        stopFeeds = stopFeedList.toArray();
+        stationNodes = stationNodeList.toArray();
+        patternStopsStart = patternStopsStartList.toArray();
+        patternStops = patternStopsList.toArray();
+        patternTripsStart = patternTripsStartList.toArray();
+        patternFeeds = patternFeedList.toArray();
+        patternRouteTypes = patternRouteTypeList.toArray();
+        patternZoneIds = patternZoneIdList.toArray(new ZoneId[0]);
+
+        tripIds = new String[trips.size()];
+        tripRouteIds = new String[trips.size()];
+        tripStartTimes = new int[trips.size()];
+        tripValidities = new BitSet[trips.size()];
+        tripStopTimesStart = new int[trips.size() + 1];
+        IntArrayList arrivalList = new IntArrayList();
+        IntArrayList departureList = new IntArrayList();
+        IntArrayList stopSequenceList = new IntArrayList();
+        for (int t = 0; t < trips.size(); t++) {
+            TripInstance trip = trips.get(t);
+            tripIds[t] = trip.trip.trip_id;
+            tripRouteIds[t] = trip.trip.route_id;
+            tripStartTimes[t] = trip.startTime;
+            tripValidities[t] = trip.validity;
+            tripStopTimesStart[t] = arrivalList.size();
+            arrivalList.add(trip.arrivals);
+            departureList.add(trip.departures);
+            stopSequenceList.add(trip.stopSequences);
+        }
+        tripStopTimesStart[trips.size()] = arrivalList.size();
+        arrivalTimes = arrivalList.toArray();
+        departureTimes = departureList.toArray();
+        stopSequences = stopSequenceList.toArray();
+
+        List<IntArrayList> patternsByStop = new ArrayList<>(stopIds.length);
+        for (int s = 0; s < stopIds.length; s++) {
+            patternsByStop.add(new IntArrayList());
+        }
+        for (int p = 0; p < getPatterns(); p++) {
+            for (int i = patternStopsStart[p]; i < patternStopsStart[p + 1]; i++) {
+                IntArrayList patterns = patternsByStop.get(patternStops[i]);
+                if (patterns.isEmpty() || patterns.get(patterns.size() - 1) != p)
+                    patterns.add(p);
+            }
+        }
+        stopPatternsStart = new int[stopIds.length + 1];
+        IntArrayList stopPatternList = new IntArrayList();
+        for (int s = 0; s < stopIds.length; s++) {
+            stopPatternsStart[s] = stopPatternList.size();
+            stopPatternList.addAll(patternsByStop.get(s));
+        }
+        stopPatternsStart[stopIds.length] = stopPatternList.size();
+        stopPatterns = stopPatternList.toArray();
+
+        patternTransferGroups = patternTransferGroupList.toArray();
+        transfersStart = new int[transferGroups.size() + 1];
+        IntArrayList transferTargetList = new IntArrayList();
+        IntArrayList transferTimeList = new IntArrayList();
+        for (int g = 0; g < transferGroups.size(); g++) {
+            transfersStart[g] = transferTargetList.size();
+            for (int[] transfer : transferGroups.get(g)) {
+                transferTargetList.add(transfer[0]);
+                transferTimeList.add(transfer[1]);
+            }
+        }
+        transfersStart[transferGroups.size()] = transferTargetList.size();
+        transferTargets = transferTargetList.toArray();
+        transferTimes = transferTimeList.toArray();
+        LOGGER.info("Created timetable with {} stops, {} patterns, {} trips and {} stop times", stopIds.length, getPatterns(), trips.size(), arrivalTimes.length);
+    }
+
+    /**
+     * Creates the transfers after alighting at the specified stop like in the graph: a rule for the route of the
+     * arriving trip takes precedence over a rule for any route, and the transfer within the stop needs no time unless
+     * there is a rule for it. As we do not know the next route yet, the longest time of the rules for different
+     * routes to the same stop is used.
+     *
+     * @param fromRouteId the route of the arriving trip or null if there are no rules for it
+     */
+    private List<int[]> transfers(String feedId, int fromStop, List<Transfer> rules, String fromRouteId) {
+        Map<Integer, Integer> timeByTarget = new LinkedHashMap<>();
+        Map<Integer, Integer> routeSpecificTimeByTarget = new HashMap<>();
+        for (Transfer rule : rules) {
+            Integer to = stopIndex.get(new GtfsStorage.FeedIdWithStopId(feedId, rule.to_stop_id));
+            if (to == null)
+                continue;
+            if (rule.from_route_id == null)
+                timeByTarget.merge(to, rule.min_transfer_time, Math::max);
+            else if (rule.from_route_id.equals(fromRouteId))
+                routeSpecificTimeByTarget.merge(to, rule.min_transfer_time, Math::max);
+        }
+        timeByTarget.putAll(routeSpecificTimeByTarget);
+        timeByTarget.putIfAbsent(fromStop, 0);
+        List<int[]> transfers = new ArrayList<>();
+        timeByTarget.forEach((to, time) -> transfers.add(new int[]{to, time}));
+        return transfers;
+    }
+
+    private static BitSet validity(GTFSFeed feed, Service service) {
+        LocalDate startDate = feed.getStartDate();
+        LocalDate endDate = feed.getEndDate();
+        BitSet validOnDay = new BitSet((int) DAYS.between(startDate, endDate));
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            if (service.activeOn(date)) {
+                validOnDay.set((int) DAYS.between(startDate, date));
+            }
+        }
+        return validOnDay;
+    }
+
+    private static TripInstance tripInstance(Trip trip, List<StopTime> stopTimes, int time, int startTime, BitSet validity) {
+        int[] arrivals = new int[stopTimes.size()];
+        int[] departures = new int[stopTimes.size()];
+        int[] stopSequences = new int[stopTimes.size()];
+        for (int i = 0; i < stopTimes.size(); i++) {
+            StopTime stopTime = stopTimes.get(i);
+            arrivals[i] = stopTime.arrival_time + time;
+            departures[i] = stopTime.departure_time + time;
+            stopSequences[i] = stopTime.stop_sequence;
+        }
+        return new TripInstance(trip, startTime, validity, arrivals, departures, stopSequences);
+    }
+
+    /**
+     * Sorts the trips by departure and distributes them over as few lists as possible, so that no trip of a list
+     * overtakes an earlier trip of the same list.
+     */
+    private static List<List<TripInstance>> splitIntoFifoPatterns(List<TripInstance> trips) {
+        trips.sort(Comparator.comparingInt(t -> t.departures[0]));
+        List<List<TripInstance>> patterns = new ArrayList<>();
+        for (TripInstance trip : trips) {
+            List<TripInstance> pattern = null;
+            for (List<TripInstance> p : patterns) {
+                if (!trip.overtakes(p.get(p.size() - 1))) {
+                    pattern = p;
+                    break;
+                }
+            }
+            if (pattern == null) {
+                pattern = new ArrayList<>();
+                patterns.add(pattern);
+            }
+            pattern.add(trip);
+        }
+        return patterns;
+    }
+
+    int getStops() {
+        return stopIds.length;
+    }
+
+    int getPatterns() {
+        return patternFeeds.length;
+    }
+
+    /**
+     * @return the index of the specified stop or -1
+     */
+    int getStopIndex(String feedId, String stopId) {
+        Integer stop = stopIndex.get(new GtfsStorage.FeedIdWithStopId(feedId, stopId));
+        return stop == null ? -1 : stop;
+    }
+
+    /**
+     * @return the key of the trip in {@link GtfsStorage#getBoardEdgesForTrip()}
+     */
+    String getTripKey(int trip) {
+        return tripStartTimes[trip] < 0 ? tripIds[trip] : tripIds[trip] + Entity.Writer.convertToGtfsTime(tripStartTimes[trip]);
+    }
+}
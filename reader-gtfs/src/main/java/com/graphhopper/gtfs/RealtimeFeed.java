@@ -67,13 +67,14 @@ public class RealtimeFeed {
     private final List<VirtualEdgeIteratorState> additionalEdges;
     public final Map<String, GtfsRealtime.FeedMessage> feedMessages;
     private final GtfsStorage staticGtfs;
-    private final Map<Integer, byte[]> additionalTripDescriptors;
+    private final Map<Integer, GtfsRealtime.TripDescriptor> additionalTripDescriptors;
     private final Map<Integer, Integer> stopSequences;
-    private final Map<Integer, GtfsStorage.Validity> validities;
+    private final GtfsStorage.Validity[] validities;
+    // only the platform descriptors of the additional edges, the others are in the static storage
     private final Map<Integer, GtfsStorageI.PlatformDescriptor> platformDescriptorByEdge;
 
     private RealtimeFeed(GtfsStorage staticGtfs, Map<String, GtfsRealtime.FeedMessage> feedMessages, IntHashSet blockedEdges,
-                         IntLongHashMap delaysForBoardEdges, IntLongHashMap delaysForAlightEdges, List<VirtualEdgeIteratorState> additionalEdges, Map<Integer, byte[]> tripDescriptors, Map<Integer, Integer> stopSequences, Map<GtfsStorage.Validity, Integer> operatingDayPatterns, Map<GtfsStorage.FeedIdWithTimezone, Integer> writableTimeZones, Map<Integer, GtfsStorageI.PlatformDescriptor> platformDescriptorByEdge) {
+                         IntLongHashMap delaysForBoardEdges, IntLongHashMap delaysForAlightEdges, List<VirtualEdgeIteratorState> additionalEdges, Map<Integer, GtfsRealtime.TripDescriptor> tripDescriptors, Map<Integer, Integer> stopSequences, Map<GtfsStorage.Validity, Integer> operatingDayPatterns, Map<GtfsStorage.FeedIdWithTimezone, Integer> writableTimeZones, Map<Integer, GtfsStorageI.PlatformDescriptor> platformDescriptorByEdge) {
         this.staticGtfs = staticGtfs;
         this.feedMessages = feedMessages;
         this.blockedEdges = blockedEdges;
@@ -82,16 +83,15 @@ public class RealtimeFeed {
         this.additionalEdges = additionalEdges;
         this.additionalTripDescriptors = tripDescriptors;
         this.stopSequences = stopSequences;
-        Map<Integer, GtfsStorage.Validity> reverseOperatingDayPatterns = new HashMap<>();
+        this.validities = new GtfsStorage.Validity[operatingDayPatterns.size()];
         for (Map.Entry<GtfsStorage.Validity, Integer> entry : operatingDayPatterns.entrySet()) {
-            reverseOperatingDayPatterns.put(entry.getValue(), entry.getKey());
+            validities[entry.getValue()] = entry.getKey();
         }
-        this.validities = Collections.unmodifiableMap(reverseOperatingDayPatterns);
         this.platformDescriptorByEdge = platformDescriptorByEdge;
     }
 
     public static RealtimeFeed empty(GtfsStorage staticGtfs) {
-        return new RealtimeFeed(staticGtfs, Collections.emptyMap(), new IntHashSet(), new IntLongHashMap(), new IntLongHashMap(), Collections.emptyList(), Collections.emptyMap(), Collections.emptyMap(), staticGtfs.getOperatingDayPatterns(), staticGtfs.getWritableTimeZones(), staticGtfs.getPlatformDescriptorByEdge());
+        return new RealtimeFeed(staticGtfs, Collections.emptyMap(), new IntHashSet(), new IntLongHashMap(), new IntLongHashMap(), Collections.emptyList(), Collections.emptyMap(), Collections.emptyMap(), staticGtfs.getOperatingDayPatterns(), staticGtfs.getWritableTimeZones(), Collections.emptyMap());
     }
 
     public static RealtimeFeed fromProtobuf(GraphHopperStorage graphHopperStorage, GtfsStorage staticGtfs, Map<String, Transfers> transfers, Map<String, GtfsRealtime.FeedMessage> feedMessages) {
@@ -264,12 +264,25 @@ public class RealtimeFeed {
         };
 
         Map<GtfsStorage.Validity, Integer> operatingDayPatterns = new HashMap<>(staticGtfs.getOperatingDayPatterns());
-        Map<Integer, byte[]> tripDescriptors = new HashMap<>();
+        Map<Integer, GtfsRealtime.TripDescriptor> tripDescriptors = new HashMap<>();
         Map<Integer, Integer> stopSequences = new HashMap<>();
         Map<String, int[]> boardEdgesForTrip = new HashMap<>();
         Map<String, int[]> alightEdgesForTrip = new HashMap<>();
         Map<GtfsStorage.FeedIdWithTimezone, Integer> writableTimeZones = new HashMap<>(staticGtfs.getWritableTimeZones());
-        Map<Integer, GtfsStorageI.PlatformDescriptor> platformDescriptorByEdge = new HashMap<>(staticGtfs.getPlatformDescriptorByEdge()); // FIXME: Too slow for production
+        Map<Integer, GtfsStorageI.PlatformDescriptor> platformDescriptorByEdge = new HashMap<>();
+        // the reader also looks up the platforms of static edges, so we put the new ones on top of the static storage
+        GtfsStorageI.PlatformDescriptorsByEdge allPlatformDescriptorsByEdge = new GtfsStorageI.PlatformDescriptorsByEdge() {
+            @Override
+            public GtfsStorageI.PlatformDescriptor get(int edge) {
+                GtfsStorageI.PlatformDescriptor platformDescriptor = platformDescriptorByEdge.get(edge);
+                return platformDescriptor != null ? platformDescriptor : staticGtfs.getPlatformDescriptor(edge);
+            }
+
+            @Override
+            public void put(int edge, GtfsStorageI.PlatformDescriptor platformDescriptor) {
+                platformDescriptorByEdge.put(edge, platformDescriptor);
+            }
+        };
 
         feedMessages.forEach((feedKey, feedMessage) -> {
             GTFSFeed feed = staticGtfs.getGtfsFeeds().get(feedKey);
@@ -296,7 +309,7 @@ public class RealtimeFeed {
                 }
 
                 @Override
-                public Map<Integer, byte[]> getTripDescriptors() {
+                public Map<Integer, GtfsRealtime.TripDescriptor> getTripDescriptors() {
                     return tripDescriptors;
                 }
 
@@ -328,8 +341,8 @@ public class RealtimeFeed {
                 }
 
                 @Override
-                public Map<Integer, PlatformDescriptor> getPlatformDescriptorByEdge() {
-                    return platformDescriptorByEdge;
+                public PlatformDescriptorsByEdge getPlatformDescriptorByEdge() {
+                    return allPlatformDescriptorsByEdge;
                 }
             };
             final GtfsReader gtfsReader = new GtfsReader(feedKey, overlayGraph, graphHopperStorage.getEncodingManager(), gtfsStorage, null, transfers.get(feedKey));
@@ -574,12 +587,14 @@ public class RealtimeFeed {
         }).findFirst().orElse(Instant.now());
     }
 
-    public byte[] getTripDescriptor(int edge) {
-        return staticGtfs.getTripDescriptors().getOrDefault(edge, additionalTripDescriptors.get(edge));
+    public GtfsRealtime.TripDescriptor getTripDescriptor(int edge) {
+        GtfsRealtime.TripDescriptor tripDescriptor = staticGtfs.getTripDescriptor(edge);
+        return tripDescriptor != null ? tripDescriptor : additionalTripDescriptors.get(edge);
     }
 
     public int getStopSequence(int edge) {
-        return staticGtfs.getStopSequences().getOrDefault(edge, stopSequences.get(edge));
+        int stopSequence = staticGtfs.getStopSequence(edge);
+        return stopSequence >= 0 ? stopSequence : stopSequences.get(edge);
     }
 
     public StopTime getStopTime(GTFSFeed staticFeed, GtfsRealtime.TripDescriptor tripDescriptor, Label.Transition t, Instant boardTime, int stopSequence) {
@@ -592,11 +607,12 @@ public class RealtimeFeed {
     }
 
     public GtfsStorage.Validity getValidity(int validityId) {
-        return validities.get(validityId);
+        return validities[validityId];
     }
 
-    public Map<Integer, GtfsStorageI.PlatformDescriptor> getPlatformDescriptorByEdge() {
-        return platformDescriptorByEdge;
+    public GtfsStorageI.PlatformDescriptor getPlatformDescriptor(int edge) {
+        GtfsStorageI.PlatformDescriptor platformDescriptor = staticGtfs.getPlatformDescriptor(edge);
+        return platformDescriptor != null ? platformDescriptor : platformDescriptorByEdge.get(edge);
     }
 
 }
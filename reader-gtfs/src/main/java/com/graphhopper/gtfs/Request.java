@@ -29,6 +29,18 @@ import java.util.List;
 import java.util.Locale;
 
 public class Request {
+    public enum Algorithm {
+        /**
+         * The label-setting search on the time-expanded graph, which supports all request parameters and realtime updates.
+         */
+        LABEL_SETTING,
+        /**
+         * The round-based search on the timetable, see {@link RaptorTimetable}. It only considers the static timetable,
+         * and uses the label-setting search for arrive-by queries.
+         */
+        RAPTOR
+    }
+
     private List<GHLocation> points;
     private Instant earliestDepartureTime;
     private int maxVisitedNodes = 1_000_000;
@@ -44,6 +56,7 @@ public class Request {
     private Duration limitStreetTime;
     private Duration maxProfileDuration = Duration.ofHours(1);
     private List<String> pathDetails = new ArrayList<>();
+    private Algorithm algorithm = Algorithm.LABEL_SETTING;
 
     public Request(List<GHLocation> points, Instant departureTime) {
         this.points = points;
@@ -169,4 +182,12 @@ public class Request {
     public void setPathDetails(List<String> pathDetails) {
         this.pathDetails = pathDetails;
     }
+
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public void setAlgorithm(Algorithm algorithm) {
+        this.algorithm = algorithm;
+    }
 }
@@ -36,6 +36,7 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.ZoneId;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -56,6 +57,7 @@ public class GraphHopperGtfsIT {
         ghConfig.putObject("graph.flag_encoders", "car,foot");
         ghConfig.putObject("graph.location", GRAPH_LOC);
         ghConfig.putObject("gtfs.file", "files/sample-feed.zip");
+        ghConfig.putObject("gtfs.raptor", true);
         Helper.removeDir(new File(GRAPH_LOC));
         graphHopperGtfs = new GraphHopperGtfs(ghConfig);
         graphHopperGtfs.init(ghConfig);
@@ -535,4 +537,90 @@ public class GraphHopperGtfsIT {
         assertEquals("Prefer solution without transfers when I give the higher beta", solutionWithoutTransfer.getTime(), response.getBest().getTime());
     }
 
+    @Test
+    public void testRaptorFindsTheSameRoutesAsLabelSetting() {
+        double[][] points = {
+                {36.914893, -116.76821}, // NADAV stop
+                {36.914944, -116.761472}, // NANAA stop
+                {36.915682, -116.751677}, // STAGECOACH stop
+                {36.909489, -116.768242}, // DADAN stop
+                {36.88108, -116.81797}, // BULLFROG stop
+                {36.868446, -116.784582} // BEATTY_AIRPORT stop
+        };
+        for (double[] from : points) {
+            for (double[] to : points) {
+                if (from == to)
+                    continue;
+                for (LocalDateTime departureTime : Arrays.asList(LocalDateTime.of(2007, 1, 1, 0, 0), LocalDateTime.of(2007, 1, 1, 8, 3), LocalDateTime.of(2007, 1, 6, 11, 0))) {
+                    Request ghRequest = new Request(from[0], from[1], to[0], to[1]);
+                    ghRequest.setEarliestDepartureTime(departureTime.atZone(zoneId).toInstant());
+                    ghRequest.setIgnoreTransfers(true);
+                    GHResponse expected = ptRouter.route(ghRequest);
+                    ghRequest.setAlgorithm(Request.Algorithm.RAPTOR);
+                    GHResponse actual = ptRouter.route(ghRequest);
+
+                    String message = Arrays.toString(from) + " -> " + Arrays.toString(to) + " at " + departureTime;
+                    assertEquals(message, expected.hasErrors(), actual.hasErrors());
+                    if (expected.hasErrors())
+                        continue;
+                    assertEquals(message, expected.getBest().getTime(), actual.getBest().getTime());
+                    assertEquals(message, tripIds(expected.getBest()), tripIds(actual.getBest()));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRaptorFindsTransfers() {
+        final double FROM_LAT = 36.915682, FROM_LON = -116.751677; // STAGECOACH stop
+        final double TO_LAT = 36.88108, TO_LON = -116.81797; // BULLFROG stop
+        Request ghRequest = new Request(
+                FROM_LAT, FROM_LON,
+                TO_LAT, TO_LON
+        );
+        ghRequest.setEarliestDepartureTime(LocalDateTime.of(2007, 1, 1, 0, 0).atZone(zoneId).toInstant());
+        ghRequest.setAlgorithm(Request.Algorithm.RAPTOR);
+        GHResponse route = ptRouter.route(ghRequest);
+
+        assertFalse(route.toString(), route.hasErrors());
+        assertEquals("Expected travel time == scheduled travel time", time(8, 10), route.getBest().getTime());
+        assertEquals("Using expected route", "STBA", (((Trip.PtLeg) route.getBest().getLegs().get(0)).trip_id));
+        assertEquals("Using expected route", "AB1", (((Trip.PtLeg) route.getBest().getLegs().get(1)).trip_id));
+        assertEquals("Paid expected fare", 250, route.getBest().getFare().multiply(BigDecimal.valueOf(100)).intValue());
+    }
+
+    @Test
+    public void testRaptorProfileEarliestArrival() {
+        final double FROM_LAT = 36.914893, FROM_LON = -116.76821; // NADAV stop
+        final double TO_LAT = 36.914944, TO_LON = -116.761472; // NANAA stop
+        Request ghRequest = new Request(
+                FROM_LAT, FROM_LON,
+                TO_LAT, TO_LON
+        );
+        ghRequest.setEarliestDepartureTime(LocalDateTime.of(2007, 1, 1, 6, 0).atZone(zoneId).toInstant());
+        ghRequest.setProfileQuery(true);
+        ghRequest.setIgnoreTransfers(true);
+        ghRequest.setLimitSolutions(Integer.MAX_VALUE);
+        ghRequest.setMaxProfileDuration(Duration.ofHours(4));
+        ghRequest.setAlgorithm(Request.Algorithm.RAPTOR);
+
+        GHResponse response = ptRouter.route(ghRequest);
+        List<LocalTime> actualDepartureTimes = response.getAll().stream()
+                .map(path -> LocalTime.from(path.getLegs().get(0).getDepartureTime().toInstant().atZone(zoneId)))
+                .collect(Collectors.toList());
+        // the same as for the label-setting search, including the departure at 10:04 which is still optimal at 10:00
+        List<LocalTime> expectedDepartureTimes = Stream.of(
+                "06:44", "07:14", "07:44", "08:14", "08:44", "08:54", "09:04", "09:14", "09:24", "09:34", "09:44", "09:54", "10:04")
+                .map(LocalTime::parse)
+                .collect(Collectors.toList());
+        assertEquals(expectedDepartureTimes, actualDepartureTimes);
+    }
+
+    private static List<String> tripIds(ResponsePath path) {
+        return path.getLegs().stream()
+                .filter(leg -> leg instanceof Trip.PtLeg)
+                .map(leg -> ((Trip.PtLeg) leg).trip_id)
+                .collect(Collectors.toList());
+    }
+
 }
@@ -0,0 +1,88 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs;
+
+import com.google.transit.realtime.GtfsRealtime;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.util.Helper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class GtfsEdgeStorageTest {
+    private static final String LOCATION = "./target/gtfs-edge-storage-test";
+
+    @Before
+    @After
+    public void removeDir() {
+        Helper.removeDir(new File(LOCATION));
+    }
+
+    @Test
+    public void testStoreAndLoad() {
+        GtfsRealtime.TripDescriptor trip1 = GtfsRealtime.TripDescriptor.newBuilder().setTripId("AB1").setRouteId("AB").build();
+        GtfsRealtime.TripDescriptor trip2 = GtfsRealtime.TripDescriptor.newBuilder().setTripId("AB2").setStartTime("06:00:00").build();
+        GtfsStorageI.PlatformDescriptor route = GtfsStorageI.PlatformDescriptor.route("gtfs_0", "STAGECOACH", "AB");
+        GtfsStorageI.PlatformDescriptor routeType = GtfsStorageI.PlatformDescriptor.routeType("gtfs_0", "BEATTY_AIRPORT", 3);
+
+        RAMDirectory dir = new RAMDirectory(LOCATION, true);
+        dir.create();
+        GtfsEdgeStorage storage = new GtfsEdgeStorage(dir);
+        storage.create();
+        storage.setStopSequence(3, 0);
+        storage.setTripDescriptor(3, trip1);
+        storage.setTripDescriptor(5, trip1);
+        storage.setTripDescriptor(100_000, trip2);
+        storage.setPlatformDescriptor(4, route);
+        storage.setPlatformDescriptor(7, routeType);
+        storage.getStopSequences().put(5, 12);
+        assertStored(storage, trip1, trip2, route, routeType);
+        storage.flush();
+        storage.close();
+
+        dir = new RAMDirectory(LOCATION, true);
+        storage = new GtfsEdgeStorage(dir);
+        assertTrue(storage.loadExisting());
+        assertStored(storage, trip1, trip2, route, routeType);
+        storage.close();
+    }
+
+    private void assertStored(GtfsEdgeStorage storage, GtfsRealtime.TripDescriptor trip1, GtfsRealtime.TripDescriptor trip2,
+                              GtfsStorageI.PlatformDescriptor route, GtfsStorageI.PlatformDescriptor routeType) {
+        assertEquals(100_001, storage.getEdgeCount());
+        assertEquals(0, storage.getStopSequence(3));
+        assertEquals(12, storage.getStopSequence(5));
+        assertEquals(-1, storage.getStopSequence(4));
+        assertEquals(-1, storage.getStopSequence(200_000));
+        assertEquals(trip1, storage.getTripDescriptor(3));
+        assertSame(storage.getTripDescriptor(3), storage.getTripDescriptor(5));
+        assertEquals(trip2, storage.getTripDescriptor(100_000));
+        assertNull(storage.getTripDescriptor(4));
+        assertEquals(route, storage.getPlatformDescriptor(4));
+        assertEquals(routeType, storage.getPlatformDescriptor(7));
+        assertNull(storage.getPlatformDescriptor(3));
+        assertEquals(2, storage.getPlatformDescriptors().size());
+        assertEquals(Integer.valueOf(12), storage.getStopSequences().get(5));
+        assertFalse(storage.getStopSequences().containsKey(7));
+    }
+}
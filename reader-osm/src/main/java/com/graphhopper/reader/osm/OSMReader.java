@@ -37,6 +37,11 @@ import javax.xml.stream.XMLStreamException;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.graphhopper.util.Helper.nf;
 
@@ -71,6 +76,7 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
     // tower node is <= -3
     protected static final int TOWER_NODE = -2;
     private static final Logger LOGGER = LoggerFactory.getLogger(OSMReader.class);
+    private static final int WAY_BATCH_SIZE = 10_000;
     private final GraphStorage ghStorage;
     private final Graph graph;
     private final NodeAccess nodeAccess;
@@ -92,9 +98,10 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
     // same here: not applicable as ways introduces the nodes in 'wrong' order: new OSMIDSegmentedMap
     // memory overhead due to open addressing and full rehash:
     //        nodeOsmIdToIndexMap = new BigLongIntMap(expectedNodes, EMPTY);
-    // smaller memory overhead for bigger data sets because of avoiding a "rehash"
+    // smaller memory overhead for bigger data sets because of avoiding a "rehash": new GHLongIntBTree(200)
+    // delta compressed sorted keys stored in the directory of the graph: new CompactLongIntMap
     // remember how many times a node was used to identify tower nodes
-    private LongIntMap osmNodeIdToInternalNodeMap;
+    private CompactLongIntMap osmNodeIdToInternalNodeMap;
     private GHLongLongHashMap osmNodeIdToNodeFlagsMap;
     private GHLongLongHashMap osmWayIdToRouteWeightMap;
     // stores osm way ids used by relations to identify which edge ids needs to be mapped later
@@ -117,7 +124,7 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         this.nodeAccess = graph.getNodeAccess();
         this.encodingManager = ghStorage.getEncodingManager();
 
-        osmNodeIdToInternalNodeMap = new GHLongIntBTree(200);
+        osmNodeIdToInternalNodeMap = new CompactLongIntMap(ghStorage.getDirectory(), "tmp_osm_node_map", EMPTY_NODE);
         osmNodeIdToNodeFlagsMap = new GHLongLongHashMap(200, .5f);
         osmWayIdToRouteWeightMap = new GHLongLongHashMap(200, .5f);
         pillarInfo = new PillarInfo(nodeAccess.is3D(), ghStorage.getDirectory());
@@ -141,6 +148,8 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
 
         StopWatch sw1 = new StopWatch().start();
         preProcess(osmFile);
+        // compress the remaining node ids before the nodes are looked up in the second pass
+        getNodeMap().optimize();
         sw1.stop();
 
         StopWatch sw2 = new StopWatch().start();
@@ -252,6 +261,9 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         long wayStart = -1;
         long relationStart = -1;
         long counter = 1;
+        // with more than one worker thread the tags of the ways are parsed in parallel batches, see processWays
+        ExecutorService wayExecutor = workerThreads > 1 ? createWayExecutor() : null;
+        List<ReaderWay> wayBatch = new ArrayList<>(WAY_BATCH_SIZE);
         try (OSMInput in = openOsmInputFile(osmFile)) {
             LongIntMap nodeFilter = getNodeMap();
 
@@ -269,9 +281,16 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
                             LOGGER.info(nf(counter) + ", now parsing ways");
                             wayStart = counter;
                         }
-                        processWay((ReaderWay) item);
+                        if (wayExecutor == null) {
+                            processWay((ReaderWay) item);
+                        } else {
+                            wayBatch.add((ReaderWay) item);
+                            if (wayBatch.size() == WAY_BATCH_SIZE)
+                                processWays(wayBatch, wayExecutor);
+                        }
                         break;
                     case ReaderElement.RELATION:
+                        processWays(wayBatch, wayExecutor);
                         if (relationStart < 0) {
                             LOGGER.info(nf(counter) + ", now parsing relations");
                             relationStart = counter;
@@ -287,6 +306,7 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
                     LOGGER.info(nf(counter) + ", locs:" + nf(locations) + " (" + skippedLocations + ") " + Helper.getMemInfo());
                 }
             }
+            processWays(wayBatch, wayExecutor);
 
             if (in.getUnprocessedElements() > 0)
                 throw new IllegalStateException("Still unprocessed elements in reader queue " + in.getUnprocessedElements());
@@ -294,6 +314,9 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
             // logger.info("storage nodes:" + storage.nodes() + " vs. graph nodes:" + storage.getGraph().nodes());
         } catch (Exception ex) {
             throw new RuntimeException("Couldn't process file " + osmFile + ", error: " + ex.getMessage(), ex);
+        } finally {
+            if (wayExecutor != null)
+                wayExecutor.shutdownNow();
         }
 
         finishedReading();
@@ -305,24 +328,75 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         return new OSMInputFile(osmFile).setWorkerThreads(workerThreads).open();
     }
 
+    private ExecutorService createWayExecutor() {
+        AtomicInteger threadCounter = new AtomicInteger();
+        return Executors.newFixedThreadPool(workerThreads, r -> {
+            Thread thread = new Thread(r, "osm-way-parser-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
     /**
-     * Process properties, encode flags and create edges for the way.
+     * Does the same as {@link #processWay} for every way of the batch, but the tag parsing and edge flag encoding is
+     * split among the threads of the specified executor. Only the creation of the edges happens on the calling thread
+     * and in the order of the batch, so that the resulting graph is identical to the one of a single threaded import.
+     * The batch is cleared afterwards.
      */
-    protected void processWay(ReaderWay way) {
-        if (way.getNodes().size() < 2)
+    private void processWays(List<ReaderWay> ways, ExecutorService executor) throws InterruptedException, ExecutionException {
+        if (ways.isEmpty())
             return;
+        IntsRef[] edgeFlags = new IntsRef[ways.size()];
+        int chunkSize = (ways.size() + workerThreads - 1) / workerThreads;
+        List<Future<?>> futures = new ArrayList<>(workerThreads);
+        for (int start = 0; start < ways.size(); start += chunkSize) {
+            final int from = start, to = Math.min(ways.size(), start + chunkSize);
+            futures.add(executor.submit(() -> {
+                IntsRef relationFlags = encodingManager.createRelationFlags();
+                for (int i = from; i < to; i++) {
+                    ReaderWay way = ways.get(i);
+                    edgeFlags[i] = parseWay(way, getRelFlagsMap(way.getId(), relationFlags));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        for (int i = 0; i < edgeFlags.length; i++) {
+            if (edgeFlags[i] != null)
+                addWay(ways.get(i), edgeFlags[i]);
+        }
+        ways.clear();
+    }
+
+    /**
+     * Process properties, encode flags and create edges for the way. This is only used for single threaded imports,
+     * so subclasses need to override {@link #parseWay} or {@link #addWay} instead, which are used for both.
+     */
+    final void processWay(ReaderWay way) {
+        IntsRef edgeFlags = parseWay(way, getRelFlagsMap(way.getId()));
+        if (edgeFlags != null)
+            addWay(way, edgeFlags);
+    }
+
+    /**
+     * Parses the tags of the specified way into edge flags. This method does not modify the graph or the maps of this
+     * reader and so it can be called concurrently for different ways, see {@link #processWays}. Overriding methods
+     * must be thread-safe as well.
+     *
+     * @return the edge flags or null if the way should be skipped
+     */
+    protected IntsRef parseWay(ReaderWay way, IntsRef relationFlags) {
+        if (way.getNodes().size() < 2)
+            return null;
 
         // ignore multipolygon geometry
         if (!way.hasTags())
-            return;
-
-        long wayOsmId = way.getId();
+            return null;
 
         EncodingManager.AcceptWay acceptWay = new EncodingManager.AcceptWay();
         if (!encodingManager.acceptWay(way, acceptWay))
-            return;
-
-        IntsRef relationFlags = getRelFlagsMap(way.getId());
+            return null;
 
         // TODO move this after we have created the edge and know the coordinates => encodingManager.applyWayTags
         LongArrayList osmNodeIds = way.getNodes();
@@ -349,9 +423,16 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         }
 
         IntsRef edgeFlags = encodingManager.handleWayTags(way, acceptWay, relationFlags);
-        if (edgeFlags.isEmpty())
-            return;
+        return edgeFlags.isEmpty() ? null : edgeFlags;
+    }
 
+    /**
+     * Creates the edges for the specified way, which must happen in the order of the ways in the file. This is always
+     * called on the reading thread.
+     */
+    protected void addWay(ReaderWay way, IntsRef edgeFlags) {
+        long wayOsmId = way.getId();
+        LongArrayList osmNodeIds = way.getNodes();
         List<EdgeIteratorState> createdEdges = new ArrayList<>();
         // look for barriers along the way
         final int size = osmNodeIds.size();
@@ -745,6 +826,7 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
         pillarInfo.clear();
         encodingManager.releaseParsers();
         eleProvider.release();
+        osmNodeIdToInternalNodeMap.release();
         osmNodeIdToInternalNodeMap = null;
         osmNodeIdToNodeFlagsMap = null;
         osmWayIdToRouteWeightMap = null;
@@ -880,10 +962,14 @@ public class OSMReader implements DataReader, TurnCostParser.ExternalInternalMap
     }
 
     IntsRef getRelFlagsMap(long osmId) {
+        return getRelFlagsMap(osmId, tempRelFlags);
+    }
+
+    private IntsRef getRelFlagsMap(long osmId, IntsRef relFlags) {
         long relFlagsAsLong = osmWayIdToRouteWeightMap.get(osmId);
-        tempRelFlags.ints[0] = (int) relFlagsAsLong;
-        tempRelFlags.ints[1] = (int) (relFlagsAsLong >> 32);
-        return tempRelFlags;
+        relFlags.ints[0] = (int) relFlagsAsLong;
+        relFlags.ints[1] = (int) (relFlagsAsLong >> 32);
+        return relFlags;
     }
 
     void putRelFlagsMap(long osmId, IntsRef relFlags) {
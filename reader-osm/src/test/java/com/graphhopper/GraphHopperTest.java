@@ -25,6 +25,7 @@ import com.graphhopper.reader.dem.ElevationProvider;
 import com.graphhopper.reader.dem.SRTMProvider;
 import com.graphhopper.reader.dem.SkadiProvider;
 import com.graphhopper.reader.osm.GraphHopperOSM;
+import com.graphhopper.routing.RouteCache;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.CarFlagEncoder;
 import com.graphhopper.routing.util.DefaultFlagEncoderFactory;
@@ -32,13 +33,18 @@ import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.parsers.OSMMaxSpeedParser;
 import com.graphhopper.routing.util.parsers.OSMRoadEnvironmentParser;
 import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccessWarmup;
+import com.graphhopper.storage.Directory;
 import com.graphhopper.storage.IntsRef;
+import com.graphhopper.storage.index.LocationIndexRTree;
 import com.graphhopper.util.*;
 import com.graphhopper.util.Parameters.CH;
 import com.graphhopper.util.Parameters.Landmark;
 import com.graphhopper.util.Parameters.Routing;
 import com.graphhopper.util.details.PathDetail;
 import com.graphhopper.util.exceptions.PointDistanceExceededException;
+import com.graphhopper.util.exceptions.PointNotFoundException;
 import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
 import com.graphhopper.util.shapes.GHPoint3D;
@@ -52,12 +58,14 @@ import org.junit.jupiter.params.provider.ValueSource;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 import static com.graphhopper.Junit4To5Assertions.*;
 import static com.graphhopper.util.Parameters.Algorithms.*;
 import static com.graphhopper.util.Parameters.Curbsides.*;
 import static com.graphhopper.util.Parameters.Routing.U_TURN_COSTS;
 import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
  * @author Peter Karich
@@ -122,6 +130,73 @@ public class GraphHopperTest {
         assertEquals(43.7495432, res.getWaypoints().getLat(1), 1e-7);
     }
 
+    @Test
+    public void testMonacoWithRTreeIndex() {
+        final String profile = "profile";
+        final String vehicle = "foot";
+        GraphHopper hopper = createGraphHopper(vehicle).
+                setOSMFile(MONACO).
+                setLocationIndexType("rtree").
+                setProfiles(new Profile(profile).setVehicle(vehicle).setWeighting("shortest")).
+                setStoreOnFlush(true).
+                importOrLoad();
+        assertTrue(hopper.getLocationIndex() instanceof LocationIndexRTree);
+        hopper.close();
+
+        // load the stored index
+        hopper = createGraphHopper(vehicle).
+                setLocationIndexType("rtree").
+                setProfiles(new Profile(profile).setVehicle(vehicle).setWeighting("shortest")).
+                setStoreOnFlush(true);
+        assertTrue(hopper.load(GH_LOCATION));
+        GHResponse rsp = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).
+                setAlgorithm(ASTAR).setProfile(profile));
+        ResponsePath res = rsp.getBest();
+        assertEquals(3437.6, res.getDistance(), .1);
+        assertEquals(85, res.getPoints().getSize());
+        assertEquals(43.7276852, res.getWaypoints().getLat(0), 1e-7);
+        assertEquals(43.7495432, res.getWaypoints().getLat(1), 1e-7);
+
+        rsp = hopper.route(new GHRequest(43.727687, 7.418737, 43.9, 7.436566).setProfile(profile));
+        assertTrue(rsp.getErrors().get(0) instanceof PointNotFoundException);
+        hopper.close();
+    }
+
+    @Test
+    public void testMonacoMemoryMappedWithWarmup() throws InterruptedException {
+        final String profile = "profile";
+        final String vehicle = "foot";
+        GraphHopper hopper = createGraphHopper(vehicle).
+                setOSMFile(MONACO).
+                setProfiles(new Profile(profile).setVehicle(vehicle).setWeighting("shortest")).
+                setStoreOnFlush(true).
+                importOrLoad();
+        hopper.close();
+
+        hopper = new GraphHopperOSM().init(new GraphHopperConfig().
+                putObject("graph.location", GH_LOCATION).
+                putObject("graph.flag_encoders", vehicle).
+                putObject("graph.dataaccess", "RAM_STORE").
+                putObject("graph.dataaccess.type.nodes|edges", "MMAP").
+                putObject("graph.dataaccess.warmup", "nodes,edges,geometry").
+                setProfiles(Collections.singletonList(new Profile(profile).setVehicle(vehicle).setWeighting("shortest"))));
+        hopper.setAllowWrites(false);
+        assertTrue(hopper.load(GH_LOCATION));
+        assertEquals(DAType.MMAP_RO, hopper.getGraphHopperStorage().getDirectory().find("edges").getType());
+        assertEquals(DAType.RAM_STORE, hopper.getGraphHopperStorage().getDirectory().find("geometry").getType());
+
+        DataAccessWarmup warmup = hopper.getDataAccessWarmup();
+        assertTrue(warmup.awaitFinished(10, TimeUnit.SECONDS));
+        // geometry is not memory mapped and so it is already in memory
+        Directory dir = hopper.getGraphHopperStorage().getDirectory();
+        assertEquals(dir.find("nodes").getCapacity() + dir.find("edges").getCapacity(), warmup.getWarmedUpBytes());
+
+        GHResponse rsp = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).
+                setAlgorithm(ASTAR).setProfile(profile));
+        assertEquals(3437.6, rsp.getBest().getDistance(), .1);
+        hopper.close();
+    }
+
     @Test
     public void testMonacoWithInstructions() {
         final String profile = "profile";
@@ -199,6 +274,200 @@ public class GraphHopperTest {
                 withInstructionsPoints >= routeRsp.getBest().getPoints().size());
     }
 
+    @Test
+    public void testRouteCache() {
+        final String profile = "profile";
+        final String vehicle = "foot";
+        final String weighting = "shortest";
+        GraphHopper hopper = createGraphHopper(vehicle).
+                setOSMFile(MONACO).
+                setProfiles(new Profile(profile).setVehicle(vehicle).setWeighting(weighting)).
+                setStoreOnFlush(true).
+                setRouteCache(new RouteCache(10, 60, 5));
+        hopper.importOrLoad();
+
+        GHResponse rsp = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile));
+        assertFalse(rsp.hasErrors());
+        assertTrue(rsp == hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile)));
+        assertEquals(1, hopper.getRouteCache().getHits());
+        assertEquals(1, hopper.getRouteCache().getMisses());
+
+        // the cached responses must not be used for a newly loaded graph
+        RouteCache cache = hopper.getRouteCache();
+        hopper.close();
+        assertEquals(0, cache.getSize());
+        hopper = createGraphHopper(vehicle).
+                setProfiles(new Profile(profile).setVehicle(vehicle).setWeighting(weighting)).
+                setRouteCache(cache);
+        hopper.importOrLoad();
+        GHResponse rsp2 = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile));
+        assertTrue(rsp != rsp2);
+        assertEquals(rsp.getBest().getDistance(), rsp2.getBest().getDistance(), 1e-6);
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testRouteBatch() {
+        final String profile = "profile";
+        final String vehicle = "car";
+        GraphHopper hopper = createGraphHopper(vehicle).
+                setOSMFile(MONACO).
+                setProfiles(new Profile(profile).setVehicle(vehicle).setWeighting("fastest"));
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile));
+        hopper.getRouterConfig().setCHDisablingAllowed(true);
+        hopper.importOrLoad();
+
+        Random rnd = new Random(123);
+        List<GHRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            GHPoint from = new GHPoint(43.727 + rnd.nextDouble() * 0.022, 7.409 + rnd.nextDouble() * 0.03);
+            GHPoint to = new GHPoint(43.727 + rnd.nextDouble() * 0.022, 7.409 + rnd.nextDouble() * 0.03);
+            requests.add(new GHRequest(from, to).setProfile(profile));
+            // the same points again, so they are shared
+            if (i % 5 == 0)
+                requests.add(new GHRequest(to, from).setProfile(profile));
+        }
+        // requests that are not calculated on the shared query graph or that fail
+        requests.add(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile)
+                .setHeadings(Arrays.asList(90.0, Double.NaN)).putHint(CH.DISABLE, true));
+        requests.add(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile).putHint(CH.DISABLE, true));
+        requests.add(new GHRequest(43.727687, 7.418737, 53.74958, 7.436566).setProfile(profile));
+        requests.add(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("unknown"));
+
+        List<GHResponse> responses = hopper.routeBatch(requests);
+        assertEquals(requests.size(), responses.size());
+        for (int i = 0; i < requests.size(); i++) {
+            GHResponse expected = hopper.route(requests.get(i));
+            GHResponse rsp = responses.get(i);
+            assertEquals(expected.hasErrors(), rsp.hasErrors(), "request " + i + ": " + rsp.getErrors());
+            if (expected.hasErrors()) {
+                assertEquals(expected.getErrors().get(0).getMessage(), rsp.getErrors().get(0).getMessage());
+                continue;
+            }
+            // edges that contain the snaps of other requests are split into virtual edges, whose distances are
+            // calculated from the geometry again, so there can be tiny differences
+            assertEquals(expected.getBest().getDistance(), rsp.getBest().getDistance(), 0.5, "request " + i);
+            assertEquals(expected.getBest().getTime(), rsp.getBest().getTime(), 100, "request " + i);
+            assertEquals(expected.getBest().getRouteWeight(), rsp.getBest().getRouteWeight(), 0.1, "request " + i);
+        }
+        // the points of the plain requests were snapped only once
+        assertTrue(responses.get(0).getDebugInfo().contains("idLookup:shared"), responses.get(0).getDebugInfo());
+        assertTrue(responses.get(responses.size() - 2).hasErrors());
+        assertTrue(responses.get(responses.size() - 1).hasErrors());
+
+        // a failing consumer, e.g. because the client disconnected, stops the batch but not the next one
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> hopper.routeBatch(requests, rsp -> {
+            throw new IllegalStateException("disconnected");
+        }));
+        assertEquals("disconnected", ex.getMessage());
+        assertEquals(requests.size(), hopper.routeBatch(requests).size());
+    }
+
+    @Test
+    public void testRouteBatchWithCHOnSeveralThreads() {
+        final String profile = "profile";
+        final String vehicle = "car";
+        GraphHopper hopper = createGraphHopper(vehicle).
+                setOSMFile(MONACO).
+                setProfiles(new Profile(profile).setVehicle(vehicle).setWeighting("fastest")).
+                setStoreOnFlush(true);
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile));
+        hopper.importOrLoad();
+
+        Random rnd = new Random(456);
+        List<GHRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            GHPoint from = new GHPoint(43.727 + rnd.nextDouble() * 0.022, 7.409 + rnd.nextDouble() * 0.03);
+            GHPoint to = new GHPoint(43.727 + rnd.nextDouble() * 0.022, 7.409 + rnd.nextDouble() * 0.03);
+            requests.add(new GHRequest(from, to).setProfile(profile));
+        }
+        List<GHResponse> expectedResponses = new ArrayList<>();
+        for (GHRequest request : requests)
+            expectedResponses.add(hopper.route(request));
+        hopper.close();
+
+        hopper = new GraphHopperOSM().init(new GraphHopperConfig().
+                putObject("graph.location", GH_LOCATION).
+                putObject("graph.flag_encoders", vehicle).
+                putObject("routing.batch.threads", 4).
+                setProfiles(Collections.singletonList(new Profile(profile).setVehicle(vehicle).setWeighting("fastest"))).
+                setCHProfiles(Collections.singletonList(new CHProfile(profile))));
+        assertTrue(hopper.load(GH_LOCATION));
+        // all requests are in one group and are calculated on the same query graph at the same time
+        for (int run = 0; run < 50; run++) {
+            List<GHResponse> responses = hopper.routeBatch(requests);
+            assertEquals(requests.size(), responses.size());
+            for (int i = 0; i < requests.size(); i++) {
+                GHResponse expected = expectedResponses.get(i);
+                GHResponse rsp = responses.get(i);
+                assertEquals(expected.hasErrors(), rsp.hasErrors(), "request " + i + ": " + rsp.getErrors());
+                if (expected.hasErrors())
+                    continue;
+                assertTrue(rsp.getDebugInfo().contains("idLookup:shared"), rsp.getDebugInfo());
+                // the virtual edges of the other snaps can change the distances slightly, see testRouteBatch
+                assertEquals(expected.getBest().getDistance(), rsp.getBest().getDistance(), 0.5, "request " + i);
+                assertEquals(expected.getBest().getRouteWeight(), rsp.getBest().getRouteWeight(), 0.1, "request " + i);
+            }
+        }
+        hopper.close();
+    }
+
+    @Test
+    public void testParallelLegs() {
+        final String profile = "profile";
+        final String vehicle = "car";
+        GraphHopper hopper = createGraphHopper(vehicle).
+                setOSMFile(MONACO).
+                setProfiles(new Profile(profile).setVehicle(vehicle).setWeighting("fastest")).
+                setStoreOnFlush(true);
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile));
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile(profile));
+        hopper.getRouterConfig().setCHDisablingAllowed(true);
+        hopper.importOrLoad();
+
+        List<GHRequest> requests = new ArrayList<>();
+        for (PMap hints : Arrays.asList(new PMap(), new PMap().putObject(CH.DISABLE, true),
+                new PMap().putObject(CH.DISABLE, true).putObject(Landmark.DISABLE, true))) {
+            GHRequest request = new GHRequest(Arrays.asList(new GHPoint(43.727687, 7.418737), new GHPoint(43.74958, 7.436566),
+                    new GHPoint(43.739213, 7.427806), new GHPoint(43.730729, 7.421288))).setProfile(profile);
+            request.getHints().putAll(hints);
+            requests.add(request);
+        }
+        // max_visited_nodes is exceeded for one of the legs
+        requests.add(new GHRequest(Arrays.asList(new GHPoint(43.727687, 7.418737), new GHPoint(43.74958, 7.436566),
+                new GHPoint(43.730729, 7.421288))).setProfile(profile).
+                putHint(CH.DISABLE, true).putHint(Landmark.DISABLE, true).putHint(Routing.MAX_VISITED_NODES, 100));
+        List<GHResponse> expectedResponses = new ArrayList<>();
+        for (GHRequest request : requests)
+            expectedResponses.add(hopper.route(request));
+        hopper.close();
+
+        hopper = new GraphHopperOSM().init(new GraphHopperConfig().
+                putObject("graph.location", GH_LOCATION).
+                putObject("graph.flag_encoders", vehicle).
+                putObject("routing.parallel_legs.threads", 2).
+                putObject(CH.INIT_DISABLING_ALLOWED, true).
+                setProfiles(Collections.singletonList(new Profile(profile).setVehicle(vehicle).setWeighting("fastest"))).
+                setCHProfiles(Collections.singletonList(new CHProfile(profile))).
+                setLMProfiles(Collections.singletonList(new LMProfile(profile))));
+        assertTrue(hopper.load(GH_LOCATION));
+        for (int i = 0; i < requests.size(); i++) {
+            GHResponse expected = expectedResponses.get(i);
+            GHResponse rsp = hopper.route(requests.get(i));
+            assertEquals(expected.hasErrors(), rsp.hasErrors(), "request " + i + ": " + rsp.getErrors());
+            if (expected.hasErrors()) {
+                assertEquals(expected.getErrors().get(0).getMessage(), rsp.getErrors().get(0).getMessage());
+                continue;
+            }
+            assertEquals(expected.getBest().getDistance(), rsp.getBest().getDistance(), 1e-6, "request " + i);
+            assertEquals(expected.getBest().getTime(), rsp.getBest().getTime(), "request " + i);
+            assertEquals(expected.getBest().getPoints(), rsp.getBest().getPoints(), "request " + i);
+            assertEquals(expected.getBest().getInstructions().size(), rsp.getBest().getInstructions().size(), "request " + i);
+            assertEquals(expected.getHints().getLong("visited_nodes.sum", 0), rsp.getHints().getLong("visited_nodes.sum", -1), "request " + i);
+        }
+        hopper.close();
+    }
+
     @Test
     public void testUTurn() {
         final String profile = "profile";
@@ -911,6 +911,29 @@ public class OSMReaderTest {
         assertEquals(112, snap.getClosestEdge().getDistance() / 1000, 1);
     }
 
+    @Test
+    public void testParallelWayParsingCreatesSameGraph() throws IOException {
+        GraphHopperStorage expected = readAndorra(1);
+        GraphHopperStorage graph = readAndorra(4);
+        assertEquals(expected.getNodes(), graph.getNodes());
+        assertEquals(expected.getEdges(), graph.getEdges());
+        for (int edge = 0; edge < expected.getEdges(); edge++) {
+            EdgeIteratorState expectedEdge = expected.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            EdgeIteratorState actualEdge = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            assertEquals(expectedEdge.getBaseNode(), actualEdge.getBaseNode());
+            assertEquals(expectedEdge.getAdjNode(), actualEdge.getAdjNode());
+            assertEquals(expectedEdge.getDistance(), actualEdge.getDistance(), 1.e-6);
+            assertEquals(expectedEdge.getFlags(), actualEdge.getFlags());
+            assertEquals(expectedEdge.fetchWayGeometry(FetchMode.ALL), actualEdge.fetchWayGeometry(FetchMode.ALL));
+        }
+    }
+
+    private GraphHopperStorage readAndorra(int workerThreads) throws IOException {
+        GraphHopperStorage graph = new GraphBuilder(EncodingManager.create("car,bike,foot")).build();
+        new OSMReader(graph).setFile(new File("../core/files/andorra.osm.pbf")).setWorkerThreads(workerThreads).readGraph();
+        return graph;
+    }
+
     @Test
     public void testRoutingRequestFails_issue665() {
         GraphHopper hopper = new GraphHopperOSM()
@@ -0,0 +1,124 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.tools;
+
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.GHDirectory;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.graphhopper.util.Helper.nf;
+
+/**
+ * Measures how the read throughput of the different DataAccess implementations scales with the number of
+ * threads. Every thread reads ints from random positions of the same DataAccess, which is the access pattern
+ * of concurrent routing requests on a shared graph.
+ * <p>
+ * example args: location=/tmp/da-measurement size_mb=512 max_threads=32 reads=20000000 types=MMAP,MMAP_RO,RAM_STORE
+ */
+public class DataAccessMeasurement {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DataAccessMeasurement.class);
+
+    public static void main(String[] args) throws Exception {
+        PMap map = PMap.read(args);
+        String location = map.getString("location", "./da-measurement");
+        long bytes = map.getLong("size_mb", 512) * (1 << 20);
+        int maxThreads = map.getInt("max_threads", Runtime.getRuntime().availableProcessors());
+        int readsPerThread = map.getInt("reads", 20_000_000);
+        String[] types = map.getString("types", "MMAP,MMAP_RO,RAM_STORE").split(",");
+        String name = "measurement";
+
+        Helper.removeDir(new File(location));
+        Directory dir = new GHDirectory(location, DAType.RAM_STORE).create();
+        DataAccess da = dir.find(name);
+        da.create(bytes);
+        Random rand = new Random(123);
+        for (long pointer = 0; pointer < bytes; pointer += 4) {
+            da.setInt(pointer, rand.nextInt());
+        }
+        da.flush();
+        dir.close();
+
+        for (String typeStr : types) {
+            DAType type = DAType.fromString(typeStr);
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                Directory readDir = new GHDirectory(location, type);
+                DataAccess readDA = readDir.find(name);
+                if (!readDA.loadExisting())
+                    throw new IllegalStateException("Cannot load " + name + " from " + location);
+                double readsPerSecond = measure(readDA, bytes / 4, threads, readsPerThread);
+                LOGGER.info(typeStr + ", threads: " + threads + ", reads/s: " + nf((long) readsPerSecond)
+                        + ", reads/s/thread: " + nf((long) (readsPerSecond / threads)));
+                readDir.close();
+            }
+        }
+        Helper.removeDir(new File(location));
+    }
+
+    private static double measure(final DataAccess da, final long ints, int threads, final int readsPerThread) throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            // warmup
+            runReads(executorService, da, ints, threads, readsPerThread / 10);
+            long start = System.nanoTime();
+            long dummySum = runReads(executorService, da, ints, threads, readsPerThread);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            LOGGER.debug("dummySum: " + dummySum);
+            return (double) threads * readsPerThread / seconds;
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    private static long runReads(ExecutorService executorService, final DataAccess da, final long ints,
+                                 int threads, final int reads) throws Exception {
+        List<Future<Long>> futures = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            final long seed = t;
+            futures.add(executorService.submit(() -> {
+                // a cheap xorshift to avoid measuring the synchronization of java.util.Random
+                long x = seed * 0x9E3779B97F4A7C15L + 1;
+                long sum = 0;
+                for (int i = 0; i < reads; i++) {
+                    x ^= x << 13;
+                    x ^= x >>> 7;
+                    x ^= x << 17;
+                    sum += da.getInt(4 * ((x & Long.MAX_VALUE) % ints));
+                }
+                return sum;
+            }));
+        }
+        long sum = 0;
+        for (Future<Long> future : futures) {
+            sum += future.get();
+        }
+        return sum;
+    }
+}
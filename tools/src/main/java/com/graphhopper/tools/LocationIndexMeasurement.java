@@ -0,0 +1,112 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.tools;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.config.Profile;
+import com.graphhopper.reader.osm.GraphHopperOSM;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.LocationIndexRTree;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Random;
+
+/**
+ * Compares the build time and the snapping latency of LocationIndexTree and LocationIndexRTree on the same graph.
+ * The query points are close to random nodes of the graph to avoid measuring mostly empty areas.
+ * <p>
+ * example args: datareader.file=berlin-latest.osm.pbf graph.location=berlin-gh graph.flag_encoders=car queries=100000
+ */
+public class LocationIndexMeasurement {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocationIndexMeasurement.class);
+
+    public static void main(String[] args) {
+        PMap map = PMap.read(args);
+        GraphHopperConfig config = new GraphHopperConfig(map);
+        config.setProfiles(java.util.Collections.singletonList(new Profile("car").setVehicle("car").setWeighting("fastest")));
+        GraphHopper hopper = new GraphHopperOSM().init(config).importOrLoad();
+        GraphHopperStorage graph = hopper.getGraphHopperStorage();
+        int queries = map.getInt("queries", 100_000);
+        int resolution = map.getInt("index.high_resolution", 300);
+        int maxRegionSearch = map.getInt("max_region_search", 4);
+
+        StopWatch sw = new StopWatch().start();
+        LocationIndexTree tree = new LocationIndexTree(graph, new RAMDirectory());
+        tree.setMaxRegionSearch(maxRegionSearch).setResolution(resolution);
+        tree.prepareIndex();
+        LOGGER.info("tree build: " + sw.stop().getSeconds() + "s, size: " + tree.getCapacity() / Helper.MB + "MB");
+
+        sw = new StopWatch().start();
+        LocationIndexRTree rtree = new LocationIndexRTree(graph, new RAMDirectory());
+        rtree.setMaxRegionSearch(maxRegionSearch).setResolution(resolution);
+        rtree.prepareIndex();
+        LOGGER.info("rtree build: " + sw.stop().getSeconds() + "s, size: " + rtree.getCapacity() / Helper.MB + "MB");
+
+        double[] lats = new double[queries], lons = new double[queries];
+        Random rand = new Random(123);
+        NodeAccess na = graph.getNodeAccess();
+        for (int i = 0; i < queries; i++) {
+            int node = rand.nextInt(graph.getNodes());
+            lats[i] = na.getLat(node) + (rand.nextDouble() - 0.5) * 0.01;
+            lons[i] = na.getLon(node) + (rand.nextDouble() - 0.5) * 0.01;
+        }
+
+        for (int round = 0; round < 3; round++) {
+            // the first round is the warmup
+            measure("tree", tree, lats, lons, round > 0);
+            measure("rtree", rtree, lats, lons, round > 0);
+        }
+
+        int differentSnaps = 0, notFoundByTree = 0, notFoundByRTree = 0;
+        for (int i = 0; i < queries; i++) {
+            Snap treeSnap = tree.findClosest(lats[i], lons[i], EdgeFilter.ALL_EDGES);
+            Snap rtreeSnap = rtree.findClosest(lats[i], lons[i], EdgeFilter.ALL_EDGES);
+            if (!treeSnap.isValid())
+                notFoundByTree++;
+            if (!rtreeSnap.isValid())
+                notFoundByRTree++;
+            if (treeSnap.isValid() && rtreeSnap.isValid() && Math.abs(treeSnap.getQueryDistance() - rtreeSnap.getQueryDistance()) > 0.01)
+                differentSnaps++;
+        }
+        LOGGER.info("different snaps: " + differentSnaps + ", not found by tree: " + notFoundByTree
+                + ", not found by rtree: " + notFoundByRTree + " of " + queries);
+        hopper.close();
+    }
+
+    private static void measure(String name, LocationIndex index, double[] lats, double[] lons, boolean log) {
+        long dummySum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < lats.length; i++) {
+            dummySum += index.findClosest(lats[i], lons[i], EdgeFilter.ALL_EDGES).getClosestNode();
+        }
+        double micros = (System.nanoTime() - start) / 1e3 / lats.length;
+        if (log)
+            LOGGER.info(name + ": " + String.format("%.2f", micros) + "µs per snap, dummy: " + dummySum);
+    }
+}
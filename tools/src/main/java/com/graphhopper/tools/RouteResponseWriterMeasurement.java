@@ -0,0 +1,130 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.tools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.http.RouteResponseWriter;
+import com.graphhopper.http.WebHelper;
+import com.graphhopper.jackson.Jackson;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.PointList;
+import com.graphhopper.util.details.PathDetail;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+import static com.graphhopper.util.Helper.nf;
+
+/**
+ * Compares the allocations and the time per response of {@link WebHelper#jsonObject} and {@link RouteResponseWriter}
+ * when writing the JSON of a long route with path details.
+ * <p>
+ * example args: points=100000 iterations=200 points_encoded=true
+ */
+public class RouteResponseWriterMeasurement {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RouteResponseWriterMeasurement.class);
+
+    public static void main(String[] args) throws Exception {
+        PMap map = PMap.read(args);
+        int points = map.getInt("points", 100_000);
+        int iterations = map.getInt("iterations", 200);
+        boolean pointsEncoded = map.getBool("points_encoded", true);
+        ObjectMapper objectMapper = Jackson.newObjectMapper();
+        GHResponse rsp = createResponse(points);
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for (int round = 0; round < 2; round++) {
+            // the first round is the warmup
+            for (String type : Arrays.asList("tree", "streaming")) {
+                CountingOutputStream out = new CountingOutputStream();
+                long bytesBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+                long start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    Object entity = type.equals("tree")
+                            ? WebHelper.jsonObject(rsp, false, true, false, pointsEncoded, 1)
+                            : new RouteResponseWriter(rsp, false, true, false, pointsEncoded, 1);
+                    objectMapper.writeValue(out, entity);
+                }
+                double millis = (System.nanoTime() - start) / 1e6 / iterations;
+                long allocated = (threadMXBean.getThreadAllocatedBytes(threadId) - bytesBefore) / iterations;
+                if (round > 0)
+                    LOGGER.info(type + ", points: " + nf(points) + ", json bytes: " + nf(out.count / iterations)
+                            + ", allocated bytes/response: " + nf(allocated) + ", ms/response: " + String.format(Locale.ROOT, "%.2f", millis));
+            }
+        }
+    }
+
+    private static GHResponse createResponse(int size) {
+        Random rand = new Random(123);
+        PointList points = new PointList(size, false);
+        double lat = 48, lon = 9;
+        for (int i = 0; i < size; i++) {
+            lat += rand.nextDouble() * 0.001;
+            lon += (rand.nextDouble() - 0.5) * 0.001;
+            points.add(lat, lon);
+        }
+        PointList waypoints = new PointList(2, false);
+        waypoints.add(points, 0);
+        waypoints.add(points, size - 1);
+        ResponsePath path = new ResponsePath();
+        path.setPoints(points);
+        path.setWaypoints(waypoints);
+        path.setDistance(size * 50).setTime(size * 3000L).setRouteWeight(size * 3);
+
+        Map<String, List<PathDetail>> details = new HashMap<>();
+        List<PathDetail> speeds = new ArrayList<>();
+        List<PathDetail> names = new ArrayList<>();
+        for (int i = 0; i + 10 < size; i += 10) {
+            PathDetail speed = new PathDetail(30.0 + rand.nextInt(100));
+            speed.setFirst(i);
+            speed.setLast(i + 10);
+            speeds.add(speed);
+            PathDetail name = new PathDetail("street " + rand.nextInt(1000));
+            name.setFirst(i);
+            name.setLast(i + 10);
+            names.add(name);
+        }
+        details.put("average_speed", speeds);
+        details.put("street_name", names);
+        path.addPathDetails(details);
+        GHResponse rsp = new GHResponse();
+        rsp.add(path);
+        return rsp;
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            count += len;
+        }
+    }
+}
@@ -40,7 +40,7 @@ import com.graphhopper.storage.CHConfig;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.storage.RoutingCHGraph;
-import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.FetchMode;
 import com.graphhopper.util.PMap;
@@ -83,7 +83,7 @@ public class MiniGraphUI {
     int currentPosX;
     int currentPosY;
     private Path path;
-    private LocationIndexTree index;
+    private LocationIndex index;
     private String latLon = "";
     private GraphicsWrapper mg;
     private JPanel infoPanel;
@@ -129,7 +129,7 @@ public class MiniGraphUI {
 
         // prepare node quadtree to 'enter' the graph. create a 313*313 grid => <3km
 //         this.index = new DebugLocation2IDQuadtree(roadGraph, mg);
-        this.index = (LocationIndexTree) hopper.getLocationIndex();
+        this.index = hopper.getLocationIndex();
         infoPanel = new JPanel() {
             @Override
             protected void paintComponent(Graphics g) {
@@ -240,7 +240,7 @@ public class MiniGraphUI {
                     }
                 }
 
-                index.query(graph.getBounds(), new LocationIndexTree.Visitor() {
+                index.query(graph.getBounds(), new LocationIndex.Visitor() {
                     @Override
                     public boolean isTileInfo() {
                         return true;
@@ -0,0 +1,138 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.graphhopper.util.PointList;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Encodes point lists into the polyline format, see {@link WebHelper#encodePolyline}. The encoded chars are either
+ * collected in a growing buffer or written as JSON string directly to a JsonGenerator in chunks of the fixed size
+ * buffer, which avoids holding the complete polyline in memory.
+ */
+final class PolylineEncoder {
+    // an int needs at most 7 chars and every char might be escaped
+    private static final int MAX_NUMBER_CHARS = 14;
+    private char[] chars;
+    private int length;
+    private JsonGenerator gen;
+    private boolean valueStarted;
+
+    PolylineEncoder(int capacity) {
+        chars = new char[Math.max(2 * MAX_NUMBER_CHARS, capacity)];
+    }
+
+    /**
+     * Replaces the content of this encoder with the encoded specified points.
+     */
+    PolylineEncoder encode(PointList poly, boolean includeElevation, double precision) {
+        length = 0;
+        gen = null;
+        try {
+            encodePoints(poly, includeElevation, precision);
+        } catch (IOException ex) {
+            throw new IllegalStateException("cannot happen without generator", ex);
+        }
+        return this;
+    }
+
+    /**
+     * Writes the encoded specified points as JSON string value, i.e. this has the same result as
+     * gen.writeString(encodePolyline(poly, includeElevation, precision)).
+     */
+    void writeString(JsonGenerator gen, PointList poly, boolean includeElevation, double precision) throws IOException {
+        this.gen = gen;
+        valueStarted = false;
+        length = 0;
+        chars[length++] = '"';
+        try {
+            encodePoints(poly, includeElevation, precision);
+            chars[length++] = '"';
+            flush();
+        } finally {
+            this.gen = null;
+        }
+    }
+
+    private void encodePoints(PointList poly, boolean includeElevation, double precision) throws IOException {
+        int size = poly.getSize();
+        int prevLat = 0;
+        int prevLon = 0;
+        int prevEle = 0;
+        for (int i = 0; i < size; i++) {
+            int num = (int) Math.floor(poly.getLatitude(i) * precision);
+            encodeNumber(num - prevLat);
+            prevLat = num;
+            num = (int) Math.floor(poly.getLongitude(i) * precision);
+            encodeNumber(num - prevLon);
+            prevLon = num;
+            if (includeElevation) {
+                num = (int) Math.floor(poly.getElevation(i) * 100);
+                encodeNumber(num - prevEle);
+                prevEle = num;
+            }
+        }
+    }
+
+    private void encodeNumber(int num) throws IOException {
+        // keep space for the closing quote
+        if (length + MAX_NUMBER_CHARS + 1 > chars.length) {
+            if (gen == null)
+                chars = Arrays.copyOf(chars, chars.length * 2);
+            else
+                flush();
+        }
+        num = num << 1;
+        if (num < 0) {
+            num = ~num;
+        }
+        while (num >= 0x20) {
+            int nextValue = (0x20 | (num & 0x1f)) + 63;
+            append((char) (nextValue));
+            num >>= 5;
+        }
+        num += 63;
+        append((char) (num));
+    }
+
+    private void append(char c) {
+        // the backslash is the only char of the polyline alphabet (63 to 126) that has to be escaped in JSON
+        if (c == '\\' && gen != null)
+            chars[length++] = '\\';
+        chars[length++] = c;
+    }
+
+    private void flush() throws IOException {
+        if (valueStarted) {
+            gen.writeRaw(chars, 0, length);
+        } else {
+            // let the generator write the separator and update its state as for every other value
+            gen.writeRawValue(chars, 0, length);
+            valueStarted = true;
+        }
+        length = 0;
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+}
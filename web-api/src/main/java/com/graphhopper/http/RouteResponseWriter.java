@@ -0,0 +1,141 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PointList;
+
+import java.io.IOException;
+import java.text.NumberFormat;
+import java.util.Locale;
+
+/**
+ * Writes the same JSON as {@link WebHelper#jsonObject} but directly to the JsonGenerator, i.e. without creating a
+ * tree of JSON nodes first. The encoded polylines are written in chunks of a small buffer instead of creating
+ * Strings and the coordinates of unencoded points are written without creating JTS geometries. Use it as response entity or serialize it with the configured ObjectMapper.
+ */
+public class RouteResponseWriter implements JsonSerializable {
+    private final GHResponse ghRsp;
+    private final boolean enableInstructions;
+    private final boolean calcPoints;
+    private final boolean enableElevation;
+    private final boolean pointsEncoded;
+    private final float took;
+
+    public RouteResponseWriter(GHResponse ghRsp, boolean enableInstructions, boolean calcPoints, boolean enableElevation, boolean pointsEncoded, float took) {
+        this.ghRsp = ghRsp;
+        this.enableInstructions = enableInstructions;
+        this.calcPoints = calcPoints;
+        this.enableElevation = enableElevation;
+        this.pointsEncoded = pointsEncoded;
+        this.took = took;
+    }
+
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject();
+        gen.writeFieldName("hints");
+        provider.defaultSerializeValue(ghRsp.getHints().toMap(), gen);
+        gen.writeObjectFieldStart("info");
+        gen.writeFieldName("copyrights");
+        provider.defaultSerializeValue(WebHelper.COPYRIGHTS, gen);
+        gen.writeNumberField("took", Math.round(took));
+        gen.writeEndObject();
+        gen.writeArrayFieldStart("paths");
+        PolylineEncoder encoder = pointsEncoded ? new PolylineEncoder(4096) : null;
+        for (ResponsePath p : ghRsp.getAll()) {
+            gen.writeStartObject();
+            gen.writeNumberField("distance", Helper.round(p.getDistance(), 3));
+            gen.writeNumberField("weight", Helper.round6(p.getRouteWeight()));
+            gen.writeNumberField("time", p.getTime());
+            gen.writeNumberField("transfers", p.getNumChanges());
+            if (!p.getDescription().isEmpty()) {
+                gen.writeFieldName("description");
+                provider.defaultSerializeValue(p.getDescription(), gen);
+            }
+            if (calcPoints) {
+                gen.writeBooleanField("points_encoded", pointsEncoded);
+                if (p.getPoints().getSize() >= 2) {
+                    gen.writeFieldName("bbox");
+                    provider.defaultSerializeValue(p.calcBBox2D(), gen);
+                }
+                writePoints(gen, provider, "points", p.getPoints(), encoder);
+                if (enableInstructions) {
+                    gen.writeFieldName("instructions");
+                    provider.defaultSerializeValue(p.getInstructions(), gen);
+                }
+                gen.writeFieldName("legs");
+                provider.defaultSerializeValue(p.getLegs(), gen);
+                gen.writeFieldName("details");
+                provider.defaultSerializeValue(p.getPathDetails(), gen);
+                gen.writeNumberField("ascend", p.getAscend());
+                gen.writeNumberField("descend", p.getDescend());
+            }
+            writePoints(gen, provider, "snapped_waypoints", p.getWaypoints(), encoder);
+            if (p.getFare() != null) {
+                gen.writeStringField("fare", NumberFormat.getCurrencyInstance(Locale.ROOT).format(p.getFare()));
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    private void writePoints(JsonGenerator gen, SerializerProvider provider, String fieldName, PointList points, PolylineEncoder encoder) throws IOException {
+        gen.writeFieldName(fieldName);
+        if (encoder != null) {
+            encoder.writeString(gen, points, enableElevation, 1e5);
+        } else {
+            writeLineString(gen, points, enableElevation);
+        }
+    }
+
+    /**
+     * Writes the same GeoJSON as the JtsModule does for {@link PointList#toLineString}, but without creating the
+     * geometry.
+     */
+    private static void writeLineString(JsonGenerator gen, PointList points, boolean includeElevation) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("type", "LineString");
+        gen.writeArrayFieldStart("coordinates");
+        // a single point is duplicated as in toLineString
+        int size = points.size() == 1 ? 2 : points.size();
+        for (int i = 0; i < size; i++) {
+            int index = Math.min(i, points.size() - 1);
+            gen.writeStartArray();
+            gen.writeNumber(Helper.round6(points.getLon(index)));
+            gen.writeNumber(Helper.round6(points.getLat(index)));
+            if (includeElevation)
+                gen.writeNumber(Helper.round2(points.getEle(index)));
+            gen.writeEndArray();
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSer) throws IOException {
+        serialize(gen, provider);
+    }
+}
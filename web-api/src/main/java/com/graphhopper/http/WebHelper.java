@@ -108,39 +108,7 @@ public class WebHelper {
     }
 
     public static String encodePolyline(PointList poly, boolean includeElevation, double precision) {
-        StringBuilder sb = new StringBuilder(Math.max(20, poly.size() * 3));
-        int size = poly.getSize();
-        int prevLat = 0;
-        int prevLon = 0;
-        int prevEle = 0;
-        for (int i = 0; i < size; i++) {
-            int num = (int) Math.floor(poly.getLatitude(i) * precision);
-            encodeNumber(sb, num - prevLat);
-            prevLat = num;
-            num = (int) Math.floor(poly.getLongitude(i) * precision);
-            encodeNumber(sb, num - prevLon);
-            prevLon = num;
-            if (includeElevation) {
-                num = (int) Math.floor(poly.getElevation(i) * 100);
-                encodeNumber(sb, num - prevEle);
-                prevEle = num;
-            }
-        }
-        return sb.toString();
-    }
-
-    private static void encodeNumber(StringBuilder sb, int num) {
-        num = num << 1;
-        if (num < 0) {
-            num = ~num;
-        }
-        while (num >= 0x20) {
-            int nextValue = (0x20 | (num & 0x1f)) + 63;
-            sb.append((char) (nextValue));
-            num >>= 5;
-        }
-        num += 63;
-        sb.append((char) (num));
+        return new PolylineEncoder(poly.size() * 3).encode(poly, includeElevation, precision).toString();
     }
 
     /**
@@ -0,0 +1,146 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.jackson.Jackson;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RouteResponseWriterTest {
+
+    @Test
+    public void testSameOutputAsJsonObject() throws Exception {
+        ObjectMapper objectMapper = Jackson.newObjectMapper();
+        GHResponse rsp = new GHResponse();
+        rsp.getHints().putObject("visited_nodes.sum", 52).putObject("visited_nodes.average", 26.0f);
+        rsp.add(createPath(false));
+        rsp.add(createPath(true).setDescription(Arrays.asList("a", "b")));
+        rsp.getAll().get(1).setFare(new BigDecimal("2.5"));
+        // a polyline that is written in several chunks and contains backslashes, which need to be escaped
+        ResponsePath longPath = new ResponsePath();
+        longPath.setPoints(createRandomPoints(5000));
+        longPath.setWaypoints(createRandomPoints(2));
+        longPath.setInstructions(new InstructionList(null));
+        rsp.add(longPath);
+        ResponsePath singlePointPath = new ResponsePath();
+        singlePointPath.setPoints(createRandomPoints(1));
+        singlePointPath.setWaypoints(createRandomPoints(1));
+        singlePointPath.setInstructions(new InstructionList(null));
+        rsp.add(singlePointPath);
+        assertTrue(WebHelper.encodePolyline(longPath.getPoints()).contains("\\"));
+        for (int i = 0; i < 16; i++) {
+            boolean instructions = (i & 1) != 0, calcPoints = (i & 2) != 0, elevation = (i & 4) != 0, encoded = (i & 8) != 0;
+            String expected = objectMapper.writeValueAsString(WebHelper.jsonObject(rsp, instructions, calcPoints, elevation, encoded, 12.6f));
+            String actual = objectMapper.writeValueAsString(new RouteResponseWriter(rsp, instructions, calcPoints, elevation, encoded, 12.6f));
+            assertEquals(expected, actual, "instructions: " + instructions + ", calc_points: " + calcPoints
+                    + ", elevation: " + elevation + ", points_encoded: " + encoded);
+        }
+    }
+
+    @Test
+    public void testLongPolyline() {
+        PointList list = createRandomPoints(1000);
+        // the buffer has to grow several times
+        PolylineEncoder encoder = new PolylineEncoder(1).encode(list, true, 1e5);
+        PointList decoded = WebHelper.decodePolyline(encoder.toString(), 1000, true);
+        assertEquals(list.size(), decoded.size());
+        for (int i = 0; i < list.size(); i++) {
+            assertEquals(list.getLat(i), decoded.getLat(i), 1e-5);
+            assertEquals(list.getLon(i), decoded.getLon(i), 1e-5);
+            assertEquals(list.getEle(i), decoded.getEle(i), 1e-2);
+        }
+    }
+
+    private static PointList createRandomPoints(int size) {
+        PointList list = new PointList(size, true);
+        Random rand = new Random(size);
+        for (int i = 0; i < size; i++) {
+            list.add(-90 + rand.nextDouble() * 180, -180 + rand.nextDouble() * 360, rand.nextDouble() * 3000);
+        }
+        return list;
+    }
+
+    private static ResponsePath createPath(boolean is3D) {
+        ResponsePath path = new ResponsePath();
+        PointList points = new PointList(10, is3D);
+        for (int i = 0; i < 10; i++) {
+            if (is3D)
+                points.add(52.5 + i * 0.001, 13.3 + i * 0.0015, 30 + i);
+            else
+                points.add(52.5 + i * 0.001, 13.3 + i * 0.0015);
+        }
+        path.setPoints(points);
+        PointList waypoints = new PointList(2, is3D);
+        waypoints.add(points, 0);
+        waypoints.add(points, 9);
+        path.setWaypoints(waypoints);
+        path.setDistance(1234.56789).setTime(98765).setRouteWeight(123.4567891).setAscend(9).setDescend(0.5);
+
+        Translation tr = new Translation() {
+            @Override
+            public String tr(String key, Object... params) {
+                return key + Arrays.toString(params);
+            }
+
+            @Override
+            public Map<String, String> asMap() {
+                return Collections.emptyMap();
+            }
+
+            @Override
+            public Locale getLocale() {
+                return Locale.US;
+            }
+
+            @Override
+            public String getLanguage() {
+                return "en";
+            }
+        };
+        InstructionList instructions = new InstructionList(tr);
+        PointList first = new PointList(5, is3D);
+        for (int i = 0; i < 5; i++) {
+            first.add(points, i);
+        }
+        instructions.add(new Instruction(Instruction.CONTINUE_ON_STREET, "main street", InstructionAnnotation.EMPTY, first).setDistance(500).setTime(40000));
+        instructions.add(new FinishInstruction("", points, 9));
+        path.setInstructions(instructions);
+
+        PathDetail speed = new PathDetail(50.0);
+        speed.setFirst(0);
+        speed.setLast(9);
+        PathDetail name = new PathDetail("main street");
+        name.setFirst(0);
+        name.setLast(9);
+        Map<String, List<PathDetail>> details = new HashMap<>();
+        details.put("average_speed", Collections.singletonList(speed));
+        details.put("street_name", Collections.singletonList(name));
+        path.addPathDetails(details);
+        return path;
+    }
+}
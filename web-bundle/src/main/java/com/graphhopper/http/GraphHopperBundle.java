@@ -18,7 +18,9 @@
 
 package com.graphhopper.http;
 
+import com.codahale.metrics.Gauge;
 import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.util.StdDateFormat;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.graphhopper.GraphHopper;
@@ -35,6 +37,7 @@ import com.graphhopper.jackson.GraphHopperConfigModule;
 import com.graphhopper.jackson.Jackson;
 import com.graphhopper.resources.*;
 import com.graphhopper.routing.ProfileResolver;
+import com.graphhopper.routing.RouteCache;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.storage.GraphHopperStorage;
 import com.graphhopper.storage.index.LocationIndex;
@@ -50,6 +53,8 @@ import javax.inject.Inject;
 
 public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConfiguration> {
 
+    private GraphHopper graphHopper;
+
     static class TranslationMapFactory implements Factory<TranslationMap> {
 
         @Inject
@@ -196,6 +201,14 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         bootstrap.getObjectMapper().enable(MapperFeature.ALLOW_EXPLICIT_PROPERTY_RENAMING);
     }
 
+    /**
+     * @return the GraphHopper instance of this bundle, available after {@link #run}. The graph is loaded when the
+     * server starts.
+     */
+    GraphHopper getGraphHopper() {
+        return graphHopper;
+    }
+
     @Override
     public void run(GraphHopperBundleConfiguration configuration, Environment environment) {
         for (Object k : System.getProperties().keySet()) {
@@ -235,12 +248,15 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         final GraphHopperManaged graphHopperManaged = new GraphHopperManaged(configuration.getGraphHopperConfiguration(), environment.getObjectMapper());
         environment.lifecycle().manage(graphHopperManaged);
         final GraphHopper graphHopper = graphHopperManaged.getGraphHopper();
+        this.graphHopper = graphHopper;
+        final MVTTileCache mvtTileCache = new MVTTileCache(configuration.getGraphHopperConfiguration().getLong("mvt.cache.max_bytes", 0));
         environment.jersey().register(new AbstractBinder() {
             @Override
             protected void configure() {
                 bind(configuration.getGraphHopperConfiguration()).to(GraphHopperConfig.class);
                 bind(graphHopper).to(GraphHopper.class);
                 bind(graphHopper).to(GraphHopperAPI.class);
+                bind(environment.getObjectMapper()).to(ObjectMapper.class);
 
                 bind(new JTSTriangulator(graphHopper.getRouterConfig())).to(Triangulator.class);
                 bindFactory(PathDetailsBuilderFactoryFactory.class).to(PathDetailsBuilderFactory.class);
@@ -251,12 +267,25 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
                 bindFactory(EncodingManagerFactory.class).to(EncodingManager.class);
                 bindFactory(GraphHopperStorageFactory.class).to(GraphHopperStorage.class);
                 bindFactory(GtfsStorageFactory.class).to(GtfsStorage.class);
+                bind(mvtTileCache).to(MVTTileCache.class);
+                bindFactory(new Factory<MVTPyramid>() {
+                    @Override
+                    public MVTPyramid provide() {
+                        return graphHopperManaged.getMVTPyramid();
+                    }
+
+                    @Override
+                    public void dispose(MVTPyramid instance) {
+                    }
+                }).to(MVTPyramid.class);
             }
         });
 
         environment.jersey().register(MVTResource.class);
         environment.jersey().register(NearestResource.class);
         environment.jersey().register(RouteResource.class);
+        environment.jersey().register(MatrixResource.class);
+        environment.jersey().register(RouteBatchResource.class);
         environment.jersey().register(CustomWeightingRouteResource.class);
         environment.jersey().register(IsochroneResource.class);
         if (configuration.getGraphHopperConfiguration().has("gtfs.file")) {
@@ -277,5 +306,15 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         environment.jersey().register(I18NResource.class);
         environment.jersey().register(InfoResource.class);
         environment.healthChecks().register("graphhopper", new GraphHopperHealthCheck(graphHopper));
+        RouteCache routeCache = graphHopper.getRouteCache();
+        if (routeCache != null) {
+            // served by the /metrics endpoint of the admin connector
+            environment.metrics().register("graphhopper.route_cache.hits", (Gauge<Long>) routeCache::getHits);
+            environment.metrics().register("graphhopper.route_cache.misses", (Gauge<Long>) routeCache::getMisses);
+            environment.metrics().register("graphhopper.route_cache.size", (Gauge<Integer>) routeCache::getSize);
+        }
+        environment.metrics().register("graphhopper.mvt_cache.hits", (Gauge<Long>) mvtTileCache::getHits);
+        environment.metrics().register("graphhopper.mvt_cache.misses", (Gauge<Long>) mvtTileCache::getMisses);
+        environment.metrics().register("graphhopper.mvt_cache.bytes", (Gauge<Long>) mvtTileCache::getBytes);
     }
 }
@@ -55,6 +55,8 @@ public class GraphHopperManaged implements Managed {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final GraphHopper graphHopper;
+    private final int mvtPyramidMaxZoom;
+    private MVTPyramid mvtPyramid = MVTPyramid.empty();
 
     public GraphHopperManaged(GraphHopperConfig configuration, ObjectMapper objectMapper) {
         ObjectMapper localObjectMapper = objectMapper.copy();
@@ -118,6 +120,7 @@ public class GraphHopperManaged implements Managed {
         configuration.setProfiles(newProfiles);
 
         graphHopper.init(configuration);
+        mvtPyramidMaxZoom = configuration.getInt("mvt.pyramid.max_zoom", -1);
     }
 
     @Override
@@ -127,6 +130,28 @@ public class GraphHopperManaged implements Managed {
                 graphHopper.getGraphHopperLocation(), graphHopper.getDataReaderFile(),
                 graphHopper.getEncodingManager().toEncodedValuesAsString(),
                 graphHopper.getGraphHopperStorage().toDetailsString());
+        if (mvtPyramidMaxZoom >= 0)
+            mvtPyramid = loadOrBuildMVTPyramid();
+    }
+
+    private MVTPyramid loadOrBuildMVTPyramid() {
+        File file = new File(graphHopper.getGraphHopperLocation(), MVTPyramid.FILE_NAME);
+        if (file.exists()) {
+            MVTPyramid pyramid = MVTPyramid.load(file);
+            if (pyramid.getMaxZoom() == mvtPyramidMaxZoom)
+                return pyramid;
+            logger.info("the vector tiles in {} were created up to zoom {}, creating them again up to zoom {}", file, pyramid.getMaxZoom(), mvtPyramidMaxZoom);
+            pyramid.close();
+        }
+        MVTPyramid.build(graphHopper.getGraphHopperStorage(), mvtPyramidMaxZoom, file);
+        return MVTPyramid.load(file);
+    }
+
+    /**
+     * @return the prebuilt vector tiles, which are empty if mvt.pyramid.max_zoom is not configured
+     */
+    public MVTPyramid getMVTPyramid() {
+        return mvtPyramid;
     }
 
     public GraphHopper getGraphHopper() {
@@ -135,6 +160,7 @@ public class GraphHopperManaged implements Managed {
 
     @Override
     public void stop() {
+        mvtPyramid.close();
         graphHopper.close();
     }
 
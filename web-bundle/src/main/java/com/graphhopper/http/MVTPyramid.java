@@ -0,0 +1,315 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.http;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.LongObjectHashMap;
+import com.graphhopper.routing.ev.EnumEncodedValue;
+import com.graphhopper.routing.ev.RoadClass;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.MMapDataAccess;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.StopWatch;
+import com.wdtinc.mapbox_vector_tile.VectorTile;
+import com.wdtinc.mapbox_vector_tile.adapt.jts.JtsAdapter;
+import com.wdtinc.mapbox_vector_tile.adapt.jts.TileGeomResult;
+import com.wdtinc.mapbox_vector_tile.adapt.jts.UserDataKeyValueMapConverter;
+import com.wdtinc.mapbox_vector_tile.build.MvtLayerBuild;
+import com.wdtinc.mapbox_vector_tile.build.MvtLayerParams;
+import com.wdtinc.mapbox_vector_tile.build.MvtLayerProps;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Precomputed vector tiles for the low zoom levels, which are too expensive to create per request. Only the major
+ * roads are included, e.g. only motorways up to zoom 5, and edges are simplified to straight lines between their
+ * tower nodes. Edges that would be shorter than a pixel are skipped.
+ * <p>
+ * The tiles are built once for all zoom levels up to maxZoom and stored in a single file next to the graph. The file
+ * is memory mapped and a tile is returned as a read-only view of the mapped file, i.e. without decoding or copying
+ * it. Tiles without roads are not stored.
+ */
+public class MVTPyramid implements Closeable {
+    public static final String FILE_NAME = "mvt_pyramid";
+    public static final int MAX_ZOOM = 9;
+    private static final Logger logger = LoggerFactory.getLogger(MVTPyramid.class);
+    private static final int VERSION = 1;
+    // version, maxZoom, tileCount and the offset of the index
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 8;
+    private static final MVTPyramid EMPTY = new MVTPyramid(-1, new long[0], new long[0], new int[0], null);
+
+    private final int maxZoom;
+    // sorted tile keys and the position of the tiles in the file
+    private final long[] keys;
+    private final long[] offsets;
+    private final int[] lengths;
+    private final MappedByteBuffer data;
+
+    private MVTPyramid(int maxZoom, long[] keys, long[] offsets, int[] lengths, MappedByteBuffer data) {
+        this.maxZoom = maxZoom;
+        this.keys = keys;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.data = data;
+    }
+
+    /**
+     * @return a pyramid without tiles
+     */
+    public static MVTPyramid empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return the highest zoom level of the stored tiles or -1 if the pyramid is empty
+     */
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    /**
+     * @return a read-only view of the encoded tile or null if there are no roads in this tile
+     */
+    public ByteBuffer getTile(int z, int x, int y) {
+        if (z < 0 || z > maxZoom)
+            throw new IllegalArgumentException("zoom must be in [0, " + maxZoom + "] but was " + z);
+        int index = Arrays.binarySearch(keys, key(z, x, y));
+        if (index < 0)
+            return null;
+        ByteBuffer tile = data.asReadOnlyBuffer();
+        // Buffer casts for Java 8, where these methods do not return ByteBuffer
+        ((Buffer) tile).limit((int) (offsets[index] + lengths[index]));
+        ((Buffer) tile).position((int) offsets[index]);
+        return tile.slice();
+    }
+
+    @Override
+    public void close() {
+        if (data != null)
+            MMapDataAccess.cleanMappedByteBuffer(data);
+    }
+
+    /**
+     * Loads the pyramid from the specified file.
+     */
+    public static MVTPyramid load(File file) {
+        try (RandomAccessFile raFile = new RandomAccessFile(file, "r")) {
+            if (raFile.length() > Integer.MAX_VALUE)
+                throw new IllegalStateException(file + " is too large, use a lower maxZoom");
+            MappedByteBuffer data = raFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raFile.length());
+            int version = data.getInt(0);
+            if (version != VERSION)
+                throw new IllegalStateException("Unsupported version " + version + " of " + file + ", please remove it to build it again");
+            int maxZoom = data.getInt(4);
+            int tileCount = data.getInt(8);
+            long indexOffset = data.getLong(12);
+            long[] keys = new long[tileCount];
+            long[] offsets = new long[tileCount];
+            int[] lengths = new int[tileCount];
+            for (int i = 0; i < tileCount; i++) {
+                int pos = (int) (indexOffset + i * (8 + 8 + 4));
+                keys[i] = data.getLong(pos);
+                offsets[i] = data.getLong(pos + 8);
+                lengths[i] = data.getInt(pos + 16);
+            }
+            return new MVTPyramid(maxZoom, keys, offsets, lengths, data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Creates the tiles of the zoom levels 0 to maxZoom for the specified graph and writes them to the specified file.
+     * The tiles are written to a temporary file first, which replaces the specified file once it is complete, so an
+     * interrupted build does not leave a broken file behind.
+     */
+    public static void build(GraphHopperStorage graph, int maxZoom, File file) {
+        if (maxZoom < 0 || maxZoom > MAX_ZOOM)
+            throw new IllegalArgumentException("maxZoom must be in [0, " + MAX_ZOOM + "] but was " + maxZoom);
+        if (!graph.getEncodingManager().hasEncodedValue(RoadClass.KEY))
+            throw new IllegalStateException("You need to configure GraphHopper to store road_class, e.g. graph.encoded_values: road_class,max_speed,... ");
+
+        StopWatch sw = new StopWatch().start();
+        EnumEncodedValue<RoadClass> roadClassEnc = graph.getEncodingManager().getEnumEncodedValue(RoadClass.KEY, RoadClass.class);
+        NodeAccess na = graph.getNodeAccess();
+        IntArrayList tileCounts = new IntArrayList();
+        TileIndex index = new TileIndex();
+        File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            out.write(new byte[HEADER_BYTES]);
+            long offset = HEADER_BYTES;
+            for (int z = 0; z <= maxZoom; z++) {
+                // group the edges by the tiles they intersect
+                LongObjectHashMap<IntArrayList> edgesByTile = new LongObjectHashMap<>();
+                int n = 1 << z;
+                AllEdgesIterator iter = graph.getAllEdges();
+                while (iter.next()) {
+                    if (!isIncluded(iter.get(roadClassEnc), z))
+                        continue;
+                    double lat = na.getLatitude(iter.getBaseNode()), lon = na.getLongitude(iter.getBaseNode());
+                    double toLat = na.getLatitude(iter.getAdjNode()), toLon = na.getLongitude(iter.getAdjNode());
+                    if (Math.floor(lonToTile(lon, z) * 256) == Math.floor(lonToTile(toLon, z) * 256)
+                            && Math.floor(latToTile(lat, z) * 256) == Math.floor(latToTile(toLat, z) * 256))
+                        continue;
+                    int minX = clamp(lonToTile(Math.min(lon, toLon), z), n), maxX = clamp(lonToTile(Math.max(lon, toLon), z), n);
+                    // y grows from north to south
+                    int minY = clamp(latToTile(Math.max(lat, toLat), z), n), maxY = clamp(latToTile(Math.min(lat, toLat), z), n);
+                    for (int x = minX; x <= maxX; x++) {
+                        for (int y = minY; y <= maxY; y++) {
+                            long key = key(z, x, y);
+                            IntArrayList edges = edgesByTile.get(key);
+                            if (edges == null)
+                                edgesByTile.put(key, edges = new IntArrayList());
+                            edges.add(iter.getEdge());
+                        }
+                    }
+                }
+
+                long[] keys = edgesByTile.keys().toArray();
+                Arrays.sort(keys);
+                for (long key : keys) {
+                    byte[] tile = createTile(graph, roadClassEnc, z, (int) ((key >>> 20) & 0xFFFFF), (int) (key & 0xFFFFF), edgesByTile.get(key));
+                    out.write(tile);
+                    index.add(key, offset, tile.length);
+                    offset += tile.length;
+                }
+                tileCounts.add(keys.length);
+            }
+            index.writeTo(out);
+            out.flush();
+            try (RandomAccessFile raFile = new RandomAccessFile(tmpFile, "rw")) {
+                raFile.writeInt(VERSION);
+                raFile.writeInt(maxZoom);
+                raFile.writeInt(index.size());
+                raFile.writeLong(offset);
+            }
+        } catch (IOException e) {
+            tmpFile.delete();
+            throw new UncheckedIOException(e);
+        }
+        try {
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        logger.info("created vector tiles for the zoom levels 0 to {} in {}s, tiles per zoom level: {}, file size: {}MB",
+                maxZoom, sw.stop().getSeconds(), tileCounts, file.length() / (1 << 20));
+    }
+
+    private static byte[] createTile(GraphHopperStorage graph, EnumEncodedValue<RoadClass> roadClassEnc, int z, int x, int y, IntArrayList edges) {
+        NodeAccess na = graph.getNodeAccess();
+        GeometryFactory geometryFactory = new GeometryFactory();
+        Envelope tileEnvelope = new Envelope(tileToCoordinate(x + 1, y + 1, z), tileToCoordinate(x, y, z));
+        MvtLayerParams layerParams = new MvtLayerParams(256, 4096);
+        UserDataKeyValueMapConverter converter = new UserDataKeyValueMapConverter();
+        MvtLayerProps layerProps = new MvtLayerProps();
+        VectorTile.Tile.Layer.Builder layerBuilder = MvtLayerBuild.newLayerBuilder("roads", layerParams);
+        for (int i = 0; i < edges.size(); i++) {
+            EdgeIteratorState edge = graph.getEdgeIteratorState(edges.get(i), Integer.MIN_VALUE);
+            LineString lineString = geometryFactory.createLineString(new Coordinate[]{
+                    new Coordinate(na.getLongitude(edge.getBaseNode()), na.getLatitude(edge.getBaseNode())),
+                    new Coordinate(na.getLongitude(edge.getAdjNode()), na.getLatitude(edge.getAdjNode()))});
+            Map<String, Object> map = new HashMap<>(2);
+            map.put("name", edge.getName());
+            map.put(RoadClass.KEY, edge.get(roadClassEnc).toString());
+            lineString.setUserData(map);
+            TileGeomResult tileGeom = JtsAdapter.createTileGeom(lineString, tileEnvelope, geometryFactory, layerParams, geometry -> true);
+            layerBuilder.addAllFeatures(JtsAdapter.toFeatures(tileGeom.mvtGeoms, layerProps, converter));
+        }
+        MvtLayerBuild.writeProps(layerBuilder, layerProps);
+        return VectorTile.Tile.newBuilder().addLayers(layerBuilder.build()).build().toByteArray();
+    }
+
+    /**
+     * The road classes continue the scheme of the tiles that are created per request from zoom 10 on.
+     */
+    static boolean isIncluded(RoadClass roadClass, int z) {
+        return roadClass == RoadClass.MOTORWAY
+                || z > 5 && roadClass == RoadClass.TRUNK
+                || z > 7 && roadClass == RoadClass.PRIMARY;
+    }
+
+    static long key(int z, int x, int y) {
+        return (long) z << 40 | (long) x << 20 | y;
+    }
+
+    private static double lonToTile(double lon, int z) {
+        return (lon + 180) / 360 * (1 << z);
+    }
+
+    private static double latToTile(double lat, int z) {
+        double latRad = Math.toRadians(lat);
+        return (1 - Math.log(Math.tan(latRad) + 1 / Math.cos(latRad)) / Math.PI) / 2 * (1 << z);
+    }
+
+    private static int clamp(double tile, int n) {
+        return Math.max(0, Math.min(n - 1, (int) Math.floor(tile)));
+    }
+
+    /**
+     * @return the north-west corner of the specified tile
+     */
+    public static Coordinate tileToCoordinate(int x, int y, int zoom) {
+        double n = Math.pow(2, zoom);
+        double lonDeg = x / n * 360.0 - 180.0;
+        // unfortunately latitude numbers goes from north to south
+        double latRad = Math.atan(Math.sinh(Math.PI * (1 - 2 * y / n)));
+        double latDeg = Math.toDegrees(latRad);
+        return new Coordinate(lonDeg, latDeg);
+    }
+
+    private static class TileIndex {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private int size;
+
+        void add(long key, long offset, int length) throws IOException {
+            out.writeLong(key);
+            out.writeLong(offset);
+            out.writeInt(length);
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void writeTo(OutputStream target) throws IOException {
+            out.flush();
+            bytes.writeTo(target);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.http;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * An in-process cache of the encoded vector tiles of the /mvt endpoint. Tiles are identified by their zoom, x and y
+ * and the requested details, where the order and duplicates of the details do not matter. The total size of the
+ * cached tiles is limited and the least recently used tiles are evicted first. The graph does not change while the
+ * server is running, so the tiles never expire.
+ */
+public class MVTTileCache {
+    private final long maxBytes;
+    private final LinkedHashMap<String, byte[]> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxBytes the maximum total size of the cached tiles, use 0 to disable the cache
+     */
+    public MVTTileCache(long maxBytes) {
+        if (maxBytes < 0)
+            throw new IllegalArgumentException("maxBytes must not be negative but was " + maxBytes);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return the cached tile or the tile created by the specified builder, which is then cached
+     */
+    public byte[] get(int z, int x, int y, List<String> details, Supplier<byte[]> builder) {
+        if (maxBytes == 0)
+            return builder.get();
+        String key = createKey(z, x, y, details);
+        byte[] tile;
+        synchronized (cache) {
+            tile = cache.get(key);
+        }
+        if (tile != null) {
+            hits.incrementAndGet();
+            return tile;
+        }
+        misses.incrementAndGet();
+        // two threads might create the same tile, which is harmless
+        tile = builder.get();
+        put(key, tile);
+        return tile;
+    }
+
+    private void put(String key, byte[] tile) {
+        if (tile.length > maxBytes)
+            return;
+        synchronized (cache) {
+            byte[] old = cache.put(key, tile);
+            bytes += tile.length - (old == null ? 0 : old.length);
+            Iterator<byte[]> iter = cache.values().iterator();
+            while (bytes > maxBytes) {
+                bytes -= iter.next().length;
+                iter.remove();
+            }
+        }
+    }
+
+    static String createKey(int z, int x, int y, List<String> details) {
+        StringBuilder sb = new StringBuilder().append(z).append('/').append(x).append('/').append(y);
+        for (String detail : new TreeSet<>(details)) {
+            sb.append('|').append(detail);
+        }
+        return sb.toString();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getBytes() {
+        synchronized (cache) {
+            return bytes;
+        }
+    }
+
+    public int getSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+}
@@ -18,6 +18,8 @@
 
 package com.graphhopper.http;
 
+import com.graphhopper.GraphHopper;
+import com.graphhopper.gtfs.GraphHopperGtfs;
 import com.graphhopper.gtfs.GtfsStorage;
 import com.graphhopper.gtfs.RealtimeFeed;
 import io.dropwizard.ConfiguredBundle;
@@ -33,6 +35,15 @@ import javax.inject.Singleton;
 
 public class RealtimeBundle implements ConfiguredBundle<RealtimeBundleConfiguration> {
 
+    private final GraphHopperBundle graphHopperBundle;
+
+    /**
+     * @param graphHopperBundle the bundle that provides the graph, it must be added before this bundle
+     */
+    public RealtimeBundle(GraphHopperBundle graphHopperBundle) {
+        this.graphHopperBundle = graphHopperBundle;
+    }
+
     @Override
     public void initialize(Bootstrap<?> bootstrap) {
     }
@@ -50,12 +61,17 @@ public class RealtimeBundle implements ConfiguredBundle<RealtimeBundleConfigurat
             final HttpClient httpClient = new HttpClientBuilder(environment)
                     .using(configuration.gtfsrealtime().getHttpClientConfiguration())
                     .build("gtfs-realtime-feed-loader");
+            GraphHopper graphHopper = graphHopperBundle.getGraphHopper();
+            if (!(graphHopper instanceof GraphHopperGtfs))
+                throw new IllegalArgumentException("Realtime feeds require a static GTFS feed, specify graphhopper.gtfs.file");
+            // managed, so that the feeds are loaded when the server starts and not by the first query
+            final RealtimeFeedLoadingCache realtimeFeedLoadingCache = new RealtimeFeedLoadingCache(
+                    (GraphHopperGtfs) graphHopper, httpClient, configuration, environment.metrics());
+            environment.lifecycle().manage(realtimeFeedLoadingCache);
             environment.jersey().register(new AbstractBinder() {
                 @Override
                 protected void configure() {
-                    bind(httpClient).to(HttpClient.class);
-                    bind(configuration).to(RealtimeBundleConfiguration.class);
-                    bindFactory(RealtimeFeedLoadingCache.class, Singleton.class).to(RealtimeFeed.class);
+                    bindFactory(realtimeFeedLoadingCache).to(RealtimeFeed.class);
                 }
             });
         }
@@ -20,6 +20,7 @@ package com.graphhopper.http;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.dropwizard.client.HttpClientConfiguration;
+import io.dropwizard.util.Duration;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
@@ -36,10 +37,18 @@ public class RealtimeConfiguration {
     @JsonProperty
     private List<FeedConfiguration> feeds = new ArrayList<>();
 
+    @NotNull
+    @JsonProperty
+    private Duration refreshInterval = Duration.minutes(1);
+
     public List<FeedConfiguration> getFeeds() {
         return feeds;
     }
 
+    public Duration getRefreshInterval() {
+        return refreshInterval;
+    }
+
     public HttpClientConfiguration getHttpClientConfiguration() {
         return httpClient;
     }
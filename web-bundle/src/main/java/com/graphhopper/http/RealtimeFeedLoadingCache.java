@@ -18,13 +18,11 @@
 
 package com.graphhopper.http;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.conveyal.gtfs.GTFSFeed;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
-import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.ListenableFutureTask;
 import com.google.transit.realtime.GtfsRealtime;
+import com.graphhopper.gtfs.GraphHopperGtfs;
 import com.graphhopper.gtfs.GtfsStorage;
 import com.graphhopper.gtfs.RealtimeFeed;
 import com.graphhopper.gtfs.Transfers;
@@ -33,89 +31,178 @@ import io.dropwizard.lifecycle.Managed;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
 import org.glassfish.hk2.api.Factory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import javax.inject.Inject;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URISyntaxException;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
+/**
+ * Provides the current {@link RealtimeFeed}. The feeds are fetched periodically on a background thread and a new
+ * RealtimeFeed is published only if the content of a feed changed, so queries never wait for an update and keep the
+ * instance they got. Messages with DIFFERENTIAL incrementality are merged into the entities of the previous messages
+ * of the same feed by their entity id.
+ * <p>
+ * The age of the published data relative to the timestamp of the feed and the duration of the last update are
+ * exposed via the /metrics endpoint of the admin connector.
+ */
 public class RealtimeFeedLoadingCache implements Factory<RealtimeFeed>, Managed {
 
+    private static final Logger logger = LoggerFactory.getLogger(RealtimeFeedLoadingCache.class);
     private final HttpClient httpClient;
-    private final GraphHopperStorage graphHopperStorage;
-    private final GtfsStorage gtfsStorage;
+    private final GraphHopperGtfs graphHopper;
     private final RealtimeBundleConfiguration bundleConfiguration;
-    private ExecutorService executor;
-    private LoadingCache<String, RealtimeFeed> cache;
-    private Map<String, Transfers> transfers;
-
-    @Inject
-    RealtimeFeedLoadingCache(GraphHopperStorage graphHopperStorage, GtfsStorage gtfsStorage, HttpClient httpClient, RealtimeBundleConfiguration bundleConfiguration) {
-        this.graphHopperStorage = graphHopperStorage;
-        this.gtfsStorage = gtfsStorage;
+    private ScheduledExecutorService executor;
+    private Function<Map<String, GtfsRealtime.FeedMessage>, RealtimeFeed> feedBuilder;
+    // only accessed by the update thread
+    private final Map<String, Map<String, GtfsRealtime.FeedEntity>> entitiesByFeed = new HashMap<>();
+    private Map<String, GtfsRealtime.FeedMessage> publishedMessages = Collections.emptyMap();
+    private volatile RealtimeFeed realtimeFeed;
+    private volatile long feedTimestamp;
+    private volatile long lastUpdateMillis;
+
+    public RealtimeFeedLoadingCache(GraphHopperGtfs graphHopper, HttpClient httpClient, RealtimeBundleConfiguration bundleConfiguration, MetricRegistry metrics) {
+        this.graphHopper = graphHopper;
         this.bundleConfiguration = bundleConfiguration;
         this.httpClient = httpClient;
+        metrics.register("graphhopper.realtime.lag_seconds", (Gauge<Long>) this::getLagSeconds);
+        metrics.register("graphhopper.realtime.last_update_millis", (Gauge<Long>) () -> lastUpdateMillis);
+    }
+
+    RealtimeFeedLoadingCache(HttpClient httpClient, RealtimeBundleConfiguration bundleConfiguration, MetricRegistry metrics,
+                             RealtimeFeed emptyFeed, Function<Map<String, GtfsRealtime.FeedMessage>, RealtimeFeed> feedBuilder) {
+        this(null, httpClient, bundleConfiguration, metrics);
+        this.realtimeFeed = emptyFeed;
+        this.feedBuilder = feedBuilder;
     }
 
+    /**
+     * Loads the feeds for the first time and schedules the updates. This is called when the server starts, after the
+     * graph was loaded, so that the queries already see the realtime data and never wait for it.
+     */
     @Override
-    public void start() {
-        this.transfers = new HashMap<>();
-        for (Map.Entry<String, GTFSFeed> entry : this.gtfsStorage.getGtfsFeeds().entrySet()) {
-            this.transfers.put(entry.getKey(), new Transfers(entry.getValue()));
+    public synchronized void start() {
+        if (executor != null)
+            return;
+        if (feedBuilder == null) {
+            GraphHopperStorage graphHopperStorage = graphHopper.getGraphHopperStorage();
+            GtfsStorage gtfsStorage = graphHopper.getGtfsStorage();
+            Map<String, Transfers> transfers = new HashMap<>();
+            for (Map.Entry<String, GTFSFeed> entry : gtfsStorage.getGtfsFeeds().entrySet()) {
+                transfers.put(entry.getKey(), new Transfers(entry.getValue()));
+            }
+            this.realtimeFeed = RealtimeFeed.empty(gtfsStorage);
+            this.feedBuilder = feedMessages -> RealtimeFeed.fromProtobuf(graphHopperStorage, gtfsStorage, transfers, feedMessages);
         }
-        this.executor = Executors.newSingleThreadExecutor();
-        this.cache = CacheBuilder.newBuilder()
-                .maximumSize(1)
-                .refreshAfterWrite(1, TimeUnit.MINUTES)
-                .build(new CacheLoader<String, RealtimeFeed>() {
-                    public RealtimeFeed load(String key) {
-                        return fetchFeedsAndCreateGraph();
-                    }
-
-                    @Override
-                    public ListenableFuture<RealtimeFeed> reload(String key, RealtimeFeed oldValue) {
-                        ListenableFutureTask<RealtimeFeed> task = ListenableFutureTask.create(() -> fetchFeedsAndCreateGraph());
-                        executor.execute(task);
-                        return task;
-                    }
-                });
+        update();
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "gtfs-realtime-update");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = bundleConfiguration.gtfsrealtime().getRefreshInterval().toMilliseconds();
+        executor.scheduleWithFixedDelay(this::update, interval, interval, TimeUnit.MILLISECONDS);
     }
 
     @Override
     public RealtimeFeed provide() {
-        try {
-            return cache.get("pups");
-        } catch (ExecutionException | RuntimeException e) {
-            e.printStackTrace();
-            return RealtimeFeed.empty(gtfsStorage);
-        }
+        return realtimeFeed;
     }
 
     @Override
     public void dispose(RealtimeFeed instance) {
-        this.executor.shutdown();
+        // the feeds are immutable and shared between the queries
     }
 
     @Override
-    public void stop() {
+    public synchronized void stop() {
+        if (executor != null)
+            executor.shutdownNow();
+    }
+
+    /**
+     * @return the seconds between the newest timestamp of the fetched feeds and now, or -1 if no feed with a
+     * timestamp was fetched yet
+     */
+    public long getLagSeconds() {
+        long timestamp = feedTimestamp;
+        return timestamp == 0 ? -1 : Math.max(0, System.currentTimeMillis() / 1000 - timestamp);
+    }
+
+    void update() {
+        // an exception must not cancel the scheduled updates, we keep the previous feed instead
+        try {
+            long start = System.currentTimeMillis();
+            Map<String, GtfsRealtime.FeedMessage> feedMessages = new LinkedHashMap<>();
+            for (FeedConfiguration configuration : bundleConfiguration.gtfsrealtime().getFeeds()) {
+                feedMessages.put(configuration.getFeedId(), apply(configuration.getFeedId(), fetch(configuration)));
+            }
+            // the data is as recent as the feeds even if their content did not change
+            feedTimestamp = feedMessages.values().stream().mapToLong(m -> m.getHeader().getTimestamp()).max().orElse(0);
+            if (!sameEntities(feedMessages, publishedMessages)) {
+                realtimeFeed = feedBuilder.apply(feedMessages);
+                publishedMessages = feedMessages;
+                lastUpdateMillis = System.currentTimeMillis() - start;
+                logger.info("Applied realtime feeds with timestamp {} in {}ms", feedTimestamp, lastUpdateMillis);
+            }
+        } catch (Exception e) {
+            logger.error("Could not update the realtime feeds", e);
+        }
     }
 
-    private RealtimeFeed fetchFeedsAndCreateGraph() {
-        Map<String, GtfsRealtime.FeedMessage> feedMessageMap = new HashMap<>();
-        for (FeedConfiguration configuration : bundleConfiguration.gtfsrealtime().getFeeds()) {
-            try {
-                GtfsRealtime.FeedMessage feedMessage = GtfsRealtime.FeedMessage.parseFrom(httpClient.execute(new HttpGet(configuration.getUrl().toURI())).getEntity().getContent());
-                feedMessageMap.put(configuration.getFeedId(), feedMessage);
-            } catch (IOException | URISyntaxException e) {
-                throw new RuntimeException(e);
+    /**
+     * Compares only the entities of the feeds, because the header contains a new timestamp for every publication.
+     */
+    private static boolean sameEntities(Map<String, GtfsRealtime.FeedMessage> feedMessages, Map<String, GtfsRealtime.FeedMessage> otherFeedMessages) {
+        if (!feedMessages.keySet().equals(otherFeedMessages.keySet()))
+            return false;
+        for (Map.Entry<String, GtfsRealtime.FeedMessage> entry : feedMessages.entrySet()) {
+            if (!entry.getValue().getEntityList().equals(otherFeedMessages.get(entry.getKey()).getEntityList()))
+                return false;
+        }
+        return true;
+    }
+
+    private GtfsRealtime.FeedMessage fetch(FeedConfiguration configuration) {
+        try (InputStream content = httpClient.execute(new HttpGet(configuration.getUrl().toURI())).getEntity().getContent()) {
+            return GtfsRealtime.FeedMessage.parseFrom(content);
+        } catch (IOException | URISyntaxException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return the full dataset of the specified feed after applying the specified message
+     */
+    private GtfsRealtime.FeedMessage apply(String feedId, GtfsRealtime.FeedMessage feedMessage) {
+        Map<String, GtfsRealtime.FeedEntity> entities = entitiesByFeed.computeIfAbsent(feedId, id -> new LinkedHashMap<>());
+        if (feedMessage.getHeader().getIncrementality() == GtfsRealtime.FeedHeader.Incrementality.FULL_DATASET) {
+            // the base for the following differential messages
+            entities.clear();
+            for (GtfsRealtime.FeedEntity entity : feedMessage.getEntityList()) {
+                entities.put(entity.getId(), entity);
             }
+            return feedMessage;
+        }
+        for (GtfsRealtime.FeedEntity entity : feedMessage.getEntityList()) {
+            if (entity.getIsDeleted())
+                entities.remove(entity.getId());
+            else
+                entities.put(entity.getId(), entity);
         }
-        return RealtimeFeed.fromProtobuf(graphHopperStorage, gtfsStorage, this.transfers, feedMessageMap);
+        return GtfsRealtime.FeedMessage.newBuilder()
+                .setHeader(feedMessage.getHeader().toBuilder().setIncrementality(GtfsRealtime.FeedHeader.Incrementality.FULL_DATASET))
+                .addAllEntity(entities.values())
+                .build();
     }
 
 }
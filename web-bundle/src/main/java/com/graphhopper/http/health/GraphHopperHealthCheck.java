@@ -20,7 +20,7 @@ package com.graphhopper.http.health;
 
 import com.codahale.metrics.health.HealthCheck;
 import com.graphhopper.GraphHopper;
-import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.DataAccessWarmup;
 
 public class GraphHopperHealthCheck extends HealthCheck {
 
@@ -33,10 +33,18 @@ public class GraphHopperHealthCheck extends HealthCheck {
     @Override
     protected Result check() {
         boolean valid = graphHopper.getGraphHopperStorage().getBounds().isValid();
-        if (valid) {
-            return Result.healthy();
-        } else {
+        if (!valid)
             return Result.unhealthy("GraphHopperStorage has invalid bounds.");
-        }
+
+        // requests are answered during the warmup, only slower, so report its state without being unhealthy
+        DataAccessWarmup warmup = graphHopper.getDataAccessWarmup();
+        if (warmup == null)
+            return Result.healthy();
+        return Result.builder().healthy()
+                .withMessage(warmup.isFinished() ? "warmup finished" : "warmup running")
+                .withDetail("warmup_finished", warmup.isFinished())
+                .withDetail("warmup_bytes", warmup.getBytes())
+                .withDetail("warmup_done_bytes", warmup.getWarmedUpBytes())
+                .build();
     }
 }
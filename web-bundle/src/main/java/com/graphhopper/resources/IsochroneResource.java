@@ -131,11 +131,11 @@ public class IsochroneResource {
 
         ToDoubleFunction<ShortestPathTree.IsoLabel> fz;
         if (weightLimit.get() > 0) {
-            fz = l -> l.weight;
+            fz = ShortestPathTree.IsoLabel::getWeight;
         } else if (distanceLimitInMeter.get() > 0) {
-            fz = l -> l.distance;
+            fz = ShortestPathTree.IsoLabel::getDistance;
         } else {
-            fz = l -> l.time;
+            fz = ShortestPathTree.IsoLabel::getTime;
         }
 
         Triangulator.Result result = triangulator.triangulate(snap, queryGraph, shortestPathTree, fz, degreesFromMeters(toleranceInMeter));
@@ -1,11 +1,13 @@
 package com.graphhopper.resources;
 
 import com.graphhopper.GraphHopper;
+import com.graphhopper.http.MVTPyramid;
+import com.graphhopper.http.MVTTileCache;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.util.DefaultEdgeFilter;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.storage.NodeAccess;
-import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
 import com.wdtinc.mapbox_vector_tile.VectorTile;
@@ -29,7 +31,10 @@ import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -42,11 +47,15 @@ public class MVTResource {
     private static final MediaType PBF = new MediaType("application", "x-protobuf");
     private final GraphHopper graphHopper;
     private final EncodingManager encodingManager;
+    private final MVTTileCache tileCache;
+    private final MVTPyramid pyramid;
 
     @Inject
-    public MVTResource(GraphHopper graphHopper, EncodingManager encodingManager) {
+    public MVTResource(GraphHopper graphHopper, EncodingManager encodingManager, MVTTileCache tileCache, MVTPyramid pyramid) {
         this.graphHopper = graphHopper;
         this.encodingManager = encodingManager;
+        this.tileCache = tileCache;
+        this.pyramid = pyramid;
     }
 
     @GET
@@ -60,6 +69,15 @@ public class MVTResource {
             @PathParam("y") int yInfo,
             @QueryParam(Parameters.Details.PATH_DETAILS) List<String> pathDetails) {
 
+        if (zInfo <= pyramid.getMaxZoom()) {
+            // the prebuilt tiles contain the name and road class, further details are not available for these zoom levels
+            ByteBuffer tile = pyramid.getTile(zInfo, xInfo, yInfo);
+            if (tile != null)
+                return Response.ok((StreamingOutput) out -> Channels.newChannel(out).write(tile), PBF)
+                        .header("X-GH-Took", "0")
+                        .build();
+        }
+
         if (zInfo <= 9) {
             VectorTile.Tile.Builder mvtBuilder = VectorTile.Tile.newBuilder();
             return Response.fromResponse(Response.ok(mvtBuilder.build().toByteArray(), PBF).build())
@@ -68,9 +86,17 @@ public class MVTResource {
         }
 
         StopWatch totalSW = new StopWatch().start();
-        Coordinate nw = num2deg(xInfo, yInfo, zInfo);
-        Coordinate se = num2deg(xInfo + 1, yInfo + 1, zInfo);
-        LocationIndexTree locationIndex = (LocationIndexTree) graphHopper.getLocationIndex();
+        byte[] bytes = tileCache.get(zInfo, xInfo, yInfo, pathDetails, () -> createTile(zInfo, xInfo, yInfo, pathDetails));
+        totalSW.stop();
+        return Response.ok(bytes, PBF).header("X-GH-Took", "" + totalSW.getSeconds() * 1000)
+                .build();
+    }
+
+    private byte[] createTile(int zInfo, int xInfo, int yInfo, List<String> pathDetails) {
+        StopWatch totalSW = new StopWatch().start();
+        Coordinate nw = MVTPyramid.tileToCoordinate(xInfo, yInfo, zInfo);
+        Coordinate se = MVTPyramid.tileToCoordinate(xInfo + 1, yInfo + 1, zInfo);
+        LocationIndex locationIndex = graphHopper.getLocationIndex();
         final NodeAccess na = graphHopper.getGraphHopperStorage().getNodeAccess();
         EdgeExplorer edgeExplorer = graphHopper.getGraphHopperStorage().createEdgeExplorer(DefaultEdgeFilter.ALL_EDGES);
         BBox bbox = new BBox(nw.x, se.x, se.y, nw.y);
@@ -93,7 +119,7 @@ public class MVTResource {
         final MvtLayerProps layerProps = new MvtLayerProps();
         final VectorTile.Tile.Layer.Builder layerBuilder = MvtLayerBuild.newLayerBuilder("roads", layerParams);
 
-        locationIndex.query(bbox, new LocationIndexTree.EdgeVisitor(edgeExplorer) {
+        locationIndex.query(bbox, new LocationIndex.EdgeVisitor(edgeExplorer) {
             @Override
             public void onEdge(EdgeIteratorState edge, int nodeA, int nodeB) {
                 LineString lineString;
@@ -152,16 +178,6 @@ public class MVTResource {
         byte[] bytes = mvtBuilder.build().toByteArray();
         totalSW.stop();
         logger.debug("took: " + totalSW.getSeconds() + ", edges:" + edgeCounter.get());
-        return Response.ok(bytes, PBF).header("X-GH-Took", "" + totalSW.getSeconds() * 1000)
-                .build();
-    }
-
-    Coordinate num2deg(int xInfo, int yInfo, int zoom) {
-        double n = Math.pow(2, zoom);
-        double lonDeg = xInfo / n * 360.0 - 180.0;
-        // unfortunately latitude numbers goes from north to south
-        double latRad = Math.atan(Math.sinh(Math.PI * (1 - 2 * yInfo / n)));
-        double latDeg = Math.toDegrees(latRad);
-        return new Coordinate(lonDeg, latDeg);
+        return bytes;
     }
 }
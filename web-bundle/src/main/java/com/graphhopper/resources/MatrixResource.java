@@ -0,0 +1,122 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.graphhopper.GHMatrixRequest;
+import com.graphhopper.GHMatrixResponse;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.MultiException;
+import com.graphhopper.http.WebHelper;
+import com.graphhopper.routing.ProfileResolver;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.Collections;
+import java.util.List;
+
+import static com.graphhopper.resources.RouteResource.errorIfLegacyParameters;
+import static com.graphhopper.resources.RouteResource.removeLegacyParameters;
+
+/**
+ * Calculates the weights, times and distances between all pairs of the from and to points. The request and the
+ * response use the same format as the matrix API that is supported by the GraphHopperMatrixWeb client, i.e. points
+ * are in [longitude,latitude] order, the times are in seconds and the distances in meters. Unconnected pairs are null.
+ */
+@Path("matrix")
+public class MatrixResource {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatrixResource.class);
+
+    private final GraphHopper graphHopper;
+    private final ProfileResolver profileResolver;
+
+    @Inject
+    public MatrixResource(GraphHopper graphHopper, ProfileResolver profileResolver) {
+        this.graphHopper = graphHopper;
+        this.profileResolver = profileResolver;
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response doPost(@NotNull GHMatrixRequest request, @Context HttpServletRequest httpReq) {
+        StopWatch sw = new StopWatch().start();
+        // the matrix client always sends the vehicle, even if it is empty
+        if (Helper.isEmpty(request.getHints().getString("vehicle", "")))
+            request.getHints().remove("vehicle");
+        if (Helper.isEmpty(request.getProfile())) {
+            request.setProfile(profileResolver.resolveProfile(request.getHints()).getName());
+            removeLegacyParameters(request.getHints());
+        }
+        errorIfLegacyParameters(request.getHints());
+        List<String> outArrays = request.getOutArrays().isEmpty() ? Collections.singletonList("weights") : request.getOutArrays();
+        for (String outArray : outArrays) {
+            if (!"weights".equals(outArray) && !"times".equals(outArray) && !"distances".equals(outArray))
+                throw new IllegalArgumentException("Unknown out_array '" + outArray + "', supported are: weights, times and distances");
+        }
+        GHMatrixResponse matrixResponse = graphHopper.matrix(request);
+        long took = sw.stop().getNanos() / 1_000_000;
+        String logStr = httpReq.getRemoteAddr() + " " + request.getFromPoints().size() + "x" + request.getToPoints().size()
+                + ", took: " + took + " ms, profile: " + request.getProfile();
+        if (matrixResponse.hasErrors()) {
+            logger.error(logStr + ", errors:" + matrixResponse.getErrors());
+            throw new MultiException(matrixResponse.getErrors());
+        }
+        logger.info(logStr + ", debugInfo: " + matrixResponse.getDebugInfo());
+
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        for (String outArray : outArrays) {
+            putTable(json.putArray(outArray), matrixResponse, outArray);
+        }
+        WebHelper.jsonResponsePutInfo(json, took);
+        return Response.ok(json).header("X-GH-Took", "" + took).build();
+    }
+
+    private static void putTable(ArrayNode table, GHMatrixResponse matrixResponse, String outArray) {
+        int rows = matrixResponse.getWeights().length;
+        for (int from = 0; from < rows; from++) {
+            ArrayNode row = table.addArray();
+            int columns = matrixResponse.getWeights()[from].length;
+            for (int to = 0; to < columns; to++) {
+                if (!matrixResponse.isConnected(from, to))
+                    row.addNull();
+                else if ("weights".equals(outArray))
+                    row.add(Helper.round(matrixResponse.getWeight(from, to), 3));
+                else if ("times".equals(outArray))
+                    row.add(Math.round(matrixResponse.getTime(from, to) / 1000.0));
+                else
+                    row.add(Math.round(matrixResponse.getDistance(from, to)));
+            }
+        }
+    }
+}
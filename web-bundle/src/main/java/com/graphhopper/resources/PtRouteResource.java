@@ -62,7 +62,8 @@ public class PtRouteResource {
                             @QueryParam("pt.ignore_transfers") Boolean ignoreTransfers,
                             @QueryParam("pt.profile") Boolean profileQuery,
                             @QueryParam("pt.limit_solutions") Integer limitSolutions,
-                            @QueryParam("pt.limit_street_time") DurationParam limitStreetTime) {
+                            @QueryParam("pt.limit_street_time") DurationParam limitStreetTime,
+                            @QueryParam("pt.algorithm") Request.Algorithm algorithm) {
         StopWatch stopWatch = new StopWatch().start();
         List<GHLocation> points = requestPoints.stream().map(AbstractParam::get).collect(toList());
         Instant departureTime = departureTimeParam.get();
@@ -75,6 +76,7 @@ public class PtRouteResource {
         Optional.ofNullable(localeStr).ifPresent(s -> request.setLocale(Helper.getLocale(s)));
         Optional.ofNullable(limitSolutions).ifPresent(request::setLimitSolutions);
         Optional.ofNullable(limitStreetTime.get()).ifPresent(request::setLimitStreetTime);
+        Optional.ofNullable(algorithm).ifPresent(request::setAlgorithm);
 
         GHResponse route = ptRouter.route(request);
         return WebHelper.jsonObject(route, true, true, false, false, stopWatch.stop().getMillis());
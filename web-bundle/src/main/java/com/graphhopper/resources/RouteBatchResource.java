@@ -0,0 +1,134 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.MultiException;
+import com.graphhopper.http.RouteResponseWriter;
+import com.graphhopper.http.WebHelper;
+import com.graphhopper.routing.ProfileResolver;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.graphhopper.resources.RouteResource.errorIfLegacyParameters;
+import static com.graphhopper.resources.RouteResource.removeLegacyParameters;
+import static com.graphhopper.util.Parameters.Routing.CALC_POINTS;
+import static com.graphhopper.util.Parameters.Routing.INSTRUCTIONS;
+
+/**
+ * Calculates the routes of many requests at once. The body is a JSON array of requests in the same format as for the
+ * POST /route endpoint. The response is streamed: every entry of the "responses" array is written as soon as it is
+ * available, in the order of the requests. An entry is either the same JSON as returned from /route or, if the
+ * request failed, the same error JSON as /route would return with status 400.
+ */
+@Path("route/batch")
+public class RouteBatchResource {
+
+    private static final Logger logger = LoggerFactory.getLogger(RouteBatchResource.class);
+
+    private final GraphHopper graphHopper;
+    private final ProfileResolver profileResolver;
+    private final ObjectMapper objectMapper;
+
+    @Inject
+    public RouteBatchResource(GraphHopper graphHopper, ProfileResolver profileResolver, ObjectMapper objectMapper) {
+        this.graphHopper = graphHopper;
+        this.profileResolver = profileResolver;
+        this.objectMapper = objectMapper;
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response doPost(@NotNull List<GHRequest> requests, @Context HttpServletRequest httpReq) {
+        StopWatch sw = new StopWatch().start();
+        if (requests.isEmpty())
+            throw new IllegalArgumentException("You have to pass at least one request");
+        // check this before the response is committed
+        int maxRequests = graphHopper.getRouterConfig().getMaxBatchRequests();
+        if (requests.size() > maxRequests)
+            throw new IllegalArgumentException("Too many requests in one batch: " + requests.size() + ", the maximum is: " + maxRequests);
+        for (GHRequest request : requests) {
+            if (Helper.isEmpty(request.getProfile())) {
+                request.setProfile(profileResolver.resolveProfile(request.getHints()).getName());
+                removeLegacyParameters(request.getHints());
+            }
+            errorIfLegacyParameters(request.getHints());
+        }
+        String infoStr = httpReq.getRemoteAddr() + " " + httpReq.getLocale() + " " + httpReq.getHeader("User-Agent");
+
+        StreamingOutput out = output -> {
+            AtomicInteger errors = new AtomicInteger();
+            AtomicInteger index = new AtomicInteger();
+            try (JsonGenerator gen = objectMapper.getFactory().createGenerator(output)) {
+                gen.writeStartObject();
+                gen.writeArrayFieldStart("responses");
+                graphHopper.routeBatch(requests, ghResponse -> {
+                    GHRequest request = requests.get(index.getAndIncrement());
+                    try {
+                        if (ghResponse.hasErrors()) {
+                            errors.incrementAndGet();
+                            gen.writeObject(new MultiException(ghResponse.getErrors()));
+                        } else {
+                            gen.writeObject(new RouteResponseWriter(ghResponse,
+                                    request.getHints().getBool(INSTRUCTIONS, true),
+                                    request.getHints().getBool(CALC_POINTS, true),
+                                    request.getHints().getBool("elevation", false),
+                                    request.getHints().getBool("points_encoded", true),
+                                    sw.getCurrentSeconds() * 1000));
+                        }
+                        // let the client process every response as soon as it is available
+                        gen.flush();
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+                gen.writeEndArray();
+                gen.writeObjectFieldStart("info");
+                gen.writeObjectField("copyrights", WebHelper.COPYRIGHTS);
+                gen.writeNumberField("took", Math.round(sw.getCurrentSeconds() * 1000));
+                gen.writeEndObject();
+                gen.writeEndObject();
+            }
+            logger.info(infoStr + " requests: " + requests.size() + ", errors: " + errors.get()
+                    + ", took: " + String.format("%.1f", sw.stop().getSeconds() * 1000) + " ms");
+        };
+        return Response.ok(out).type(MediaType.APPLICATION_JSON).build();
+    }
+}
@@ -16,7 +16,6 @@ import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
-import com.graphhopper.util.shapes.GHPoint;
 import io.dropwizard.jersey.params.LongParam;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,14 +45,6 @@ public class SPTResource {
 
     private static final Logger logger = LoggerFactory.getLogger(SPTResource.class);
 
-    public static class IsoLabelWithCoordinates {
-        public int nodeId = -1;
-        public int edgeId, prevEdgeId, prevNodeId = -1;
-        public int timeMillis, prevTimeMillis;
-        public int distance, prevDistance;
-        public GHPoint coordinate, prevCoordinate;
-    }
-
     private final GraphHopper graphHopper;
     private final ProfileResolver profileResolver;
     private final EncodingManager encodingManager;
@@ -143,8 +134,9 @@ public class SPTResource {
                 }
                 sb.append(LINE_SEP);
                 writer.write(sb.toString());
-                shortestPathTree.search(snap.getClosestNode(), l -> {
-                    IsoLabelWithCoordinates label = isoLabelWithCoordinates(nodeAccess, l);
+                shortestPathTree.search(snap.getClosestNode(), label -> {
+                    // the labels are only valid during this callback, so we write them out directly
+                    ShortestPathTree.IsoLabel prevLabel = label.getParent();
                     sb.setLength(0);
                     for (int colIndex = 0; colIndex < columns.size(); colIndex++) {
                         String col = columns.get(colIndex);
@@ -153,47 +145,47 @@ public class SPTResource {
 
                         switch (col) {
                             case "node_id":
-                                sb.append(label.nodeId);
+                                sb.append(label.getNode());
                                 continue;
                             case "prev_node_id":
-                                sb.append(label.prevNodeId);
+                                sb.append(prevLabel == null ? -1 : prevLabel.getNode());
                                 continue;
                             case "edge_id":
-                                sb.append(label.edgeId);
+                                sb.append(label.getEdge());
                                 continue;
                             case "prev_edge_id":
-                                sb.append(label.prevEdgeId);
+                                sb.append(prevLabel == null ? 0 : prevLabel.getEdge());
                                 continue;
                             case "distance":
-                                sb.append(label.distance);
+                                sb.append(Math.round(label.getDistance()));
                                 continue;
                             case "prev_distance":
-                                sb.append(label.prevCoordinate == null ? 0 : label.prevDistance);
+                                sb.append(prevLabel == null ? 0 : Math.round(prevLabel.getDistance()));
                                 continue;
                             case "time":
-                                sb.append(label.timeMillis);
+                                sb.append(label.getTime());
                                 continue;
                             case "prev_time":
-                                sb.append(label.prevCoordinate == null ? 0 : label.prevTimeMillis);
+                                sb.append(prevLabel == null ? 0 : prevLabel.getTime());
                                 continue;
                             case "longitude":
-                                sb.append(label.coordinate.lon);
+                                sb.append(nodeAccess.getLongitude(label.getNode()));
                                 continue;
                             case "prev_longitude":
-                                sb.append(label.prevCoordinate == null ? null : label.prevCoordinate.lon);
+                                sb.append(prevLabel == null ? null : nodeAccess.getLongitude(prevLabel.getNode()));
                                 continue;
                             case "latitude":
-                                sb.append(label.coordinate.lat);
+                                sb.append(nodeAccess.getLatitude(label.getNode()));
                                 continue;
                             case "prev_latitude":
-                                sb.append(label.prevCoordinate == null ? null : label.prevCoordinate.lat);
+                                sb.append(prevLabel == null ? null : nodeAccess.getLatitude(prevLabel.getNode()));
                                 continue;
                         }
 
-                        if (!EdgeIterator.Edge.isValid(label.edgeId))
+                        if (!EdgeIterator.Edge.isValid(label.getEdge()))
                             continue;
 
-                        EdgeIteratorState edge = queryGraph.getEdgeIteratorState(label.edgeId, label.nodeId);
+                        EdgeIteratorState edge = queryGraph.getEdgeIteratorState(label.getEdge(), label.getNode());
                         if (edge == null)
                             continue;
 
@@ -235,27 +227,4 @@ public class SPTResource {
         // Give media type explicitly since we are annotating CSV and JSON, because error messages are JSON.
         return Response.ok(out).type("text/csv").build();
     }
-
-    private IsoLabelWithCoordinates isoLabelWithCoordinates(NodeAccess na, ShortestPathTree.IsoLabel label) {
-        double lat = na.getLatitude(label.node);
-        double lon = na.getLongitude(label.node);
-        IsoLabelWithCoordinates isoLabelWC = new IsoLabelWithCoordinates();
-        isoLabelWC.nodeId = label.node;
-        isoLabelWC.coordinate = new GHPoint(lat, lon);
-        isoLabelWC.timeMillis = Math.round(label.time);
-        isoLabelWC.distance = (int) Math.round(label.distance);
-        isoLabelWC.edgeId = label.edge;
-        if (label.parent != null) {
-            ShortestPathTree.IsoLabel prevLabel = label.parent;
-            int prevNodeId = prevLabel.node;
-            double prevLat = na.getLatitude(prevNodeId);
-            double prevLon = na.getLongitude(prevNodeId);
-            isoLabelWC.prevNodeId = prevNodeId;
-            isoLabelWC.prevEdgeId = prevLabel.edge;
-            isoLabelWC.prevCoordinate = new GHPoint(prevLat, prevLon);
-            isoLabelWC.prevDistance = (int) Math.round(prevLabel.distance);
-            isoLabelWC.prevTimeMillis = Math.round(prevLabel.time);
-        }
-        return isoLabelWC;
-    }
 }
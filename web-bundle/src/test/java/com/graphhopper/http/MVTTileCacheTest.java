@@ -0,0 +1,80 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MVTTileCacheTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final Supplier<byte[]> builder = () -> {
+        calls.incrementAndGet();
+        return new byte[100];
+    };
+
+    @Test
+    void hitsForSameTileAndDetails() {
+        MVTTileCache cache = new MVTTileCache(1000);
+        byte[] tile = cache.get(14, 1, 2, Arrays.asList("max_speed", "road_class"), builder);
+        assertSame(tile, cache.get(14, 1, 2, Arrays.asList("road_class", "max_speed", "road_class"), builder));
+        assertEquals(1, calls.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        assertNotSame(tile, cache.get(14, 1, 2, Collections.emptyList(), builder));
+        assertNotSame(tile, cache.get(14, 2, 1, Arrays.asList("max_speed", "road_class"), builder));
+        assertNotSame(tile, cache.get(15, 1, 2, Arrays.asList("max_speed", "road_class"), builder));
+        assertEquals(4, calls.get());
+        assertEquals(4, cache.getSize());
+        assertEquals(400, cache.getBytes());
+    }
+
+    @Test
+    void evictLeastRecentlyUsed() {
+        MVTTileCache cache = new MVTTileCache(250);
+        cache.get(14, 1, 1, Collections.emptyList(), builder);
+        cache.get(14, 1, 2, Collections.emptyList(), builder);
+        // use the first tile so that the second is evicted
+        cache.get(14, 1, 1, Collections.emptyList(), builder);
+        cache.get(14, 1, 3, Collections.emptyList(), builder);
+        assertEquals(2, cache.getSize());
+        assertEquals(200, cache.getBytes());
+        assertEquals(3, calls.get());
+        cache.get(14, 1, 1, Collections.emptyList(), builder);
+        assertEquals(3, calls.get());
+        cache.get(14, 1, 2, Collections.emptyList(), builder);
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    void disabled() {
+        MVTTileCache cache = new MVTTileCache(0);
+        cache.get(14, 1, 1, Collections.emptyList(), builder);
+        cache.get(14, 1, 1, Collections.emptyList(), builder);
+        assertEquals(2, calls.get());
+        assertEquals(0, cache.getSize());
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.http;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.transit.realtime.GtfsRealtime;
+import com.graphhopper.gtfs.RealtimeFeed;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RealtimeFeedLoadingCacheTest {
+
+    private HttpClient httpClient;
+    private List<Map<String, GtfsRealtime.FeedMessage>> builtFeeds;
+    private RealtimeFeedLoadingCache cache;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        FeedConfiguration feedConfiguration = new FeedConfiguration();
+        feedConfiguration.setFeedId("gtfs_0");
+        feedConfiguration.setUrl(new URL("http://localhost/realtime"));
+        RealtimeConfiguration realtimeConfiguration = new RealtimeConfiguration();
+        realtimeConfiguration.getFeeds().add(feedConfiguration);
+        httpClient = mock(HttpClient.class);
+        builtFeeds = new ArrayList<>();
+        cache = new RealtimeFeedLoadingCache(httpClient, () -> realtimeConfiguration, new MetricRegistry(), mock(RealtimeFeed.class), feedMessages -> {
+            builtFeeds.add(feedMessages);
+            return mock(RealtimeFeed.class);
+        });
+    }
+
+    @Test
+    public void testMergeDifferentialMessages() throws IOException {
+        serve(message(GtfsRealtime.FeedHeader.Incrementality.FULL_DATASET, 100, entity("a", false), entity("b", false)));
+        cache.update();
+        serve(message(GtfsRealtime.FeedHeader.Incrementality.DIFFERENTIAL, 200, entity("c", false), entity("a", true)));
+        cache.update();
+        assertEquals(2, builtFeeds.size());
+        assertEquals("[a, b]", ids(builtFeeds.get(0)));
+        assertEquals("[b, c]", ids(builtFeeds.get(1)));
+
+        // a full dataset replaces the merged entities
+        serve(message(GtfsRealtime.FeedHeader.Incrementality.FULL_DATASET, 300, entity("d", false)));
+        cache.update();
+        serve(message(GtfsRealtime.FeedHeader.Incrementality.DIFFERENTIAL, 400, entity("e", false)));
+        cache.update();
+        assertEquals("[d, e]", ids(builtFeeds.get(3)));
+    }
+
+    @Test
+    public void testSkipUnchangedFeed() throws IOException {
+        serve(message(GtfsRealtime.FeedHeader.Incrementality.FULL_DATASET, 100, entity("a", false)));
+        cache.update();
+        RealtimeFeed feed = cache.provide();
+        // the same content with a new timestamp
+        long now = System.currentTimeMillis() / 1000;
+        serve(message(GtfsRealtime.FeedHeader.Incrementality.FULL_DATASET, now, entity("a", false)));
+        cache.update();
+        assertEquals(1, builtFeeds.size());
+        assertSame(feed, cache.provide());
+        // but the data is up to date
+        assertTrue(cache.getLagSeconds() < 10);
+    }
+
+    @Test
+    public void testKeepPreviousFeedOnFailure() throws IOException {
+        serve(message(GtfsRealtime.FeedHeader.Incrementality.FULL_DATASET, 100, entity("a", false)));
+        cache.update();
+        RealtimeFeed feed = cache.provide();
+        when(httpClient.execute(any(HttpUriRequest.class))).thenThrow(new IOException("connection refused"));
+        cache.update();
+        assertSame(feed, cache.provide());
+
+        // invalid data must not replace the feed either
+        when(httpClient.execute(any(HttpUriRequest.class))).thenReturn(response(new byte[]{1, 2, 3}));
+        cache.update();
+        assertSame(feed, cache.provide());
+        assertEquals(1, builtFeeds.size());
+    }
+
+    private void serve(GtfsRealtime.FeedMessage feedMessage) throws IOException {
+        when(httpClient.execute(any(HttpUriRequest.class))).thenReturn(response(feedMessage.toByteArray()));
+    }
+
+    private static HttpResponse response(byte[] content) {
+        BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.setEntity(new ByteArrayEntity(content));
+        return response;
+    }
+
+    private static GtfsRealtime.FeedMessage message(GtfsRealtime.FeedHeader.Incrementality incrementality, long timestamp, GtfsRealtime.FeedEntity... entities) {
+        GtfsRealtime.FeedMessage.Builder message = GtfsRealtime.FeedMessage.newBuilder();
+        message.getHeaderBuilder().setGtfsRealtimeVersion("2.0").setIncrementality(incrementality).setTimestamp(timestamp);
+        for (GtfsRealtime.FeedEntity entity : entities) {
+            message.addEntity(entity);
+        }
+        return message.build();
+    }
+
+    private static GtfsRealtime.FeedEntity entity(String id, boolean isDeleted) {
+        GtfsRealtime.FeedEntity.Builder entity = GtfsRealtime.FeedEntity.newBuilder().setId(id).setIsDeleted(isDeleted);
+        if (!isDeleted)
+            entity.getTripUpdateBuilder().getTripBuilder().setTripId("trip_" + id);
+        return entity.build();
+    }
+
+    private static String ids(Map<String, GtfsRealtime.FeedMessage> feedMessages) {
+        List<String> ids = new ArrayList<>();
+        for (GtfsRealtime.FeedEntity entity : feedMessages.get("gtfs_0").getEntityList()) {
+            ids.add(entity.getId());
+        }
+        return ids.toString();
+    }
+}
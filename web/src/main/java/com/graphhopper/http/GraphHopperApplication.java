@@ -38,8 +38,9 @@ public final class GraphHopperApplication extends Application<GraphHopperServerC
 
     @Override
     public void initialize(Bootstrap<GraphHopperServerConfiguration> bootstrap) {
-        bootstrap.addBundle(new GraphHopperBundle());
-        bootstrap.addBundle(new RealtimeBundle());
+        GraphHopperBundle graphHopperBundle = new GraphHopperBundle();
+        bootstrap.addBundle(graphHopperBundle);
+        bootstrap.addBundle(new RealtimeBundle(graphHopperBundle));
         bootstrap.addCommand(new ImportCommand());
 
         Map<String, String> resourceToURIMappings = new HashMap<>();
@@ -0,0 +1,135 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.api.GHMRequest;
+import com.graphhopper.api.GHMatrixSyncRequester;
+import com.graphhopper.api.GraphHopperMatrixWeb;
+import com.graphhopper.api.MatrixResponse;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.config.Profile;
+import com.graphhopper.http.GraphHopperApplication;
+import com.graphhopper.http.GraphHopperServerConfiguration;
+import com.graphhopper.http.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.GHPoint;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.util.Arrays;
+
+import static com.graphhopper.http.util.TestUtils.clientTarget;
+import static com.graphhopper.http.util.TestUtils.clientUrl;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class MatrixResourceTest {
+    private static final String DIR = "./target/matrix-andorra-gh/";
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("graph.flag_encoders", "car").
+                putObject("prepare.min_network_size", 0).
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("graph.encoded_values", "road_class,surface,road_environment,max_speed").
+                putObject("graph.location", DIR).
+                putObject("routing.matrix.max_points", 5)
+                .setProfiles(Arrays.asList(new Profile("my_car").setVehicle("car").setWeighting("fastest")))
+                .setCHProfiles(Arrays.asList(new CHProfile("my_car")));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testMatrixIsConsistentWithRoute() {
+        String jsonStr = "{ \"from_points\": [[1.5274, 42.5093], [1.5410, 42.5126]], \"to_points\": [[1.5410, 42.5126], [1.4984, 42.5065], [1.5274, 42.5093]]," +
+                " \"out_arrays\": [\"weights\", \"times\", \"distances\"], \"profile\": \"my_car\" }";
+        Response response = clientTarget(app, "/matrix").request().post(Entity.json(jsonStr));
+        assertEquals(200, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertEquals(2, json.get("distances").size());
+        assertEquals(3, json.get("distances").get(0).size());
+        assertEquals(0, json.get("distances").get(0).get(2).asDouble(), 1.e-6);
+        assertEquals(0, json.get("distances").get(1).get(0).asDouble(), 1.e-6);
+
+        String routeStr = "{ \"points\": [[1.5274, 42.5093], [1.4984, 42.5065]], \"profile\": \"my_car\", \"calc_points\": false, \"instructions\": false }";
+        JsonNode path = clientTarget(app, "/route").request().post(Entity.json(routeStr)).readEntity(JsonNode.class).get("paths").get(0);
+        assertEquals(path.get("distance").asDouble(), json.get("distances").get(0).get(1).asDouble(), 1);
+        assertEquals(path.get("time").asLong() / 1000.0, json.get("times").get(0).get(1).asDouble(), 1);
+        assertTrue(json.get("weights").get(0).get(1).asDouble() > 0);
+    }
+
+    @Test
+    public void testMatrixClient() {
+        GraphHopperMatrixWeb client = new GraphHopperMatrixWeb(new GHMatrixSyncRequester(clientUrl(app, "/matrix")));
+        GHMRequest request = new GHMRequest();
+        request.addPoint(new GHPoint(42.5093, 1.5274));
+        request.addPoint(new GHPoint(42.5126, 1.5410));
+        request.addOutArray("distances");
+        request.addOutArray("times");
+        request.putHint("profile", "my_car");
+        MatrixResponse rsp = client.route(request);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(0, rsp.getDistance(0, 0), 1.e-6);
+        assertTrue(rsp.getDistance(0, 1) > 1000, "distance: " + rsp.getDistance(0, 1));
+        assertTrue(rsp.getTime(1, 0) > 60_000, "time: " + rsp.getTime(1, 0));
+    }
+
+    @Test
+    public void testPointNotFound() {
+        String jsonStr = "{ \"points\": [[1.5274, 42.5093], [-10, 42.5126]], \"profile\": \"my_car\" }";
+        Response response = clientTarget(app, "/matrix").request().post(Entity.json(jsonStr));
+        assertEquals(400, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertTrue(json.get("message").asText().contains("out of bounds"), json.toString());
+    }
+
+    @Test
+    public void testTooManyPoints() {
+        String jsonStr = "{ \"from_points\": [[1.5274, 42.5093], [1.5410, 42.5126], [1.4984, 42.5065]]," +
+                " \"to_points\": [[1.5410, 42.5126], [1.4984, 42.5065], [1.5274, 42.5093]], \"profile\": \"my_car\" }";
+        Response response = clientTarget(app, "/matrix").request().post(Entity.json(jsonStr));
+        assertEquals(400, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertTrue(json.get("message").asText().contains("Too many points"), json.toString());
+    }
+
+    @Test
+    public void testUnknownOutArray() {
+        String jsonStr = "{ \"points\": [[1.5274, 42.5093], [1.5410, 42.5126]], \"out_arrays\": [\"speeds\"], \"profile\": \"my_car\" }";
+        Response response = clientTarget(app, "/matrix").request().post(Entity.json(jsonStr));
+        assertEquals(400, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertTrue(json.get("message").asText().contains("Unknown out_array"), json.toString());
+    }
+}
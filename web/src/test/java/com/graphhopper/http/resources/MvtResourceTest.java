@@ -17,6 +17,7 @@
  */
 package com.graphhopper.http.resources;
 
+import com.codahale.metrics.Gauge;
 import com.graphhopper.config.Profile;
 import com.graphhopper.http.GraphHopperApplication;
 import com.graphhopper.http.GraphHopperServerConfiguration;
@@ -45,8 +46,7 @@ import java.util.List;
 import java.util.Map;
 
 import static com.graphhopper.http.util.TestUtils.clientTarget;
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * @author Peter Karich
@@ -64,6 +64,8 @@ public class MvtResourceTest {
                 putObject("prepare.min_network_size", 0).
                 putObject("datareader.file", "../core/files/andorra.osm.pbf").
                 putObject("graph.location", DIR).
+                putObject("mvt.cache.max_bytes", 10_000_000).
+                putObject("mvt.pyramid.max_zoom", 9).
                 setProfiles(Collections.singletonList(new Profile("car").setVehicle("car").setWeighting("fastest")));
         return config;
     }
@@ -90,6 +92,34 @@ public class MvtResourceTest {
         assertEquals("Camì de les Pardines", map.get("name"));
     }
 
+    @Test
+    public void testCachedTile() throws IOException {
+        Gauge<?> hits = app.getEnvironment().metrics().getGauges().get("graphhopper.mvt_cache.hits");
+        byte[] tile = clientTarget(app, "/mvt/15/16522/12102.mvt?details=road_class&details=max_speed").request().get(byte[].class);
+        long hitsBefore = (Long) hits.getValue();
+        // the order of the details does not matter
+        assertArrayEquals(tile, clientTarget(app, "/mvt/15/16522/12102.mvt?details=max_speed&details=road_class").request().get(byte[].class));
+        assertEquals(hitsBefore + 1, (long) (Long) hits.getValue());
+    }
+
+    @Test
+    public void testPrebuiltLowZoomTile() throws IOException {
+        final Response response = clientTarget(app, "/mvt/9/258/189.mvt").request().buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        InputStream is = response.readEntity(InputStream.class);
+        JtsMvt result = MvtReader.loadMvt(is, new GeometryFactory(), new TagKeyValueMapConverter());
+        JtsLayer layer = result.getLayersByName().get("roads");
+        assertFalse(layer.getGeometries().isEmpty());
+        for (Geometry geometry : layer.getGeometries()) {
+            String roadClass = (String) ((Map) geometry.getUserData()).get("road_class");
+            assertTrue(roadClass.equals("trunk") || roadClass.equals("primary"), roadClass);
+        }
+
+        // no motorways in andorra
+        is = clientTarget(app, "/mvt/5/16/11.mvt").request().get(InputStream.class);
+        assertTrue(MvtReader.loadMvt(is, new GeometryFactory(), new TagKeyValueMapConverter()).getLayers().isEmpty());
+    }
+
     @Test
     public void testWithDetailsInResponse() throws IOException {
         final Response response = clientTarget(app, "/mvt/15/16522/12102.mvt?details=max_speed&details=road_class&details=road_environment").request().buildGet().invoke();
@@ -54,6 +54,7 @@ public class PtRouteResourceTest {
                 putObject("graph.flag_encoders", "foot").
                 putObject("datareader.file", "../reader-gtfs/files/beatty.osm").
                 putObject("gtfs.file", "../reader-gtfs/files/sample-feed.zip").
+                putObject("gtfs.raptor", true).
                 putObject("graph.location", DIR).
                 setProfiles(Collections.singletonList(new Profile("foot").setVehicle("foot").setWeighting("fastest")));
         return config;
@@ -91,6 +92,20 @@ public class PtRouteResourceTest {
         assertFalse(ghResponse.hasErrors());
     }
 
+    @Test
+    public void testRaptorQuery() {
+        final Response response = clientTarget(app, "/route")
+                .queryParam("point", "36.914893,-116.76821") // NADAV stop
+                .queryParam("point", "36.914944,-116.761472") //NANAA stop
+                .queryParam("vehicle", "pt")
+                .queryParam("pt.earliest_departure_time", "2007-01-01T08:00:00Z")
+                .queryParam("pt.algorithm", "raptor")
+                .request().buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        GHResponse ghResponse = response.readEntity(GHResponse.class);
+        assertFalse(ghResponse.hasErrors());
+    }
+
     @Test
     public void testWalkQuery() {
         final Response response = clientTarget(app, "/route")
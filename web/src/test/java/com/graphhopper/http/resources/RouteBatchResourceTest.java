@@ -0,0 +1,95 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.config.Profile;
+import com.graphhopper.http.GraphHopperApplication;
+import com.graphhopper.http.GraphHopperServerConfiguration;
+import com.graphhopper.http.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.util.Helper;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.util.Arrays;
+
+import static com.graphhopper.http.util.TestUtils.clientTarget;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class RouteBatchResourceTest {
+    private static final String DIR = "./target/route-batch-andorra-gh/";
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("graph.flag_encoders", "car").
+                putObject("prepare.min_network_size", 0).
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("graph.location", DIR).
+                putObject("routing.batch.threads", 2).
+                putObject("routing.batch.max_requests", 3)
+                .setProfiles(Arrays.asList(new Profile("my_car").setVehicle("car").setWeighting("fastest")))
+                .setCHProfiles(Arrays.asList(new CHProfile("my_car")));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testBatch() {
+        String routeStr = "{ \"points\": [[1.5274, 42.5093], [1.4984, 42.5065]], \"profile\": \"my_car\", \"instructions\": false }";
+        String jsonStr = "[" + routeStr + ", " +
+                "{ \"points\": [[1.4984, 42.5065], [1.5410, 42.5126]], \"profile\": \"my_car\", \"points_encoded\": false }, " +
+                "{ \"points\": [[1.5274, 42.5093], [-10, 42.5126]], \"profile\": \"my_car\" }]";
+        Response response = clientTarget(app, "/route/batch").request().post(Entity.json(jsonStr));
+        assertEquals(200, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        JsonNode responses = json.get("responses");
+        assertEquals(3, responses.size());
+
+        JsonNode path = clientTarget(app, "/route").request().post(Entity.json(routeStr)).readEntity(JsonNode.class).get("paths").get(0);
+        assertEquals(path.get("distance").asDouble(), responses.get(0).get("paths").get(0).get("distance").asDouble(), 0.5);
+        assertFalse(responses.get(0).get("paths").get(0).has("instructions"));
+        assertTrue(responses.get(1).get("paths").get(0).get("points").has("coordinates"));
+        assertTrue(responses.get(2).get("message").asText().contains("out of bounds"), responses.get(2).toString());
+        assertTrue(json.get("info").has("took"));
+    }
+
+    @Test
+    public void testTooManyRequests() {
+        String routeStr = "{ \"points\": [[1.5274, 42.5093], [1.4984, 42.5065]], \"profile\": \"my_car\" }";
+        String jsonStr = "[" + String.join(",", routeStr, routeStr, routeStr, routeStr) + "]";
+        Response response = clientTarget(app, "/route/batch").request().post(Entity.json(jsonStr));
+        assertEquals(400, response.getStatus());
+        assertTrue(response.readEntity(JsonNode.class).get("message").asText().contains("Too many requests"));
+    }
+}